@@ -20,8 +20,7 @@
 package org.sonar.java.checks;
 
 import org.sonar.check.Rule;
-import org.sonar.java.cfg.CFG;
-import org.sonar.java.cfg.LiveVariables;
+import org.sonar.java.cfg.MethodAnalysis;
 import org.sonar.java.model.ExpressionUtils;
 import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.semantic.Symbol;
@@ -86,9 +85,8 @@ public class PrivateFieldUsedLocallyCheck extends IssuableSubscriptionVisitor {
   }
 
   private static boolean isLiveInMethodEntry(Symbol privateFieldSymbol, MethodTree methodTree) {
-    CFG cfg = CFG.build(methodTree);
-    LiveVariables liveVariables = LiveVariables.analyzeWithFields(cfg);
-    return liveVariables.getIn(cfg.entryBlock()).contains(privateFieldSymbol);
+    MethodAnalysis analysis = MethodAnalysis.of(methodTree);
+    return analysis.liveVariablesWithFields().getIn(analysis.cfg().entryBlock()).contains(privateFieldSymbol);
   }
 
   private static boolean isPrivateField(Symbol memberSymbol) {
@@ -19,6 +19,7 @@
  */
 package org.sonar.java.checks.spring;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -27,11 +28,15 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 import org.sonar.check.Rule;
 import org.sonar.java.AnalyzerMessage;
+import org.sonar.java.CacheableEndOfAnalysisCheck;
 import org.sonar.java.EndOfAnalysisCheck;
+import org.sonar.java.MergeableEndOfAnalysisCheck;
 import org.sonar.java.model.DefaultJavaFileScannerContext;
 import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.semantic.SymbolMetadata;
 import org.sonar.plugins.java.api.tree.ClassTree;
@@ -39,7 +44,7 @@ import org.sonar.plugins.java.api.tree.IdentifierTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
 @Rule(key = "S4605")
-public class SpringBeansShouldBeAccessibleCheck extends IssuableSubscriptionVisitor implements EndOfAnalysisCheck {
+public class SpringBeansShouldBeAccessibleCheck extends IssuableSubscriptionVisitor implements MergeableEndOfAnalysisCheck, CacheableEndOfAnalysisCheck {
 
   private static final String MESSAGE_FORMAT = "'%s' is not reachable by @ComponentsScan or @SpringBootApplication. "
     + "Either move it to a package configured in @ComponentsScan or update your @ComponentsScan configuration.";
@@ -66,12 +71,50 @@ public class SpringBeansShouldBeAccessibleCheck extends IssuableSubscriptionVisi
    * These are the packages that will be scanned by Spring in search of components
    */
   private final Set<String> packagesScannedBySpring = new HashSet<>();
+  /**
+   * State collected on the current file, restored when the file is not scanned again
+   */
+  private FileSummary fileSummary = new FileSummary();
 
   @Override
   public List<Tree.Kind> nodesToVisit() {
     return Collections.singletonList(Tree.Kind.CLASS);
   }
 
+  @Override
+  public void merge(EndOfAnalysisCheck copy) {
+    SpringBeansShouldBeAccessibleCheck other = (SpringBeansShouldBeAccessibleCheck) copy;
+    other.messagesPerPackage.forEach((packageName, messages) -> messagesPerPackage.computeIfAbsent(packageName, k -> new ArrayList<>()).addAll(messages));
+    packagesScannedBySpring.addAll(other.packagesScannedBySpring);
+    if (context == null) {
+      context = other.context;
+    }
+  }
+
+  @Override
+  public void setContext(JavaFileScannerContext context) {
+    super.setContext(context);
+    fileSummary = new FileSummary();
+  }
+
+  @Nullable
+  @Override
+  public Serializable fileSummary() {
+    return fileSummary.isEmpty() ? null : fileSummary;
+  }
+
+  @Override
+  public void restoreFileSummary(JavaFileScannerContext context, Serializable summary) {
+    this.context = context;
+    FileSummary restoredSummary = (FileSummary) summary;
+    packagesScannedBySpring.addAll(restoredSummary.packagesScannedBySpring);
+    restoredSummary.beans.forEach(bean -> {
+      AnalyzerMessage.TextSpan textSpan = new AnalyzerMessage.TextSpan(bean.textSpan[0], bean.textSpan[1], bean.textSpan[2], bean.textSpan[3]);
+      AnalyzerMessage analyzerMessage = new AnalyzerMessage(this, context.getInputFile(), textSpan, String.format(MESSAGE_FORMAT, bean.className), 0);
+      messagesPerPackage.computeIfAbsent(bean.packageName, k -> new ArrayList<>()).add(analyzerMessage);
+    });
+  }
+
   @Override
   public void endOfAnalysis() {
     DefaultJavaFileScannerContext defaultContext = (DefaultJavaFileScannerContext) context;
@@ -96,7 +139,7 @@ public class SpringBeansShouldBeAccessibleCheck extends IssuableSubscriptionVisi
     if (componentScanValues != null) {
       componentScanValues.forEach(this::addToScannedPackages);
     } else if (hasAnnotation(classSymbolMetadata, SPRING_BOOT_APP_ANNOTATION)) {
-      packagesScannedBySpring.add(classPackageName);
+      addToScannedPackages(classPackageName);
     } else if (hasAnnotation(classSymbolMetadata, SPRING_BEAN_ANNOTATIONS)) {
       addMessageToMap(classPackageName, classTree.simpleName());
     }
@@ -106,6 +149,12 @@ public class SpringBeansShouldBeAccessibleCheck extends IssuableSubscriptionVisi
     DefaultJavaFileScannerContext defaultContext = (DefaultJavaFileScannerContext) context;
     AnalyzerMessage analyzerMessage = defaultContext.createAnalyzerMessage(this, classNameTree, String.format(MESSAGE_FORMAT, classNameTree.name()));
     messagesPerPackage.computeIfAbsent(classPackageName, k -> new ArrayList<>()).add(analyzerMessage);
+    fileSummary.beans.add(new Bean(classPackageName, classNameTree.name(), analyzerMessage.primaryLocation()));
+  }
+
+  private void addToScannedPackages(String packageName) {
+    packagesScannedBySpring.add(packageName);
+    fileSummary.packagesScannedBySpring.add(packageName);
   }
 
   private void addToScannedPackages(SymbolMetadata.AnnotationValue annotationValue) {
@@ -115,7 +164,7 @@ public class SpringBeansShouldBeAccessibleCheck extends IssuableSubscriptionVisi
     if (annotationValue.value() instanceof Object[]) {
       for (Object o : (Object[]) annotationValue.value()) {
         if (o instanceof String) {
-          packagesScannedBySpring.add((String) o);
+          addToScannedPackages((String) o);
         }
       }
     }
@@ -132,4 +181,29 @@ public class SpringBeansShouldBeAccessibleCheck extends IssuableSubscriptionVisi
   private static boolean hasAnnotation(SymbolMetadata classSymbolMetadata, String... annotationName) {
     return Arrays.stream(annotationName).anyMatch(classSymbolMetadata::isAnnotatedWith);
   }
+
+  private static class FileSummary implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final ArrayList<Bean> beans = new ArrayList<>();
+    private final HashSet<String> packagesScannedBySpring = new HashSet<>();
+
+    private boolean isEmpty() {
+      return beans.isEmpty() && packagesScannedBySpring.isEmpty();
+    }
+  }
+
+  private static class Bean implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String packageName;
+    private final String className;
+    private final int[] textSpan;
+
+    private Bean(String packageName, String className, AnalyzerMessage.TextSpan textSpan) {
+      this.packageName = packageName;
+      this.className = className;
+      this.textSpan = new int[] {textSpan.startLine, textSpan.startCharacter, textSpan.endLine, textSpan.endCharacter};
+    }
+  }
 }
@@ -0,0 +1,127 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.se.ProgramStatesRecorder;
+
+/**
+ * Compares the implementations of {@link PMap} on the maps of program states recorded during the symbolic execution of a file:
+ * each recorded map is derived from the previous one, as the program states of successive statements, then looked up,
+ * compared and iterated over.
+ *
+ * Run from java-frontend with: mvn test-compile -Pjmh, then java -cp (test classpath) org.openjdk.jmh.Main PMapBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PMapBenchmark {
+
+  @Param({"AVL", "HAMT"})
+  public String implementation;
+
+  @Param({"src/test/files/se/NullDereferenceCheck.java", "src/test/files/se/ConditionAlwaysTrueOrFalseCheck.java"})
+  public String file;
+
+  private List<Map<Object, Object>> recorded;
+  private List<PMap<Object, Object>> maps;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    ProgramStatesRecorder recorder = ProgramStatesRecorder.record(file);
+    recorded = new ArrayList<>(recorder.constraints());
+    recorded.addAll(recorder.values());
+    maps = replay();
+  }
+
+  @Benchmark
+  public List<PMap<Object, Object>> put_and_remove() {
+    return replay();
+  }
+
+  @Benchmark
+  public void get(Blackhole blackhole) {
+    for (int i = 0; i < maps.size(); i++) {
+      PMap<Object, Object> map = maps.get(i);
+      for (Object key : recorded.get(i).keySet()) {
+        blackhole.consume(map.get(key));
+      }
+    }
+  }
+
+  @Benchmark
+  public void equals_and_hashCode(Blackhole blackhole) {
+    PMap<Object, Object> previous = maps.get(0);
+    for (PMap<Object, Object> map : maps) {
+      blackhole.consume(map.equals(previous));
+      blackhole.consume(map.hashCode());
+      previous = map;
+    }
+  }
+
+  @Benchmark
+  public void forEach(Blackhole blackhole) {
+    for (PMap<Object, Object> map : maps) {
+      map.forEach((k, v) -> blackhole.consume(v));
+    }
+  }
+
+  /**
+   * @return maps built from the previous ones with the operations transforming a recorded map into the next one
+   */
+  private List<PMap<Object, Object>> replay() {
+    List<PMap<Object, Object>> result = new ArrayList<>(recorded.size());
+    PMap<Object, Object> map = PCollections.Implementation.valueOf(implementation).emptyMap();
+    Map<Object, Object> previous = Collections.emptyMap();
+    for (Map<Object, Object> entries : recorded) {
+      for (Object key : previous.keySet()) {
+        if (!entries.containsKey(key)) {
+          map = map.remove(key);
+        }
+      }
+      for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+        map = map.put(entry.getKey(), entry.getValue());
+      }
+      result.add(map);
+      previous = entries;
+    }
+    return result;
+  }
+}
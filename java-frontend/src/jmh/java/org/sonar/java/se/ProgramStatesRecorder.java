@@ -0,0 +1,74 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.java.collections.PMap;
+import org.sonar.java.se.checks.SECheck;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Records the maps of the program states met by the symbolic execution of a file, in the order of the walk of the exploded graphs.
+ */
+public final class ProgramStatesRecorder extends SECheck {
+
+  private final List<Map<Object, Object>> constraints = new ArrayList<>();
+  private final List<Map<Object, Object>> values = new ArrayList<>();
+
+  private ProgramStatesRecorder() {
+  }
+
+  public static ProgramStatesRecorder record(String fileName) {
+    ProgramStatesRecorder recorder = new ProgramStatesRecorder();
+    SETestUtils.createSymbolicExecutionVisitor(fileName, recorder);
+    return recorder;
+  }
+
+  @Override
+  public ProgramState checkPreStatement(CheckerContext context, Tree syntaxNode) {
+    ProgramState state = context.getState();
+    constraints.add(snapshot(state.constraints));
+    values.add(snapshot(state.values));
+    return state;
+  }
+
+  private static <K, V> Map<Object, Object> snapshot(PMap<K, V> map) {
+    Map<Object, Object> snapshot = new LinkedHashMap<>();
+    map.forEach(snapshot::put);
+    return snapshot;
+  }
+
+  /**
+   * @return entries of the maps of constraints on symbolic values
+   */
+  public List<Map<Object, Object>> constraints() {
+    return constraints;
+  }
+
+  /**
+   * @return entries of the maps of values of symbols
+   */
+  public List<Map<Object, Object>> values() {
+    return values;
+  }
+}
@@ -19,8 +19,23 @@
  */
 package org.eclipse.jdt.core.dom;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
 import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
+import org.eclipse.jdt.internal.compiler.batch.FileSystem.Classpath;
+import org.eclipse.jdt.internal.compiler.batch.Main;
+import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
 import org.eclipse.jdt.internal.compiler.lookup.ReferenceBinding;
+import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
+import org.eclipse.jdt.internal.core.BasicCompilationUnit;
+import org.eclipse.jdt.internal.core.DefaultWorkingCopyOwner;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import javax.annotation.Nullable;
@@ -51,4 +66,196 @@ public final class ASTUtils {
     }
   }
 
+  /**
+   * Creates a name environment for the given classpath entries, which can be shared by several calls to
+   * {@link #createAST(INameEnvironment, int, Map, String, char[])}.
+   * Same as the environment created by {@link ASTParser#setEnvironment(String[], String[], String[], boolean)}
+   * with running VM bootclasspath included.
+   *
+   * @throws IllegalStateException in case of invalid classpath entries
+   */
+  public static INameEnvironment createNameEnvironment(String[] classpathEntries) {
+    // diagnostics of the compiler are logged instead of being printed on the standard outputs
+    StringWriter diagnostics = new StringWriter();
+    PrintWriter diagnosticsWriter = new PrintWriter(diagnostics);
+    Main main = new Main(diagnosticsWriter, diagnosticsWriter, false, null, null);
+    ArrayList<Classpath> classpaths = new ArrayList<>();
+    try {
+      org.eclipse.jdt.internal.compiler.util.Util.collectRunningVMBootclasspath(classpaths);
+      for (String classpathEntry : classpathEntries) {
+        main.processPathEntries(Main.DEFAULT_SIZE_CLASSPATH, classpaths, classpathEntry, null, false, false);
+      }
+      if (main.pendingErrors != null && !main.pendingErrors.isEmpty()) {
+        throw new IllegalStateException("invalid environment settings: " + String.join(", ", main.pendingErrors));
+      }
+    } catch (IllegalArgumentException e) {
+      throw new IllegalStateException("invalid environment settings", e);
+    } finally {
+      diagnosticsWriter.flush();
+      if (diagnostics.getBuffer().length() > 0) {
+        LOG.debug("ECJ: {}", diagnostics);
+      }
+    }
+    return new SharedNameEnvironment(classpaths.toArray(new Classpath[0]));
+  }
+
+  /**
+   * Parses and resolves bindings of a compilation unit against an existing name environment,
+   * as {@link ASTParser#createAST(org.eclipse.core.runtime.IProgressMonitor)} does with bindings and bindings recovery enabled.
+   */
+  public static CompilationUnit createAST(INameEnvironment environment, int apiLevel, Map<String, String> options, String unitName, char[] source) {
+    int flags = ICompilationUnit.ENABLE_BINDINGS_RECOVERY;
+    BasicCompilationUnit sourceUnit = new BasicCompilationUnit(source, null, unitName, (IJavaElement) null);
+    CompilationUnitDeclaration unit = null;
+    try {
+      CompilationUnitResolver resolver = new CompilationUnitResolver(
+        environment,
+        CompilationUnitResolver.getHandlingPolicy(),
+        CompilationUnitResolver.getCompilerOptions(options, false),
+        CompilationUnitResolver.getRequestor(),
+        new DefaultProblemFactory(),
+        null,
+        false);
+      unit = resolver.resolve(sourceUnit, true, true, true);
+      if (resolver.hasCompilationAborted) {
+        unit = parseAborted(sourceUnit, unit, resolver.abortProblem, options, flags);
+      }
+      return CompilationUnitResolver.convert(
+        unit,
+        source,
+        apiLevel,
+        options,
+        true,
+        DefaultWorkingCopyOwner.PRIMARY,
+        new DefaultBindingResolver.BindingTables(),
+        flags,
+        null,
+        false);
+    } finally {
+      if (unit != null) {
+        unit.cleanUp();
+      }
+    }
+  }
+
+  /**
+   * Parses and resolves bindings of a batch of compilation units in a single compilation, as
+   * {@link ASTParser#createASTs(String[], String[], String[], FileASTRequestor, org.eclipse.core.runtime.IProgressMonitor)} does:
+   * types declared by a unit of the batch are resolved from its source by the other units.
+   * Each unit is handed to the requestor as soon as it is resolved, in the order of the units.
+   *
+   * @return number of units handed to the requestor, the following ones could not be resolved because the compilation aborted
+   */
+  public static int createASTs(INameEnvironment environment, int apiLevel, Map<String, String> options, String[] unitNames, char[][] sources,
+    FileASTRequestor requestor) {
+    int flags = ICompilationUnit.ENABLE_BINDINGS_RECOVERY;
+    org.eclipse.jdt.internal.compiler.env.ICompilationUnit[] sourceUnits = new org.eclipse.jdt.internal.compiler.env.ICompilationUnit[sources.length];
+    for (int i = 0; i < sources.length; i++) {
+      sourceUnits[i] = new BasicCompilationUnit(sources[i], null, unitNames[i], (IJavaElement) null);
+    }
+    CompilationUnitResolver resolver = new CompilationUnitResolver(
+      environment,
+      CompilationUnitResolver.getHandlingPolicy(),
+      CompilationUnitResolver.getCompilerOptions(options, false),
+      CompilationUnitResolver.getRequestor(),
+      new DefaultProblemFactory(),
+      null,
+      false);
+    try {
+      resolver.beginToCompile(sourceUnits, new String[0]);
+    } catch (RuntimeException e) {
+      LOG.debug("ECJ: Unable to parse batch of compilation units", e);
+      return 0;
+    }
+    DefaultBindingResolver.BindingTables bindingTables = new DefaultBindingResolver.BindingTables();
+    int accepted = 0;
+    // units not parsed by the compiler are parsed again one by one
+    int parsedUnits = Math.min(sources.length, resolver.totalUnits);
+    try {
+      while (accepted < parsedUnits) {
+        CompilationUnit ast = resolve(resolver, accepted, apiLevel, options, flags, bindingTables);
+        if (ast == null) {
+          break;
+        }
+        requestor.acceptAST(unitNames[accepted], ast);
+        accepted++;
+      }
+    } finally {
+      if (resolver.unitsToProcess != null) {
+        for (int i = accepted; i < resolver.totalUnits; i++) {
+          if (resolver.unitsToProcess[i] != null) {
+            resolver.unitsToProcess[i].cleanUp();
+          }
+        }
+        resolver.unitsToProcess = null;
+      }
+    }
+    return accepted;
+  }
+
+  /**
+   * Same steps as {@link CompilationUnitResolver#resolve(org.eclipse.jdt.internal.compiler.env.ICompilationUnit, boolean, boolean, boolean)},
+   * for a unit already parsed by {@link CompilationUnitResolver#beginToCompile(org.eclipse.jdt.internal.compiler.env.ICompilationUnit[], String[])}.
+   *
+   * @return null if the compilation aborted or if the unit was not parsed
+   */
+  @Nullable
+  private static CompilationUnit resolve(CompilationUnitResolver resolver, int index, int apiLevel, Map<String, String> options, int flags,
+    DefaultBindingResolver.BindingTables bindingTables) {
+    CompilationUnitDeclaration unit = resolver.unitsToProcess[index];
+    if (unit == null) {
+      return null;
+    }
+    try {
+      resolver.lookupEnvironment.unitBeingCompleted = unit;
+      resolver.parser.getMethodBodies(unit);
+      if (unit.scope != null) {
+        unit.scope.faultInTypes();
+        unit.scope.verifyMethods(resolver.lookupEnvironment.methodVerifier());
+        unit.resolve();
+        unit.analyseCode();
+        unit.generateCode();
+        unit.finalizeProblems();
+      }
+      return CompilationUnitResolver.convert(
+        unit,
+        unit.compilationResult.compilationUnit.getContents(),
+        apiLevel,
+        options,
+        true,
+        DefaultWorkingCopyOwner.PRIMARY,
+        bindingTables,
+        flags,
+        null,
+        false);
+    } catch (RuntimeException e) {
+      // includes AbortCompilation, remaining units are expected to be resolved again one by one
+      LOG.debug("ECJ: Unable to resolve batch of compilation units", e);
+      return null;
+    } finally {
+      unit.cleanUp();
+      resolver.unitsToProcess[index] = null;
+    }
+  }
+
+  /**
+   * Bindings could not be resolved due to missing types in name environment, fallback on syntax only, keeping the problems.
+   */
+  private static CompilationUnitDeclaration parseAborted(BasicCompilationUnit sourceUnit, @Nullable CompilationUnitDeclaration resolvedUnit,
+    @Nullable CategorizedProblem abortProblem, Map<String, String> options, int flags) {
+    CompilationUnitDeclaration unit = CompilationUnitResolver.parse(sourceUnit, null, options, flags);
+    if (resolvedUnit != null) {
+      int problemCount = resolvedUnit.compilationResult.problemCount;
+      if (problemCount != 0) {
+        unit.compilationResult.problems = new CategorizedProblem[problemCount];
+        System.arraycopy(resolvedUnit.compilationResult.problems, 0, unit.compilationResult.problems, 0, problemCount);
+        unit.compilationResult.problemCount = problemCount;
+      }
+    } else if (abortProblem != null) {
+      unit.compilationResult.problemCount = 1;
+      unit.compilationResult.problems = new CategorizedProblem[] {abortProblem};
+    }
+    return unit;
+  }
+
 }
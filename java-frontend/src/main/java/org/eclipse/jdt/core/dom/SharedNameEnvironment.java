@@ -0,0 +1,130 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.eclipse.jdt.core.dom;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.env.IModule;
+import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
+
+/**
+ * Name environment which is built once per analysis and reused by every parsed file.
+ * Jars are opened and their packages indexed only once, while lookups of packages and missing types are memoized,
+ * as the classpath can not change during the analysis.
+ * Binary types found on the classpath are read again for each compilation, as ECJ releases the content of
+ * a class file reader once its binding has been built.
+ * Lookups are synchronized, as files can be parsed by several threads and bindings of parsed trees are resolved lazily.
+ */
+class SharedNameEnvironment extends NameEnvironmentWithProgress {
+
+  private static final int MAX_CACHED_MISSING_TYPES = 20_000;
+  private static final char[][] NO_MODULES = new char[0][];
+
+  private final Cache<String, Boolean> missingTypes = CacheBuilder.newBuilder()
+    .maximumSize(MAX_CACHED_MISSING_TYPES)
+    .build();
+  private final ConcurrentMap<String, char[][]> modulesDeclaringPackage = new ConcurrentHashMap<>();
+
+  SharedNameEnvironment(Classpath[] paths) {
+    super(paths, null, null);
+  }
+
+  @Override
+  public synchronized NameEnvironmentAnswer findType(char[][] compoundName) {
+    return super.findType(compoundName);
+  }
+
+  @Override
+  public synchronized NameEnvironmentAnswer findType(char[] typeName, char[][] packageName, char[] moduleName) {
+    return super.findType(typeName, packageName, moduleName);
+  }
+
+  @Override
+  public synchronized boolean isPackage(char[][] compoundName, char[] packageName) {
+    return super.isPackage(compoundName, packageName);
+  }
+
+  @Override
+  public synchronized boolean hasCompilationUnit(char[][] qualifiedPackageName, char[] moduleName, boolean checkCUs) {
+    return super.hasCompilationUnit(qualifiedPackageName, moduleName, checkCUs);
+  }
+
+  @Override
+  public synchronized IModule getModule(char[] name) {
+    return super.getModule(name);
+  }
+
+  @Override
+  public synchronized NameEnvironmentAnswer findType(char[][] compoundName, char[] moduleName) {
+    if (compoundName == null) {
+      return null;
+    }
+    String key = key(moduleName, CharOperation.concatWith(compoundName, '/'));
+    return cached(key, () -> super.findType(compoundName, moduleName));
+  }
+
+  @Override
+  public synchronized NameEnvironmentAnswer findType(char[] typeName, char[][] packageName, boolean searchWithSecondaryTypes, char[] moduleName) {
+    if (typeName == null) {
+      return null;
+    }
+    String key = key(moduleName, CharOperation.concatWith(packageName, typeName, '/')) + (searchWithSecondaryTypes ? "" : "#");
+    return cached(key, () -> super.findType(typeName, packageName, searchWithSecondaryTypes, moduleName));
+  }
+
+  @Override
+  public synchronized char[][] getModulesDeclaringPackage(char[][] packageName, char[] moduleName) {
+    String key = key(moduleName, CharOperation.concatWith(packageName, '/'));
+    char[][] modules = modulesDeclaringPackage.computeIfAbsent(key, k -> {
+      char[][] result = super.getModulesDeclaringPackage(packageName, moduleName);
+      return result == null ? NO_MODULES : result;
+    });
+    return modules == NO_MODULES ? null : modules;
+  }
+
+  @Override
+  public synchronized void cleanup() {
+    missingTypes.invalidateAll();
+    modulesDeclaringPackage.clear();
+    super.cleanup();
+  }
+
+  @Nullable
+  private NameEnvironmentAnswer cached(String key, Supplier<NameEnvironmentAnswer> lookup) {
+    if (missingTypes.getIfPresent(key) != null) {
+      return null;
+    }
+    NameEnvironmentAnswer answer = lookup.get();
+    if (answer == null) {
+      missingTypes.put(key, Boolean.TRUE);
+    }
+    return answer;
+  }
+
+  private static String key(@Nullable char[] moduleName, char[] qualifiedName) {
+    return (moduleName == null ? "" : String.valueOf(moduleName)) + ':' + String.valueOf(qualifiedName);
+  }
+
+}
@@ -0,0 +1,431 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.batch.sensor.symbol.NewSymbol;
+import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.scan.issue.filter.FilterableIssue;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.check.RuleProperty;
+import org.sonar.java.filters.SonarJavaIssueFilter;
+import org.sonar.java.model.VisitorsBridge;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaResourceLocator;
+import org.sonar.plugins.java.api.JavaVersion;
+
+/**
+ * Persistent cache of the {@link FileResults} of the analysis of each file, replayed instead of analyzing the file again
+ * when neither its content nor the fingerprint of the analysis (active rules and their parameters, Java version, classpath) changed.
+ * <p>
+ * Jars of the classpath are identified by their path, size and modification date, and directories of the classpath by the same
+ * attributes of each of their files: a change in a class of the project itself invalidates the results of all the files.
+ * Issues are cached after having been filtered by the {@link SonarJavaIssueFilter}, which needs the syntax tree of the file.
+ * <p>
+ * The cache is used by the thread driving the analysis.
+ */
+public class AnalysisCache {
+
+  private static final Logger LOG = Loggers.get(AnalysisCache.class);
+
+  private static final int FORMAT_VERSION = 2;
+
+  private final File directory;
+  private final SonarComponents sonarComponents;
+  @Nullable
+  private final Measurer measurer;
+  private final JavaResourceLocator javaResourceLocator;
+  @Nullable
+  private final SonarJavaIssueFilter issueFilter;
+  private final Set<String> usedEntries = new HashSet<>();
+
+  public AnalysisCache(File directory, SonarComponents sonarComponents, @Nullable Measurer measurer, JavaResourceLocator javaResourceLocator,
+    @Nullable SonarJavaIssueFilter issueFilter) {
+    this.directory = directory;
+    this.sonarComponents = sonarComponents;
+    this.measurer = measurer;
+    this.javaResourceLocator = javaResourceLocator;
+    this.issueFilter = issueFilter;
+  }
+
+  /**
+   * @throws IllegalStateException if the parameters of a rule or a directory of the classpath can not be read
+   */
+  public static String fingerprint(Iterable<? extends JavaCheck> visitors, List<File> classpath, JavaVersion javaVersion, boolean xFileEnabled) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putInt(FORMAT_VERSION);
+    putString(hasher, String.valueOf(AnalysisCache.class.getPackage().getImplementationVersion()));
+    hasher.putInt(javaVersion.asInt());
+    hasher.putBoolean(xFileEnabled);
+    SortedSet<String> checks = new TreeSet<>();
+    SortedSet<File> codeSources = new TreeSet<>();
+    for (JavaCheck visitor : visitors) {
+      // visitors wrapped in lambdas do not have a stable name
+      if (!visitor.getClass().isSynthetic()) {
+        checks.add(checkFingerprint(visitor));
+        File codeSource = codeSource(visitor.getClass());
+        if (codeSource != null) {
+          codeSources.add(codeSource);
+        }
+      }
+    }
+    checks.forEach(check -> putString(hasher, check));
+    codeSources.forEach(file -> putFile(hasher, file));
+    classpath.forEach(file -> putFile(hasher, file));
+    return hasher.hash().toString();
+  }
+
+  private static String checkFingerprint(JavaCheck check) {
+    SortedSet<String> properties = new TreeSet<>();
+    try {
+      for (Class<?> type = check.getClass(); type != Object.class; type = type.getSuperclass()) {
+        for (Field field : type.getDeclaredFields()) {
+          if (field.isAnnotationPresent(RuleProperty.class)) {
+            field.setAccessible(true);
+            properties.add(type.getName() + "." + field.getName() + "=" + field.get(check));
+          }
+        }
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      throw new IllegalStateException(String.format("Unable to read parameters of %s", check.getClass().getName()), e);
+    }
+    return check.getClass().getName() + properties;
+  }
+
+  @Nullable
+  private static File codeSource(Class<?> type) {
+    CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+    if (codeSource == null || codeSource.getLocation() == null) {
+      return null;
+    }
+    try {
+      return Paths.get(codeSource.getLocation().toURI()).toFile();
+    } catch (URISyntaxException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static void putFile(Hasher hasher, File file) {
+    putString(hasher, file.getAbsolutePath());
+    if (file.isFile()) {
+      hasher.putLong(file.length());
+      hasher.putLong(file.lastModified());
+    } else if (file.isDirectory()) {
+      putDirectory(hasher, file.toPath());
+    }
+  }
+
+  private static void putDirectory(Hasher hasher, Path directory) {
+    List<Path> files;
+    try (Stream<Path> walk = Files.walk(directory)) {
+      files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    } catch (IOException | UncheckedIOException e) {
+      throw new IllegalStateException("Unable to read directory " + directory, e);
+    }
+    for (Path path : files) {
+      File file = path.toFile();
+      putString(hasher, directory.relativize(path).toString());
+      hasher.putLong(file.length());
+      hasher.putLong(file.lastModified());
+    }
+  }
+
+  private static void putString(Hasher hasher, String value) {
+    hasher.putString(value, StandardCharsets.UTF_8);
+    hasher.putByte((byte) 0);
+  }
+
+  /**
+   * @return key of the results of the file in the cache, null if the file can not be read
+   */
+  @Nullable
+  public String entryKey(String fingerprint, InputFile inputFile) {
+    try {
+      Hasher hasher = Hashing.sha256().newHasher();
+      putString(hasher, fingerprint);
+      putString(hasher, inputFile.uri().toString());
+      putString(hasher, inputFile.contents());
+      return hasher.hash().toString();
+    } catch (IOException e) {
+      LOG.debug("Unable to read file '{}', its results will not be cached", inputFile, e);
+      return null;
+    }
+  }
+
+  @Nullable
+  public FileResults read(String entryKey) {
+    Path entry = directory.toPath().resolve(entryKey);
+    if (!Files.isRegularFile(entry)) {
+      return null;
+    }
+    try (ObjectInputStream input = new EntryInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+      FileResults results = (FileResults) input.readObject();
+      usedEntries.add(entryKey);
+      return results;
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      LOG.debug("Unable to read entry {} of the analysis cache", entry, e);
+      return null;
+    }
+  }
+
+  public void write(String entryKey, FileResults results) {
+    if (!results.isCacheable()) {
+      return;
+    }
+    if (issueFilter != null) {
+      String componentKey = results.inputFile.key();
+      results.issues.removeIf(issue -> !issueFilter.accept(new CachedIssue(componentKey, issue), filterableIssue -> true));
+    }
+    Path entry = directory.toPath().resolve(entryKey);
+    Path temporaryEntry = directory.toPath().resolve(entryKey + ".tmp");
+    try {
+      Files.createDirectories(directory.toPath());
+      try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryEntry)))) {
+        output.writeObject(results);
+      }
+      Files.move(temporaryEntry, entry, StandardCopyOption.REPLACE_EXISTING);
+      usedEntries.add(entryKey);
+    } catch (IOException e) {
+      LOG.debug("Unable to write entry {} of the analysis cache", entry, e);
+    }
+  }
+
+  /**
+   * Saves the results of a previous analysis of the file on the sensor context, and restores the state collected on the file
+   * by the end of analysis checks of the bridge.
+   */
+  public void replay(InputFile inputFile, FileResults results, VisitorsBridge bridge) {
+    results.analysisErrors.forEach(message -> sonarComponents.reportAnalysisError(inputFile, message));
+    for (FileResults.Issue issue : results.issues) {
+      AnalyzerMessage analyzerMessage = analyzerMessage(inputFile, issue.location, issue.cost == null ? 0 : issue.cost.intValue());
+      for (List<FileResults.Location> flow : issue.flows) {
+        List<AnalyzerMessage> flowMessages = new ArrayList<>();
+        flow.forEach(location -> flowMessages.add(analyzerMessage(inputFile, location, 0)));
+        analyzerMessage.flows.add(flowMessages);
+      }
+      sonarComponents.reportIssue(analyzerMessage, issue.ruleKey(), inputFile, issue.cost);
+    }
+    if (measurer != null) {
+      measurer.restore(inputFile, results.noSonarLines, results.measures);
+    }
+    if (results.fileLinesSaved) {
+      FileLinesContext fileLinesContext = sonarComponents.fileLinesContextFor(inputFile);
+      for (Object[] value : results.fileLinesValues) {
+        if (value[2] instanceof Integer) {
+          fileLinesContext.setIntValue((String) value[0], (Integer) value[1], (Integer) value[2]);
+        } else {
+          fileLinesContext.setStringValue((String) value[0], (Integer) value[1], (String) value[2]);
+        }
+      }
+      fileLinesContext.save();
+    }
+    if (results.highlightingSaved) {
+      NewHighlighting highlighting = sonarComponents.highlightableFor(inputFile);
+      results.highlightings.forEach(h -> highlighting.highlight(h.range[0], h.range[1], h.range[2], h.range[3], h.type));
+      highlighting.save();
+    }
+    if (results.symbolTableSaved) {
+      NewSymbolTable symbolTable = sonarComponents.symbolizableFor(inputFile);
+      for (List<int[]> ranges : results.symbols) {
+        int[] declaration = ranges.get(0);
+        NewSymbol symbol = symbolTable.newSymbol(declaration[0], declaration[1], declaration[2], declaration[3]);
+        ranges.subList(1, ranges.size()).forEach(reference -> symbol.newReference(reference[0], reference[1], reference[2], reference[3]));
+      }
+      symbolTable.save();
+    }
+    if (javaResourceLocator instanceof DefaultJavaResourceLocator) {
+      ((DefaultJavaResourceLocator) javaResourceLocator).restore(inputFile, results.classNames);
+    }
+    bridge.restoreFileSummaries(inputFile, results.endOfAnalysisSummaries);
+  }
+
+  private static AnalyzerMessage analyzerMessage(InputFile inputFile, FileResults.Location location, int cost) {
+    return new AnalyzerMessage(null, inputFile, location.textSpan(), location.message, cost);
+  }
+
+  /**
+   * Deletes the entries which were neither read nor written by the current analysis.
+   */
+  public void cleanup() {
+    File[] entries = directory.listFiles();
+    if (entries == null) {
+      return;
+    }
+    int deletedEntries = 0;
+    for (File entry : entries) {
+      if (!usedEntries.contains(entry.getName())) {
+        try {
+          Files.deleteIfExists(entry.toPath());
+          deletedEntries++;
+        } catch (IOException e) {
+          LOG.debug("Unable to delete entry {} of the analysis cache", entry, e);
+        }
+      }
+    }
+    LOG.debug("{} entries of the analysis cache deleted, {} kept", deletedEntries, usedEntries.size());
+  }
+
+  /**
+   * Issue submitted to the {@link SonarJavaIssueFilter} before being cached, only component, rule, message, line and gap are known.
+   */
+  private static class CachedIssue implements FilterableIssue {
+    private final String componentKey;
+    private final FileResults.Issue issue;
+
+    CachedIssue(String componentKey, FileResults.Issue issue) {
+      this.componentKey = componentKey;
+      this.issue = issue;
+    }
+
+    @Override
+    public String componentKey() {
+      return componentKey;
+    }
+
+    @Override
+    public RuleKey ruleKey() {
+      return issue.ruleKey();
+    }
+
+    @Override
+    public String severity() {
+      return null;
+    }
+
+    @Override
+    public String message() {
+      return issue.location.message;
+    }
+
+    @Override
+    public Integer line() {
+      AnalyzerMessage.TextSpan textSpan = issue.location.textSpan();
+      return textSpan == null ? null : textSpan.startLine;
+    }
+
+    @Override
+    public TextRange textRange() {
+      return null;
+    }
+
+    @Override
+    public Double gap() {
+      return issue.cost;
+    }
+
+    @Override
+    public Date creationDate() {
+      return null;
+    }
+
+    @Override
+    public String projectKey() {
+      return null;
+    }
+  }
+
+  /**
+   * Deserializes only the classes of the results of a file, the directory of the cache being possibly shared: classes of the
+   * JDK holding the values of the results, and the classes of the summaries of the {@link CacheableEndOfAnalysisCheck}s, nested in
+   * the checks. An entry with other classes is not read, and its file is analyzed again.
+   */
+  private static class EntryInputStream extends ObjectInputStream {
+    private static final Set<String> ALLOWED_CLASSES = Stream.of(
+      FileResults.class, FileResults.Location.class, FileResults.Issue.class, FileResults.Highlighting.class, TypeOfText.class,
+      Serializable[].class, String[].class, int[].class, long[].class, boolean[].class,
+      String.class, Number.class, Integer.class, Long.class, Double.class, Boolean.class, Enum.class,
+      ArrayList.class, LinkedList.class, HashMap.class, LinkedHashMap.class, TreeMap.class, HashSet.class, LinkedHashSet.class, TreeSet.class)
+      .map(Class::getName)
+      .collect(Collectors.toSet());
+
+    EntryInputStream(InputStream input) throws IOException {
+      super(input);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass descriptor) throws IOException, ClassNotFoundException {
+      if (ALLOWED_CLASSES.contains(descriptor.getName())) {
+        return super.resolveClass(descriptor);
+      }
+      // classes are resolved without being initialized
+      Class<?> type = super.resolveClass(descriptor);
+      if (!isSummaryClass(type)) {
+        throw new InvalidClassException(descriptor.getName(), "Unexpected class in the analysis cache");
+      }
+      return type;
+    }
+
+    private static boolean isSummaryClass(Class<?> type) {
+      for (Class<?> enclosingClass = type.getEnclosingClass(); enclosingClass != null; enclosingClass = enclosingClass.getEnclosingClass()) {
+        if (CacheableEndOfAnalysisCheck.class.isAssignableFrom(enclosingClass)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+      throw new InvalidClassException("Unexpected proxy class in the analysis cache");
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import com.google.common.annotations.Beta;
+import java.io.Serializable;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+
+/**
+ * End of analysis check which can be used when results of unchanged files are replayed from the analysis cache:
+ * the state collected by the check on each file is cached with the results of the file, and restored when the file is not scanned again.
+ */
+@Beta
+public interface CacheableEndOfAnalysisCheck extends EndOfAnalysisCheck {
+
+  /**
+   * Method called after each file has been scanned.
+   *
+   * @return state collected on the file needed by {@link #endOfAnalysis()}, null if none
+   */
+  @Nullable
+  Serializable fileSummary();
+
+  /**
+   * Method called instead of scanning a file whose results are replayed from the analysis cache.
+   *
+   * @param context context of the file, without syntax tree
+   * @param summary state collected by a previous analysis of the file, returned by {@link #fileSummary()}
+   */
+  void restoreFileSummary(JavaFileScannerContext context, Serializable summary);
+
+}
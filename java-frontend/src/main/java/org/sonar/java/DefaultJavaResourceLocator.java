@@ -86,5 +86,13 @@ public class DefaultJavaResourceLocator implements JavaResourceLocator {
     JavaFilesCache javaFilesCache = new JavaFilesCache();
     javaFilesCache.scanFile(context);
     javaFilesCache.getClassNames().forEach(className -> resourcesByClass.put(className, inputFile));
+    FileResults.ifRecording(results -> results.addClassNames(javaFilesCache.getClassNames()));
+  }
+
+  /**
+   * Adds the classes of a file recorded by a previous analysis, see {@link FileResults}.
+   */
+  void restore(InputFile inputFile, Collection<String> classNames) {
+    classNames.forEach(className -> resourcesByClass.put(className, inputFile));
   }
 }
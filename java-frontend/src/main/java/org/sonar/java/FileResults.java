@@ -0,0 +1,376 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputComponent;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.batch.sensor.symbol.NewSymbol;
+import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * Results of the analysis of a file saved on the sensor context, recorded to be stored in the {@link AnalysisCache}
+ * and replayed by the next analyses of the same file.
+ * Results are recorded by the thread analyzing the file, and by the thread replaying its writes on the sensor context,
+ * see {@link SensorWrites}.
+ */
+public class FileResults implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final ThreadLocal<FileResults> RECORDING = new ThreadLocal<>();
+
+  final transient InputFile inputFile;
+  private transient boolean cacheable = true;
+
+  final List<Issue> issues = new ArrayList<>();
+  final List<String> analysisErrors = new ArrayList<>();
+  final Map<String, Serializable> measures = new LinkedHashMap<>();
+  @Nullable
+  TreeSet<Integer> noSonarLines;
+  final List<Serializable[]> fileLinesValues = new ArrayList<>();
+  boolean fileLinesSaved;
+  final List<Highlighting> highlightings = new ArrayList<>();
+  boolean highlightingSaved;
+  final List<ArrayList<int[]>> symbols = new ArrayList<>();
+  boolean symbolTableSaved;
+  final TreeSet<String> classNames = new TreeSet<>();
+  final LinkedHashMap<String, Serializable> endOfAnalysisSummaries = new LinkedHashMap<>();
+
+  public FileResults(InputFile inputFile) {
+    this.inputFile = inputFile;
+  }
+
+  /**
+   * Runs the analysis of a file, or the replay of its writes, recording the results of the file.
+   */
+  public static void record(FileResults results, Runnable analysis) {
+    FileResults previous = RECORDING.get();
+    RECORDING.set(results);
+    try {
+      analysis.run();
+    } finally {
+      if (previous == null) {
+        RECORDING.remove();
+      } else {
+        RECORDING.set(previous);
+      }
+    }
+  }
+
+  /**
+   * @return the write, recording results in the file currently recorded when replayed by another thread
+   */
+  static Runnable bind(Runnable write) {
+    FileResults results = RECORDING.get();
+    if (results == null) {
+      return write;
+    }
+    return () -> record(results, write);
+  }
+
+  public static void ifRecording(Consumer<FileResults> action) {
+    FileResults results = RECORDING.get();
+    if (results != null) {
+      action.accept(results);
+    }
+  }
+
+  /**
+   * Results of a file are not cached when they are incomplete (failure of a rule, exceeded time budget, ...)
+   * or when they can not be replayed on their own.
+   */
+  public void doNotCache() {
+    cacheable = false;
+  }
+
+  boolean isCacheable() {
+    return cacheable;
+  }
+
+  void addIssue(RuleKey ruleKey, AnalyzerMessage analyzerMessage) {
+    if (!isCurrentFile(analyzerMessage.getInputComponent())) {
+      doNotCache();
+      return;
+    }
+    List<List<Location>> flows = new ArrayList<>();
+    for (List<AnalyzerMessage> flow : analyzerMessage.flows) {
+      List<Location> locations = new ArrayList<>();
+      flow.forEach(message -> locations.add(new Location(message.getMessage(), message.primaryLocation())));
+      flows.add(locations);
+    }
+    issues.add(new Issue(ruleKey, new Location(analyzerMessage.getMessage(), analyzerMessage.primaryLocation()), analyzerMessage.getCost(), flows));
+  }
+
+  void addAnalysisError(InputFile file, String message) {
+    if (isCurrentFile(file)) {
+      analysisErrors.add(message);
+    } else {
+      doNotCache();
+    }
+  }
+
+  void addMeasure(String metricKey, Serializable value) {
+    measures.put(metricKey, value);
+  }
+
+  void setNoSonarLines(Set<Integer> lines) {
+    noSonarLines = new TreeSet<>(lines);
+  }
+
+  void addClassNames(Collection<String> names) {
+    classNames.addAll(names);
+  }
+
+  public void addEndOfAnalysisSummary(String checkClassName, Serializable summary) {
+    endOfAnalysisSummaries.put(checkClassName, summary);
+  }
+
+  private boolean isCurrentFile(@Nullable InputComponent component) {
+    return inputFile.equals(component);
+  }
+
+  static FileLinesContext recording(FileLinesContext fileLinesContext) {
+    FileResults results = RECORDING.get();
+    return results == null ? fileLinesContext : results.new RecordingFileLinesContext(fileLinesContext);
+  }
+
+  static NewHighlighting recording(NewHighlighting highlighting) {
+    FileResults results = RECORDING.get();
+    return results == null ? highlighting : results.new RecordingHighlighting(highlighting);
+  }
+
+  static NewSymbolTable recording(NewSymbolTable symbolTable) {
+    FileResults results = RECORDING.get();
+    return results == null ? symbolTable : results.new RecordingSymbolTable(symbolTable);
+  }
+
+  private static int[] range(TextRange range) {
+    return new int[] {range.start().line(), range.start().lineOffset(), range.end().line(), range.end().lineOffset()};
+  }
+
+  static class Location implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final String message;
+    @Nullable
+    final int[] textSpan;
+
+    Location(String message, @Nullable AnalyzerMessage.TextSpan textSpan) {
+      this.message = message;
+      this.textSpan = textSpan == null ? null : new int[] {textSpan.startLine, textSpan.startCharacter, textSpan.endLine, textSpan.endCharacter};
+    }
+
+    @Nullable
+    AnalyzerMessage.TextSpan textSpan() {
+      return textSpan == null ? null : new AnalyzerMessage.TextSpan(textSpan[0], textSpan[1], textSpan[2], textSpan[3]);
+    }
+  }
+
+  static class Issue implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    final String repository;
+    final String rule;
+    final Location location;
+    @Nullable
+    final Double cost;
+    final List<List<Location>> flows;
+
+    Issue(RuleKey ruleKey, Location location, @Nullable Double cost, List<List<Location>> flows) {
+      this.repository = ruleKey.repository();
+      this.rule = ruleKey.rule();
+      this.location = location;
+      this.cost = cost;
+      this.flows = flows;
+    }
+
+    RuleKey ruleKey() {
+      return RuleKey.of(repository, rule);
+    }
+  }
+
+  static class Highlighting implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final int[] range;
+    final TypeOfText type;
+
+    Highlighting(int[] range, TypeOfText type) {
+      this.range = range;
+      this.type = type;
+    }
+  }
+
+  private class RecordingFileLinesContext implements FileLinesContext {
+    private final FileLinesContext delegate;
+
+    RecordingFileLinesContext(FileLinesContext delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void setIntValue(String metricKey, int line, int value) {
+      fileLinesValues.add(new Serializable[] {metricKey, line, value});
+      delegate.setIntValue(metricKey, line, value);
+    }
+
+    @Override
+    public void setStringValue(String metricKey, int line, String value) {
+      fileLinesValues.add(new Serializable[] {metricKey, line, value});
+      delegate.setStringValue(metricKey, line, value);
+    }
+
+    @Override
+    public void save() {
+      fileLinesSaved = true;
+      delegate.save();
+    }
+  }
+
+  private class RecordingHighlighting implements NewHighlighting {
+    private final NewHighlighting delegate;
+
+    RecordingHighlighting(NewHighlighting delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public NewHighlighting onFile(InputFile file) {
+      delegate.onFile(file);
+      return this;
+    }
+
+    @Override
+    public NewHighlighting highlight(int startOffset, int endOffset, TypeOfText typeOfText) {
+      // offsets are not recorded
+      doNotCache();
+      delegate.highlight(startOffset, endOffset, typeOfText);
+      return this;
+    }
+
+    @Override
+    public NewHighlighting highlight(TextRange range, TypeOfText typeOfText) {
+      highlightings.add(new Highlighting(range(range), typeOfText));
+      delegate.highlight(range, typeOfText);
+      return this;
+    }
+
+    @Override
+    public NewHighlighting highlight(int startLine, int startLineOffset, int endLine, int endLineOffset, TypeOfText typeOfText) {
+      highlightings.add(new Highlighting(new int[] {startLine, startLineOffset, endLine, endLineOffset}, typeOfText));
+      delegate.highlight(startLine, startLineOffset, endLine, endLineOffset, typeOfText);
+      return this;
+    }
+
+    @Override
+    public void save() {
+      highlightingSaved = true;
+      delegate.save();
+    }
+  }
+
+  private class RecordingSymbolTable implements NewSymbolTable {
+    private final NewSymbolTable delegate;
+
+    RecordingSymbolTable(NewSymbolTable delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public NewSymbolTable onFile(InputFile file) {
+      delegate.onFile(file);
+      return this;
+    }
+
+    @Override
+    public NewSymbol newSymbol(int startOffset, int endOffset) {
+      // offsets are not recorded
+      doNotCache();
+      return delegate.newSymbol(startOffset, endOffset);
+    }
+
+    @Override
+    public NewSymbol newSymbol(TextRange range) {
+      return new RecordingSymbol(delegate.newSymbol(range), range(range));
+    }
+
+    @Override
+    public NewSymbol newSymbol(int startLine, int startLineOffset, int endLine, int endLineOffset) {
+      return new RecordingSymbol(delegate.newSymbol(startLine, startLineOffset, endLine, endLineOffset), new int[] {startLine, startLineOffset, endLine, endLineOffset});
+    }
+
+    @Override
+    public void save() {
+      symbolTableSaved = true;
+      delegate.save();
+    }
+  }
+
+  /**
+   * Records the declaration of the symbol, followed by its references.
+   */
+  private class RecordingSymbol implements NewSymbol {
+    private final NewSymbol delegate;
+    private final ArrayList<int[]> ranges = new ArrayList<>();
+
+    RecordingSymbol(NewSymbol delegate, int[] declaration) {
+      this.delegate = delegate;
+      ranges.add(declaration);
+      symbols.add(ranges);
+    }
+
+    @Override
+    public NewSymbol newReference(int startOffset, int endOffset) {
+      // offsets are not recorded
+      doNotCache();
+      delegate.newReference(startOffset, endOffset);
+      return this;
+    }
+
+    @Override
+    public NewSymbol newReference(TextRange range) {
+      ranges.add(range(range));
+      delegate.newReference(range);
+      return this;
+    }
+
+    @Override
+    public NewSymbol newReference(int startLine, int startLineOffset, int endLine, int endLineOffset) {
+      ranges.add(new int[] {startLine, startLineOffset, endLine, endLineOffset});
+      delegate.newReference(startLine, startLineOffset, endLine, endLineOffset);
+      return this;
+    }
+  }
+}
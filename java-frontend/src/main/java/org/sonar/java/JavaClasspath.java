@@ -77,6 +77,10 @@ public class JavaClasspath extends AbstractJavaClasspath {
     }
   }
 
+  public void addAnalysisWarning(String warning) {
+    analysisWarnings.addUnique(warning);
+  }
+
   protected boolean isSonarLint() {
     return false;
   }
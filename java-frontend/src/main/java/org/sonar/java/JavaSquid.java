@@ -27,6 +27,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.utils.log.Logger;
@@ -36,9 +37,12 @@ import org.sonar.java.ast.JavaAstScanner;
 import org.sonar.java.ast.visitors.FileLinesVisitor;
 import org.sonar.java.ast.visitors.SyntaxHighlighterVisitor;
 import org.sonar.java.filters.SonarJavaIssueFilter;
+import org.sonar.java.model.ClasspathRegistry;
 import org.sonar.java.model.VisitorsBridge;
 import org.sonar.java.se.SymbolicExecutionMode;
+import org.sonar.java.se.xproc.PersistentBehaviorCache;
 import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.plugins.java.api.JavaVersion;
 
@@ -49,6 +53,14 @@ public class JavaSquid {
   private final JavaAstScanner astScanner;
   private final JavaAstScanner astScannerForTests;
   private final JavaAstScanner astScannerForGeneratedFiles;
+  /**
+   * Bridges of the main, test and generated files, in which the bridges of the other analysis threads are merged.
+   */
+  private final List<VisitorsBridge> bridges = new ArrayList<>();
+  @Nullable
+  private AnalysisCache analysisCache;
+  @Nullable
+  private PersistentBehaviorCache behaviorCache;
 
   public JavaSquid(JavaVersion javaVersion,
     @Nullable SonarComponents sonarComponents, @Nullable Measurer measurer,
@@ -60,9 +72,10 @@ public class JavaSquid {
                    @Nullable SonarComponents sonarComponents, @Nullable Measurer measurer,
                    JavaResourceLocator javaResourceLocator, @Nullable SonarJavaIssueFilter postAnalysisIssueFilter, JavaCheck... visitors) {
 
-    List<JavaCheck> commonVisitors = Lists.newArrayList(javaResourceLocator);
+    int analysisThreads = sonarComponents == null ? 1 : sonarComponents.analysisThreads();
+    List<JavaCheck> commonVisitors = Lists.newArrayList(replayedInFileOrder(javaResourceLocator, analysisThreads));
     if (postAnalysisIssueFilter != null) {
-      commonVisitors.add(postAnalysisIssueFilter);
+      commonVisitors.add(replayedInFileOrder(postAnalysisIssueFilter, analysisThreads));
     }
 
     Iterable<JavaCheck> codeVisitors = Iterables.concat(commonVisitors, Arrays.asList(visitors));
@@ -86,30 +99,163 @@ public class JavaSquid {
       jspCodeVisitors = sonarComponents.jspCodeVisitors();
     }
 
+    SymbolicExecutionMode symbolicExecutionMode = SymbolicExecutionMode.getMode(visitors, xFileEnabled);
+    if (sonarComponents != null && symbolicExecutionMode.isEnabled() && sonarComponents.isBehaviorCacheEnabled()) {
+      File directory = sonarComponents.behaviorCacheDirectory();
+      behaviorCache = new PersistentBehaviorCache(directory, sonarComponents.jdkHome());
+      LOG.info("Behavior cache of bytecode methods: {}", directory);
+    }
+
+    // jars of the classpaths are opened once, whatever the number of bridges using them
+    ClasspathRegistry classpathRegistry = new ClasspathRegistry(sonarComponents == null ? null : sonarComponents.jdkHome());
+
     //AstScanner for main files
     astScanner = new JavaAstScanner(sonarComponents);
-    astScanner.setVisitorBridge(createVisitorBridge(codeVisitors, classpath, javaVersion, sonarComponents, SymbolicExecutionMode.getMode(visitors, xFileEnabled)));
+    astScanner.setVisitorBridge(withBehaviorCache(
+      analysisBridge(createVisitorBridge(codeVisitors, classpath, javaVersion, sonarComponents, symbolicExecutionMode, classpathRegistry))));
 
     //AstScanner for test files
     astScannerForTests = new JavaAstScanner(sonarComponents);
-    astScannerForTests.setVisitorBridge(createVisitorBridge(testCodeVisitors, testClasspath, javaVersion, sonarComponents, SymbolicExecutionMode.DISABLED));
+    astScannerForTests.setVisitorBridge(
+      analysisBridge(createVisitorBridge(testCodeVisitors, testClasspath, javaVersion, sonarComponents, SymbolicExecutionMode.DISABLED, classpathRegistry)));
 
     //AstScanner for generated files
     astScannerForGeneratedFiles = new JavaAstScanner(sonarComponents);
-    astScannerForGeneratedFiles.setVisitorBridge(createVisitorBridge(jspCodeVisitors, classpath, javaVersion, sonarComponents, SymbolicExecutionMode.DISABLED));
+    astScannerForGeneratedFiles.setVisitorBridge(
+      analysisBridge(createVisitorBridge(jspCodeVisitors, classpath, javaVersion, sonarComponents, SymbolicExecutionMode.DISABLED, classpathRegistry)));
+
+    if (sonarComponents != null && sonarComponents.isAnalysisCacheEnabled()) {
+      enableAnalysisCache(sonarComponents, measurer, javaResourceLocator, postAnalysisIssueFilter, xFileEnabled, javaVersion,
+        codeVisitors, classpath, testCodeVisitors, testClasspath);
+    }
+
+    if (analysisThreads > 1) {
+      List<VisitorsBridge> workerBridges = new ArrayList<>();
+      List<VisitorsBridge> testWorkerBridges = new ArrayList<>();
+      List<VisitorsBridge> generatedWorkerBridges = new ArrayList<>();
+      try {
+        for (int i = 1; i < analysisThreads; i++) {
+          workerBridges.add(withBehaviorCache(createVisitorBridge(copyVisitors(codeVisitors, sonarComponents), classpath, javaVersion, sonarComponents,
+            symbolicExecutionMode, classpathRegistry)));
+          testWorkerBridges.add(createVisitorBridge(copyVisitors(testCodeVisitors, sonarComponents), testClasspath, javaVersion, sonarComponents,
+            SymbolicExecutionMode.DISABLED, classpathRegistry));
+          generatedWorkerBridges.add(createVisitorBridge(copyVisitors(jspCodeVisitors, sonarComponents), classpath, javaVersion, sonarComponents,
+            SymbolicExecutionMode.DISABLED, classpathRegistry));
+        }
+        astScanner.setWorkerVisitorBridges(workerBridges);
+        astScannerForTests.setWorkerVisitorBridges(testWorkerBridges);
+        astScannerForGeneratedFiles.setWorkerVisitorBridges(generatedWorkerBridges);
+        LOG.info("Java files will be analyzed by {} threads", analysisThreads);
+      } catch (IllegalStateException e) {
+        LOG.warn("Java files will be analyzed sequentially: {}", e.getMessage());
+        // bridges created before the failure share the jars of the classpath with the bridges analyzing the files
+        Stream.of(workerBridges, testWorkerBridges, generatedWorkerBridges).flatMap(List::stream).forEach(VisitorsBridge::close);
+      }
+    }
+  }
+
+  /**
+   * Results of generated files are not cached.
+   */
+  private void enableAnalysisCache(SonarComponents sonarComponents, @Nullable Measurer measurer, JavaResourceLocator javaResourceLocator,
+    @Nullable SonarJavaIssueFilter postAnalysisIssueFilter, boolean xFileEnabled, JavaVersion javaVersion,
+    Iterable<JavaCheck> codeVisitors, List<File> classpath, Iterable<JavaCheck> testCodeVisitors, List<File> testClasspath) {
+    try {
+      checkCacheable(codeVisitors);
+      checkCacheable(testCodeVisitors);
+      String fingerprint = AnalysisCache.fingerprint(codeVisitors, classpath, javaVersion, xFileEnabled);
+      String testFingerprint = AnalysisCache.fingerprint(testCodeVisitors, testClasspath, javaVersion, false);
+      File directory = sonarComponents.analysisCacheDirectory();
+      analysisCache = new AnalysisCache(directory, sonarComponents, measurer, javaResourceLocator, postAnalysisIssueFilter);
+      astScanner.setAnalysisCache(analysisCache, fingerprint);
+      astScannerForTests.setAnalysisCache(analysisCache, testFingerprint);
+      LOG.info("Analysis cache of Java files: {}", directory);
+    } catch (IllegalStateException e) {
+      LOG.warn("Results of Java files will not be cached: {}", e.getMessage());
+    }
+  }
+
+  private static void checkCacheable(Iterable<JavaCheck> visitors) {
+    for (JavaCheck visitor : visitors) {
+      if (visitor instanceof EndOfAnalysisCheck && !(visitor instanceof CacheableEndOfAnalysisCheck)) {
+        throw new IllegalStateException(String.format("%s can not restore results of unchanged files", visitor.getClass().getName()));
+      }
+    }
+  }
+
+  /**
+   * Visitors shared by all the analysis threads, which are not thread-safe and expect files to be scanned
+   * in the same order as issues are reported, are run by the thread driving the analysis.
+   */
+  private static JavaCheck replayedInFileOrder(JavaCheck visitor, int analysisThreads) {
+    if (analysisThreads == 1 || !(visitor instanceof JavaFileScanner)) {
+      return visitor;
+    }
+    JavaFileScanner scanner = (JavaFileScanner) visitor;
+    return (ReplayedFileScanner) context -> SensorWrites.save(() -> scanner.scanFile(context));
+  }
+
+  @FunctionalInterface
+  private interface ReplayedFileScanner extends JavaFileScanner {
   }
 
-  private static VisitorsBridge createVisitorBridge(
-    Iterable<JavaCheck> codeVisitors, List<File> classpath, JavaVersion javaVersion, @Nullable SonarComponents sonarComponents, SymbolicExecutionMode symbolicExecutionMode) {
-    VisitorsBridge visitorsBridge = new VisitorsBridge(codeVisitors, classpath, sonarComponents, symbolicExecutionMode);
+  private static List<JavaCheck> copyVisitors(Iterable<JavaCheck> visitors, SonarComponents sonarComponents) {
+    List<JavaCheck> copies = new ArrayList<>();
+    for (JavaCheck visitor : visitors) {
+      copies.add(copyVisitor(visitor, sonarComponents));
+    }
+    return copies;
+  }
+
+  private static JavaCheck copyVisitor(JavaCheck visitor, SonarComponents sonarComponents) {
+    if (visitor instanceof ReplayedFileScanner) {
+      return visitor;
+    }
+    if (visitor instanceof Measurer) {
+      return ((Measurer) visitor).copy();
+    }
+    if (visitor instanceof Measurer.TestFileMeasurer) {
+      return ((Measurer.TestFileMeasurer) visitor).copy();
+    }
+    if (visitor instanceof FileLinesVisitor) {
+      return new FileLinesVisitor(sonarComponents);
+    }
+    if (visitor instanceof SyntaxHighlighterVisitor) {
+      return new SyntaxHighlighterVisitor(sonarComponents);
+    }
+    return sonarComponents.copyCheck(visitor);
+  }
+
+  private static VisitorsBridge createVisitorBridge(Iterable<JavaCheck> codeVisitors, List<File> classpath, JavaVersion javaVersion,
+    @Nullable SonarComponents sonarComponents, SymbolicExecutionMode symbolicExecutionMode, ClasspathRegistry classpathRegistry) {
+    VisitorsBridge visitorsBridge = new VisitorsBridge(codeVisitors, classpath, sonarComponents, symbolicExecutionMode, classpathRegistry);
     visitorsBridge.setJavaVersion(javaVersion);
     return visitorsBridge;
   }
 
+  private VisitorsBridge analysisBridge(VisitorsBridge visitorsBridge) {
+    bridges.add(visitorsBridge);
+    return visitorsBridge;
+  }
+
+  private VisitorsBridge withBehaviorCache(VisitorsBridge visitorsBridge) {
+    if (behaviorCache != null) {
+      visitorsBridge.setPersistentBehaviorCache(behaviorCache);
+    }
+    return visitorsBridge;
+  }
+
   public void scan(Iterable<InputFile> sourceFiles, Iterable<InputFile> testFiles, Iterable<? extends InputFile> generatedFiles) {
     scanSources(sourceFiles);
     scanTests(testFiles);
     scanGeneratedFiles(generatedFiles);
+    VisitorsBridge.reportRuleProfiles(bridges);
+    if (analysisCache != null) {
+      analysisCache.cleanup();
+    }
+    if (behaviorCache != null) {
+      behaviorCache.save();
+    }
   }
 
   private void scanSources(Iterable<InputFile> sourceFiles) {
@@ -24,6 +24,9 @@ import java.util.Arrays;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
 import org.sonar.api.SonarProduct;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
@@ -49,18 +52,30 @@ public class Measurer extends SubscriptionVisitor {
   private int methods;
   private final Deque<ClassTree> classTrees = new LinkedList<>();
   private int classes;
+  private CommentLinesVisitor commentLinesVisitor;
 
   public Measurer(SensorContext context, NoSonarFilter noSonarFilter) {
     this.sensorContext = context;
     this.noSonarFilter = noSonarFilter;
   }
 
+  /**
+   * @return a new measurer saving measures on the same context, to be used by another analysis thread
+   */
+  public Measurer copy() {
+    return new Measurer(sensorContext, noSonarFilter);
+  }
+
   public class TestFileMeasurer implements JavaFileScanner {
     @Override
     public void scanFile(JavaFileScannerContext context) {
       sonarFile = context.getInputFile();
       createCommentLineVisitorAndFindNoSonar(context);
     }
+
+    public TestFileMeasurer copy() {
+      return Measurer.this.copy().new TestFileMeasurer();
+    }
   }
 
   @Override
@@ -72,19 +87,21 @@ public class Measurer extends SubscriptionVisitor {
 
 
   @Override
-  public void scanFile(JavaFileScannerContext context) {
+  public void setContext(JavaFileScannerContext context) {
+    super.setContext(context);
     sonarFile = context.getInputFile();
-    CommentLinesVisitor commentLinesVisitor = createCommentLineVisitorAndFindNoSonar(context);
+    commentLinesVisitor = createCommentLineVisitorAndFindNoSonar(context);
+    classTrees.clear();
+    methods = 0;
+    classes = 0;
+  }
+
+  @Override
+  public void leaveFile(JavaFileScannerContext context) {
     if(isSonarLintContext()) {
       // No need to compute metrics on SonarLint side, but the no sonar filter is still required
       return;
     }
-    classTrees.clear();
-    methods = 0;
-    classes = 0;
-    super.setContext(context);
-    scanTree(context.getTree());
-    //leave file.
     int fileComplexity = context.getComplexityNodes(context.getTree()).size();
     saveMetricOnFile(CoreMetrics.CLASSES, classes);
     saveMetricOnFile(CoreMetrics.FUNCTIONS, methods);
@@ -103,7 +120,9 @@ public class Measurer extends SubscriptionVisitor {
   private CommentLinesVisitor createCommentLineVisitorAndFindNoSonar(JavaFileScannerContext context) {
     CommentLinesVisitor commentLinesVisitor = new CommentLinesVisitor();
     commentLinesVisitor.analyzeCommentLines(context.getTree());
-    noSonarFilter.noSonarInFile(sonarFile, commentLinesVisitor.noSonarLines());
+    InputFile file = sonarFile;
+    FileResults.ifRecording(results -> results.setNoSonarLines(commentLinesVisitor.noSonarLines()));
+    SensorWrites.save(() -> noSonarFilter.noSonarInFile(file, commentLinesVisitor.noSonarLines()));
     return commentLinesVisitor;
   }
 
@@ -135,6 +154,23 @@ public class Measurer extends SubscriptionVisitor {
   }
 
   private <T extends Serializable> void saveMetricOnFile(Metric<T> metric, T value) {
-    sensorContext.<T>newMeasure().forMetric(metric).on(sonarFile).withValue(value).save();
+    InputFile file = sonarFile;
+    FileResults.ifRecording(results -> results.addMeasure(metric.key(), value));
+    SensorWrites.save(() -> saveMetricOnFile(file, metric, value));
+  }
+
+  private <T extends Serializable> void saveMetricOnFile(InputFile file, Metric<T> metric, T value) {
+    sensorContext.<T>newMeasure().forMetric(metric).on(file).withValue(value).save();
+  }
+
+  /**
+   * Saves the no sonar lines and the measures of a file recorded by a previous analysis, see {@link FileResults}.
+   */
+  @SuppressWarnings("unchecked")
+  void restore(InputFile file, @Nullable Set<Integer> noSonarLines, Map<String, Serializable> measures) {
+    if (noSonarLines != null) {
+      noSonarFilter.noSonarInFile(file, noSonarLines);
+    }
+    measures.forEach((metricKey, value) -> saveMetricOnFile(file, (Metric<Serializable>) CoreMetrics.getMetric(metricKey), value));
   }
 }
@@ -0,0 +1,39 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * End of analysis check which can be used by a parallel analysis: each analysis thread scans its files with its own copy of the check,
+ * and the state collected by every copy is merged into the original check before calling {@link #endOfAnalysis()} on it.
+ */
+@Beta
+public interface MergeableEndOfAnalysisCheck extends EndOfAnalysisCheck {
+
+  /**
+   * Method called at the end of a parallel analysis, after all files have been scanned and before {@link #endOfAnalysis()},
+   * once for each copy of this check.
+   *
+   * @param copy copy of this check, having scanned files on another analysis thread
+   */
+  void merge(EndOfAnalysisCheck copy);
+
+}
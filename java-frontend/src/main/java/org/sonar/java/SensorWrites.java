@@ -0,0 +1,68 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point for every write on the sensor context done while analyzing a file (issues, measures, highlighting, ...).
+ * When files are analyzed in parallel, writes of a file are recorded by the analysis thread and replayed by the
+ * thread driving the analysis, in the order of the files, so that the sensor context is only accessed by one thread.
+ * Replayed writes keep recording the {@link FileResults} of the file they belong to.
+ */
+public final class SensorWrites {
+
+  private static final ThreadLocal<List<Runnable>> RECORDED_WRITES = new ThreadLocal<>();
+
+  private SensorWrites() {
+    // only static methods
+  }
+
+  public static void save(Runnable write) {
+    List<Runnable> recordedWrites = RECORDED_WRITES.get();
+    if (recordedWrites == null) {
+      write.run();
+    } else {
+      recordedWrites.add(FileResults.bind(write));
+    }
+  }
+
+  /**
+   * Runs the analysis of a file, recording writes instead of executing them.
+   *
+   * @return writes to be replayed, in order, by the thread owning the sensor context
+   */
+  public static List<Runnable> record(Runnable analysis) {
+    List<Runnable> recordedWrites = new ArrayList<>();
+    RECORDED_WRITES.set(recordedWrites);
+    try {
+      analysis.run();
+    } finally {
+      RECORDED_WRITES.remove();
+    }
+    return recordedWrites;
+  }
+
+  public static void replay(List<Runnable> writes) {
+    writes.forEach(Runnable::run);
+  }
+
+}
@@ -22,15 +22,25 @@ package org.sonar.java;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
 import com.sonar.sslr.api.RecognitionException;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
 import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.SonarProduct;
 import org.sonar.api.batch.ScannerSide;
@@ -46,6 +56,10 @@ import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
 import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.check.RuleProperty;
+import org.sonar.java.se.ExplorationStrategy;
 import org.sonar.plugins.java.api.CheckRegistrar;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.plugins.java.api.JspCodeVisitor;
@@ -55,7 +69,22 @@ import org.sonarsource.api.sonarlint.SonarLintSide;
 @SonarLintSide
 public class SonarComponents {
 
+  private static final Logger LOG = Loggers.get(SonarComponents.class);
+
   public static final String FAIL_ON_EXCEPTION_KEY = "sonar.internal.analysis.failFast";
+  public static final String ANALYSIS_THREADS_KEY = "sonar.java.analysis.threads";
+  public static final String BATCH_SIZE_KEY = "sonar.java.analysis.batchSize";
+  public static final String PARSER_THREADS_KEY = "sonar.java.analysis.parserThreads";
+  public static final String SYMBOLIC_EXECUTION_THREADS_KEY = "sonar.java.analysis.symbolicExecutionThreads";
+  public static final String SYMBOLIC_EXECUTION_STRATEGY_KEY = "sonar.java.analysis.symbolicExecutionStrategy";
+  public static final String SYMBOLIC_EXECUTION_JOIN_STATES_KEY = "sonar.java.analysis.symbolicExecutionJoinStates";
+  public static final String PROFILE_RULES_KEY = "sonar.java.analysis.profileRules";
+  public static final String FILE_TIME_BUDGET_KEY = "sonar.java.analysis.fileTimeBudget";
+  public static final String RULE_TIME_BUDGET_KEY = "sonar.java.analysis.ruleTimeBudget";
+  public static final String ANALYSIS_CACHE_KEY = "sonar.java.analysis.cache";
+  public static final String ANALYSIS_CACHE_DIRECTORY_KEY = "sonar.java.analysis.cacheDirectory";
+  public static final String BEHAVIOR_CACHE_KEY = "sonar.java.analysis.behaviorCache";
+  public static final String JDK_HOME_KEY = "sonar.java.jdkHome";
   /**
    * Approximate limit of feedback of 200ko to roughly 100_000 characters of useful feedback.
    * This does not take into account eventual overhead of serialization.
@@ -72,8 +101,13 @@ public class SonarComponents {
   private final List<Checks<JavaCheck>> checks;
   private final List<Checks<JavaCheck>> testChecks;
   private final List<Checks<JavaCheck>> allChecks;
+  /**
+   * Copies of checks used by parallel analysis threads, mapped to the check they are copied from.
+   */
+  private final Map<JavaCheck, JavaCheck> originalChecks = Collections.synchronizedMap(new IdentityHashMap<>());
   private SensorContext context;
   private int errorsSize = 0;
+  private boolean invalidStrategyReported = false;
 
   public SonarComponents(FileLinesContextFactory fileLinesContextFactory, FileSystem fs,
                          JavaClasspath javaClasspath, JavaTestClasspath javaTestClasspath,
@@ -131,16 +165,16 @@ public class SonarComponents {
   }
 
   public FileLinesContext fileLinesContextFor(InputFile inputFile) {
-    return fileLinesContextFactory.createFor(inputFile);
+    return FileResults.recording(fileLinesContextFactory.createFor(inputFile));
   }
 
   public NewSymbolTable symbolizableFor(InputFile inputFile) {
-    return context.newSymbolTable().onFile(inputFile);
+    return FileResults.recording(context.newSymbolTable().onFile(inputFile));
   }
 
   public NewHighlighting highlightableFor(InputFile inputFile) {
     Objects.requireNonNull(context);
-    return context.newHighlighting().onFile(inputFile);
+    return FileResults.recording(context.newHighlighting().onFile(inputFile));
   }
 
   public List<File> getJavaClasspath() {
@@ -193,6 +227,7 @@ public class SonarComponents {
   }
 
   public RuleKey getRuleKey(JavaCheck check) {
+    check = originalChecks.getOrDefault(check, check);
     for (Checks<JavaCheck> sonarChecks : checks()) {
       RuleKey ruleKey = sonarChecks.ruleKey(check);
       if (ruleKey != null) {
@@ -219,7 +254,8 @@ public class SonarComponents {
       return;
     }
     Double cost = analyzerMessage.getCost();
-    reportIssue(analyzerMessage, key, inputComponent, cost);
+    FileResults.ifRecording(results -> results.addIssue(key, analyzerMessage));
+    SensorWrites.save(() -> reportIssue(analyzerMessage, key, inputComponent, cost));
   }
 
   @VisibleForTesting
@@ -247,11 +283,23 @@ public class SonarComponents {
     return isSonarLintContext();
   }
 
-  private void reportAnalysisError(InputFile inputFile, String message) {
-    context.newAnalysisError()
+  public void reportAnalysisError(InputFile inputFile, String message) {
+    FileResults.ifRecording(results -> results.addAnalysisError(inputFile, message));
+    SensorWrites.save(() -> context.newAnalysisError()
       .onFile(inputFile)
       .message(message)
-      .save();
+      .save());
+  }
+
+  /**
+   * Adds a warning displayed to the user in the analysis report, the same warning is displayed only once.
+   */
+  public void addAnalysisWarning(String warning) {
+    // warnings are not replayed with the results of unchanged files
+    FileResults.ifRecording(FileResults::doNotCache);
+    if (javaClasspath != null) {
+      SensorWrites.save(() -> javaClasspath.addAnalysisWarning(warning));
+    }
   }
 
   public boolean isSonarLintContext() {
@@ -286,6 +334,175 @@ public class SonarComponents {
     return context.config().getBoolean(FAIL_ON_EXCEPTION_KEY).orElse(false);
   }
 
+  /**
+   * Number of threads analyzing files in parallel, 1 (sequential analysis) by default.
+   */
+  public int analysisThreads() {
+    return Math.max(1, context.config().getInt(ANALYSIS_THREADS_KEY).orElse(1));
+  }
+
+  /**
+   * Number of files parsed in a single compilation, 1 (each file parsed on its own) by default.
+   */
+  public int batchSize() {
+    return Math.max(1, context.config().getInt(BATCH_SIZE_KEY).orElse(1));
+  }
+
+  /**
+   * Number of threads parsing files ahead of the thread running the checks, 0 (files parsed by the thread running the checks) by default.
+   * Only used when files are not analyzed in parallel.
+   */
+  public int parserThreads() {
+    return Math.max(0, context.config().getInt(PARSER_THREADS_KEY).orElse(0));
+  }
+
+  /**
+   * Number of threads executing symbolically the methods of a file in parallel, 1 (methods executed one after the other) by default.
+   * When files are analyzed in parallel, each analysis thread uses its own symbolic execution threads.
+   */
+  public int symbolicExecutionThreads() {
+    return Math.max(1, context.config().getInt(SYMBOLIC_EXECUTION_THREADS_KEY).orElse(1));
+  }
+
+  /**
+   * Order in which the symbolic execution explores the paths of a method, {@link ExplorationStrategy#DEPTH_FIRST} by default.
+   * The strategy only matters for the methods whose execution reaches the maximum number of steps.
+   * An unknown strategy is reported once and replaced by the default one.
+   */
+  public ExplorationStrategy symbolicExecutionStrategy() {
+    return context.config().get(SYMBOLIC_EXECUTION_STRATEGY_KEY)
+      .map(this::explorationStrategy)
+      .orElse(ExplorationStrategy.DEPTH_FIRST);
+  }
+
+  private ExplorationStrategy explorationStrategy(String name) {
+    try {
+      return ExplorationStrategy.fromName(name);
+    } catch (IllegalArgumentException e) {
+      if (!invalidStrategyReported) {
+        invalidStrategyReported = true;
+        String allowedValues = Arrays.stream(ExplorationStrategy.values())
+          .map(strategy -> strategy.name().toLowerCase(Locale.ROOT))
+          .collect(Collectors.joining(", "));
+        LOG.warn("Invalid value '{}' of '{}', expected one of: {}. {} is used instead.", name, SYMBOLIC_EXECUTION_STRATEGY_KEY, allowedValues,
+          ExplorationStrategy.DEPTH_FIRST.name().toLowerCase(Locale.ROOT));
+      }
+      return ExplorationStrategy.DEPTH_FIRST;
+    }
+  }
+
+  /**
+   * Whether the symbolic execution joins the paths of a method reaching a block with the same values of the variables live at its
+   * entry, false by default.
+   */
+  public boolean shouldJoinSymbolicExecutionStates() {
+    return context.config().getBoolean(SYMBOLIC_EXECUTION_JOIN_STATES_KEY).orElse(false);
+  }
+
+  /**
+   * Whether the time and memory spent by each rule is measured and reported at the end of the analysis, false by default.
+   */
+  public boolean shouldProfileRules() {
+    return context.config().getBoolean(PROFILE_RULES_KEY).orElse(false);
+  }
+
+  /**
+   * Time in milliseconds after which the remaining rules are not executed on a file, 0 (no limit) by default.
+   */
+  public long fileTimeBudget() {
+    return Math.max(0L, context.config().getLong(FILE_TIME_BUDGET_KEY).orElse(0L));
+  }
+
+  /**
+   * Time in milliseconds after which a rule stops analyzing a file, 0 (no limit) by default.
+   */
+  public long ruleTimeBudget() {
+    return Math.max(0L, context.config().getLong(RULE_TIME_BUDGET_KEY).orElse(0L));
+  }
+
+  /**
+   * Whether results of the analysis of each file are saved, to be replayed by the next analyses as long as the file,
+   * the active rules and the classpath do not change, false by default. Never enabled in SonarLint.
+   */
+  public boolean isAnalysisCacheEnabled() {
+    return !isSonarLintContext() && context.config().getBoolean(ANALYSIS_CACHE_KEY).orElse(false);
+  }
+
+  /**
+   * Directory of the analysis cache of the current module, in the working directory by default. As the working directory
+   * may be cleaned by the scanner before each analysis, the cache should be located by {@link #ANALYSIS_CACHE_DIRECTORY_KEY}
+   * in a directory kept between analyses.
+   */
+  public File analysisCacheDirectory() {
+    File directory = context.config().get(ANALYSIS_CACHE_DIRECTORY_KEY)
+      .map(fs::resolvePath)
+      .orElseGet(() -> new File(workDir(), "java-analysis-cache"));
+    String moduleId = Hashing.sha256().hashString(fs.baseDir().getAbsolutePath(), StandardCharsets.UTF_8).toString();
+    return new File(directory, moduleId);
+  }
+
+  /**
+   * Whether the behaviors of the methods of the libraries, computed from their bytecode by the symbolic execution, are saved
+   * to be reused by the next analyses, false by default. Never enabled in SonarLint.
+   */
+  public boolean isBehaviorCacheEnabled() {
+    return !isSonarLintContext() && context.config().getBoolean(BEHAVIOR_CACHE_KEY).orElse(false);
+  }
+
+  /**
+   * Directory of the behavior cache, shared by all the modules as behaviors only depend on the jars of the classpath. Located in the
+   * directory of {@link #ANALYSIS_CACHE_DIRECTORY_KEY} when set, in the working directory otherwise.
+   */
+  public File behaviorCacheDirectory() {
+    File directory = context.config().get(ANALYSIS_CACHE_DIRECTORY_KEY)
+      .map(fs::resolvePath)
+      .orElseGet(this::workDir);
+    return new File(directory, "java-behavior-cache");
+  }
+
+  /**
+   * Home of the JDK of the analyzed project, from which the classes of the JDK are read by the symbolic execution, relative to the base
+   * directory of the project when not absolute.
+   *
+   * @return null when not set, the classes of the JDK running the analysis being used
+   */
+  @CheckForNull
+  public File jdkHome() {
+    return context.config().get(JDK_HOME_KEY)
+      .map(fs::resolvePath)
+      .orElse(null);
+  }
+
+  /**
+   * Creates a new instance of the check, with the same rule parameters, to be used by another analysis thread.
+   * Issues raised by the copy are reported on the rule of the original check.
+   *
+   * @throws IllegalStateException if the check can not be copied
+   */
+  public JavaCheck copyCheck(JavaCheck check) {
+    if (check instanceof EndOfAnalysisCheck && !(check instanceof MergeableEndOfAnalysisCheck)) {
+      throw new IllegalStateException(String.format("%s can not merge results of parallel analysis", check.getClass().getName()));
+    }
+    JavaCheck copy;
+    try {
+      Constructor<? extends JavaCheck> constructor = check.getClass().getDeclaredConstructor();
+      constructor.setAccessible(true);
+      copy = constructor.newInstance();
+      for (Class<?> type = check.getClass(); type != Object.class; type = type.getSuperclass()) {
+        for (Field field : type.getDeclaredFields()) {
+          if (field.isAnnotationPresent(RuleProperty.class)) {
+            field.setAccessible(true);
+            field.set(copy, field.get(check));
+          }
+        }
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      throw new IllegalStateException(String.format("Unable to copy %s", check.getClass().getName()), e);
+    }
+    originalChecks.put(copy, originalChecks.getOrDefault(check, check));
+    return copy;
+  }
+
   public File workDir() {
     ProjectDefinition current = projectDefinition;
     if(current == null) {
@@ -22,16 +22,41 @@ package org.sonar.java.ast;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sonar.sslr.api.RecognitionException;
+import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.java.AnalysisCache;
 import org.sonar.java.AnalysisException;
+import org.sonar.java.FileResults;
+import org.sonar.java.SensorWrites;
 import org.sonar.java.SonarComponents;
+import org.sonar.java.model.JNameEnvironment;
 import org.sonar.java.model.JParser;
 import org.sonar.java.model.JavaVersionImpl;
 import org.sonar.java.model.VisitorsBridge;
@@ -42,8 +67,23 @@ import org.sonarsource.analyzer.commons.ProgressReport;
 public class JavaAstScanner {
   private static final Logger LOG = Loggers.get(JavaAstScanner.class);
 
+  private static final int PENDING_BATCHES_PER_THREAD = 4;
+  private static final int PENDING_TREES_HEAP_RATIO = 8;
+  /**
+   * Approximate memory retained by the trees of a parsed file, including ECJ AST and bindings, per line of code.
+   */
+  private static final long TREE_BYTES_PER_LINE = 7_000;
+
   private final SonarComponents sonarComponents;
   private VisitorsBridge visitor;
+  private List<VisitorsBridge> workerVisitors = Collections.emptyList();
+  @Nullable
+  private AnalysisCache analysisCache;
+  private String analysisCacheFingerprint;
+  /**
+   * Keys in the analysis cache of the files to scan, only read by analysis threads.
+   */
+  private final Map<InputFile, String> analysisCacheEntries = new HashMap<>();
 
   public JavaAstScanner(@Nullable SonarComponents sonarComponents) {
     this.sonarComponents = sonarComponents;
@@ -54,58 +94,418 @@ public class JavaAstScanner {
     progressReport.start(Iterables.transform(inputFiles, InputFile::toString));
 
     boolean successfullyCompleted = false;
-    boolean cancelled = false;
     try {
-      for (InputFile inputFile : inputFiles) {
-        if (analysisCancelled()) {
-          cancelled = true;
-          break;
-        }
-        simpleScan(inputFile);
-        progressReport.nextFile();
+      Iterable<? extends InputFile> filesToScan = analysisCache == null ? inputFiles : replayCachedResults(inputFiles, progressReport);
+      if (!workerVisitors.isEmpty()) {
+        successfullyCompleted = scanInParallel(filesToScan, progressReport);
+      } else if (parserThreads() > 0) {
+        successfullyCompleted = scanPipelined(filesToScan, progressReport);
+      } else {
+        successfullyCompleted = scanSequentially(filesToScan, progressReport);
       }
-      successfullyCompleted = !cancelled;
     } finally {
       if (successfullyCompleted) {
         progressReport.stop();
       } else {
         progressReport.cancel();
       }
+      workerVisitors.forEach(visitor::merge);
       visitor.endOfAnalysis();
     }
   }
 
+  /**
+   * Replays the cached results of unchanged files.
+   *
+   * @return the files to scan
+   */
+  private List<InputFile> replayCachedResults(Iterable<? extends InputFile> inputFiles, ProgressReport progressReport) {
+    List<InputFile> filesToScan = new ArrayList<>();
+    for (InputFile inputFile : inputFiles) {
+      String entryKey = analysisCache.entryKey(analysisCacheFingerprint, inputFile);
+      FileResults results = entryKey == null ? null : analysisCache.read(entryKey);
+      if (results != null) {
+        analysisCache.replay(inputFile, results, visitor);
+        progressReport.nextFile();
+      } else {
+        if (entryKey != null) {
+          analysisCacheEntries.put(inputFile, entryKey);
+        }
+        filesToScan.add(inputFile);
+      }
+    }
+    int replayedFiles = Iterables.size(inputFiles) - filesToScan.size();
+    LOG.info("Results of {} unchanged Java files replayed from the analysis cache, {} files to analyze", replayedFiles, filesToScan.size());
+    return filesToScan;
+  }
+
+  private boolean scanSequentially(Iterable<? extends InputFile> inputFiles, ProgressReport progressReport) {
+    for (List<? extends InputFile> batch : Iterables.partition(inputFiles, batchSize())) {
+      if (analysisCancelled()) {
+        return false;
+      }
+      scanBatch(visitor, batch, progressReport);
+    }
+    return true;
+  }
+
+  /**
+   * Batches of files are parsed ahead by a pool of threads, while parsed files are visited in order by the calling thread.
+   * Parsing ahead stops when the estimated memory of the trees not yet visited exceeds a share of the heap,
+   * but the next batch to visit is always parsed.
+   */
+  private boolean scanPipelined(Iterable<? extends InputFile> inputFiles, ProgressReport progressReport) {
+    long maxPendingMemory = Runtime.getRuntime().maxMemory() / PENDING_TREES_HEAP_RATIO;
+    PeekingIterator<List<? extends InputFile>> batches = Iterators.peekingIterator(Iterables.partition(inputFiles, batchSize()).iterator());
+    ExecutorService parsers = Executors.newFixedThreadPool(parserThreads(),
+      new ThreadFactoryBuilder().setNameFormat("java-parser-%d").setDaemon(true).build());
+    try {
+      Deque<ParsingBatch> pendingBatches = new ArrayDeque<>();
+      long pendingMemory = 0;
+      while (true) {
+        while (batches.hasNext() && (pendingBatches.isEmpty() || pendingMemory + estimatedTreesMemory(batches.peek()) <= maxPendingMemory)) {
+          List<? extends InputFile> batch = batches.next();
+          ParsingBatch parsingBatch = new ParsingBatch(batch, estimatedTreesMemory(batch), parsers.submit(() -> parseBatch(visitor, batch)));
+          pendingBatches.add(parsingBatch);
+          pendingMemory += parsingBatch.estimatedMemory;
+        }
+        ParsingBatch parsedBatch = pendingBatches.poll();
+        if (parsedBatch == null) {
+          return true;
+        }
+        if (analysisCancelled()) {
+          return false;
+        }
+        List<ParsedFile> parsedFiles = waitFor(parsedBatch.parsedFiles);
+        for (int i = 0; i < parsedFiles.size(); i++) {
+          scan(visitor, parsedBatch.inputFiles.get(i), parsedFiles.get(i));
+          progressReport.nextFile();
+        }
+        pendingMemory -= parsedBatch.estimatedMemory;
+      }
+    } finally {
+      parsers.shutdownNow();
+      awaitTermination(parsers);
+    }
+  }
+
+  private static class ParsingBatch {
+    private final List<? extends InputFile> inputFiles;
+    private final long estimatedMemory;
+    private final Future<List<ParsedFile>> parsedFiles;
+
+    ParsingBatch(List<? extends InputFile> inputFiles, long estimatedMemory, Future<List<ParsedFile>> parsedFiles) {
+      this.inputFiles = inputFiles;
+      this.estimatedMemory = estimatedMemory;
+      this.parsedFiles = parsedFiles;
+    }
+  }
+
+  private static long estimatedTreesMemory(List<? extends InputFile> inputFiles) {
+    long lines = 0;
+    for (InputFile inputFile : inputFiles) {
+      lines += linesOf(inputFile);
+    }
+    return lines * TREE_BYTES_PER_LINE;
+  }
+
+  private static int linesOf(InputFile inputFile) {
+    try {
+      return inputFile.lines();
+    } catch (UnsupportedOperationException e) {
+      // generated files: content is already in memory
+      try {
+        return (int) inputFile.contents().chars().filter(c -> c == '\n').count() + 1;
+      } catch (IOException ioException) {
+        return 1;
+      }
+    }
+  }
+
+  /**
+   * Parses the files of a batch, to be visited by another thread. Failures are reported when the tree is requested.
+   */
+  private static List<ParsedFile> parseBatch(VisitorsBridge bridge, List<? extends InputFile> batch) {
+    if (batch.size() == 1) {
+      InputFile inputFile = batch.get(0);
+      return Collections.singletonList(parsed(() -> JParser.parse(javaVersion(bridge), inputFile.filename(), inputFile.contents(), bridge.getNameEnvironment())));
+    }
+    ParsedFile[] parsedFiles = new ParsedFile[batch.size()];
+    List<Integer> indexes = new ArrayList<>(batch.size());
+    List<String> unitNames = new ArrayList<>(batch.size());
+    List<String> sources = new ArrayList<>(batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      InputFile inputFile = batch.get(i);
+      try {
+        sources.add(inputFile.contents());
+        unitNames.add(inputFile.filename());
+        indexes.add(i);
+      } catch (IOException e) {
+        parsedFiles[i] = () -> {
+          throw e;
+        };
+      }
+    }
+    JParser.parse(javaVersion(bridge), unitNames, sources, bridge.getNameEnvironment(), (index, tree) -> parsedFiles[indexes.get(index)] = parsed(tree::get));
+    return Arrays.asList(parsedFiles);
+  }
+
+  private static ParsedFile parsed(ParsedFile parsedFile) {
+    try {
+      Tree tree = parsedFile.tree();
+      return () -> tree;
+    } catch (IOException | RuntimeException | StackOverflowError e) {
+      return () -> {
+        throw e;
+      };
+    }
+  }
+
+  /**
+   * Batches of files are analyzed by a pool of threads, each one using its own visitors bridge, the largest batches first.
+   * Writes on the sensor context are replayed by the calling thread, in the order of the input files. The number of batches
+   * analyzed ahead of the first one not yet replayed is bounded, to bound the memory retained by recorded writes.
+   */
+  private boolean scanInParallel(Iterable<? extends InputFile> inputFiles, ProgressReport progressReport) {
+    BlockingQueue<VisitorsBridge> availableVisitors = new LinkedBlockingQueue<>();
+    availableVisitors.add(visitor);
+    availableVisitors.addAll(workerVisitors);
+    int threads = availableVisitors.size();
+    ExecutorService executor = Executors.newFixedThreadPool(threads,
+      new ThreadFactoryBuilder().setNameFormat("java-analysis-%d").setDaemon(true).build());
+    try {
+      List<List<InputFile>> batches = new ArrayList<>();
+      Iterables.partition(inputFiles, batchSize()).forEach(batch -> batches.add(new ArrayList<>(batch)));
+      PendingBatches pendingBatches = new PendingBatches(batches,
+        batch -> executor.submit(() -> scanWithAvailableVisitor(availableVisitors, batch, progressReport)));
+      for (int index : largestFirst(batches)) {
+        if (!pendingBatches.submit(index, threads * PENDING_BATCHES_PER_THREAD)) {
+          return false;
+        }
+      }
+      return pendingBatches.replayAll();
+    } finally {
+      executor.shutdownNow();
+      awaitTermination(executor);
+    }
+  }
+
+  /**
+   * The duration of a parallel analysis is driven by its largest files: starting with them avoids ending the analysis
+   * with a single thread still busy on a large file. The cost of a batch is estimated by the number of lines of its files.
+   *
+   * @return the indexes of the batches, by decreasing cost
+   */
+  @VisibleForTesting
+  static List<Integer> largestFirst(List<? extends List<? extends InputFile>> batches) {
+    int[] lines = batches.stream().mapToInt(batch -> batch.stream().mapToInt(JavaAstScanner::linesOf).sum()).toArray();
+    List<Integer> indexes = IntStream.range(0, batches.size()).boxed().collect(Collectors.toList());
+    // stable sort: batches of the same size are submitted in their original order
+    indexes.sort(Comparator.comparing((Integer index) -> lines[index]).reversed());
+    return indexes;
+  }
+
+  /**
+   * Batches submitted in any order, whose recorded writes are replayed in the order of the batches. The batch to replay next is
+   * submitted ahead of its turn when needed, so that the bound on the number of pending batches never blocks the replay.
+   */
+  private class PendingBatches {
+    private final List<List<InputFile>> batches;
+    private final Function<List<InputFile>, Future<List<Runnable>>> executor;
+    private final List<Future<List<Runnable>>> results;
+    private int submitted;
+    private int replayed;
+
+    PendingBatches(List<List<InputFile>> batches, Function<List<InputFile>, Future<List<Runnable>>> executor) {
+      this.batches = batches;
+      this.executor = executor;
+      this.results = new ArrayList<>(Collections.nCopies(batches.size(), null));
+    }
+
+    boolean submit(int index, int maxPendingBatches) {
+      while (submitted - replayed >= maxPendingBatches) {
+        if (!replayNext()) {
+          return false;
+        }
+      }
+      if (index >= replayed) {
+        resultOf(index);
+      }
+      return true;
+    }
+
+    boolean replayAll() {
+      while (replayed < batches.size()) {
+        if (!replayNext()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private Future<List<Runnable>> resultOf(int index) {
+      Future<List<Runnable>> result = results.get(index);
+      if (result == null) {
+        result = executor.apply(batches.get(index));
+        results.set(index, result);
+        submitted++;
+      }
+      return result;
+    }
+
+    private boolean replayNext() {
+      if (analysisCancelled()) {
+        return false;
+      }
+      Future<List<Runnable>> result = resultOf(replayed);
+      // recorded writes are released as soon as they are replayed
+      results.set(replayed, null);
+      replayed++;
+      SensorWrites.replay(waitFor(result));
+      return true;
+    }
+  }
+
+  private List<Runnable> scanWithAvailableVisitor(BlockingQueue<VisitorsBridge> availableVisitors, List<? extends InputFile> batch,
+    ProgressReport progressReport) throws InterruptedException {
+    if (analysisCancelled()) {
+      return Collections.emptyList();
+    }
+    VisitorsBridge availableVisitor = availableVisitors.take();
+    try {
+      return SensorWrites.record(() -> scanBatch(availableVisitor, batch, progressReport));
+    } finally {
+      availableVisitors.add(availableVisitor);
+    }
+  }
+
+  private static <T> T waitFor(Future<T> result) {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalysisException("Analysis cancelled", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new AnalysisException("Analysis cancelled", cause);
+    }
+  }
+
+  private static void awaitTermination(ExecutorService executor) {
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   private boolean analysisCancelled() {
     return sonarComponents != null && sonarComponents.analysisCancelled();
   }
 
-  private void simpleScan(InputFile inputFile) {
-    visitor.setCurrentFile(inputFile);
+  private int parserThreads() {
+    return sonarComponents == null ? 0 : sonarComponents.parserThreads();
+  }
+
+  private int batchSize() {
+    return sonarComponents == null ? 1 : Math.max(1, sonarComponents.batchSize());
+  }
+
+  /**
+   * Files of a batch are parsed in a single compilation, see {@link JParser#parse(String, List, List, JNameEnvironment, JParser.BatchRequestor)},
+   * and each file is visited as soon as its tree is available. Progress is reported along with the writes of each file.
+   */
+  private void scanBatch(VisitorsBridge bridge, List<? extends InputFile> batch, ProgressReport progressReport) {
+    if (batch.size() == 1) {
+      simpleScan(bridge, batch.get(0));
+      SensorWrites.save(progressReport::nextFile);
+      return;
+    }
+    List<InputFile> inputFiles = new ArrayList<>(batch.size());
+    List<String> unitNames = new ArrayList<>(batch.size());
+    List<String> sources = new ArrayList<>(batch.size());
+    for (InputFile inputFile : batch) {
+      try {
+        sources.add(inputFile.contents());
+        inputFiles.add(inputFile);
+        unitNames.add(inputFile.filename());
+      } catch (IOException e) {
+        scan(bridge, inputFile, () -> {
+          throw e;
+        });
+        SensorWrites.save(progressReport::nextFile);
+      }
+    }
+    JParser.parse(javaVersion(bridge), unitNames, sources, bridge.getNameEnvironment(), (index, tree) -> {
+      scan(bridge, inputFiles.get(index), tree::get);
+      SensorWrites.save(progressReport::nextFile);
+    });
+  }
+
+  private void simpleScan(VisitorsBridge bridge, InputFile inputFile) {
+    scan(bridge, inputFile, () -> JParser.parse(
+      javaVersion(bridge),
+      inputFile.filename(),
+      inputFile.contents(),
+      bridge.getNameEnvironment()
+    ));
+  }
+
+  private static String javaVersion(VisitorsBridge bridge) {
+    if (bridge.getJavaVersion() == null || bridge.getJavaVersion().asInt() < 0) {
+      return /* default */ JParser.MAXIMUM_SUPPORTED_JAVA_VERSION;
+    }
+    return Integer.toString(bridge.getJavaVersion().asInt());
+  }
+
+  @FunctionalInterface
+  private interface ParsedFile {
+    Tree tree() throws IOException;
+  }
+
+  private void scan(VisitorsBridge bridge, InputFile inputFile, ParsedFile parsedFile) {
+    String entryKey = analysisCache == null ? null : analysisCacheEntries.get(inputFile);
+    if (entryKey == null) {
+      scanFile(bridge, inputFile, parsedFile);
+      return;
+    }
+    FileResults results = new FileResults(inputFile);
+    FileResults.record(results, () -> scanFile(bridge, inputFile, parsedFile));
+    // cached once all the writes of the file have been replayed
+    SensorWrites.save(() -> analysisCache.write(entryKey, results));
+  }
+
+  private void scanFile(VisitorsBridge bridge, InputFile inputFile, ParsedFile parsedFile) {
+    if (LOG.isDebugEnabled()) {
+      long start = System.nanoTime();
+      visitFile(bridge, inputFile, parsedFile);
+      LOG.debug("Analysis of file '{}' ({} lines): {} ms", inputFile, linesOf(inputFile), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    } else {
+      visitFile(bridge, inputFile, parsedFile);
+    }
+  }
+
+  private void visitFile(VisitorsBridge bridge, InputFile inputFile, ParsedFile parsedFile) {
+    bridge.setCurrentFile(inputFile);
     try {
-      String fileContent = inputFile.contents();
-      final String version;
-      if (visitor.getJavaVersion() == null || visitor.getJavaVersion().asInt() < 0) {
-        version = /* default */ JParser.MAXIMUM_SUPPORTED_JAVA_VERSION;
-      } else {
-        version = Integer.toString(visitor.getJavaVersion().asInt());
-      }
-      Tree ast = JParser.parse(
-        version,
-        inputFile.filename(),
-        fileContent,
-        visitor.getClasspath()
-      );
-      visitor.visitFile(ast);
+      bridge.visitFile(parsedFile.tree());
     } catch (RecognitionException e) {
       checkInterrupted(e);
       LOG.error(String.format("Unable to parse source file : '%s'", inputFile));
       LOG.error(e.getMessage());
 
-      parseErrorWalkAndVisit(e, inputFile);
+      parseErrorWalkAndVisit(bridge, e, inputFile);
     } catch (AnalysisException e) {
       throw e;
     } catch (Exception e) {
       checkInterrupted(e);
+      FileResults.ifRecording(FileResults::doNotCache);
       interruptIfFailFast(e, inputFile);
     } catch (StackOverflowError error) {
       LOG.error(String.format("A stack overflow error occurred while analyzing file: '%s'", inputFile), error);
@@ -126,9 +526,9 @@ public class JavaAstScanner {
     }
   }
 
-  private void parseErrorWalkAndVisit(RecognitionException e, InputFile inputFile) {
+  private static void parseErrorWalkAndVisit(VisitorsBridge bridge, RecognitionException e, InputFile inputFile) {
     try {
-      visitor.processRecognitionException(e, inputFile);
+      bridge.processRecognitionException(e, inputFile);
     } catch (Exception e2) {
       throw new AnalysisException(getAnalysisExceptionMessage(inputFile), e2);
     }
@@ -142,6 +542,24 @@ public class JavaAstScanner {
     this.visitor = visitor;
   }
 
+  /**
+   * Enables the analysis cache: results of the files are replayed from the cache when available, and cached otherwise.
+   *
+   * @param fingerprint fingerprint of the analysis, see {@link AnalysisCache#fingerprint}
+   */
+  public void setAnalysisCache(AnalysisCache analysisCache, String fingerprint) {
+    this.analysisCache = analysisCache;
+    this.analysisCacheFingerprint = fingerprint;
+  }
+
+  /**
+   * Enables parallel analysis: files are analyzed by one thread per bridge, including the one set by {@link #setVisitorBridge(VisitorsBridge)}.
+   * Worker bridges must be created with copies of the checks of the main bridge, in the same order.
+   */
+  public void setWorkerVisitorBridges(List<VisitorsBridge> workerVisitors) {
+    this.workerVisitors = workerVisitors;
+  }
+
   @VisibleForTesting
   public static void scanSingleFileForTests(InputFile file, VisitorsBridge visitorsBridge) {
     scanSingleFileForTests(file, visitorsBridge, new JavaVersionImpl(), null);
@@ -28,6 +28,7 @@ import java.util.Set;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.FileLinesContext;
+import org.sonar.java.SensorWrites;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.cfg.CFG;
 import org.sonar.java.model.ModifiersUtils;
@@ -73,8 +74,8 @@ import static org.sonar.plugins.java.api.tree.Tree.Kind.WHILE_STATEMENT;
 public class FileLinesVisitor extends SubscriptionVisitor {
 
   private final SonarComponents sonarComponents;
-  private final Set<Integer> linesOfCode = new HashSet<>();
-  private final Set<Integer> executableLines = new HashSet<>();
+  private Set<Integer> linesOfCode = new HashSet<>();
+  private Set<Integer> executableLines = new HashSet<>();
 
   public FileLinesVisitor(SonarComponents sonarComponents) {
     this.sonarComponents = sonarComponents;
@@ -92,18 +93,23 @@ public class FileLinesVisitor extends SubscriptionVisitor {
   }
 
   @Override
-  public void scanFile(JavaFileScannerContext context) {
-    super.scanFile(context);
+  public void leaveFile(JavaFileScannerContext context) {
     InputFile currentFile = context.getInputFile();
+    Set<Integer> fileLinesOfCode = linesOfCode;
+    Set<Integer> fileExecutableLines = executableLines;
+    SensorWrites.save(() -> saveLinesData(currentFile, fileLinesOfCode, fileExecutableLines));
+
+    linesOfCode = new HashSet<>();
+    executableLines = new HashSet<>();
+  }
+
+  private void saveLinesData(InputFile currentFile, Set<Integer> fileLinesOfCode, Set<Integer> fileExecutableLines) {
     FileLinesContext fileLinesContext = sonarComponents.fileLinesContextFor(currentFile);
     for (int line = 1; line <= currentFile.lines(); line++) {
-      fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, linesOfCode.contains(line) ? 1 : 0);
-      fileLinesContext.setIntValue(CoreMetrics.EXECUTABLE_LINES_DATA_KEY, line, executableLines.contains(line) ? 1 : 0);
+      fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, fileLinesOfCode.contains(line) ? 1 : 0);
+      fileLinesContext.setIntValue(CoreMetrics.EXECUTABLE_LINES_DATA_KEY, line, fileExecutableLines.contains(line) ? 1 : 0);
     }
     fileLinesContext.save();
-
-    linesOfCode.clear();
-    executableLines.clear();
   }
 
   @Override
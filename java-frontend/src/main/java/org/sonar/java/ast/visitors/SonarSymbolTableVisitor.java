@@ -21,6 +21,7 @@ package org.sonar.java.ast.visitors;
 
 import org.sonar.api.batch.sensor.symbol.NewSymbol;
 import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
+import org.sonar.java.SensorWrites;
 import org.sonar.java.model.JUtils;
 import org.sonar.java.model.declaration.VariableTreeImpl;
 import org.sonar.plugins.java.api.semantic.Symbol;
@@ -57,7 +58,7 @@ public class SonarSymbolTableVisitor extends BaseTreeVisitor {
     super.visitCompilationUnit(tree);
 
     if (tree.equals(outerClass)) {
-      newSymbolTable.save();
+      SensorWrites.save(newSymbolTable::save);
     }
   }
 
@@ -19,86 +19,79 @@
  */
 package org.sonar.java.ast.visitors;
 
-import org.sonar.plugins.java.api.tree.AssertStatementTree;
-import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
-import org.sonar.plugins.java.api.tree.BreakStatementTree;
 import org.sonar.plugins.java.api.tree.ClassTree;
-import org.sonar.plugins.java.api.tree.ContinueStatementTree;
-import org.sonar.plugins.java.api.tree.DoWhileStatementTree;
-import org.sonar.plugins.java.api.tree.EmptyStatementTree;
-import org.sonar.plugins.java.api.tree.ExpressionStatementTree;
-import org.sonar.plugins.java.api.tree.ForEachStatement;
 import org.sonar.plugins.java.api.tree.ForStatementTree;
-import org.sonar.plugins.java.api.tree.IfStatementTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
-import org.sonar.plugins.java.api.tree.ReturnStatementTree;
 import org.sonar.plugins.java.api.tree.StatementTree;
-import org.sonar.plugins.java.api.tree.SwitchStatementTree;
-import org.sonar.plugins.java.api.tree.SynchronizedStatementTree;
-import org.sonar.plugins.java.api.tree.ThrowStatementTree;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.TryStatementTree;
 import org.sonar.plugins.java.api.tree.VariableTree;
-import org.sonar.plugins.java.api.tree.WhileStatementTree;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-public class StatementVisitor extends BaseTreeVisitor {
+public class StatementVisitor implements TreeWalker.Listener {
+  private static final Set<Tree.Kind> STATEMENTS = EnumSet.of(
+    Tree.Kind.EMPTY_STATEMENT,
+    Tree.Kind.IF_STATEMENT,
+    Tree.Kind.ASSERT_STATEMENT,
+    Tree.Kind.SWITCH_STATEMENT,
+    Tree.Kind.WHILE_STATEMENT,
+    Tree.Kind.DO_STATEMENT,
+    Tree.Kind.FOR_STATEMENT,
+    Tree.Kind.FOR_EACH_STATEMENT,
+    Tree.Kind.BREAK_STATEMENT,
+    Tree.Kind.CONTINUE_STATEMENT,
+    Tree.Kind.RETURN_STATEMENT,
+    Tree.Kind.THROW_STATEMENT,
+    Tree.Kind.SYNCHRONIZED_STATEMENT,
+    Tree.Kind.TRY_STATEMENT,
+    Tree.Kind.EXPRESSION_STATEMENT);
+
   private int statements;
   private Set<Tree> variableTypes = new HashSet<>();
 
   public int numberOfStatements(Tree tree) {
     statements = 0;
     variableTypes.clear();
-    scan(tree);
+    TreeWalker.walk(tree, this);
     statements += variableTypes.size();
     return statements;
   }
 
   @Override
-  public void visitEmptyStatement(EmptyStatementTree tree) {
-    statements++;
-  }
-
-  @Override
-  public void visitIfStatement(IfStatementTree tree) {
-    statements++;
-    super.visitIfStatement(tree);
-  }
-
-  @Override
-  public void visitAssertStatement(AssertStatementTree tree) {
-
-    statements++;
-    super.visitAssertStatement(tree);
-  }
-
-  @Override
-  public void visitSwitchStatement(SwitchStatementTree tree) {
-    statements++;
-    super.visitSwitchStatement(tree);
-  }
-
-  @Override
-  public void visitWhileStatement(WhileStatementTree tree) {
-    statements++;
-    super.visitWhileStatement(tree);
-  }
-
-  @Override
-  public void visitDoWhileStatement(DoWhileStatementTree tree) {
-    statements++;
-    super.visitDoWhileStatement(tree);
+  public void enter(Tree tree) {
+    if (STATEMENTS.contains(tree.kind())) {
+      statements++;
+    }
+    if (tree.is(Tree.Kind.TRY_STATEMENT)) {
+      TryStatementTree tryStatement = (TryStatementTree) tree;
+      statements -= tryStatement.resourceList().size();
+      statements -= tryStatement.catches().size();
+    } else if (tree.is(Tree.Kind.VARIABLE)) {
+      variableTypes.add(((VariableTree) tree).type());
+    }
   }
 
   @Override
-  public void visitForStatement(ForStatementTree tree) {
-    statements++;
-    super.visitForStatement(tree);
-    removeVariable(tree.initializer());
-    removeVariable(tree.update());
+  public void leave(Tree tree) {
+    if (tree.is(Tree.Kind.FOR_STATEMENT)) {
+      ForStatementTree forStatement = (ForStatementTree) tree;
+      removeVariable(forStatement.initializer());
+      removeVariable(forStatement.update());
+    } else if (tree.is(Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR)) {
+      for (VariableTree variableTree : ((MethodTree) tree).parameters()) {
+        variableTypes.remove(variableTree.type());
+      }
+    } else if (tree.is(Tree.Kind.CLASS, Tree.Kind.ENUM, Tree.Kind.INTERFACE, Tree.Kind.ANNOTATION_TYPE)) {
+      for (Tree member : ((ClassTree) tree).members()) {
+        if (member.is(Tree.Kind.VARIABLE)) {
+          variableTypes.remove(((VariableTree) member).type());
+        }
+      }
+    }
   }
 
   private void removeVariable(List<StatementTree> statementTrees) {
@@ -111,78 +104,4 @@ public class StatementVisitor extends BaseTreeVisitor {
     }
   }
 
-  @Override
-  public void visitForEachStatement(ForEachStatement tree) {
-    statements++;
-    super.visitForEachStatement(tree);
-  }
-
-  @Override
-  public void visitBreakStatement(BreakStatementTree tree) {
-    statements++;
-    super.visitBreakStatement(tree);
-  }
-
-  @Override
-  public void visitContinueStatement(ContinueStatementTree tree) {
-    statements++;
-    super.visitContinueStatement(tree);
-  }
-
-  @Override
-  public void visitReturnStatement(ReturnStatementTree tree) {
-    statements++;
-    super.visitReturnStatement(tree);
-  }
-
-  @Override
-  public void visitThrowStatement(ThrowStatementTree tree) {
-    statements++;
-    super.visitThrowStatement(tree);
-  }
-
-  @Override
-  public void visitSynchronizedStatement(SynchronizedStatementTree tree) {
-    statements++;
-    super.visitSynchronizedStatement(tree);
-  }
-
-  @Override
-  public void visitTryStatement(TryStatementTree tree) {
-    statements++;
-    statements -= tree.resourceList().size();
-    statements -= tree.catches().size();
-    super.visitTryStatement(tree);
-  }
-
-  @Override
-  public void visitVariable(VariableTree tree) {
-    variableTypes.add(tree.type());
-    super.visitVariable(tree);
-  }
-
-  @Override
-  public void visitMethod(MethodTree tree) {
-    super.visitMethod(tree);
-    for (VariableTree variableTree : tree.parameters()) {
-      variableTypes.remove(variableTree.type());
-    }
-  }
-
-  @Override
-  public void visitClass(ClassTree tree) {
-    super.visitClass(tree);
-    for (Tree member : tree.members()) {
-      if (member.is(Tree.Kind.VARIABLE)) {
-        variableTypes.remove(((VariableTree) member).type());
-      }
-    }
-  }
-
-  @Override
-  public void visitExpressionStatement(ExpressionStatementTree tree) {
-    statements++;
-    super.visitExpressionStatement(tree);
-  }
-
 }
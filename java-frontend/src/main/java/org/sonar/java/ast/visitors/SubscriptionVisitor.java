@@ -19,7 +19,6 @@
  */
 package org.sonar.java.ast.visitors;
 
-import org.sonar.java.model.JavaTree;
 import org.sonar.java.model.Sema;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
@@ -62,6 +61,10 @@ public abstract class SubscriptionVisitor implements JavaFileScanner {
     semanticModel = (Sema) context.getSemanticModel();
   }
 
+  /**
+   * Called once the whole tree of the file is visited, when the visitor shares the walk of the tree of the other visitors,
+   * see {@link org.sonar.java.model.VisitorsBridge}. Not called by {@link #scanFile(JavaFileScannerContext)}.
+   */
   public void leaveFile(JavaFileScannerContext context) {
     //default behaviour is to do nothing
   }
@@ -83,31 +86,39 @@ public abstract class SubscriptionVisitor implements JavaFileScanner {
     }
     visitToken = isVisitingTokens();
     visitTrivia = isVisitingTrivia();
-    visit(tree);
+    TreeWalker.walk(tree, new Walker());
   }
 
-  private void visit(Tree tree) {
-    boolean isSubscribed = isSubscribed(tree);
-    boolean shouldVisitSyntaxToken = (visitToken || visitTrivia) && tree.is(Tree.Kind.TOKEN);
-    if (shouldVisitSyntaxToken) {
-      SyntaxToken syntaxToken = (SyntaxToken) tree;
-      if (visitToken) {
-        visitToken(syntaxToken);
-      }
-      if (visitTrivia) {
-        for (SyntaxTrivia syntaxTrivia : syntaxToken.trivias()) {
-          visitTrivia(syntaxTrivia);
+  private class Walker implements TreeWalker.Listener {
+    @Override
+    public void enter(Tree tree) {
+      if (isVisitingSyntaxToken(tree)) {
+        SyntaxToken syntaxToken = (SyntaxToken) tree;
+        if (visitToken) {
+          visitToken(syntaxToken);
+        }
+        if (visitTrivia) {
+          for (SyntaxTrivia syntaxTrivia : syntaxToken.trivias()) {
+            visitTrivia(syntaxTrivia);
+          }
         }
+      } else if (isSubscribed(tree)) {
+        visitNode(tree);
       }
-    } else if (isSubscribed) {
-      visitNode(tree);
     }
-    visitChildren(tree);
-    if (!shouldVisitSyntaxToken && isSubscribed) {
-      leaveNode(tree);
+
+    @Override
+    public void leave(Tree tree) {
+      if (!isVisitingSyntaxToken(tree) && isSubscribed(tree)) {
+        leaveNode(tree);
+      }
     }
   }
 
+  private boolean isVisitingSyntaxToken(Tree tree) {
+    return (visitToken || visitTrivia) && tree.is(Tree.Kind.TOKEN);
+  }
+
   private boolean isSubscribed(Tree tree) {
     return nodesToVisit.contains(tree.kind());
   }
@@ -120,17 +131,6 @@ public abstract class SubscriptionVisitor implements JavaFileScanner {
     return nodesToVisit.contains(Tree.Kind.TOKEN);
   }
 
-  private void visitChildren(Tree tree) {
-    JavaTree javaTree = (JavaTree) tree;
-    if (!javaTree.isLeaf()) {
-      for (Tree next : javaTree.getChildren()) {
-        if (next != null) {
-          visit(next);
-        }
-      }
-    }
-  }
-
   public boolean hasSemantic(){
     return semanticModel != null;
   }
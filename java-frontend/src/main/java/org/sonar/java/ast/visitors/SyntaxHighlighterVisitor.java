@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.Set;
 import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.java.SensorWrites;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.ast.api.JavaKeyword;
 import org.sonar.java.ast.api.JavaRestrictedKeyword;
@@ -76,12 +77,14 @@ public class SyntaxHighlighterVisitor extends SubscriptionVisitor {
   }
 
   @Override
-  public void scanFile(JavaFileScannerContext context) {
+  public void setContext(JavaFileScannerContext context) {
+    super.setContext(context);
     highlighting = sonarComponents.highlightableFor(context.getInputFile());
+  }
 
-    super.scanFile(context);
-
-    highlighting.save();
+  @Override
+  public void leaveFile(JavaFileScannerContext context) {
+    SensorWrites.save(highlighting::save);
   }
 
   @Override
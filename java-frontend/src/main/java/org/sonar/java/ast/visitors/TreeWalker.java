@@ -0,0 +1,100 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.ast.visitors;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.sonar.java.model.JavaTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Depth-first walk of a tree, in the order of {@link JavaTree#getChildren()}.
+ * The path from the root to the current tree is kept on an explicit stack rather than on the call stack,
+ * so that deeply nested trees (long string concatenations, long chains of method invocations, ...)
+ * can be walked whatever the stack size of the analysis thread.
+ */
+public final class TreeWalker {
+
+  private static final int INITIAL_DEPTH = 64;
+
+  public interface Listener {
+
+    /**
+     * Called before walking the children of the tree.
+     */
+    void enter(Tree tree);
+
+    /**
+     * Called after walking the children of the tree.
+     */
+    void leave(Tree tree);
+  }
+
+  private final Listener listener;
+  private Tree[] trees = new Tree[INITIAL_DEPTH];
+  private List<?>[] children = new List<?>[INITIAL_DEPTH];
+  private int[] nextChild = new int[INITIAL_DEPTH];
+  private int depth;
+
+  private TreeWalker(Listener listener) {
+    this.listener = listener;
+  }
+
+  public static void walk(Tree tree, Listener listener) {
+    new TreeWalker(listener).walk(tree);
+  }
+
+  private void walk(Tree root) {
+    push(root);
+    while (depth > 0) {
+      int top = depth - 1;
+      List<?> siblings = children[top];
+      if (nextChild[top] < siblings.size()) {
+        Tree child = (Tree) siblings.get(nextChild[top]);
+        nextChild[top]++;
+        if (child != null) {
+          push(child);
+        }
+      } else {
+        Tree tree = trees[top];
+        trees[top] = null;
+        children[top] = null;
+        depth = top;
+        listener.leave(tree);
+      }
+    }
+  }
+
+  private void push(Tree tree) {
+    listener.enter(tree);
+    if (depth == trees.length) {
+      int newLength = depth * 2;
+      trees = Arrays.copyOf(trees, newLength);
+      children = Arrays.copyOf(children, newLength);
+      nextChild = Arrays.copyOf(nextChild, newLength);
+    }
+    JavaTree javaTree = (JavaTree) tree;
+    trees[depth] = tree;
+    children[depth] = javaTree.isLeaf() ? Collections.emptyList() : javaTree.getChildren();
+    nextChild[depth] = 0;
+    depth++;
+  }
+}
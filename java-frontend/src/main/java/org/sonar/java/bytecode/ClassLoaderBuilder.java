@@ -21,8 +21,11 @@ package org.sonar.java.bytecode;
 
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.java.bytecode.loader.LoaderRegistry;
 import org.sonar.java.bytecode.loader.SquidClassLoader;
 
+import javax.annotation.Nullable;
+
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -37,6 +40,14 @@ public final class ClassLoaderBuilder {
   }
 
   public static SquidClassLoader create(Collection<File> bytecodeFilesOrDirectories) {
+    return create(bytecodeFilesOrDirectories, null);
+  }
+
+  /**
+   * @param registry loaders of the jars and directories shared with the other class loaders of the analysis, null to open them
+   * for the created class loader only
+   */
+  public static SquidClassLoader create(Collection<File> bytecodeFilesOrDirectories, @Nullable LoaderRegistry registry) {
     List<File> files = new ArrayList<>();
     for (File file : bytecodeFilesOrDirectories) {
       if (file.isFile() && file.getPath().endsWith(".class")) {
@@ -55,7 +66,7 @@ public final class ClassLoaderBuilder {
     }
 
     try {
-      return new SquidClassLoader(files);
+      return new SquidClassLoader(files, registry);
     } catch (Exception e) {
       throw new IllegalStateException("Can not create ClassLoader", e);
     }
@@ -31,6 +31,8 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -93,6 +95,18 @@ public class AarLoader implements Loader {
     return new byte[0];
   }
 
+  /**
+   * {@inheritDoc}
+   * <strong>Only packages of class resources (bytecode .class files) are listed by this method.</strong>
+   */
+  @Override
+  public Set<String> packages() {
+    if (classesLoader != null) {
+      return classesLoader.packages();
+    }
+    return Collections.emptySet();
+  }
+
   @Override
   public void close() {
     try {
@@ -0,0 +1,147 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.bytecode.loader;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.sonar.java.bytecode.BytecodeHelper;
+import org.sonar.java.resolve.Flags;
+
+/**
+ * Structure of a class read from its bytecode: its supertypes and the declarations of its methods, without their bodies.
+ */
+public final class ClassMetadata {
+
+  @Nullable
+  private final String superClassName;
+  private final String[] interfaces;
+  private final Map<String, MethodMetadata> methods;
+
+  private ClassMetadata(@Nullable String superClassName, String[] interfaces, Map<String, MethodMetadata> methods) {
+    this.superClassName = superClassName;
+    this.interfaces = interfaces;
+    this.methods = methods;
+  }
+
+  static ClassMetadata read(byte[] bytes) {
+    MetadataClassVisitor visitor = new MetadataClassVisitor();
+    new ClassReader(bytes).accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    return new ClassMetadata(visitor.superClassName, visitor.interfaces, visitor.methods);
+  }
+
+  /**
+   * @return internal name of the superclass, null for java.lang.Object, interfaces having java.lang.Object as superclass
+   */
+  @CheckForNull
+  public String superClassName() {
+    return superClassName;
+  }
+
+  /**
+   * @return internal names of the directly implemented interfaces
+   */
+  public List<String> interfaces() {
+    return Collections.unmodifiableList(Arrays.asList(interfaces));
+  }
+
+  /**
+   * @param nameAndDescriptor name of the method followed by its descriptor, e.g. {@code foo(I)V}
+   * @return the method declared by the class, null if not declared by the class itself
+   */
+  @CheckForNull
+  public MethodMetadata method(String nameAndDescriptor) {
+    return methods.get(nameAndDescriptor);
+  }
+
+  public static final class MethodMetadata {
+
+    private final int access;
+    private final List<String> declaredExceptions;
+
+    private MethodMetadata(int access, List<String> declaredExceptions) {
+      this.access = access;
+      this.declaredExceptions = declaredExceptions;
+    }
+
+    /**
+     * @return bytecode flags as provided by {@link ClassVisitor#visitMethod(int, String, String, String, String[])}
+     */
+    public int access() {
+      return access;
+    }
+
+    public boolean isStatic() {
+      return Flags.isFlagged(access, Flags.STATIC);
+    }
+
+    public boolean isVarArgs() {
+      return Flags.isFlagged(access, Flags.VARARGS);
+    }
+
+    /**
+     * @return fully qualified names of the exceptions of the throws clause
+     */
+    public List<String> declaredExceptions() {
+      return declaredExceptions;
+    }
+  }
+
+  private static class MetadataClassVisitor extends ClassVisitor {
+
+    private String superClassName;
+    private String[] interfaces = new String[0];
+    private final Map<String, MethodMetadata> methods = new HashMap<>();
+
+    MetadataClassVisitor() {
+      super(BytecodeHelper.ASM_API_VERSION);
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, @Nullable String superName, @Nullable String[] interfaces) {
+      superClassName = superName;
+      if (interfaces != null) {
+        this.interfaces = interfaces;
+      }
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, @Nullable String[] exceptions) {
+      methods.put(name + desc, new MethodMetadata(access, convertExceptions(exceptions)));
+      return null;
+    }
+
+    private static List<String> convertExceptions(@Nullable String[] exceptions) {
+      return exceptions == null ? Collections.emptyList() : Arrays.stream(exceptions)
+        .map(Type::getObjectType)
+        .map(Type::getClassName)
+        .collect(Collectors.toList());
+    }
+  }
+}
@@ -23,10 +23,18 @@ import javax.annotation.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 class FileSystemLoader implements Loader {
 
@@ -61,14 +69,36 @@ class FileSystemLoader implements Loader {
       throw new IllegalStateException("Loader closed");
     }
     Path filePath = baseDirPath.resolve(name);
-    if (!filePath.toFile().exists()) {
+    // a missing file fails to open, sparing a lookup of its existence
+    try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        return new byte[0];
+      }
+      byte[] bytes = new byte[(int) size];
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      int read = 0;
+      while (buffer.hasRemaining() && read >= 0) {
+        read = channel.read(buffer);
+      }
+      return buffer.hasRemaining() ? Arrays.copyOf(bytes, buffer.position()) : bytes;
+    } catch (IOException e) {
       return new byte[0];
     }
+  }
 
-    try {
-      return Files.readAllBytes(filePath);
-    } catch (IOException e) {
-      return new byte[0];
+  @Override
+  public Set<String> packages() {
+    if (baseDirPath == null) {
+      throw new IllegalStateException("Loader closed");
+    }
+    try (Stream<Path> files = Files.walk(baseDirPath)) {
+      return files
+        .map(baseDirPath::relativize)
+        .map(path -> SquidClassLoader.packageOf(path.toString().replace(File.separatorChar, '/')))
+        .collect(Collectors.toSet());
+    } catch (IOException | UncheckedIOException e) {
+      throw new IllegalStateException("Unable to list the files of " + baseDirPath, e);
     }
   }
 
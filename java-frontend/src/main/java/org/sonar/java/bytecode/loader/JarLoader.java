@@ -19,9 +19,9 @@
  */
 package org.sonar.java.bytecode.loader;
 
+import com.google.common.io.ByteStreams;
 import javax.annotation.Nullable;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -29,6 +29,10 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
@@ -74,13 +78,14 @@ class JarLoader implements Loader {
       }
 
       try (InputStream is = jarFile.getInputStream(entry)) {
-        byte[] buffer = new byte[8192];
-        ByteArrayOutputStream array = new ByteArrayOutputStream((int) entry.getSize());
-        int i;
-        while ((i = is.read(buffer)) >= 0) {
-          array.write(buffer, 0, i);
+        long size = entry.getSize();
+        if (size < 0 || size > Integer.MAX_VALUE) {
+          return ByteStreams.toByteArray(is);
         }
-        return array.toByteArray();
+        // entries are inflated straight into the returned array, without intermediate buffers
+        byte[] bytes = new byte[(int) size];
+        ByteStreams.readFully(is, bytes);
+        return bytes;
       }
     } catch (IOException e) {
       // TODO Godin: not sure that we should silently ignore exception here,
@@ -89,6 +94,16 @@ class JarLoader implements Loader {
     }
   }
 
+  @Override
+  public Set<String> packages() {
+    Set<String> packages = new HashSet<>();
+    Enumeration<JarEntry> entries = jarFile.entries();
+    while (entries.hasMoreElements()) {
+      packages.add(SquidClassLoader.packageOf(entries.nextElement().getName()));
+    }
+    return packages;
+  }
+
   @Override
   public void close() {
     try {
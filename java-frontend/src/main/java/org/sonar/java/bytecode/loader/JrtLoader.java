@@ -0,0 +1,175 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.bytecode.loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Loads the classes of a JDK from its module image, through the {@code jrt:/} file system of Java 9 and higher.
+ * Packages are indexed by module once, so that a resource is read from the single module containing its package.
+ */
+class JrtLoader implements Loader {
+
+  private static final URI JRT_URI = URI.create("jrt:/");
+
+  @Nullable
+  private final FileSystem ownFileSystem;
+  /**
+   * Root directory of the module of each package, e.g. {@code /modules/java.base} for {@code java/lang}.
+   */
+  private final Map<String, Path> modulesByPackage;
+  /**
+   * Set by the thread closing the loader, read by the analysis threads.
+   */
+  private volatile boolean closed;
+
+  private JrtLoader(FileSystem fileSystem, boolean ownFileSystem) {
+    this.ownFileSystem = ownFileSystem ? fileSystem : null;
+    this.modulesByPackage = indexModules(fileSystem);
+  }
+
+  /**
+   * @param jdkHome home of the JDK to load the classes of, null for the JDK running the analysis
+   * @throws IllegalStateException if the classes of the JDK can not be read from a module image, e.g. a JDK 8
+   */
+  static JrtLoader create(@Nullable File jdkHome) {
+    try {
+      if (jdkHome == null) {
+        return new JrtLoader(FileSystems.getFileSystem(JRT_URI), false);
+      }
+      if (!new File(jdkHome, "lib/modules").isFile()) {
+        throw new IllegalStateException("No module image in " + jdkHome.getAbsolutePath());
+      }
+      return new JrtLoader(FileSystems.newFileSystem(JRT_URI, Collections.singletonMap("java.home", jdkHome.getAbsolutePath())), true);
+    } catch (ProviderNotFoundException | FileSystemNotFoundException | IOException | UncheckedIOException e) {
+      throw new IllegalStateException("Unable to read the module image of the JDK", e);
+    }
+  }
+
+  /**
+   * @param jdkHome home of a JDK 8 or lower, or of its JRE
+   * @return the runtime jar of the JDK, null if not found
+   */
+  @CheckForNull
+  static File runtimeJar(File jdkHome) {
+    return Stream.of(new File(jdkHome, "jre/lib/rt.jar"), new File(jdkHome, "lib/rt.jar"))
+      .filter(File::isFile)
+      .findFirst()
+      .orElse(null);
+  }
+
+  private static Map<String, Path> indexModules(FileSystem fileSystem) {
+    Map<String, Path> modules = new HashMap<>();
+    try (Stream<Path> packages = Files.list(fileSystem.getPath("/packages"))) {
+      packages.forEach(packageDir -> {
+        String packageName = packageDir.getFileName().toString().replace('.', '/');
+        try (Stream<Path> packageModules = Files.list(packageDir)) {
+          packageModules.findFirst()
+            .ifPresent(module -> modules.put(packageName, fileSystem.getPath("/modules", module.getFileName().toString())));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return modules;
+  }
+
+  @CheckForNull
+  private Path path(String name) {
+    checkNotClosed();
+    Path module = modulesByPackage.get(SquidClassLoader.packageOf(name));
+    if (module == null) {
+      return null;
+    }
+    Path path = module.resolve(name);
+    return Files.isRegularFile(path) ? path : null;
+  }
+
+  @Override
+  public URL findResource(String name) {
+    Path path = path(name);
+    if (path == null) {
+      return null;
+    }
+    try {
+      return path.toUri().toURL();
+    } catch (MalformedURLException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public byte[] loadBytes(String name) {
+    Path path = path(name);
+    if (path == null) {
+      return new byte[0];
+    }
+    try {
+      return Files.readAllBytes(path);
+    } catch (IOException e) {
+      return new byte[0];
+    }
+  }
+
+  @Override
+  public Set<String> packages() {
+    checkNotClosed();
+    return Collections.unmodifiableSet(modulesByPackage.keySet());
+  }
+
+  private void checkNotClosed() {
+    if (closed) {
+      throw new IllegalStateException("Loader closed");
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    if (ownFileSystem != null) {
+      try {
+        ownFileSystem.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+
+}
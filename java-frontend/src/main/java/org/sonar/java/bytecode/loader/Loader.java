@@ -20,6 +20,7 @@
 package org.sonar.java.bytecode.loader;
 
 import java.net.URL;
+import java.util.Set;
 
 /**
  * Specifies resource loading behavior.
@@ -46,6 +47,14 @@ interface Loader {
    */
   byte[] loadBytes(String name);
 
+  /**
+   * Lists the packages of the resources, as computed by {@link SquidClassLoader#packageOf(String)} from their names.
+   *
+   * @return the packages of all the resources of this loader, including the resources which are directories
+   * @throws IllegalStateException if loader has been closed
+   */
+  Set<String> packages();
+
   /**
    * Closes this loader, so that it can no longer be used to load new resources.
    * If loader is already closed, then invoking this method has no effect.
@@ -0,0 +1,177 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.bytecode.loader;
+
+import java.io.File;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Loaders of the jars and directories of an analysis, shared by the class loaders of its classpaths: each file is opened and
+ * its packages listed once, however many class loaders use it. A loader is closed when the last class loader using it is closed.
+ */
+public final class LoaderRegistry {
+
+  private static final Logger LOG = Loggers.get(LoaderRegistry.class);
+
+  private final Map<File, SharedLoader> loaders = new HashMap<>();
+  private final Set<File> invalidFiles = new HashSet<>();
+  @Nullable
+  private final File jdkHome;
+  @Nullable
+  private SharedLoader jdkLoader;
+  private boolean jdkLoaderUnavailable;
+
+  public LoaderRegistry() {
+    this(null);
+  }
+
+  /**
+   * @param jdkHome home of the JDK of the analyzed project, null to load the classes of the JDK running the analysis
+   */
+  public LoaderRegistry(@Nullable File jdkHome) {
+    this.jdkHome = jdkHome;
+  }
+
+  /**
+   * @return the loader of the file, to be closed by the caller, null if the file is neither a directory, a jar nor an aar,
+   * or if it could not be opened before
+   * @throws IllegalStateException if the file can not be opened
+   */
+  @CheckForNull
+  synchronized Loader acquire(File file) {
+    File key = file.getAbsoluteFile();
+    SharedLoader shared = loaders.get(key);
+    if (shared != null) {
+      shared.references++;
+      return shared;
+    }
+    if (invalidFiles.contains(key)) {
+      return null;
+    }
+    Loader loader;
+    try {
+      loader = SquidClassLoader.createLoader(file);
+    } catch (IllegalStateException e) {
+      invalidFiles.add(key);
+      throw e;
+    }
+    if (loader == null) {
+      return null;
+    }
+    shared = new SharedLoader(key, loader);
+    loaders.put(key, shared);
+    return shared;
+  }
+
+  /**
+   * Classes of the JDK are read from its module image, or from its runtime jar for a JDK 8, rather than through the class loader
+   * of the JVM running the analysis.
+   *
+   * @return the loader of the classes of the JDK, to be closed by the caller, null if they can only be loaded by the running JVM
+   */
+  @CheckForNull
+  synchronized Loader acquireJdk() {
+    if (jdkLoader != null) {
+      jdkLoader.references++;
+      return jdkLoader;
+    }
+    if (jdkLoaderUnavailable) {
+      return null;
+    }
+    try {
+      long start = System.nanoTime();
+      File runtimeJar = jdkHome == null ? null : JrtLoader.runtimeJar(jdkHome);
+      Loader loader = runtimeJar == null ? JrtLoader.create(jdkHome) : new JarLoader(runtimeJar);
+      jdkLoader = new SharedLoader(null, loader);
+      LOG.debug("Indexed {} packages of the JDK: {} ms", loader.packages().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      return jdkLoader;
+    } catch (IllegalStateException e) {
+      jdkLoaderUnavailable = true;
+      if (jdkHome != null) {
+        LOG.warn("Unable to load the classes of the JDK from '{}', the JDK running the analysis is used instead", jdkHome.getPath());
+      }
+      LOG.debug("Classes of the JDK are loaded by the running JVM: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  private synchronized void release(SharedLoader shared) {
+    shared.references--;
+    if (shared.references == 0) {
+      if (shared == jdkLoader) {
+        jdkLoader = null;
+      } else {
+        loaders.remove(shared.file);
+      }
+      shared.loader.close();
+    }
+  }
+
+  synchronized int size() {
+    return loaders.size();
+  }
+
+  private class SharedLoader implements Loader {
+
+    @Nullable
+    private final File file;
+    private final Loader loader;
+    private int references = 1;
+    private Set<String> packages;
+
+    SharedLoader(@Nullable File file, Loader loader) {
+      this.file = file;
+      this.loader = loader;
+    }
+
+    @Override
+    public URL findResource(String name) {
+      return loader.findResource(name);
+    }
+
+    @Override
+    public byte[] loadBytes(String name) {
+      return loader.loadBytes(name);
+    }
+
+    @Override
+    public synchronized Set<String> packages() {
+      if (packages == null) {
+        packages = loader.packages();
+      }
+      return packages;
+    }
+
+    @Override
+    public void close() {
+      release(this);
+    }
+  }
+
+}
@@ -19,9 +19,10 @@
  */
 package org.sonar.java.bytecode.loader;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.cache.CacheStats;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterators;
 import com.google.common.io.ByteStreams;
 import com.google.common.util.concurrent.UncheckedExecutionException;
@@ -32,12 +33,17 @@ import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.commons.lang.ArrayUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -50,25 +56,47 @@ import org.sonar.java.resolve.Convert;
 public class SquidClassLoader extends ClassLoader implements Closeable {
 
   private static final Logger LOG = Loggers.get(SquidClassLoader.class);
+  private static final int MAX_CACHED_CLASS_METADATA = 20_000;
 
   private final List<Loader> loaders;
-  private final LoadingCache<String, Optional<Loader>> loaderCache;
+  /**
+   * Loaders of each package, in the order of the classpath: a resource is loaded from the first loader of its package having it.
+   */
+  private final Map<String, List<Loader>> loadersByPackage = new HashMap<>();
+  /**
+   * Metadata of the classes, by their internal names: lookups of methods walk the same supertypes (java.lang.Object first) many times.
+   */
+  private final Cache<String, Optional<ClassMetadata>> classMetadataCache = CacheBuilder.newBuilder()
+    .maximumSize(MAX_CACHED_CLASS_METADATA)
+    .recordStats()
+    .build();
+  /**
+   * Number of users of this class loader, which is closed when the last one closes it.
+   */
+  private int references = 1;
+  private boolean closed;
 
   /**
    * @param files ordered list of files and directories from which to load classes and resources
    */
   public SquidClassLoader(List<File> files) {
+    this(files, null);
+  }
+
+  /**
+   * @param files ordered list of files and directories from which to load classes and resources
+   * @param registry loaders shared with the other class loaders of the analysis, also loading the classes of the JDK,
+   *                 null to open the files for this class loader only
+   */
+  public SquidClassLoader(List<File> files, @Nullable LoaderRegistry registry) {
     super(computeParent());
     loaders = new ArrayList<>();
     for (File file : files) {
       if (file.exists()) {
         try {
-          if (file.isDirectory()) {
-            loaders.add(new FileSystemLoader(file));
-          } else if (file.getName().endsWith(".jar")) {
-            loaders.add(new JarLoader(file));
-          } else if (file.getName().endsWith(".aar")) {
-            loaders.add(new AarLoader(file));
+          Loader loader = registry == null ? createLoader(file) : registry.acquire(file);
+          if (loader != null) {
+            loaders.add(loader);
           }
         } catch (IllegalStateException e) {
           LOG.warn("Unable to load classes from '{}'", file.getPath());
@@ -76,15 +104,57 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
         }
       }
     }
+    if (registry != null) {
+      // after the classpath, whose classes are read first
+      Loader jdkLoader = registry.acquireJdk();
+      if (jdkLoader != null) {
+        loaders.add(jdkLoader);
+      }
+    }
+    indexPackages();
+  }
 
-    loaderCache = CacheBuilder.newBuilder()
-      .maximumSize(5000)
-      .build(new CacheLoader<String, Optional<Loader>>() {
-        @Override
-        public Optional<Loader> load(String key) {
-          return findLoaderWithResource(key);
-        }
-      });
+  private void indexPackages() {
+    long start = System.nanoTime();
+    for (Loader loader : loaders) {
+      for (String packageName : loader.packages()) {
+        loadersByPackage.computeIfAbsent(packageName, p -> new ArrayList<>(1)).add(loader);
+      }
+    }
+    if (!loaders.isEmpty()) {
+      LOG.debug("Indexed {} packages of {} classpath entries: {} ms", loadersByPackage.size(), loaders.size(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+  }
+
+  /**
+   * @param resourceName name of a resource, e.g. {@code org/acme/Foo.class} or {@code org/acme/} for a directory
+   * @return the name of the directory of the resource, e.g. {@code org/acme} for {@code org/acme/Foo.class}, or the empty string
+   */
+  static String packageOf(String resourceName) {
+    int end = resourceName.endsWith("/") ? (resourceName.length() - 1) : resourceName.length();
+    int lastSlash = resourceName.lastIndexOf('/', end - 1);
+    return lastSlash < 0 ? "" : resourceName.substring(0, lastSlash);
+  }
+
+  private List<Loader> loadersOf(String resourceName) {
+    return loadersByPackage.getOrDefault(packageOf(resourceName), Collections.emptyList());
+  }
+
+  /**
+   * @return the loader of the directory, jar or aar, null for other files
+   * @throws IllegalStateException if the file can not be opened
+   */
+  @CheckForNull
+  static Loader createLoader(File file) {
+    if (file.isDirectory()) {
+      return new FileSystemLoader(file);
+    } else if (file.getName().endsWith(".jar")) {
+      return new JarLoader(file);
+    } else if (file.getName().endsWith(".aar")) {
+      return new AarLoader(file);
+    }
+    return null;
   }
 
   private static ClassLoader computeParent() {
@@ -97,40 +167,45 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
 
   @Override
   protected Class findClass(String name) throws ClassNotFoundException {
-    String resourceName = name.replace('.', '/') + ".class";
-    for (Loader loader : loaders) {
-      byte[] classBytes = loader.loadBytes(resourceName);
-      if (ArrayUtils.isNotEmpty(classBytes)) {
-        // TODO Godin: definePackage ?
-        return defineClass(name, classBytes, 0, classBytes.length);
-      }
+    byte[] classBytes = loadBytes(name.replace('.', '/') + ".class");
+    if (classBytes == null) {
+      throw new ClassNotFoundException(name);
     }
-    throw new ClassNotFoundException(name);
+    // TODO Godin: definePackage ?
+    return defineClass(name, classBytes, 0, classBytes.length);
   }
 
-  @Override
-  public URL findResource(String name) {
-    try {
-      return loaderCache.get(name).map(loader -> loader.findResource(name)).orElse(null);
-    } catch (ExecutionException | UncheckedExecutionException e) {
-      throw new IllegalStateException(e.getCause());
+  /**
+   * Loads the bytes of a resource of the classpath, without creating any URL.
+   *
+   * @return bytes or null if the resource is not found in the classpath
+   */
+  @CheckForNull
+  private byte[] loadBytes(String resourceName) {
+    for (Loader loader : loadersOf(resourceName)) {
+      byte[] bytes = loader.loadBytes(resourceName);
+      if (ArrayUtils.isNotEmpty(bytes)) {
+        return bytes;
+      }
     }
+    return null;
   }
 
-  private Optional<Loader> findLoaderWithResource(String resourceName) {
-    for (Loader loader : loaders) {
-      URL url = loader.findResource(resourceName);
+  @Override
+  public URL findResource(String name) {
+    for (Loader loader : loadersOf(name)) {
+      URL url = loader.findResource(name);
       if (url != null) {
-        return Optional.of(loader);
+        return url;
       }
     }
-    return Optional.empty();
+    return null;
   }
 
   @Override
   protected Enumeration<URL> findResources(String name) throws IOException {
     List<URL> result = new ArrayList<>();
-    for (Loader loader : loaders) {
+    for (Loader loader : loadersOf(name)) {
       URL url = loader.findResource(name);
       if (url != null) {
         result.add(url);
@@ -148,16 +223,42 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
    */
   @CheckForNull
   public byte[] getBytesForClass(String className) {
-    try (InputStream is = getResourceAsStream(Convert.bytecodeName(className) + ".class")) {
-      if (is == null) {
-        return null;
-      }
+    String resourceName = Convert.bytecodeName(className) + ".class";
+    byte[] bytes = loadBytes(resourceName);
+    if (bytes != null) {
+      return bytes;
+    }
+    URL url = super.getResource(resourceName);
+    if (url == null) {
+      return null;
+    }
+    try (InputStream is = url.openStream()) {
       return ByteStreams.toByteArray(is);
     } catch (IOException e) {
       throw new AnalysisException("An IOException occurred in SonarJava classLoader.",e);
     }
   }
 
+  /**
+   * Structure of the class with name passed as an argument, read once from its bytecode.
+   *
+   * @param className canonical name of the class (e.g. org.acme.Foo ) or its internal name (e.g. org/acme/Foo )
+   * @return the metadata or null if class is not found
+   */
+  @CheckForNull
+  public ClassMetadata getClassMetadata(String className) {
+    String internalName = Convert.bytecodeName(className);
+    try {
+      return classMetadataCache.get(internalName, () -> Optional.ofNullable(getBytesForClass(internalName)).map(ClassMetadata::read)).orElse(null);
+    } catch (UncheckedExecutionException e) {
+      // exceptions of reading the bytecode are propagated as they are
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
   @Override
   public URL getResource(String name) {
     Objects.requireNonNull(name);
@@ -168,14 +269,42 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
     return url;
   }
 
+  /**
+   * Registers one more user of this class loader, which will have to close it as well.
+   *
+   * @return false if this class loader is already closed and can not be used anymore
+   */
+  public synchronized boolean retain() {
+    if (closed) {
+      return false;
+    }
+    references++;
+    return true;
+  }
+
   /**
    * Closes this class loader, so that it can no longer be used to load new classes or resources.
    * Any classes or resources that are already loaded, are still accessible.
+   * A class loader shared with {@link #retain()} is only closed once closed by all its users.
    *
    * If class loader is already closed, then invoking this method has no effect.
    */
   @Override
   public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      references--;
+      if (references > 0) {
+        return;
+      }
+      closed = true;
+    }
+    CacheStats stats = classMetadataCache.stats();
+    if (stats.requestCount() > 0) {
+      LOG.debug("Metadata of classes: {} hits, {} misses", stats.hitCount(), stats.missCount());
+    }
     for (Loader loader : loaders) {
       loader.close();
     }
@@ -287,7 +287,7 @@ public class BytecodeEGWalker {
       return null;
     }
     methodBehavior = behaviorCache.methodBehaviorForSymbol(signature);
-    if (!methodBehavior.isVisited()) {
+    if (behaviorCache.startExecution(methodBehavior)) {
       try {
         methodBehavior.visited();
         execute(signature, classLoader);
@@ -297,6 +297,8 @@ public class BytecodeEGWalker {
         LOG.debug("Dataflow analysis is incomplete for method {} : {}", signature, e.getMessage());
       } catch (Exception e) {
         throw new BytecodeAnalysisException("Failed dataflow analysis for " + signature, e);
+      } finally {
+        behaviorCache.endExecution(methodBehavior);
       }
     }
     return methodBehavior;
@@ -19,21 +19,16 @@
  */
 package org.sonar.java.bytecode.se;
 
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
-import javax.annotation.Nullable;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
-import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.JSRInlinerAdapter;
 import org.sonar.java.bytecode.BytecodeHelper;
+import org.sonar.java.bytecode.loader.ClassMetadata;
 import org.sonar.java.bytecode.loader.SquidClassLoader;
-import org.sonar.java.resolve.Flags;
 
 public class MethodLookup {
 
@@ -61,30 +56,37 @@ public class MethodLookup {
   }
 
   private static MethodLookup lookup(String className, String signature, SquidClassLoader classLoader, LookupMethodVisitor methodVisitor) {
-    byte[] bytes = classLoader.getBytesForClass(className);
-    if (bytes == null) {
+    ClassMetadata classMetadata = classLoader.getClassMetadata(className);
+    if (classMetadata == null) {
       return null;
     }
-    ClassReader cr = new ClassReader(bytes);
-    LookupClassVisitor lookupVisitor = new LookupClassVisitor(methodVisitor, signature);
-    cr.accept(lookupVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
-    if (lookupVisitor.methodFound) {
-      return new MethodLookup(lookupVisitor.isStatic, lookupVisitor.isVarArgs, lookupVisitor.declaredExceptions);
+    String nameAndDescriptor = signature.substring(signature.indexOf('#') + 1);
+    ClassMetadata.MethodMetadata method = classMetadata.method(nameAndDescriptor);
+    if (method != null) {
+      // avoid computing CFG when the method behavior won't be used
+      if (methodVisitor.shouldVisitMethod(method.access(), signature)) {
+        visitMethod(className, nameAndDescriptor, classLoader, methodVisitor);
+      }
+      return new MethodLookup(method.isStatic(), method.isVarArgs(), method.declaredExceptions());
     }
     // we didn't succeed to find the method in the class, try recursively on superclasses and interfaces
-    if (lookupVisitor.superClassName != null) {
-      MethodLookup result = lookup(lookupVisitor.superClassName, signature, classLoader, methodVisitor);
+    if (classMetadata.superClassName() != null) {
+      MethodLookup result = lookup(classMetadata.superClassName(), signature, classLoader, methodVisitor);
       if (result != null) {
         return result;
       }
     }
-    if (lookupVisitor.interfaces != null) {
-      return Arrays.stream(lookupVisitor.interfaces)
-          .map(iface -> lookup(iface, signature, classLoader, methodVisitor))
-          .filter(Objects::nonNull)
-          .findAny().orElse(null);
+    return classMetadata.interfaces().stream()
+      .map(iface -> lookup(iface, signature, classLoader, methodVisitor))
+      .filter(Objects::nonNull)
+      .findAny().orElse(null);
+  }
+
+  private static void visitMethod(String className, String nameAndDescriptor, SquidClassLoader classLoader, LookupMethodVisitor methodVisitor) {
+    byte[] bytes = classLoader.getBytesForClass(className);
+    if (bytes != null) {
+      new ClassReader(bytes).accept(new LookupClassVisitor(methodVisitor, nameAndDescriptor), ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
     }
-    return null;
   }
 
   public static class LookupMethodVisitor extends MethodVisitor {
@@ -107,49 +109,20 @@ public class MethodLookup {
   private static class LookupClassVisitor extends ClassVisitor {
 
     private final LookupMethodVisitor methodVisitor;
-    private final String methodSignature;
-    private boolean methodFound;
-    private String superClassName;
-    private String[] interfaces;
-    private List<String> declaredExceptions;
-    private boolean isStatic;
-    private boolean isVarArgs;
+    private final String nameAndDescriptor;
 
-    public LookupClassVisitor(LookupMethodVisitor methodVisitor, String targetedMethodSignatures) {
+    public LookupClassVisitor(LookupMethodVisitor methodVisitor, String nameAndDescriptor) {
       super(BytecodeHelper.ASM_API_VERSION);
       this.methodVisitor = methodVisitor;
-      this.methodSignature = targetedMethodSignatures;
-    }
-
-    @Override
-    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
-      superClassName = superName;
-      this.interfaces = interfaces;
-      super.visit(version, access, name, signature, superName, interfaces);
+      this.nameAndDescriptor = nameAndDescriptor;
     }
 
     @Override
     public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-      if (name.equals(methodSignature.substring(methodSignature.indexOf('#') + 1, methodSignature.indexOf('(')))
-          && desc.equals(methodSignature.substring(methodSignature.indexOf('(')))) {
-        methodFound = true;
-        declaredExceptions = convertExceptions(exceptions);
-        isStatic = Flags.isFlagged(access, Flags.STATIC);
-        isVarArgs = Flags.isFlagged(access, Flags.VARARGS);
-        if (!methodVisitor.shouldVisitMethod(access, methodSignature)) {
-          // avoid computing CFG when the method behavior won't be used
-          return null;
-        }
+      if (nameAndDescriptor.equals(name + desc)) {
         return new JSRInlinerAdapter(methodVisitor, access, name, desc, signature, exceptions);
       }
       return null;
     }
-
-    private static List<String> convertExceptions(@Nullable String[] exceptions) {
-      return exceptions == null ? Collections.emptyList() : Arrays.stream(exceptions)
-          .map(Type::getObjectType)
-          .map(Type::getClassName)
-          .collect(Collectors.toList());
-    }
   }
 }
@@ -0,0 +1,92 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.cfg;
+
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.sonar.java.model.declaration.MethodTreeImpl;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Control flow analyses of the body of a method, computed once and shared by the symbolic execution and the checks analyzing
+ * the method. Analyses are held by the tree of the method, and thus released with the trees of the file once it is analyzed.
+ * Analyses are computed on demand by any of the threads executing the methods of the file.
+ */
+public final class MethodAnalysis {
+
+  private final MethodTree methodTree;
+  @Nullable
+  private CFG cfg;
+  @Nullable
+  private LiveVariables liveVariables;
+  @Nullable
+  private LiveVariables liveVariablesWithFields;
+  @Nullable
+  private Map<Tree, CFGLoop> loops;
+
+  public MethodAnalysis(MethodTree methodTree) {
+    this.methodTree = methodTree;
+  }
+
+  /**
+   * @param methodTree method with a body
+   */
+  public static MethodAnalysis of(MethodTree methodTree) {
+    return ((MethodTreeImpl) methodTree).analysis();
+  }
+
+  public synchronized CFG cfg() {
+    if (cfg == null) {
+      cfg = CFG.build(methodTree);
+    }
+    return cfg;
+  }
+
+  /**
+   * @see LiveVariables#analyze(CFG)
+   */
+  public synchronized LiveVariables liveVariables() {
+    if (liveVariables == null) {
+      liveVariables = LiveVariables.analyze(cfg());
+    }
+    return liveVariables;
+  }
+
+  /**
+   * @see LiveVariables#analyzeWithFields(CFG)
+   */
+  public synchronized LiveVariables liveVariablesWithFields() {
+    if (liveVariablesWithFields == null) {
+      liveVariablesWithFields = LiveVariables.analyzeWithFields(cfg());
+    }
+    return liveVariablesWithFields;
+  }
+
+  /**
+   * @see CFGLoop#getCFGLoops(CFG)
+   */
+  public synchronized Map<Tree, CFGLoop> loops() {
+    if (loops == null) {
+      loops = CFGLoop.getCFGLoops(cfg());
+    }
+    return loops;
+  }
+}
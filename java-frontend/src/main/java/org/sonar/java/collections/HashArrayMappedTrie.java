@@ -0,0 +1,487 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.collections;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Hash Array Mapped Trie.
+ *
+ * https://en.wikipedia.org/wiki/Hash_array_mapped_trie
+ *
+ * Each level of the trie consumes 5 bits of the hash codes of the keys, from the most significant bits, so that entries are visited
+ * in the ascending order of hash codes of their keys, as in {@link AVLTree}. Keys with the same hash code are kept in a collision node
+ * below the last level.
+ * The trie is kept in canonical form (compressed and hash-array mapped, see "CHAMP", Steindorfer and Vinju): a sub-trie holds at least two keys,
+ * so that equal maps have the same shape whatever the order of their construction, and are compared node by node, sub-tries shared
+ * by both maps being equal by reference.
+ */
+abstract class HashArrayMappedTrie<K, V> implements PMap<K, V>, PSet<K> {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+  /**
+   * Level of collision nodes: 7 levels of 5 bits consume the 32 bits of hash codes.
+   */
+  private static final int COLLISION_LEVEL = 7;
+
+  private int hashCode;
+
+  /**
+   * @return empty trie
+   */
+  @SuppressWarnings("unchecked")
+  public static <K, V> HashArrayMappedTrie<K, V> create() {
+    return EMPTY;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public HashArrayMappedTrie<K, V> add(K e) {
+    Objects.requireNonNull(e);
+    return put(e, e, hash(e), 0);
+  }
+
+  @Override
+  public boolean contains(K k) {
+    return get(k) != null;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public HashArrayMappedTrie<K, V> put(K key, V value) {
+    Objects.requireNonNull(key);
+    Objects.requireNonNull(value);
+    return put(key, value, hash(key), 0);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public HashArrayMappedTrie<K, V> remove(K key) {
+    Objects.requireNonNull(key);
+    HashArrayMappedTrie result = remove(key, hash(key), 0);
+    return result.isEmpty() ? EMPTY : result;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Nullable
+  @Override
+  public V get(K key) {
+    Objects.requireNonNull(key);
+    return (V) get(key, hash(key), 0);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void forEach(Consumer<K> action) {
+    forEach((k, v) -> action.accept((K) k));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void forEach(BiConsumer<K, V> action) {
+    forEachEntry((BiConsumer<Object, Object>) action);
+  }
+
+  /**
+   * Sign bit is flipped, so that the unsigned order of hashes is the signed order of hash codes.
+   */
+  private static int hash(Object key) {
+    return key.hashCode() ^ Integer.MIN_VALUE;
+  }
+
+  private static int index(int hash, int level) {
+    int shift = Integer.SIZE - BITS * (level + 1);
+    // last level consumes the 2 remaining bits
+    return (shift >= 0 ? (hash >>> shift) : (hash << -shift)) & MASK;
+  }
+
+  private static int entryHashCode(Object key, Object value) {
+    // the key is multiplied by 31 to avoid K ^ V == 0 when K == V in case of set, as in AVLTree
+    return (31 * key.hashCode()) ^ value.hashCode();
+  }
+
+  abstract HashArrayMappedTrie put(Object key, Object value, int hash, int level);
+
+  /**
+   * @return trie without the key, a trie with a single entry being inlined in its parent
+   */
+  abstract HashArrayMappedTrie remove(Object key, int hash, int level);
+
+  @Nullable
+  abstract Object get(Object key, int hash, int level);
+
+  abstract void forEachEntry(BiConsumer<Object, Object> action);
+
+  abstract int computeHashCode();
+
+  /**
+   * @return true if this trie holds a single entry, to be inlined in its parent
+   */
+  abstract boolean isSingleEntry();
+
+  @Override
+  public int hashCode() {
+    if (hashCode == 0) {
+      hashCode = computeHashCode();
+    }
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    forEachEntry((k, v) -> sb.append(' ').append(k).append("->").append(v));
+    return sb.toString();
+  }
+
+  private static final HashArrayMappedTrie EMPTY = new BitmapNode(0, 0, new Object[0]);
+
+  /**
+   * Node mapping each of the 32 possible values of the bits of its level either to an entry, or to a sub-trie.
+   * Entries are stored first in the content as pairs of key and value, followed by sub-tries, both in the order of their bits.
+   */
+  private static final class BitmapNode extends HashArrayMappedTrie<Object, Object> {
+    private final int entriesMap;
+    private final int nodesMap;
+    private final Object[] content;
+
+    BitmapNode(int entriesMap, int nodesMap, Object[] content) {
+      this.entriesMap = entriesMap;
+      this.nodesMap = nodesMap;
+      this.content = content;
+    }
+
+    static BitmapNode of(Object key1, Object value1, int hash1, Object key2, Object value2, int hash2, int level) {
+      int index1 = index(hash1, level);
+      int index2 = index(hash2, level);
+      if (index1 == index2) {
+        HashArrayMappedTrie node = level + 1 == COLLISION_LEVEL
+          ? new CollisionNode(hash1, new Object[] {key1, value1, key2, value2})
+          : of(key1, value1, hash1, key2, value2, hash2, level + 1);
+        return new BitmapNode(0, 1 << index1, new Object[] {node});
+      }
+      Object[] content = index1 < index2 ? new Object[] {key1, value1, key2, value2} : new Object[] {key2, value2, key1, value1};
+      return new BitmapNode((1 << index1) | (1 << index2), 0, content);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return entriesMap == 0 && nodesMap == 0;
+    }
+
+    @Override
+    boolean isSingleEntry() {
+      return nodesMap == 0 && Integer.bitCount(entriesMap) == 1;
+    }
+
+    private int entryIndex(int bit) {
+      return 2 * Integer.bitCount(entriesMap & (bit - 1));
+    }
+
+    private int nodeIndex(int bit) {
+      return 2 * Integer.bitCount(entriesMap) + Integer.bitCount(nodesMap & (bit - 1));
+    }
+
+    @Nullable
+    @Override
+    Object get(Object key, int hash, int level) {
+      int bit = 1 << index(hash, level);
+      if ((entriesMap & bit) != 0) {
+        int i = entryIndex(bit);
+        return key.equals(content[i]) ? content[i + 1] : null;
+      }
+      if ((nodesMap & bit) != 0) {
+        return ((HashArrayMappedTrie) content[nodeIndex(bit)]).get(key, hash, level + 1);
+      }
+      return null;
+    }
+
+    @Override
+    HashArrayMappedTrie put(Object key, Object value, int hash, int level) {
+      int bit = 1 << index(hash, level);
+      if ((entriesMap & bit) != 0) {
+        int i = entryIndex(bit);
+        Object existingKey = content[i];
+        if (key.equals(existingKey)) {
+          if (value.equals(content[i + 1])) {
+            return this;
+          }
+          Object[] newContent = content.clone();
+          newContent[i + 1] = value;
+          return new BitmapNode(entriesMap, nodesMap, newContent);
+        }
+        Object existingValue = content[i + 1];
+        HashArrayMappedTrie node = level + 1 == COLLISION_LEVEL
+          ? new CollisionNode(hash, new Object[] {existingKey, existingValue, key, value})
+          : of(existingKey, existingValue, hash(existingKey), key, value, hash, level + 1);
+        return entryToNode(bit, node);
+      }
+      if ((nodesMap & bit) != 0) {
+        int i = nodeIndex(bit);
+        HashArrayMappedTrie node = (HashArrayMappedTrie) content[i];
+        HashArrayMappedTrie newNode = node.put(key, value, hash, level + 1);
+        if (newNode == node) {
+          return this;
+        }
+        Object[] newContent = content.clone();
+        newContent[i] = newNode;
+        return new BitmapNode(entriesMap, nodesMap, newContent);
+      }
+      int i = entryIndex(bit);
+      Object[] newContent = new Object[content.length + 2];
+      System.arraycopy(content, 0, newContent, 0, i);
+      newContent[i] = key;
+      newContent[i + 1] = value;
+      System.arraycopy(content, i, newContent, i + 2, content.length - i);
+      return new BitmapNode(entriesMap | bit, nodesMap, newContent);
+    }
+
+    @Override
+    HashArrayMappedTrie remove(Object key, int hash, int level) {
+      int bit = 1 << index(hash, level);
+      if ((entriesMap & bit) != 0) {
+        int i = entryIndex(bit);
+        if (!key.equals(content[i])) {
+          return this;
+        }
+        Object[] newContent = new Object[content.length - 2];
+        System.arraycopy(content, 0, newContent, 0, i);
+        System.arraycopy(content, i + 2, newContent, i, content.length - i - 2);
+        return new BitmapNode(entriesMap ^ bit, nodesMap, newContent);
+      }
+      if ((nodesMap & bit) != 0) {
+        int i = nodeIndex(bit);
+        HashArrayMappedTrie node = (HashArrayMappedTrie) content[i];
+        HashArrayMappedTrie newNode = node.remove(key, hash, level + 1);
+        if (newNode == node) {
+          return this;
+        }
+        if (!newNode.isSingleEntry()) {
+          Object[] newContent = content.clone();
+          newContent[i] = newNode;
+          return new BitmapNode(entriesMap, nodesMap, newContent);
+        }
+        if (level > 0 && entriesMap == 0 && nodesMap == bit) {
+          // this node holds a single entry as well, to be inlined by the parent
+          return newNode;
+        }
+        return nodeToEntry(bit, newNode);
+      }
+      return this;
+    }
+
+    private BitmapNode entryToNode(int bit, HashArrayMappedTrie node) {
+      int entryIndex = entryIndex(bit);
+      int nodeIndex = nodeIndex(bit) - 2;
+      Object[] newContent = new Object[content.length - 1];
+      System.arraycopy(content, 0, newContent, 0, entryIndex);
+      System.arraycopy(content, entryIndex + 2, newContent, entryIndex, nodeIndex - entryIndex);
+      newContent[nodeIndex] = node;
+      System.arraycopy(content, nodeIndex + 2, newContent, nodeIndex + 1, content.length - nodeIndex - 2);
+      return new BitmapNode(entriesMap ^ bit, nodesMap | bit, newContent);
+    }
+
+    private BitmapNode nodeToEntry(int bit, HashArrayMappedTrie singleEntryNode) {
+      Object[] entry = new Object[2];
+      singleEntryNode.forEachEntry((k, v) -> {
+        entry[0] = k;
+        entry[1] = v;
+      });
+      int nodeIndex = nodeIndex(bit);
+      int entryIndex = entryIndex(bit);
+      Object[] newContent = new Object[content.length + 1];
+      System.arraycopy(content, 0, newContent, 0, entryIndex);
+      newContent[entryIndex] = entry[0];
+      newContent[entryIndex + 1] = entry[1];
+      System.arraycopy(content, entryIndex, newContent, entryIndex + 2, nodeIndex - entryIndex);
+      System.arraycopy(content, nodeIndex + 1, newContent, nodeIndex + 2, content.length - nodeIndex - 1);
+      return new BitmapNode(entriesMap | bit, nodesMap ^ bit, newContent);
+    }
+
+    @Override
+    void forEachEntry(BiConsumer<Object, Object> action) {
+      int entries = entriesMap;
+      int nodes = nodesMap;
+      int entryIndex = 0;
+      int nodeIndex = 2 * Integer.bitCount(entriesMap);
+      while ((entries | nodes) != 0) {
+        int entriesBit = Integer.lowestOneBit(entries);
+        int nodesBit = Integer.lowestOneBit(nodes);
+        if (nodesBit == 0 || (entriesBit != 0 && Integer.compareUnsigned(entriesBit, nodesBit) < 0)) {
+          action.accept(content[entryIndex], content[entryIndex + 1]);
+          entryIndex += 2;
+          entries ^= entriesBit;
+        } else {
+          ((HashArrayMappedTrie) content[nodeIndex]).forEachEntry(action);
+          nodeIndex++;
+          nodes ^= nodesBit;
+        }
+      }
+    }
+
+    @Override
+    int computeHashCode() {
+      int result = 0;
+      int entriesLength = 2 * Integer.bitCount(entriesMap);
+      for (int i = 0; i < entriesLength; i += 2) {
+        result += entryHashCode(content[i], content[i + 1]);
+      }
+      for (int i = entriesLength; i < content.length; i++) {
+        result += content[i].hashCode();
+      }
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof BitmapNode)) {
+        return false;
+      }
+      BitmapNode other = (BitmapNode) obj;
+      if (entriesMap != other.entriesMap || nodesMap != other.nodesMap || hashCode() != other.hashCode()) {
+        return false;
+      }
+      // canonical form: equal tries have the same entries and sub-tries at the same positions
+      for (int i = 0; i < content.length; i++) {
+        if (!content[i].equals(other.content[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Entries whose keys have the same hash code, in the order of their insertion.
+   */
+  private static final class CollisionNode extends HashArrayMappedTrie<Object, Object> {
+    private final int hash;
+    private final Object[] content;
+
+    CollisionNode(int hash, Object[] content) {
+      this.hash = hash;
+      this.content = content;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return false;
+    }
+
+    @Override
+    boolean isSingleEntry() {
+      return content.length == 2;
+    }
+
+    private int keyIndex(Object key) {
+      for (int i = 0; i < content.length; i += 2) {
+        if (key.equals(content[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Nullable
+    @Override
+    Object get(Object key, int hash, int level) {
+      if (hash != this.hash) {
+        return null;
+      }
+      int i = keyIndex(key);
+      return i < 0 ? null : content[i + 1];
+    }
+
+    @Override
+    HashArrayMappedTrie put(Object key, Object value, int hash, int level) {
+      int i = keyIndex(key);
+      if (i < 0) {
+        Object[] newContent = new Object[content.length + 2];
+        System.arraycopy(content, 0, newContent, 0, content.length);
+        newContent[content.length] = key;
+        newContent[content.length + 1] = value;
+        return new CollisionNode(hash, newContent);
+      }
+      if (value.equals(content[i + 1])) {
+        return this;
+      }
+      Object[] newContent = content.clone();
+      newContent[i + 1] = value;
+      return new CollisionNode(hash, newContent);
+    }
+
+    @Override
+    HashArrayMappedTrie remove(Object key, int hash, int level) {
+      int i = keyIndex(key);
+      if (i < 0) {
+        return this;
+      }
+      Object[] newContent = new Object[content.length - 2];
+      System.arraycopy(content, 0, newContent, 0, i);
+      System.arraycopy(content, i + 2, newContent, i, content.length - i - 2);
+      return new CollisionNode(hash, newContent);
+    }
+
+    @Override
+    void forEachEntry(BiConsumer<Object, Object> action) {
+      for (int i = 0; i < content.length; i += 2) {
+        action.accept(content[i], content[i + 1]);
+      }
+    }
+
+    @Override
+    int computeHashCode() {
+      int result = 0;
+      for (int i = 0; i < content.length; i += 2) {
+        result += entryHashCode(content[i], content[i + 1]);
+      }
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof CollisionNode)) {
+        return false;
+      }
+      CollisionNode other = (CollisionNode) obj;
+      if (content.length != other.content.length || hashCode() != other.hashCode()) {
+        return false;
+      }
+      // order of entries depends on the order of insertion
+      for (int i = 0; i < content.length; i += 2) {
+        if (!content[i + 1].equals(other.get(content[i], hash, COLLISION_LEVEL))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+}
@@ -19,17 +19,75 @@
  */
 package org.sonar.java.collections;
 
+import java.util.Locale;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
 public final class PCollections {
 
+  private static final Logger LOG = Loggers.get(PCollections.class);
+
+  /**
+   * System property selecting the implementation of persistent sets and maps: "avl" (default) or "hamt".
+   */
+  public static final String IMPLEMENTATION_PROPERTY = "sonar.java.collections.implementation";
+
+  enum Implementation {
+    HAMT {
+      @Override
+      <E> PSet<E> emptySet() {
+        return HashArrayMappedTrie.create();
+      }
+
+      @Override
+      <K, V> PMap<K, V> emptyMap() {
+        return HashArrayMappedTrie.create();
+      }
+    },
+    AVL {
+      @Override
+      <E> PSet<E> emptySet() {
+        return AVLTree.create();
+      }
+
+      @Override
+      <K, V> PMap<K, V> emptyMap() {
+        return AVLTree.create();
+      }
+    };
+
+    abstract <E> PSet<E> emptySet();
+
+    abstract <K, V> PMap<K, V> emptyMap();
+
+    /**
+     * @return the implementation of the given name, or the default one when the name is unknown
+     */
+    static Implementation of(@Nullable String name) {
+      if (name == null) {
+        return AVL;
+      }
+      try {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        LOG.warn("Unknown value '{}' of {}, expected \"avl\" or \"hamt\": AVL trees are used", name, IMPLEMENTATION_PROPERTY);
+        return AVL;
+      }
+    }
+  }
+
+  private static final Implementation IMPLEMENTATION = Implementation.of(System.getProperty(IMPLEMENTATION_PROPERTY));
+
   private PCollections() {
   }
 
   public static <E> PSet<E> emptySet() {
-    return AVLTree.create();
+    return IMPLEMENTATION.emptySet();
   }
 
   public static <E, V> PMap<E, V> emptyMap() {
-    return AVLTree.create();
+    return IMPLEMENTATION.emptyMap();
   }
 
   public static <E> PStack<E> emptyStack() {
@@ -0,0 +1,73 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.LoaderRegistry;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+
+/**
+ * Class loaders and name environments of the classpaths of an analysis, shared by the visitors bridges of main, test and
+ * generated files and by the bridges of each analysis thread. Bridges with the same classpath share the same instances,
+ * and class loaders of different classpaths share the loaders of their common jars and directories.
+ * Each user closes what it gets, instances being released once closed by all their users.
+ */
+public class ClasspathRegistry {
+
+  private final LoaderRegistry loaders;
+  private final Map<List<File>, SquidClassLoader> classLoaders = new HashMap<>();
+  private final Map<List<File>, JNameEnvironment> nameEnvironments = new HashMap<>();
+
+  public ClasspathRegistry() {
+    this(null);
+  }
+
+  /**
+   * @param jdkHome home of the JDK whose classes are loaded by the class loaders, null for the JDK running the analysis
+   */
+  public ClasspathRegistry(@Nullable File jdkHome) {
+    loaders = new LoaderRegistry(jdkHome);
+  }
+
+  public synchronized SquidClassLoader classLoader(List<File> classpath) {
+    SquidClassLoader classLoader = classLoaders.get(classpath);
+    if (classLoader == null || !classLoader.retain()) {
+      classLoader = ClassLoaderBuilder.create(classpath, loaders);
+      classLoaders.put(new ArrayList<>(classpath), classLoader);
+    }
+    return classLoader;
+  }
+
+  public synchronized JNameEnvironment nameEnvironment(List<File> classpath) {
+    JNameEnvironment nameEnvironment = nameEnvironments.get(classpath);
+    if (nameEnvironment == null || !nameEnvironment.retain()) {
+      nameEnvironment = new JNameEnvironment(classpath);
+      nameEnvironments.put(new ArrayList<>(classpath), nameEnvironment);
+    }
+    return nameEnvironment;
+  }
+
+}
@@ -44,9 +44,11 @@ final class JMethodSymbol extends JSymbol implements Symbol.MethodSymbol {
 
   @Override
   public List<Type> parameterTypes() {
-    return Arrays.stream(methodBinding().getParameterTypes())
-      .map(sema::type)
-      .collect(Collectors.toList());
+    synchronized (sema) {
+      return Arrays.stream(methodBinding().getParameterTypes())
+        .map(sema::type)
+        .collect(Collectors.toList());
+    }
   }
 
   /**
@@ -54,27 +56,33 @@ final class JMethodSymbol extends JSymbol implements Symbol.MethodSymbol {
    */
   @Override
   public TypeSymbol returnType() {
-    return sema.typeSymbol(methodBinding().getReturnType());
+    synchronized (sema) {
+      return sema.typeSymbol(methodBinding().getReturnType());
+    }
   }
 
   @Override
   public List<Type> thrownTypes() {
-    return Arrays.stream(methodBinding().getExceptionTypes())
-      .map(sema::type)
-      .collect(Collectors.toList());
+    synchronized (sema) {
+      return Arrays.stream(methodBinding().getExceptionTypes())
+        .map(sema::type)
+        .collect(Collectors.toList());
+    }
   }
 
   @Nullable
   @Override
   public MethodSymbol overriddenSymbol() {
-    IMethodBinding overrides = find(
-      methodBinding()::overrides,
-      methodBinding().getDeclaringClass()
-    );
-    if (overrides == null) {
-      return null;
+    synchronized (sema) {
+      IMethodBinding overrides = find(
+        methodBinding()::overrides,
+        methodBinding().getDeclaringClass()
+      );
+      if (overrides == null) {
+        return null;
+      }
+      return sema.methodSymbol(overrides);
     }
-    return sema.methodSymbol(overrides);
   }
 
   @Nullable
@@ -102,9 +110,11 @@ final class JMethodSymbol extends JSymbol implements Symbol.MethodSymbol {
 
   @Override
   public String signature() {
-    return methodBinding().getDeclaringClass().getBinaryName()
-      + "#" + name()
-      + JSema.signature(methodBinding().getMethodDeclaration());
+    synchronized (sema) {
+      return methodBinding().getDeclaringClass().getBinaryName()
+        + "#" + name()
+        + JSema.signature(methodBinding().getMethodDeclaration());
+    }
   }
 
   @Nullable
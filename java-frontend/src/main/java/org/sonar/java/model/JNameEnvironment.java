@@ -0,0 +1,87 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import java.io.File;
+import java.util.List;
+import org.eclipse.jdt.core.dom.ASTUtils;
+import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
+
+/**
+ * Project-scoped ECJ name environment, reused by every parsed file: jars of the classpath are opened and indexed once,
+ * and binary types and packages lookups are memoized until {@link #close()}.
+ */
+public class JNameEnvironment implements AutoCloseable {
+
+  private final List<File> classpath;
+  private INameEnvironment nameEnvironment;
+  /**
+   * Number of users of this environment, which is cleaned up when the last one closes it.
+   */
+  private int references = 1;
+
+  public JNameEnvironment(List<File> classpath) {
+    this.classpath = classpath;
+  }
+
+  public List<File> classpath() {
+    return classpath;
+  }
+
+  /**
+   * Lazily created on first use, so that an invalid classpath is reported as a parse error of each file.
+   *
+   * @throws IllegalStateException in case of invalid classpath entries
+   */
+  synchronized INameEnvironment nameEnvironment() {
+    if (nameEnvironment == null) {
+      nameEnvironment = ASTUtils.createNameEnvironment(classpath.stream().map(File::getAbsolutePath).toArray(String[]::new));
+    }
+    return nameEnvironment;
+  }
+
+  /**
+   * Registers one more user of this environment, which will have to close it as well.
+   *
+   * @return false if this environment is already closed by all its users
+   */
+  public synchronized boolean retain() {
+    if (references == 0) {
+      return false;
+    }
+    references++;
+    return true;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (references > 0) {
+      references--;
+    }
+    if (references > 0) {
+      return;
+    }
+    if (nameEnvironment != null) {
+      nameEnvironment.cleanup();
+      nameEnvironment = null;
+    }
+  }
+
+}
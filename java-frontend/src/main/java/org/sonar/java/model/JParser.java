@@ -62,6 +62,7 @@ import org.eclipse.jdt.core.dom.ExpressionMethodReference;
 import org.eclipse.jdt.core.dom.ExpressionStatement;
 import org.eclipse.jdt.core.dom.FieldAccess;
 import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
 import org.eclipse.jdt.core.dom.ForStatement;
 import org.eclipse.jdt.core.dom.IBinding;
 import org.eclipse.jdt.core.dom.IExtendedModifier;
@@ -131,6 +132,7 @@ import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 import org.eclipse.jdt.core.dom.WhileStatement;
 import org.eclipse.jdt.core.dom.WildcardType;
 import org.eclipse.jdt.core.dom.YieldStatement;
+import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.parser.Scanner;
 import org.eclipse.jdt.internal.compiler.parser.TerminalTokens;
@@ -150,6 +152,7 @@ import org.sonar.java.ast.parser.ResourceListTreeImpl;
 import org.sonar.java.ast.parser.StatementExpressionListTreeImpl;
 import org.sonar.java.ast.parser.TypeParameterListTreeImpl;
 import org.sonar.java.ast.parser.TypeUnionListTreeImpl;
+import org.sonar.java.ast.visitors.TreeWalker;
 import org.sonar.java.model.declaration.AnnotationTreeImpl;
 import org.sonar.java.model.declaration.ClassTreeImpl;
 import org.sonar.java.model.declaration.EnumConstantTreeImpl;
@@ -233,10 +236,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @ParametersAreNonnullByDefault
 public class JParser {
@@ -246,6 +249,9 @@ public class JParser {
   public static final String MAXIMUM_SUPPORTED_JAVA_VERSION = "13";
 
   /**
+   * Parses with a name environment dedicated to this file, cleaned up once the file is parsed,
+   * as {@link ASTParser} does with its own environment.
+   *
    * @param unitName see {@link ASTParser#setUnitName(String)}
    * @throws RecognitionException in case of syntax errors
    */
@@ -255,37 +261,104 @@ public class JParser {
     String source,
     List<File> classpath
   ) {
-    ASTParser astParser = ASTParser.newParser(AST.JLS13);
-    Map<String, String> options = new HashMap<>();
-    options.put(JavaCore.COMPILER_COMPLIANCE, version);
-    options.put(JavaCore.COMPILER_SOURCE, version);
-    if (MAXIMUM_SUPPORTED_JAVA_VERSION.equals(version)) {
-      options.put(JavaCore.COMPILER_PB_ENABLE_PREVIEW_FEATURES, "enabled");
+    try (JNameEnvironment environment = new JNameEnvironment(classpath)) {
+      return parse(version, unitName, source, environment);
     }
+  }
 
-    astParser.setCompilerOptions(options);
-
-    astParser.setEnvironment(
-      classpath.stream().map(File::getAbsolutePath).toArray(String[]::new),
-      new String[]{},
-      new String[]{},
-      true
-    );
-    astParser.setUnitName(unitName);
-
-    astParser.setResolveBindings(true);
-    astParser.setBindingsRecovery(true);
-
+  /**
+   * @param unitName see {@link ASTParser#setUnitName(String)}
+   * @param environment name environment shared by all the files of the analysis
+   * @throws RecognitionException in case of syntax errors
+   */
+  public static CompilationUnitTree parse(
+    String version,
+    String unitName,
+    String source,
+    JNameEnvironment environment
+  ) {
+    Map<String, String> options = compilerOptions(version);
     char[] sourceChars = source.toCharArray();
-    astParser.setSource(sourceChars);
 
     CompilationUnit astNode;
     try {
-      astNode = (CompilationUnit) astParser.createAST(null);
+      astNode = ASTUtils.createAST(environment.nameEnvironment(), AST.JLS13, options, unitName, sourceChars);
     } catch (Exception e) {
       LOG.error("ECJ: Unable to parse file", e);
       throw new RecognitionException(-1, "ECJ: Unable to parse file.", e);
     }
+    return convert(version, unitName, source, sourceChars, astNode);
+  }
+
+  /**
+   * Receives the trees of a batch of files parsed by {@link JParser#parse(String, List, List, JNameEnvironment, BatchRequestor)}.
+   */
+  @FunctionalInterface
+  public interface BatchRequestor {
+    /**
+     * @param index index of the file in the batch
+     * @param tree supplies the tree of the file, throws {@link RecognitionException} in case of syntax errors
+     */
+    void accept(int index, Supplier<CompilationUnitTree> tree);
+  }
+
+  /**
+   * Parses a batch of files in a single compilation, so that types declared in the batch are resolved from their sources.
+   * Trees are handed to the requestor in the order of the files, as soon as resolved, and are expected to be consumed before returning.
+   * Files which can not be resolved within the batch are parsed one by one.
+   *
+   * @param unitNames see {@link ASTParser#setUnitName(String)}
+   * @param environment name environment shared by all the files of the analysis
+   */
+  public static void parse(
+    String version,
+    List<String> unitNames,
+    List<String> sources,
+    JNameEnvironment environment,
+    BatchRequestor requestor
+  ) {
+    int resolved = 0;
+    if (unitNames.size() > 1) {
+      Map<String, String> options = compilerOptions(version);
+      char[][] sourcesChars = sources.stream().map(String::toCharArray).toArray(char[][]::new);
+      resolved = createASTs(environment, options, unitNames.toArray(new String[0]), sourcesChars, new FileASTRequestor() {
+        private int index = 0;
+
+        @Override
+        public void acceptAST(String sourceFilePath, CompilationUnit ast) {
+          int i = index++;
+          requestor.accept(i, () -> convert(version, unitNames.get(i), sources.get(i), sourcesChars[i], ast));
+        }
+      });
+    }
+    for (int i = resolved; i < unitNames.size(); i++) {
+      int index = i;
+      requestor.accept(index, () -> parse(version, unitNames.get(index), sources.get(index), environment));
+    }
+  }
+
+  private static int createASTs(JNameEnvironment environment, Map<String, String> options, String[] unitNames, char[][] sources, FileASTRequestor requestor) {
+    INameEnvironment nameEnvironment;
+    try {
+      nameEnvironment = environment.nameEnvironment();
+    } catch (IllegalStateException e) {
+      // reported by each file
+      return 0;
+    }
+    return ASTUtils.createASTs(nameEnvironment, AST.JLS13, options, unitNames, sources, requestor);
+  }
+
+  private static Map<String, String> compilerOptions(String version) {
+    Map<String, String> options = new HashMap<>();
+    options.put(JavaCore.COMPILER_COMPLIANCE, version);
+    options.put(JavaCore.COMPILER_SOURCE, version);
+    if (MAXIMUM_SUPPORTED_JAVA_VERSION.equals(version)) {
+      options.put(JavaCore.COMPILER_PB_ENABLE_PREVIEW_FEATURES, "enabled");
+    }
+    return options;
+  }
+
+  private static CompilationUnitTree convert(String version, String unitName, String source, char[] sourceChars, CompilationUnit astNode) {
     for (IProblem problem : astNode.getProblems()) {
       if (!problem.isError()) {
         continue;
@@ -313,21 +386,23 @@ public class JParser {
     return tree;
   }
 
-  private static void setParents(Tree node) {
-    Iterator<Tree> childrenIterator = iteratorFor(node);
-    while (childrenIterator.hasNext()) {
-      Tree child = childrenIterator.next();
-      ((JavaTree) child).setParent(node);
-      setParents(child);
-    }
-  }
+  private static void setParents(Tree tree) {
+    TreeWalker.walk(tree, new TreeWalker.Listener() {
+      @Override
+      public void enter(Tree node) {
+        JavaTree javaTree = (JavaTree) node;
+        if (!javaTree.isLeaf()) {
+          for (Tree child : javaTree.getChildren()) {
+            ((JavaTree) child).setParent(node);
+          }
+        }
+      }
 
-  private static Iterator<Tree> iteratorFor(Tree node) {
-    if (node.kind() == Tree.Kind.INFERED_TYPE || node.kind() == Tree.Kind.TOKEN) {
-      // getChildren throws exception in this case
-      return Collections.emptyIterator();
-    }
-    return ((JavaTree) node).getChildren().iterator();
+      @Override
+      public void leave(Tree node) {
+        // parents are set when entering the node
+      }
+    });
   }
 
   private static List<Token> lex(String version, String unitName, char[] sourceChars) {
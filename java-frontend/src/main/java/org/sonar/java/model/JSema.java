@@ -61,27 +61,31 @@ public final class JSema implements Sema {
     this.ast = ast;
   }
 
-  public JType type(ITypeBinding typeBinding) {
+  // cached symbols and types are shared by the threads executing the methods of a file in parallel, see SymbolicExecutionVisitor:
+  // bindings of ECJ are lazily resolved and not thread-safe, so symbols and types resolve them while holding the lock of their JSema.
+  // Names and owners of symbols are resolved once, so that symbols are hashed and compared without the lock in symbolic execution
+
+  public synchronized JType type(ITypeBinding typeBinding) {
     return types.computeIfAbsent(typeBinding, k -> new JType(this, JType.normalize(typeBinding)));
   }
 
-  public JPackageSymbol packageSymbol(IPackageBinding packageBinding) {
+  public synchronized JPackageSymbol packageSymbol(IPackageBinding packageBinding) {
     return (JPackageSymbol) symbols.computeIfAbsent(packageBinding, k -> new JPackageSymbol(this, (IPackageBinding) k));
   }
 
-  public JTypeSymbol typeSymbol(ITypeBinding typeBinding) {
+  public synchronized JTypeSymbol typeSymbol(ITypeBinding typeBinding) {
     return (JTypeSymbol) symbols.computeIfAbsent(typeBinding, k -> new JTypeSymbol(this, JType.normalize((ITypeBinding) k)));
   }
 
-  public JMethodSymbol methodSymbol(IMethodBinding methodBinding) {
+  public synchronized JMethodSymbol methodSymbol(IMethodBinding methodBinding) {
     return (JMethodSymbol) symbols.computeIfAbsent(methodBinding, k -> new JMethodSymbol(this, (IMethodBinding) k));
   }
 
-  public JVariableSymbol variableSymbol(IVariableBinding variableBinding) {
+  public synchronized JVariableSymbol variableSymbol(IVariableBinding variableBinding) {
     return (JVariableSymbol) symbols.computeIfAbsent(variableBinding, k -> new JVariableSymbol(this, (IVariableBinding) k));
   }
 
-  JSymbolMetadata.JAnnotationInstance annotation(IAnnotationBinding annotationBinding) {
+  synchronized JSymbolMetadata.JAnnotationInstance annotation(IAnnotationBinding annotationBinding) {
     return annotations.computeIfAbsent(annotationBinding, k -> new JSymbolMetadata.JAnnotationInstance(this, k));
   }
 
@@ -105,7 +109,7 @@ public final class JSema implements Sema {
   }
 
   @Nullable
-  ITypeBinding resolveType(String name) {
+  synchronized ITypeBinding resolveType(String name) {
     int dimensions = 0;
     int end = name.length() - 1;
     while (name.charAt(end) == ']') {
@@ -44,6 +44,14 @@ abstract class JSymbol implements Symbol {
   protected final JSema sema;
   protected final IBinding binding;
 
+  /**
+   * Name and owner are resolved once: symbols are the keys of the program states of symbolic execution, they are hashed and
+   * compared without holding the lock of their {@link JSema} once resolved.
+   */
+  private volatile String name;
+  private volatile Symbol owner;
+  private int hashCode;
+
   JSymbol(JSema sema, IBinding binding) {
     this.sema = Objects.requireNonNull(sema);
     this.binding = Objects.requireNonNull(binding);
@@ -51,6 +59,10 @@ abstract class JSymbol implements Symbol {
 
   @Override
   public final boolean equals(Object obj) {
+    if (this == obj) {
+      // symbols of a binding are cached by their JSema
+      return true;
+    }
     if (!(obj instanceof JSymbol)) {
       return false;
     }
@@ -60,10 +72,12 @@ abstract class JSymbol implements Symbol {
     }
     switch (this.binding.getKind()) {
       case IBinding.TYPE:
-        return JType.areEqual(
-          (ITypeBinding) this.binding,
-          (ITypeBinding) other.binding
-        );
+        synchronized (sema) {
+          return JType.areEqual(
+            (ITypeBinding) this.binding,
+            (ITypeBinding) other.binding
+          );
+        }
       case IBinding.VARIABLE:
         return areEqualVariables(
           this,
@@ -87,20 +101,27 @@ abstract class JSymbol implements Symbol {
   }
 
   private static boolean areEqualMethods(JSymbol thisMethodSymbol, JSymbol otherMethodSymbol) {
+    if (!thisMethodSymbol.name().equals(otherMethodSymbol.name()) || !thisMethodSymbol.owner().equals(otherMethodSymbol.owner())) {
+      return false;
+    }
     IMethodBinding thisBinding = (IMethodBinding) thisMethodSymbol.binding;
     IMethodBinding otherBinding = (IMethodBinding) otherMethodSymbol.binding;
-    return thisMethodSymbol.name().equals(otherMethodSymbol.name())
-      && thisMethodSymbol.owner().equals(otherMethodSymbol.owner())
-      && Arrays.equals(thisBinding.getParameterTypes(), otherBinding.getParameterTypes())
-      && Arrays.equals(thisBinding.getTypeParameters(), otherBinding.getTypeParameters())
-      && Arrays.equals(thisBinding.getTypeArguments(), otherBinding.getTypeArguments());
+    synchronized (thisMethodSymbol.sema) {
+      return Arrays.equals(thisBinding.getParameterTypes(), otherBinding.getParameterTypes())
+        && Arrays.equals(thisBinding.getTypeParameters(), otherBinding.getTypeParameters())
+        && Arrays.equals(thisBinding.getTypeArguments(), otherBinding.getTypeArguments());
+    }
   }
 
   @Override
   public final int hashCode() {
-    Symbol owner = owner();
-    int result = owner == null ? 0 : (owner.hashCode() * 31);
-    result += name().hashCode();
+    int result = hashCode;
+    if (result == 0) {
+      Symbol symbolOwner = owner();
+      result = symbolOwner == null ? 0 : (symbolOwner.hashCode() * 31);
+      result += name().hashCode();
+      hashCode = result;
+    }
     return result;
   }
 
@@ -109,6 +130,17 @@ abstract class JSymbol implements Symbol {
    */
   @Override
   public final String name() {
+    String result = name;
+    if (result == null) {
+      synchronized (sema) {
+        result = resolveName();
+      }
+      name = result;
+    }
+    return result;
+  }
+
+  private String resolveName() {
     if (binding.getKind() == IBinding.METHOD && ((IMethodBinding) binding).isConstructor()) {
       return "<init>";
     }
@@ -124,6 +156,17 @@ abstract class JSymbol implements Symbol {
    */
   @Override
   public final Symbol owner() {
+    Symbol result = owner;
+    if (result == null) {
+      synchronized (sema) {
+        result = resolveOwner();
+      }
+      owner = result;
+    }
+    return result;
+  }
+
+  private Symbol resolveOwner() {
     switch (binding.getKind()) {
       case IBinding.PACKAGE:
         return Symbols.rootPackage;
@@ -198,18 +241,20 @@ abstract class JSymbol implements Symbol {
 
   @Override
   public final Type type() {
-    switch (binding.getKind()) {
-      case IBinding.PACKAGE:
-        return null;
-      case IBinding.TYPE:
-        return sema.type((ITypeBinding) binding);
-      case IBinding.VARIABLE:
-        ITypeBinding variableType = ((IVariableBinding) binding).getType();
-        return variableType != null ? sema.type(variableType) : Symbols.unknownType;
-      case IBinding.METHOD:
-        return Symbols.unknownType;
-      default:
-        throw new IllegalStateException(unexpectedBinding());
+    synchronized (sema) {
+      switch (binding.getKind()) {
+        case IBinding.PACKAGE:
+          return null;
+        case IBinding.TYPE:
+          return sema.type((ITypeBinding) binding);
+        case IBinding.VARIABLE:
+          ITypeBinding variableType = ((IVariableBinding) binding).getType();
+          return variableType != null ? sema.type(variableType) : Symbols.unknownType;
+        case IBinding.METHOD:
+          return Symbols.unknownType;
+        default:
+          throw new IllegalStateException(unexpectedBinding());
+      }
     }
   }
 
@@ -303,23 +348,25 @@ abstract class JSymbol implements Symbol {
 
   @Override
   public final SymbolMetadata metadata() {
-    switch (binding.getKind()) {
-      case IBinding.PACKAGE:
-        return new JSymbolMetadata(sema, sema.resolvePackageAnnotations(binding.getName()));
-      case IBinding.VARIABLE:
-        ITypeBinding type = ((IVariableBinding) binding).getType();
-        return new JSymbolMetadata(
-          sema,
-          type == null ? new IAnnotationBinding[0] : type.getTypeAnnotations(),
-          binding.getAnnotations());
-      case IBinding.METHOD:
-        ITypeBinding returnType = ((IMethodBinding) binding).getReturnType();
-        return new JSymbolMetadata(
-          sema,
-          returnType.getTypeAnnotations(),
-          binding.getAnnotations());
-      default:
-        return new JSymbolMetadata(sema, binding.getAnnotations());
+    synchronized (sema) {
+      switch (binding.getKind()) {
+        case IBinding.PACKAGE:
+          return new JSymbolMetadata(sema, sema.resolvePackageAnnotations(binding.getName()));
+        case IBinding.VARIABLE:
+          ITypeBinding type = ((IVariableBinding) binding).getType();
+          return new JSymbolMetadata(
+            sema,
+            type == null ? new IAnnotationBinding[0] : type.getTypeAnnotations(),
+            binding.getAnnotations());
+        case IBinding.METHOD:
+          ITypeBinding returnType = ((IMethodBinding) binding).getReturnType();
+          return new JSymbolMetadata(
+            sema,
+            returnType.getTypeAnnotations(),
+            binding.getAnnotations());
+        default:
+          return new JSymbolMetadata(sema, binding.getAnnotations());
+      }
     }
   }
 
@@ -329,17 +376,19 @@ abstract class JSymbol implements Symbol {
   @Nullable
   @Override
   public final TypeSymbol enclosingClass() {
-    switch (binding.getKind()) {
-      case IBinding.PACKAGE:
-        return null;
-      case IBinding.TYPE:
-        return typeEnclosingClass((ITypeBinding) binding);
-      case IBinding.METHOD:
-        return methodEnclosingClass((IMethodBinding) binding);
-      case IBinding.VARIABLE:
-        return variableEnclosingClass((IVariableBinding) binding);
-      default:
-        throw new IllegalStateException(unexpectedBinding());
+    synchronized (sema) {
+      switch (binding.getKind()) {
+        case IBinding.PACKAGE:
+          return null;
+        case IBinding.TYPE:
+          return typeEnclosingClass((ITypeBinding) binding);
+        case IBinding.METHOD:
+          return methodEnclosingClass((IMethodBinding) binding);
+        case IBinding.VARIABLE:
+          return variableEnclosingClass((IVariableBinding) binding);
+        default:
+          throw new IllegalStateException(unexpectedBinding());
+      }
     }
   }
 
@@ -91,14 +91,18 @@ final class JSymbolMetadata implements SymbolMetadata {
 
     @Override
     public Symbol symbol() {
-      return sema.typeSymbol(annotationBinding.getAnnotationType());
+      synchronized (sema) {
+        return sema.typeSymbol(annotationBinding.getAnnotationType());
+      }
     }
 
     @Override
     public List<AnnotationValue> values() {
       List<AnnotationValue> r = new ArrayList<>();
-      for (IMemberValuePairBinding pair : annotationBinding.getDeclaredMemberValuePairs()) {
-        r.add(new AnnotationValueResolve(pair.getName(), convertAnnotationValue(pair.getValue())));
+      synchronized (sema) {
+        for (IMemberValuePairBinding pair : annotationBinding.getDeclaredMemberValuePairs()) {
+          r.add(new AnnotationValueResolve(pair.getName(), convertAnnotationValue(pair.getValue())));
+        }
       }
       return r;
     }
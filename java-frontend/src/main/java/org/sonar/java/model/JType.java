@@ -33,6 +33,10 @@ final class JType implements Type, Type.ArrayType {
   final ITypeBinding typeBinding;
 
   private final String fullyQualifiedName;
+  /**
+   * Resolved once, like the name of symbols, see {@link JSymbol#name()}.
+   */
+  private volatile String name;
 
   JType(JSema sema, ITypeBinding typeBinding) {
     this.sema = Objects.requireNonNull(sema);
@@ -47,15 +51,19 @@ final class JType implements Type, Type.ArrayType {
 
   @Override
   public boolean isSubtypeOf(String fullyQualifiedName) {
-    ITypeBinding otherTypeBinding = sema.resolveType(fullyQualifiedName);
-    return otherTypeBinding != null
-      && isSubtype(this.typeBinding, otherTypeBinding);
+    synchronized (sema) {
+      ITypeBinding otherTypeBinding = sema.resolveType(fullyQualifiedName);
+      return otherTypeBinding != null
+        && isSubtype(this.typeBinding, otherTypeBinding);
+    }
   }
 
   @Override
   public boolean isSubtypeOf(Type superType) {
-    return !superType.isUnknown()
-      && isSubtype(this.typeBinding, ((JType) superType).typeBinding);
+    synchronized (sema) {
+      return !superType.isUnknown()
+        && isSubtype(this.typeBinding, ((JType) superType).typeBinding);
+    }
   }
 
   private static boolean isSubtype(ITypeBinding left, ITypeBinding right) {
@@ -149,6 +157,17 @@ final class JType implements Type, Type.ArrayType {
    */
   @Override
   public String name() {
+    String result = name;
+    if (result == null) {
+      synchronized (sema) {
+        result = resolveName();
+      }
+      name = result;
+    }
+    return result;
+  }
+
+  private String resolveName() {
     if (typeBinding.isNullType()) {
       return "<nulltype>";
     } else if (typeBinding.isParameterizedType()) {
@@ -170,21 +189,31 @@ final class JType implements Type, Type.ArrayType {
 
   @Override
   public Type erasure() {
-    return sema.type(typeBinding.getErasure());
+    synchronized (sema) {
+      return sema.type(typeBinding.getErasure());
+    }
   }
 
   @Override
   public Type elementType() {
-    return sema.type(typeBinding.getComponentType());
+    synchronized (sema) {
+      return sema.type(typeBinding.getComponentType());
+    }
   }
 
   @Override
   public boolean equals(Object obj) {
-    if (obj instanceof JType) {
-      JType other = (JType) obj;
-      return areEqual(this.typeBinding, other.typeBinding);
+    if (this == obj) {
+      // types of a binding are cached by their JSema
+      return true;
+    }
+    synchronized (sema) {
+      if (obj instanceof JType) {
+        JType other = (JType) obj;
+        return areEqual(this.typeBinding, other.typeBinding);
+      }
+      return false;
     }
-    return false;
   }
 
   @Override
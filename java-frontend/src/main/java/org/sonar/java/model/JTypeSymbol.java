@@ -54,7 +54,9 @@ final class JTypeSymbol extends JSymbol implements Symbol.TypeSymbol {
         // for "T.super.foo()", if T is an interface, 'super' keyword is used to access method of the interface itself
         return sema.type(typeBinding());
       }
-      return sema.type(typeBinding().getSuperclass());
+      synchronized (sema) {
+        return sema.type(typeBinding().getSuperclass());
+      }
     }
   };
   final SpecialField thisSymbol = new SpecialField() {
@@ -80,36 +82,42 @@ final class JTypeSymbol extends JSymbol implements Symbol.TypeSymbol {
   @CheckForNull
   @Override
   public Type superClass() {
-    if (typeBinding().isInterface() || typeBinding().isArray()) {
-      return sema.type(Objects.requireNonNull(sema.resolveType("java.lang.Object")));
-    } else if (typeBinding().getSuperclass() == null) {
-      // java.lang.Object
-      return null;
-    } else {
-      return sema.type(typeBinding().getSuperclass());
+    synchronized (sema) {
+      if (typeBinding().isInterface() || typeBinding().isArray()) {
+        return sema.type(Objects.requireNonNull(sema.resolveType("java.lang.Object")));
+      } else if (typeBinding().getSuperclass() == null) {
+        // java.lang.Object
+        return null;
+      } else {
+        return sema.type(typeBinding().getSuperclass());
+      }
     }
   }
 
   @Override
   public List<Type> interfaces() {
-    return Arrays.stream(typeBinding().getInterfaces())
-      .map(sema::type)
-      .collect(Collectors.toList());
+    synchronized (sema) {
+      return Arrays.stream(typeBinding().getInterfaces())
+        .map(sema::type)
+        .collect(Collectors.toList());
+    }
   }
 
   @Override
   public Collection<Symbol> memberSymbols() {
-    Collection<Symbol> members = new ArrayList<>();
-    for (ITypeBinding b : typeBinding().getDeclaredTypes()) {
-      members.add(sema.typeSymbol(b));
-    }
-    for (IVariableBinding b : typeBinding().getDeclaredFields()) {
-      members.add(sema.variableSymbol(b));
-    }
-    for (IMethodBinding b : typeBinding().getDeclaredMethods()) {
-      members.add(sema.methodSymbol(b));
+    synchronized (sema) {
+      Collection<Symbol> members = new ArrayList<>();
+      for (ITypeBinding b : typeBinding().getDeclaredTypes()) {
+        members.add(sema.typeSymbol(b));
+      }
+      for (IVariableBinding b : typeBinding().getDeclaredFields()) {
+        members.add(sema.variableSymbol(b));
+      }
+      for (IMethodBinding b : typeBinding().getDeclaredMethods()) {
+        members.add(sema.methodSymbol(b));
+      }
+      return members;
     }
-    return members;
   }
 
   @Override
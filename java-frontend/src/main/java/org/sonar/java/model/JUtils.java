@@ -115,7 +115,11 @@ public final class JUtils {
     if (symbol instanceof JTypeSymbol.SpecialField) {
       return Optional.empty();
     }
-    Object c = ((IVariableBinding) ((JVariableSymbol) symbol).binding).getConstantValue();
+    JVariableSymbol variableSymbol = (JVariableSymbol) symbol;
+    Object c;
+    synchronized (variableSymbol.sema) {
+      c = ((IVariableBinding) variableSymbol.binding).getConstantValue();
+    }
     if (c instanceof Short) {
       c = Integer.valueOf((Short) c);
     } else if (c instanceof Byte) {
@@ -131,7 +135,10 @@ public final class JUtils {
       return Collections.emptySet();
     }
     Set<Type> result = new HashSet<>();
-    collectSuperTypes(result, ((JTypeSymbol) typeSymbol).sema, ((JTypeSymbol) typeSymbol).typeBinding());
+    JSema sema = ((JTypeSymbol) typeSymbol).sema;
+    synchronized (sema) {
+      collectSuperTypes(result, sema, ((JTypeSymbol) typeSymbol).typeBinding());
+    }
     return result;
   }
 
@@ -185,7 +192,9 @@ public final class JUtils {
     if (method.isUnknown()) {
       return null;
     }
-    return ((JMethodSymbol) method).methodBinding().getDefaultValue();
+    synchronized (((JMethodSymbol) method).sema) {
+      return ((JMethodSymbol) method).methodBinding().getDefaultValue();
+    }
   }
 
   public static boolean isOverridable(Symbol.MethodSymbol method) {
@@ -205,10 +214,12 @@ public final class JUtils {
       return false;
     }
     JType t = (JType) type;
-    return t.typeBinding.isParameterizedType()
-      // when diamond operator is not fully resolved by ECJ, there is 0 typeArguments, while ECJ
-      // knows it is a Parameterized Type
-      && t.typeBinding.getTypeArguments().length > 0;
+    synchronized (t.sema) {
+      return t.typeBinding.isParameterizedType()
+        // when diamond operator is not fully resolved by ECJ, there is 0 typeArguments, while ECJ
+        // knows it is a Parameterized Type
+        && t.typeBinding.getTypeArguments().length > 0;
+    }
   }
 
   public static List<Type> typeArguments(Type type) {
@@ -216,12 +227,14 @@ public final class JUtils {
       return Collections.emptyList();
     }
     JType t = (JType) type;
-    ITypeBinding[] typeArguments = t.typeBinding.getTypeArguments();
-    Type[] result = new Type[typeArguments.length];
-    for (int i = 0; i < typeArguments.length; i++) {
-      result[i] = t.sema.type(typeArguments[i]);
+    synchronized (t.sema) {
+      ITypeBinding[] typeArguments = t.typeBinding.getTypeArguments();
+      Type[] result = new Type[typeArguments.length];
+      for (int i = 0; i < typeArguments.length; i++) {
+        result[i] = t.sema.type(typeArguments[i]);
+      }
+      return Arrays.asList(result);
     }
-    return Arrays.asList(result);
   }
 
   public static Set<Type> directSuperTypes(Type type) {
@@ -230,12 +243,14 @@ public final class JUtils {
     }
     Set<Type> result = new HashSet<>();
     JType t = (JType) type;
-    ITypeBinding superclass = t.typeBinding.getSuperclass();
-    if (superclass != null) {
-      result.add(t.sema.type(superclass));
-    }
-    for (ITypeBinding i : t.typeBinding.getInterfaces()) {
-      result.add(t.sema.type(i));
+    synchronized (t.sema) {
+      ITypeBinding superclass = t.typeBinding.getSuperclass();
+      if (superclass != null) {
+        result.add(t.sema.type(superclass));
+      }
+      for (ITypeBinding i : t.typeBinding.getInterfaces()) {
+        result.add(t.sema.type(i));
+      }
     }
     return result;
   }
@@ -266,11 +281,13 @@ public final class JUtils {
       new SymbolMetadataResolve();
     }
     IMethodBinding methodBinding = (IMethodBinding) ((JSymbol) method).binding;
-    return new JSymbolMetadata(
-      ((JSymbol) method).sema,
-      methodBinding.getParameterTypes()[param].getTypeAnnotations(),
-      methodBinding.getParameterAnnotations(param)
-    );
+    synchronized (((JSymbol) method).sema) {
+      return new JSymbolMetadata(
+        ((JSymbol) method).sema,
+        methodBinding.getParameterTypes()[param].getTypeAnnotations(),
+        methodBinding.getParameterAnnotations(param)
+      );
+    }
   }
 
 }
@@ -0,0 +1,176 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import com.google.gson.GsonBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.AnnotationUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.check.Rule;
+
+/**
+ * Accumulates the wall time, CPU time and allocated bytes spent by each rule, for each phase of the analysis of a file.
+ * A profiler is used by an analysis thread and by the threads executing its symbolic execution in parallel, profilers of
+ * other analysis threads are merged into it at the end of the analysis.
+ * The measure of a rule excludes the nested runs of other rules on the same thread, such as the symbolic execution checks
+ * run by the symbolic execution visitor.
+ */
+class RuleProfiler {
+
+  private static final Logger LOG = Loggers.get(RuleProfiler.class);
+
+  static final String REPORT_FILE_NAME = "java-rules-profile.json";
+  static final int LOGGED_RULES = 10;
+
+  enum Phase {
+    SYMBOLIC_EXECUTION,
+    FILE_SCANNER,
+    SUBSCRIPTION_VISITOR
+  }
+
+  private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+  private final boolean measureCpuTime;
+  @Nullable
+  private final com.sun.management.ThreadMXBean allocationMXBean;
+  private final Map<Phase, Map<Class<?>, Measure>> measures = new ConcurrentHashMap<>();
+  /**
+   * Wall time, CPU time and allocated bytes measured by the runs nested in the current run of each thread.
+   */
+  private final ThreadLocal<long[]> nestedTotals = ThreadLocal.withInitial(() -> new long[3]);
+
+  RuleProfiler() {
+    measureCpuTime = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean
+      && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()
+      && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled()) {
+      allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+    } else {
+      allocationMXBean = null;
+    }
+  }
+
+  void run(Phase phase, Class<?> rule, Runnable action) {
+    long[] nested = nestedTotals.get();
+    long outerWallTime = nested[0];
+    long outerCpuTime = nested[1];
+    long outerAllocatedBytes = nested[2];
+    Arrays.fill(nested, 0L);
+    long startTime = System.nanoTime();
+    long startCpuTime = cpuTime();
+    long startAllocatedBytes = allocatedBytes();
+    try {
+      action.run();
+    } finally {
+      long wallTime = System.nanoTime() - startTime;
+      long spentCpuTime = cpuTime() - startCpuTime;
+      long spentAllocatedBytes = allocatedBytes() - startAllocatedBytes;
+      measure(phase, rule).add(1, wallTime - nested[0], spentCpuTime - nested[1], spentAllocatedBytes - nested[2]);
+      nested[0] = outerWallTime + wallTime;
+      nested[1] = outerCpuTime + spentCpuTime;
+      nested[2] = outerAllocatedBytes + spentAllocatedBytes;
+    }
+  }
+
+  private Measure measure(Phase phase, Class<?> rule) {
+    return measures.computeIfAbsent(phase, p -> new ConcurrentHashMap<>())
+      .computeIfAbsent(rule, r -> new Measure(phase, ruleKey(r)));
+  }
+
+  private long cpuTime() {
+    return measureCpuTime ? threadMXBean.getCurrentThreadCpuTime() : 0L;
+  }
+
+  private long allocatedBytes() {
+    return allocationMXBean != null ? allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0L;
+  }
+
+  void merge(RuleProfiler other) {
+    other.measures.forEach((phase, measuresOfPhase) -> measuresOfPhase.forEach((rule, measure) -> measure(phase, rule)
+      .add(measure.calls, measure.wallTimeNanos, measure.cpuTimeNanos, measure.allocatedBytes)));
+  }
+
+  /**
+   * @return measures of every rule, the most expensive first
+   */
+  List<Measure> measures() {
+    List<Measure> result = new ArrayList<>();
+    measures.values().forEach(measuresOfPhase -> result.addAll(measuresOfPhase.values()));
+    result.sort(Comparator.comparingLong((Measure m) -> m.cpuTimeNanos).thenComparingLong(m -> m.wallTimeNanos).reversed());
+    return result;
+  }
+
+  void report(File workDir) {
+    List<Measure> sortedMeasures = measures();
+    File reportFile = new File(workDir, REPORT_FILE_NAME);
+    try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+      new GsonBuilder().setPrettyPrinting().create().toJson(sortedMeasures, writer);
+      LOG.info("Profile of Java rules saved in {}", reportFile);
+    } catch (IOException e) {
+      LOG.warn("Unable to save profile of Java rules in {}", reportFile, e);
+    }
+    LOG.info("Most expensive Java rules (CPU time, wall time, allocated memory, calls):");
+    sortedMeasures.stream().limit(LOGGED_RULES).forEach(m -> LOG.info("  {} {}: {} ms, {} ms, {} MB, {}",
+      m.rule, m.phase, TimeUnit.NANOSECONDS.toMillis(m.cpuTimeNanos), TimeUnit.NANOSECONDS.toMillis(m.wallTimeNanos), m.allocatedBytes / (1024 * 1024), m.calls));
+  }
+
+  private static String ruleKey(Class<?> rule) {
+    Rule annotation = AnnotationUtils.getAnnotation(rule, Rule.class);
+    if (annotation != null) {
+      return annotation.key();
+    }
+    return rule.getName();
+  }
+
+  static class Measure {
+    final Phase phase;
+    final String rule;
+    long calls;
+    long wallTimeNanos;
+    long cpuTimeNanos;
+    long allocatedBytes;
+
+    Measure(Phase phase, String rule) {
+      this.phase = phase;
+      this.rule = rule;
+    }
+
+    private synchronized void add(long calls, long wallTimeNanos, long cpuTimeNanos, long allocatedBytes) {
+      this.calls += calls;
+      this.wallTimeNanos += wallTimeNanos;
+      this.cpuTimeNanos += cpuTimeNanos;
+      this.allocatedBytes += allocatedBytes;
+    }
+  }
+}
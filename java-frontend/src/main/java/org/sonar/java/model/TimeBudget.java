@@ -0,0 +1,105 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time allowed to the rules analyzing a file, for the whole file and for each rule.
+ * Budgets are checked by the caller between two calls to the rules: a rule is never interrupted while running,
+ * the rules exceeding their budget are skipped for the rest of the file. Symbolic execution also checks them between the steps
+ * of the execution of a method, see {@link org.sonar.java.se.SymbolicExecutionVisitor}.
+ */
+class TimeBudget {
+
+  private final long fileBudgetNanos;
+  private final long ruleBudgetNanos;
+  private long fileStart;
+  private final Map<Object, Long> ruleTimes = new IdentityHashMap<>();
+  private final Set<String> skippedRules = new TreeSet<>();
+
+  /**
+   * @param fileBudgetMillis time allowed to all the rules on a file, no limit if 0
+   * @param ruleBudgetMillis time allowed to each rule on a file, no limit if 0
+   */
+  TimeBudget(long fileBudgetMillis, long ruleBudgetMillis) {
+    this.fileBudgetNanos = TimeUnit.MILLISECONDS.toNanos(fileBudgetMillis);
+    this.ruleBudgetNanos = TimeUnit.MILLISECONDS.toNanos(ruleBudgetMillis);
+  }
+
+  boolean isLimited() {
+    return fileBudgetNanos > 0 || ruleBudgetNanos > 0;
+  }
+
+  long fileBudgetMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(fileBudgetNanos);
+  }
+
+  long ruleBudgetMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(ruleBudgetNanos);
+  }
+
+  void startFile() {
+    fileStart = System.nanoTime();
+    ruleTimes.clear();
+    skippedRules.clear();
+  }
+
+  boolean isFileBudgetExceeded() {
+    return fileBudgetNanos > 0 && System.nanoTime() - fileStart > fileBudgetNanos;
+  }
+
+  /**
+   * @return true when the file budget is exceeded, or when more than the rule budget elapsed since the given start time
+   */
+  boolean isExceeded(long ruleStart) {
+    return isFileBudgetExceeded() || (ruleBudgetNanos > 0 && System.nanoTime() - ruleStart > ruleBudgetNanos);
+  }
+
+  /**
+   * Runs the action, adding its duration to the time spent by the rule on the current file.
+   *
+   * @return true when the rule exceeded its budget on the current file
+   */
+  boolean run(Object rule, Runnable action) {
+    long start = System.nanoTime();
+    try {
+      action.run();
+    } finally {
+      ruleTimes.merge(rule, System.nanoTime() - start, Long::sum);
+    }
+    return ruleBudgetNanos > 0 && ruleTimes.get(rule) > ruleBudgetNanos;
+  }
+
+  void skip(String rule) {
+    skippedRules.add(rule);
+  }
+
+  /**
+   * @return the rules which did not complete their analysis of the current file
+   */
+  Set<String> skippedRules() {
+    return skippedRules;
+  }
+}
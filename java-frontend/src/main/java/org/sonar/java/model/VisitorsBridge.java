@@ -25,11 +25,14 @@ import com.google.common.collect.ImmutableList;
 import com.sonar.sslr.api.RecognitionException;
 import java.io.File;
 import java.io.InterruptedIOException;
+import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -41,19 +44,27 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.check.Rule;
 import org.sonar.java.AnalysisError;
 import org.sonar.java.AnalysisException;
+import org.sonar.java.CacheableEndOfAnalysisCheck;
 import org.sonar.java.CheckFailureException;
 import org.sonar.java.EndOfAnalysisCheck;
 import org.sonar.java.ExceptionHandler;
+import org.sonar.java.FileResults;
 import org.sonar.java.IllegalRuleParameterException;
 import org.sonar.java.JavaVersionAwareVisitor;
+import org.sonar.java.MergeableEndOfAnalysisCheck;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.ast.visitors.SonarSymbolTableVisitor;
 import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.ast.visitors.TreeWalker;
 import org.sonar.java.bytecode.ClassLoaderBuilder;
 import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.se.ExplorationStrategy;
+import org.sonar.java.se.ParallelSymbolicExecution;
+import org.sonar.java.se.SECheckProfiler;
 import org.sonar.java.se.SymbolicExecutionMode;
 import org.sonar.java.se.SymbolicExecutionVisitor;
 import org.sonar.java.se.xproc.BehaviorCache;
+import org.sonar.java.se.xproc.PersistentBehaviorCache;
 import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.plugins.java.api.JavaFileScanner;
@@ -61,6 +72,7 @@ import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.JavaVersion;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.Tree.Kind;
 
@@ -76,9 +88,28 @@ public class VisitorsBridge {
   protected InputFile currentFile;
   protected JavaVersion javaVersion;
   private final List<File> classpath;
+  private final JNameEnvironment nameEnvironment;
   private final SquidClassLoader classLoader;
-  private IssuableSubsciptionVisitorsRunner issuableSubscriptionVisitorsRunner;
+  private List<JavaFileScanner> fileScanners;
+  private SubscriptionVisitorsRunner subscriptionVisitorsRunner;
+  @Nullable
+  private final RuleProfiler profiler;
+  @Nullable
+  private final TimeBudget timeBudget;
+  private final ExplorationStrategy explorationStrategy;
+  private final boolean joinSymbolicExecutionStates;
+  @Nullable
+  private ParallelSymbolicExecution parallelSymbolicExecution;
+  private boolean closed;
+  private static final String SYMBOLIC_EXECUTION_RULES = "symbolic execution";
+  private static final String TIME_BUDGET_WARNING = "The analysis of some files exceeded the time budget of the rules, which were not fully executed on these files."
+    + " See the analysis logs for details.";
   private static final Predicate<JavaFileScanner> IS_ISSUABLE_SUBSCRIPTION_VISITOR = IssuableSubscriptionVisitor.class::isInstance;
+  /**
+   * Subscription visitors which keep the default {@link SubscriptionVisitor#scanFile} all share the same walk of the tree.
+   */
+  private static final Predicate<JavaFileScanner> IS_WALKED_SUBSCRIPTION_VISITOR = IS_ISSUABLE_SUBSCRIPTION_VISITOR
+    .or(scanner -> scanner instanceof SubscriptionVisitor && !overridesScanFile(scanner));
 
   @VisibleForTesting
   public VisitorsBridge(JavaFileScanner visitor) {
@@ -93,6 +124,16 @@ public class VisitorsBridge {
 
   public VisitorsBridge(Iterable<? extends JavaCheck> visitors, List<File> projectClasspath,
                         @Nullable SonarComponents sonarComponents, SymbolicExecutionMode symbolicExecutionMode) {
+    this(visitors, projectClasspath, sonarComponents, symbolicExecutionMode, null);
+  }
+
+  /**
+   * @param classpathRegistry class loaders and name environments shared with the other bridges of the analysis,
+   *                          null to open the classpath for this bridge only
+   */
+  public VisitorsBridge(Iterable<? extends JavaCheck> visitors, List<File> projectClasspath,
+                        @Nullable SonarComponents sonarComponents, SymbolicExecutionMode symbolicExecutionMode,
+                        @Nullable ClasspathRegistry classpathRegistry) {
     this.allScanners = new ArrayList<>();
     for (Object visitor : visitors) {
       if (visitor instanceof JavaFileScanner) {
@@ -100,12 +141,25 @@ public class VisitorsBridge {
       }
     }
     this.classpath = projectClasspath;
-    this.executableScanners = allScanners.stream().filter(IS_ISSUABLE_SUBSCRIPTION_VISITOR.negate()).collect(Collectors.toList());
-    this.issuableSubscriptionVisitorsRunner = new IssuableSubsciptionVisitorsRunner(allScanners);
+    this.nameEnvironment = classpathRegistry == null ? new JNameEnvironment(projectClasspath) : classpathRegistry.nameEnvironment(projectClasspath);
+    setExecutableScanners(allScanners);
     this.sonarComponents = sonarComponents;
-    this.classLoader = ClassLoaderBuilder.create(projectClasspath);
+    this.classLoader = classpathRegistry == null ? ClassLoaderBuilder.create(projectClasspath) : classpathRegistry.classLoader(projectClasspath);
     this.symbolicExecutionEnabled = symbolicExecutionMode.isEnabled();
     this.behaviorCache = new BehaviorCache(classLoader, symbolicExecutionMode.isCrossFileEnabled());
+    this.profiler = sonarComponents != null && sonarComponents.shouldProfileRules() ? new RuleProfiler() : null;
+    this.timeBudget = timeBudget(sonarComponents);
+    this.explorationStrategy = sonarComponents == null ? ExplorationStrategy.DEPTH_FIRST : sonarComponents.symbolicExecutionStrategy();
+    this.joinSymbolicExecutionStates = sonarComponents != null && sonarComponents.shouldJoinSymbolicExecutionStates();
+  }
+
+  @Nullable
+  private static TimeBudget timeBudget(@Nullable SonarComponents sonarComponents) {
+    if (sonarComponents == null) {
+      return null;
+    }
+    TimeBudget budget = new TimeBudget(sonarComponents.fileTimeBudget(), sonarComponents.ruleTimeBudget());
+    return budget.isLimited() ? budget : null;
   }
 
   public JavaVersion getJavaVersion() {
@@ -116,11 +170,35 @@ public class VisitorsBridge {
     return classpath;
   }
 
+  public JNameEnvironment getNameEnvironment() {
+    return nameEnvironment;
+  }
+
+  /**
+   * Behaviors of the methods computed from their bytecode are then reused between analyses.
+   */
+  public void setPersistentBehaviorCache(PersistentBehaviorCache persistentBehaviorCache) {
+    behaviorCache.setPersistentCache(persistentBehaviorCache);
+  }
+
   public void setJavaVersion(JavaVersion javaVersion) {
     this.javaVersion = javaVersion;
-    List<JavaFileScanner> scannersForJavaVersion = executableScanners(allScanners, javaVersion);
-    this.executableScanners = scannersForJavaVersion.stream().filter(IS_ISSUABLE_SUBSCRIPTION_VISITOR.negate()).collect(Collectors.toList());
-    this.issuableSubscriptionVisitorsRunner = new IssuableSubsciptionVisitorsRunner(scannersForJavaVersion);
+    setExecutableScanners(executableScanners(allScanners, javaVersion));
+  }
+
+  private void setExecutableScanners(List<JavaFileScanner> scanners) {
+    shutdownParallelSymbolicExecution();
+    this.executableScanners = scanners.stream().filter(IS_ISSUABLE_SUBSCRIPTION_VISITOR.negate()).collect(Collectors.toList());
+    this.fileScanners = scanners.stream().filter(IS_WALKED_SUBSCRIPTION_VISITOR.negate()).collect(Collectors.toList());
+    this.subscriptionVisitorsRunner = new SubscriptionVisitorsRunner(scanners);
+  }
+
+  private static boolean overridesScanFile(JavaFileScanner scanner) {
+    try {
+      return scanner.getClass().getMethod("scanFile", JavaFileScannerContext.class).getDeclaringClass() != SubscriptionVisitor.class;
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
   }
 
   public void visitFile(@Nullable Tree parsedTree) {
@@ -133,61 +211,159 @@ public class VisitorsBridge {
 
     JavaFileScannerContext javaFileScannerContext = createScannerContext(tree, tree.sema, sonarComponents, fileParsed);
 
+    if (timeBudget != null) {
+      timeBudget.startFile();
+    }
+
     // Symbolic execution checks
     if (symbolicExecutionEnabled) {
       try {
-        runScanner(javaFileScannerContext, new SymbolicExecutionVisitor(executableScanners, behaviorCache), AnalysisError.Kind.SE_ERROR);
+        runScanner(javaFileScannerContext, symbolicExecutionVisitor(), AnalysisError.Kind.SE_ERROR, RuleProfiler.Phase.SYMBOLIC_EXECUTION);
         behaviorCache.cleanup();
       } catch (CheckFailureException e) {
         interruptIfFailFast(e);
       }
     }
 
-    for (JavaFileScanner scanner : executableScanners) {
+    for (JavaFileScanner scanner : fileScanners) {
+      if (timeBudget != null && isRule(scanner) && timeBudget.isFileBudgetExceeded()) {
+        timeBudget.skip(ruleKey(scanner));
+        continue;
+      }
       try {
-        runScanner(javaFileScannerContext, scanner, AnalysisError.Kind.CHECK_ERROR);
+        runScanner(javaFileScannerContext, scanner, AnalysisError.Kind.CHECK_ERROR, RuleProfiler.Phase.FILE_SCANNER);
       } catch (CheckFailureException e) {
         interruptIfFailFast(e);
       }
     }
 
-    try {
-      issuableSubscriptionVisitorsRunner.run(javaFileScannerContext);
-    } catch (CheckFailureException e) {
-      interruptIfFailFast(e);
+    subscriptionVisitorsRunner.run(javaFileScannerContext);
+
+    if (timeBudget != null && !timeBudget.skippedRules().isEmpty()) {
+      reportSkippedRules(timeBudget);
+    }
+    FileResults.ifRecording(this::recordFileSummaries);
+  }
+
+  private void recordFileSummaries(FileResults results) {
+    for (JavaFileScanner scanner : allScanners) {
+      if (scanner instanceof CacheableEndOfAnalysisCheck) {
+        Serializable summary = ((CacheableEndOfAnalysisCheck) scanner).fileSummary();
+        if (summary != null) {
+          results.addEndOfAnalysisSummary(scanner.getClass().getName(), summary);
+        }
+      }
     }
   }
 
+  /**
+   * Restores the state of the end of analysis checks on a file whose results are replayed from the analysis cache.
+   */
+  public void restoreFileSummaries(InputFile inputFile, Map<String, Serializable> summaries) {
+    if (summaries.isEmpty()) {
+      return;
+    }
+    setCurrentFile(inputFile);
+    JavaTree.CompilationUnitTreeImpl tree = new JavaTree.CompilationUnitTreeImpl(null, new ArrayList<>(), new ArrayList<>(), null, null);
+    JavaFileScannerContext javaFileScannerContext = createScannerContext(tree, null, sonarComponents, false);
+    for (JavaFileScanner scanner : allScanners) {
+      Serializable summary = summaries.get(scanner.getClass().getName());
+      if (summary != null && scanner instanceof CacheableEndOfAnalysisCheck) {
+        ((CacheableEndOfAnalysisCheck) scanner).restoreFileSummary(javaFileScannerContext, summary);
+      }
+    }
+  }
+
+  private SymbolicExecutionVisitor symbolicExecutionVisitor() {
+    SymbolicExecutionVisitor.Settings settings = new SymbolicExecutionVisitor.Settings()
+      .parallelExecution(parallelSymbolicExecution())
+      .explorationStrategy(explorationStrategy)
+      .joinStates(joinSymbolicExecutionStates)
+      .checkProfiler(checkProfiler());
+    if (timeBudget != null) {
+      long start = System.nanoTime();
+      settings.outOfTime(() -> {
+        boolean exceeded = timeBudget.isExceeded(start);
+        if (exceeded) {
+          timeBudget.skip(SYMBOLIC_EXECUTION_RULES);
+        }
+        return exceeded;
+      });
+    }
+    return new SymbolicExecutionVisitor(executableScanners, behaviorCache, settings);
+  }
+
+  @Nullable
+  private SECheckProfiler checkProfiler() {
+    return profiler == null ? null : (check, action) -> profiler.run(RuleProfiler.Phase.SYMBOLIC_EXECUTION, check, action);
+  }
+
+  @Nullable
+  private ParallelSymbolicExecution parallelSymbolicExecution() {
+    if (parallelSymbolicExecution == null && sonarComponents != null && sonarComponents.symbolicExecutionThreads() > 1) {
+      parallelSymbolicExecution = new ParallelSymbolicExecution(sonarComponents.symbolicExecutionThreads(), executableScanners,
+        check -> (JavaFileScanner) sonarComponents.copyCheck(check), explorationStrategy, checkProfiler());
+    }
+    return parallelSymbolicExecution;
+  }
+
+  private void reportSkippedRules(TimeBudget budget) {
+    String message = String.format("Analysis of file '%s' exceeded its time budget (file: %d ms, rule: %d ms), rules not fully executed: %s",
+      currentFile, budget.fileBudgetMillis(), budget.ruleBudgetMillis(), String.join(", ", budget.skippedRules()));
+    LOG.warn(message);
+    sonarComponents.reportAnalysisError(currentFile, message);
+    sonarComponents.addAnalysisWarning(TIME_BUDGET_WARNING);
+  }
+
   private void interruptIfFailFast(CheckFailureException e) {
     if (sonarComponents != null && sonarComponents.shouldFailAnalysisOnException()) {
       throw new AnalysisException("Failing check", e);
     }
   }
 
-  private void runScanner(JavaFileScannerContext javaFileScannerContext, JavaFileScanner scanner, AnalysisError.Kind kind) throws CheckFailureException {
-    runScanner(() -> scanner.scanFile(javaFileScannerContext), scanner, kind);
+  private void runScanner(JavaFileScannerContext javaFileScannerContext, JavaFileScanner scanner, AnalysisError.Kind kind, RuleProfiler.Phase phase)
+    throws CheckFailureException {
+    runScanner(() -> scanner.scanFile(javaFileScannerContext), scanner, kind, phase);
   }
 
-  private void runScanner(Runnable action, JavaFileScanner scanner, AnalysisError.Kind kind) throws CheckFailureException {
+  /**
+   * @return true when the scanner exceeded its time budget on the current file
+   */
+  private boolean runScanner(Runnable action, JavaFileScanner scanner, AnalysisError.Kind kind, RuleProfiler.Phase phase) throws CheckFailureException {
     try {
-      action.run();
-    } catch (IllegalRuleParameterException e) {
+      Runnable profiledAction = profiler != null ? () -> profiler.run(phase, scanner.getClass(), action) : action;
+      if (timeBudget != null) {
+        return timeBudget.run(scanner, profiledAction);
+      }
+      profiledAction.run();
+      return false;
+    } catch (RuntimeException e) {
+      throw checkFailure(e, scanner);
+    }
+  }
+
+  private CheckFailureException checkFailure(RuntimeException e, JavaFileScanner scanner) {
+    if (e instanceof IllegalRuleParameterException) {
       // bad configuration of a rule parameter, we want to fail analysis fast.
       throw new AnalysisException("Bad configuration of rule parameter", e);
-    } catch (Exception e) {
-      Throwable rootCause = Throwables.getRootCause(e);
-      if (rootCause instanceof InterruptedIOException || rootCause instanceof InterruptedException) {
-        throw e;
-      }
+    }
+    Throwable rootCause = Throwables.getRootCause(e);
+    if (rootCause instanceof InterruptedIOException || rootCause instanceof InterruptedException) {
+      throw e;
+    }
 
-      String message = String.format(
-        "Unable to run check %s - %s on file '%s', To help improve SonarJava, please report this problem to SonarSource : see https://www.sonarqube.org/community/",
-        scanner.getClass(), ruleKey(scanner), currentFile);
+    String message = String.format(
+      "Unable to run check %s - %s on file '%s', To help improve SonarJava, please report this problem to SonarSource : see https://www.sonarqube.org/community/",
+      scanner.getClass(), ruleKey(scanner), currentFile);
 
-      LOG.error(message, e);
+    LOG.error(message, e);
+    FileResults.ifRecording(FileResults::doNotCache);
 
-      throw new CheckFailureException(message, e);
-    }
+    return new CheckFailureException(message, e);
+  }
+
+  private static boolean isRule(JavaFileScanner scanner) {
+    return AnnotationUtils.getAnnotation(scanner.getClass(), Rule.class) != null;
   }
 
   private static String ruleKey(JavaFileScanner scanner) {
@@ -248,67 +424,222 @@ public class VisitorsBridge {
       .filter(s -> s instanceof EndOfAnalysisCheck)
       .map(EndOfAnalysisCheck.class::cast)
       .forEach(EndOfAnalysisCheck::endOfAnalysis);
+    close();
+  }
+
+  /**
+   * Saves and logs a single profile of the rules run by all the given bridges, once they ended their analysis.
+   * Nothing is reported when rules are not profiled.
+   */
+  public static void reportRuleProfiles(List<VisitorsBridge> bridges) {
+    RuleProfiler analysisProfiler = null;
+    File workDir = null;
+    for (VisitorsBridge bridge : bridges) {
+      if (bridge.profiler != null) {
+        if (analysisProfiler == null) {
+          analysisProfiler = new RuleProfiler();
+          workDir = bridge.sonarComponents.workDir();
+        }
+        analysisProfiler.merge(bridge.profiler);
+      }
+    }
+    if (analysisProfiler != null) {
+      analysisProfiler.report(workDir);
+    }
+  }
+
+  /**
+   * Merges into the checks of this bridge the state collected by their copies, used by another analysis thread,
+   * then releases the resources of the other bridge. Both bridges are expected to be created with the same ordered list of checks.
+   */
+  public void merge(VisitorsBridge workerBridge) {
+    for (int i = 0; i < allScanners.size(); i++) {
+      JavaFileScanner scanner = allScanners.get(i);
+      if (scanner instanceof MergeableEndOfAnalysisCheck) {
+        ((MergeableEndOfAnalysisCheck) scanner).merge((EndOfAnalysisCheck) workerBridge.allScanners.get(i));
+      }
+    }
+    if (profiler != null && workerBridge.profiler != null) {
+      profiler.merge(workerBridge.profiler);
+    }
+    workerBridge.close();
+  }
+
+  /**
+   * Releases the threads and the classpath resources of this bridge, without ending the analysis of its checks.
+   * Closing a bridge more than once has no effect.
+   */
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    shutdownParallelSymbolicExecution();
     classLoader.close();
+    nameEnvironment.close();
   }
 
-  private class IssuableSubsciptionVisitorsRunner {
-    private EnumMap<Tree.Kind, List<SubscriptionVisitor>> checks;
-    private List<SubscriptionVisitor> subscriptionVisitors;
+  private void shutdownParallelSymbolicExecution() {
+    if (parallelSymbolicExecution != null) {
+      parallelSymbolicExecution.shutdown();
+      parallelSymbolicExecution = null;
+    }
+  }
 
-    IssuableSubsciptionVisitorsRunner(List<JavaFileScanner> executableScanners) {
+  /**
+   * Runs all the subscription visitors in a single walk of the tree, each node being dispatched to the visitors subscribed to its kind.
+   * A visitor failing on a file is logged and left out of the rest of the walk of this file, without preventing the other visitors to complete.
+   * So are the rules exceeding their time budget.
+   */
+  private class SubscriptionVisitorsRunner implements TreeWalker.Listener {
+    private final EnumMap<Tree.Kind, List<SubscriptionVisitor>> checks;
+    private final List<SubscriptionVisitor> subscriptionVisitors;
+    private final List<SubscriptionVisitor> tokenVisitors;
+    private final List<SubscriptionVisitor> triviaVisitors;
+    private final List<SubscriptionVisitor> rules;
+    private final Set<SubscriptionVisitor> stoppedVisitors = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean fileBudgetExceeded;
+
+    SubscriptionVisitorsRunner(List<JavaFileScanner> executableScanners) {
       checks = new EnumMap<>(Tree.Kind.class);
       subscriptionVisitors = executableScanners.stream()
-        .filter(IS_ISSUABLE_SUBSCRIPTION_VISITOR)
+        .filter(IS_WALKED_SUBSCRIPTION_VISITOR)
         .map(SubscriptionVisitor.class::cast)
         .collect(Collectors.toList());
 
       subscriptionVisitors
         .forEach(s -> s.nodesToVisit()
           .forEach(k -> checks.computeIfAbsent(k, key -> new ArrayList<>()).add(s)));
+      tokenVisitors = checks.getOrDefault(Tree.Kind.TOKEN, Collections.emptyList());
+      triviaVisitors = checks.getOrDefault(Tree.Kind.TRIVIA, Collections.emptyList());
+      rules = subscriptionVisitors.stream().filter(VisitorsBridge::isRule).collect(Collectors.toList());
     }
 
-    public void run(JavaFileScannerContext javaFileScannerContext) throws CheckFailureException {
+    public void run(JavaFileScannerContext javaFileScannerContext) {
+      stoppedVisitors.clear();
+      fileBudgetExceeded = false;
       forEach(subscriptionVisitors, s -> s.setContext(javaFileScannerContext));
-      visit(javaFileScannerContext.getTree());
+      TreeWalker.walk(javaFileScannerContext.getTree(), this);
       forEach(subscriptionVisitors, s -> s.leaveFile(javaFileScannerContext));
     }
 
-    private void visitChildren(Tree tree) throws CheckFailureException {
-      JavaTree javaTree = (JavaTree) tree;
-      if (!javaTree.isLeaf()) {
-        for (Tree next : javaTree.getChildren()) {
-          if (next != null) {
-            visit(next);
-          }
+    @Override
+    public void enter(Tree tree) {
+      if (timeBudget != null && !fileBudgetExceeded && timeBudget.isFileBudgetExceeded()) {
+        fileBudgetExceeded = true;
+        rules.forEach(this::stopOutOfTime);
+      }
+      Kind kind = tree.kind();
+      if (kind == Tree.Kind.TOKEN) {
+        dispatch(tokenVisitors, Event.VISIT_TOKEN, tree);
+        if (!((SyntaxToken) tree).trivias().isEmpty()) {
+          dispatch(triviaVisitors, Event.VISIT_TRIVIAS, tree);
         }
+      } else {
+        dispatch(checks.getOrDefault(kind, Collections.emptyList()), Event.VISIT_NODE, tree);
       }
     }
 
-    private void visit(Tree tree) throws CheckFailureException {
+    @Override
+    public void leave(Tree tree) {
       Kind kind = tree.kind();
-      List<SubscriptionVisitor> subscribed = checks.getOrDefault(kind, Collections.emptyList());
-      Consumer<SubscriptionVisitor> callback;
-      boolean isToken = (kind == Tree.Kind.TOKEN);
-      if (isToken) {
-        callback = s -> s.visitToken((SyntaxToken) tree);
-      } else {
-        callback = s -> s.visitNode(tree);
+      if (kind != Tree.Kind.TOKEN) {
+        dispatch(checks.getOrDefault(kind, Collections.emptyList()), Event.LEAVE_NODE, tree);
       }
-      forEach(subscribed, callback);
-      if (isToken) {
-        forEach(checks.getOrDefault(Tree.Kind.TRIVIA, Collections.emptyList()), s -> ((SyntaxToken) tree).trivias().forEach(s::visitTrivia));
-      } else {
-        visitChildren(tree);
-      }
-      if(!isToken) {
-        forEach(subscribed, s -> s.leaveNode(tree));
+    }
+
+    private void forEach(List<SubscriptionVisitor> visitors, Consumer<SubscriptionVisitor> callback) {
+      for (SubscriptionVisitor visitor : visitors) {
+        if (isRunning(visitor)) {
+          try {
+            boolean outOfTime = runScanner(() -> callback.accept(visitor), visitor, AnalysisError.Kind.CHECK_ERROR, RuleProfiler.Phase.SUBSCRIPTION_VISITOR);
+            stopIfOutOfTime(visitor, outOfTime);
+          } catch (CheckFailureException e) {
+            stop(visitor, e);
+          }
+        }
       }
     }
 
-    private final void forEach(Collection<SubscriptionVisitor> visitors, Consumer<SubscriptionVisitor> callback) throws CheckFailureException {
+    /**
+     * Same as {@link #forEach(List, Consumer)} for the events of the walk of the tree, without allocating a callback for each node
+     * when the rules are neither profiled nor limited in time.
+     */
+    private void dispatch(List<SubscriptionVisitor> visitors, Event event, Tree tree) {
       for (SubscriptionVisitor visitor : visitors) {
-        runScanner(() -> callback.accept(visitor), visitor, AnalysisError.Kind.CHECK_ERROR);
+        if (isRunning(visitor)) {
+          try {
+            if (profiler != null || timeBudget != null) {
+              boolean outOfTime = runScanner(() -> event.send(visitor, tree), visitor, AnalysisError.Kind.CHECK_ERROR, RuleProfiler.Phase.SUBSCRIPTION_VISITOR);
+              stopIfOutOfTime(visitor, outOfTime);
+            } else {
+              send(visitor, event, tree);
+            }
+          } catch (CheckFailureException e) {
+            stop(visitor, e);
+          }
+        }
+      }
+    }
+
+    private void send(SubscriptionVisitor visitor, Event event, Tree tree) throws CheckFailureException {
+      try {
+        event.send(visitor, tree);
+      } catch (RuntimeException e) {
+        throw checkFailure(e, visitor);
+      }
+    }
+
+    private boolean isRunning(SubscriptionVisitor visitor) {
+      return stoppedVisitors.isEmpty() || !stoppedVisitors.contains(visitor);
+    }
+
+    private void stop(SubscriptionVisitor visitor, CheckFailureException e) {
+      interruptIfFailFast(e);
+      stoppedVisitors.add(visitor);
+    }
+
+    private void stopIfOutOfTime(SubscriptionVisitor visitor, boolean outOfTime) {
+      if (outOfTime && isRule(visitor)) {
+        stopOutOfTime(visitor);
       }
     }
+
+    private void stopOutOfTime(SubscriptionVisitor rule) {
+      if (stoppedVisitors.add(rule)) {
+        timeBudget.skip(ruleKey(rule));
+      }
+    }
+  }
+
+  private enum Event {
+    VISIT_NODE {
+      @Override
+      void send(SubscriptionVisitor visitor, Tree tree) {
+        visitor.visitNode(tree);
+      }
+    },
+    LEAVE_NODE {
+      @Override
+      void send(SubscriptionVisitor visitor, Tree tree) {
+        visitor.leaveNode(tree);
+      }
+    },
+    VISIT_TOKEN {
+      @Override
+      void send(SubscriptionVisitor visitor, Tree tree) {
+        visitor.visitToken((SyntaxToken) tree);
+      }
+    },
+    VISIT_TRIVIAS {
+      @Override
+      void send(SubscriptionVisitor visitor, Tree tree) {
+        for (SyntaxTrivia trivia : ((SyntaxToken) tree).trivias()) {
+          visitor.visitTrivia(trivia);
+        }
+      }
+    };
+
+    abstract void send(SubscriptionVisitor visitor, Tree tree);
   }
 }
@@ -30,6 +30,7 @@ import org.sonar.java.ast.parser.FormalParametersListTreeImpl;
 import org.sonar.java.ast.parser.QualifiedIdentifierListTreeImpl;
 import org.sonar.java.ast.parser.TypeParameterListTreeImpl;
 import org.sonar.java.cfg.CFG;
+import org.sonar.java.cfg.MethodAnalysis;
 import org.sonar.java.model.JavaTree;
 import org.sonar.java.model.ModifiersUtils;
 import org.sonar.java.resolve.Symbols;
@@ -71,7 +72,7 @@ public class MethodTreeImpl extends JavaTree implements MethodTree {
   private final ExpressionTree defaultValue;
 
   @Nullable
-  private CFG cfg;
+  private MethodAnalysis analysis;
 
   @Nullable
   public IMethodBinding methodBinding;
@@ -233,10 +234,17 @@ public class MethodTreeImpl extends JavaTree implements MethodTree {
     if (block == null) {
       return null;
     }
-    if (cfg == null) {
-      cfg = CFG.build(this);
+    return analysis().cfg();
+  }
+
+  /**
+   * @return control flow analyses of the body of the method, shared by the checks
+   */
+  public synchronized MethodAnalysis analysis() {
+    if (analysis == null) {
+      analysis = new MethodAnalysis(this);
     }
-    return cfg;
+    return analysis;
   }
 
   @Override
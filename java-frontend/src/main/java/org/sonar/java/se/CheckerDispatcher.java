@@ -37,6 +37,8 @@ import org.sonar.plugins.java.api.tree.Tree;
 public class CheckerDispatcher implements CheckerContext {
   private final ExplodedGraphWalker explodedGraphWalker;
   private final List<SECheck> checks;
+  @Nullable
+  private final SECheckProfiler profiler;
   private int currentCheckerIndex = -1;
   private boolean transition = false;
   private Exception interruptionCause = null;
@@ -46,15 +48,23 @@ public class CheckerDispatcher implements CheckerContext {
   MethodYield methodYield = null;
 
   public CheckerDispatcher(ExplodedGraphWalker explodedGraphWalker, List<SECheck> checks) {
+    this(explodedGraphWalker, checks, null);
+  }
+
+  /**
+   * @param profiler measures the callbacks of each check, when not null
+   */
+  public CheckerDispatcher(ExplodedGraphWalker explodedGraphWalker, List<SECheck> checks, @Nullable SECheckProfiler profiler) {
     this.explodedGraphWalker = explodedGraphWalker;
     this.checks = checks;
+    this.profiler = profiler;
   }
 
   public boolean executeCheckPreStatement(Tree syntaxNode) {
     this.syntaxNode = syntaxNode;
     ProgramState ps;
     for (SECheck checker : checks) {
-      ps = checker.checkPreStatement(this, syntaxNode);
+      ps = profiler == null ? checker.checkPreStatement(this, syntaxNode) : profiledPreStatement(checker, syntaxNode);
       if (ps == null) {
         return false;
       }
@@ -64,6 +74,13 @@ public class CheckerDispatcher implements CheckerContext {
 
   }
 
+  @Nullable
+  private ProgramState profiledPreStatement(SECheck checker, Tree syntaxNode) {
+    ProgramState[] ps = new ProgramState[1];
+    profiler.run(checker.getClass(), () -> ps[0] = checker.checkPreStatement(this, syntaxNode));
+    return ps[0];
+  }
+
   public void executeCheckPostStatement(Tree syntaxNode) {
     this.syntaxNode = syntaxNode;
     addTransition(explodedGraphWalker.programState);
@@ -103,15 +120,17 @@ public class CheckerDispatcher implements CheckerContext {
   private void executePost() {
     this.transition = false;
     if (currentCheckerIndex < checks.size()) {
-      explodedGraphWalker.programState = checks.get(currentCheckerIndex).checkPostStatement(this, syntaxNode);
-    } else {
-      CFG.Block block = (CFG.Block) explodedGraphWalker.programPosition.block;
-      if (explodedGraphWalker.programPosition.i< block.elements().size()) {
-        explodedGraphWalker.clearStack(block.elements().get(explodedGraphWalker.programPosition.i));
+      SECheck checker = checks.get(currentCheckerIndex);
+      if (profiler == null) {
+        explodedGraphWalker.programState = checker.checkPostStatement(this, syntaxNode);
+      } else {
+        profiler.run(checker.getClass(), () -> explodedGraphWalker.programState = checker.checkPostStatement(this, syntaxNode));
       }
-      explodedGraphWalker.enqueue(
-        explodedGraphWalker.programPosition.next(),
-        explodedGraphWalker.programState, explodedGraphWalker.node.exitPath, methodYield);
+    } else if (profiler == null) {
+      enqueueNextProgramPoint();
+      return;
+    } else {
+      profiler.run(ExplodedGraphWalker.class, this::enqueueNextProgramPoint);
       return;
     }
     if (!transition) {
@@ -119,6 +138,16 @@ public class CheckerDispatcher implements CheckerContext {
     }
   }
 
+  private void enqueueNextProgramPoint() {
+    CFG.Block block = (CFG.Block) explodedGraphWalker.programPosition.block;
+    if (explodedGraphWalker.programPosition.i< block.elements().size()) {
+      explodedGraphWalker.clearStack(block.elements().get(explodedGraphWalker.programPosition.i));
+    }
+    explodedGraphWalker.enqueue(
+      explodedGraphWalker.programPosition.next(),
+      explodedGraphWalker.programState, explodedGraphWalker.node.exitPath, methodYield);
+  }
+
   @Override
   public void addExceptionalYield(SymbolicValue target, ProgramState exceptionalState, String exceptionFullyQualifiedName, SECheck check) {
     explodedGraphWalker.addExceptionalYield(target, exceptionalState, exceptionFullyQualifiedName, check);
@@ -132,13 +161,13 @@ public class CheckerDispatcher implements CheckerContext {
 
   public void executeCheckEndOfExecution() {
     for (SECheck checker : checks) {
-      checker.checkEndOfExecution(this);
+      run(checker, () -> checker.checkEndOfExecution(this));
     }
   }
 
   public void executeCheckEndOfExecutionPath(ConstraintManager constraintManager) {
     for (SECheck checker : checks) {
-      checker.checkEndOfExecutionPath(this, constraintManager);
+      run(checker, () -> checker.checkEndOfExecutionPath(this, constraintManager));
     }
   }
 
@@ -148,6 +177,14 @@ public class CheckerDispatcher implements CheckerContext {
     }
   }
 
+  private void run(SECheck checker, Runnable callback) {
+    if (profiler == null) {
+      callback.run();
+    } else {
+      profiler.run(checker.getClass(), callback);
+    }
+  }
+
   @Override
   public ConstraintManager getConstraintManager() {
     return explodedGraphWalker.constraintManager;
@@ -155,7 +192,7 @@ public class CheckerDispatcher implements CheckerContext {
 
   public void interruptedExecution(Exception interruptionCause) {
     this.interruptionCause = interruptionCause;
-    checks.forEach(c -> c.interruptedExecution(this));
+    checks.forEach(c -> run(c, () -> c.interruptedExecution(this)));
     this.interruptionCause = null;
   }
 
@@ -20,30 +20,81 @@
 package org.sonar.java.se;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.LinkedListMultimap;
-import com.google.common.collect.Multimap;
 
+import org.sonar.java.se.constraint.Constraint;
 import org.sonar.java.se.xproc.MethodYield;
+import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.Tree;
 
 import javax.annotation.Nullable;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
+/**
+ * Nodes of the exploded graph of a method, one per (program point, program state) pair. The table of nodes hash-conses the program states:
+ * a program state reaching a program point with a state equal to an already explored one is dropped in favor of the explored state.
+ */
 public class ExplodedGraph {
 
+  /**
+   * Rough sizes in bytes of the objects of the graph, assuming compressed references: used to estimate the memory held by the graph.
+   */
+  private static final int NODE_SIZE = 48;
+  private static final int NODE_ENTRY_SIZE = 40;
+  private static final int EDGE_SIZE = 32;
+  private static final int EDGE_SLOT_SIZE = 4;
+  private static final int EDGE_INDEX_ENTRY_SIZE = 40;
+  private static final int YIELD_ENTRY_SIZE = 64;
+
   private final Map<Node, Node> nodes = new HashMap<>();
-  private final Multimap<ProgramPoint, Node> nodesByProgramPoint = LinkedListMultimap.create();
+  /**
+   * Last node created for each program point, the nodes of a program point being chained from the last one to the first one.
+   */
+  private final Map<ProgramPoint, Node> lastNodeByProgramPoint = new HashMap<>();
+  /**
+   * Yields of the edges of method invocations, out of the edges as most edges have none.
+   */
+  private final Map<Edge, Set<MethodYield>> yieldsByEdge = new HashMap<>();
+  private int lookups;
+  private int edges;
+  private int edgeSlots;
+  private int indexedEdges;
+  private int yields;
+  /**
+   * Set once the exploration of the method is over: checks only add nodes and edges while the states are explored, so the graph no
+   * longer changes.
+   */
+  private volatile boolean explored;
+  /**
+   * Flows computed on the explored graph. Graphs of executed methods are shared by the threads computing the flows of method yields.
+   */
+  private final Map<List<Object>, Set<Flow>> flows = new ConcurrentHashMap<>();
+  /**
+   * Whether a symbol has the same constraint of a domain in all the nodes of a program point, by node, symbol and domain.
+   */
+  private final Map<List<Object>, Boolean> sameConstraints = new ConcurrentHashMap<>();
 
   /**
    * Returns node associated with given (programPoint,programState) pair. If no node for this pair exists, it is created.
    */
   public Node node(ProgramPoint programPoint, @Nullable ProgramState programState) {
+    lookups++;
     Node result = new Node(programPoint, programState, this);
     Node cached = nodes.get(result);
     if (cached != null) {
@@ -52,7 +103,7 @@ public class ExplodedGraph {
     }
     result.isNew = true;
     nodes.put(result, result);
-    nodesByProgramPoint.put(programPoint, result);
+    result.previousAtProgramPoint = lastNodeByProgramPoint.put(programPoint, result);
     return result;
   }
 
@@ -60,13 +111,100 @@ public class ExplodedGraph {
     return nodes;
   }
 
+  /**
+   * @return the number of lookups of nodes, the lookups finding an existing node being the deduplicated program states
+   */
+  public int lookups() {
+    return lookups;
+  }
+
+  /**
+   * @return the ratio of the lookups of nodes finding an existing node
+   */
+  public double dedupRatio() {
+    return lookups == 0 ? 0 : ((double) (lookups - nodes.size()) / lookups);
+  }
+
+  /**
+   * @return the number of edges between the nodes
+   */
+  public int edgeCount() {
+    return edges;
+  }
+
+  /**
+   * @return an estimate in bytes of the memory held by the nodes, edges and yields of the graph. Nodes and edges are never removed
+   * from a graph, this is the peak memory of the graph.
+   */
+  public long estimatedMemory() {
+    return (long) nodes.size() * (NODE_SIZE + NODE_ENTRY_SIZE)
+      + (long) edges * EDGE_SIZE
+      + (long) edgeSlots * EDGE_SLOT_SIZE
+      + (long) indexedEdges * EDGE_INDEX_ENTRY_SIZE
+      + (long) yields * YIELD_ENTRY_SIZE;
+  }
+
+  /**
+   * Marks the end of the exploration of the method, from which flows and constraints computed on the graph are memoized.
+   */
+  void explored() {
+    explored = true;
+  }
+
+  /**
+   * Flows identified by the given key. Once the graph is explored, they are computed once: checks raising issues on the same nodes at
+   * the end of the execution, and callers of the method, request the same flows. Flows requested during the exploration are not kept,
+   * as edges added afterwards can change them.
+   */
+  Set<Flow> flows(List<Object> key, Supplier<Set<Flow>> computation) {
+    if (!explored) {
+      return computation.get();
+    }
+    Set<Flow> computed = flows.get(key);
+    if (computed == null) {
+      // not computeIfAbsent: the computation can request flows of the same graph, through the yields of recursive invocations
+      computed = computation.get();
+      flows.put(key, computed);
+    }
+    return new HashSet<>(computed);
+  }
+
+  /**
+   * Whether the symbol has the same constraint of the domain in the given node and all its siblings, memoized once the graph is
+   * explored: flows started from the same node check the same symbols.
+   */
+  boolean sameConstraint(Node node, Symbol symbol, Class<? extends Constraint> domain, BooleanSupplier computation) {
+    if (!explored) {
+      return computation.getAsBoolean();
+    }
+    return sameConstraints.computeIfAbsent(Arrays.asList(node, symbol, domain), k -> computation.getAsBoolean());
+  }
+
   public static final class Node {
 
     public final ProgramPoint programPoint;
     @Nullable
     public final ProgramState programState;
 
-    private final Map<Node, Edge> edges = new HashMap<>();
+    private static final Edge[] NO_EDGES = new Edge[0];
+    /**
+     * Number of edges above which the edges of a node are indexed by parent, merge points of big methods having many parents.
+     */
+    private static final int MAX_SCANNED_EDGES = 8;
+
+    /**
+     * Edges to the parents, by insertion order, in the first {@code edgeCount} slots of the array.
+     */
+    private Edge[] edges = NO_EDGES;
+    private int edgeCount;
+    /**
+     * Edges by parent, once the node has more than {@link #MAX_SCANNED_EDGES} edges. Nodes are unique in a graph: parents are compared
+     * by identity.
+     */
+    @Nullable
+    private Map<Node, Edge> edgesByParent;
+    @Nullable
+    private Node previousAtProgramPoint;
 
     private boolean isNew;
     boolean exitPath = false;
@@ -85,29 +223,86 @@ public class ExplodedGraph {
       if (parent == null) {
         return;
       }
-      Edge edge = edges.computeIfAbsent(parent, p -> new Edge(this, p));
+      Edge edge = edgeTo(parent);
+      if (edge == null) {
+        edge = new Edge(this, parent);
+        if (edgeCount == edges.length) {
+          int length = Math.max(2, edgeCount * 2);
+          explodedGraph.edgeSlots += length - edges.length;
+          edges = Arrays.copyOf(edges, length);
+        }
+        edges[edgeCount] = edge;
+        edgeCount++;
+        explodedGraph.edges++;
+        indexEdge(edge);
+      }
       if (methodYield != null) {
         Preconditions.checkState(parent.programPoint.syntaxTree().is(Tree.Kind.METHOD_INVOCATION), "Yield on edge where parent is not MIT");
-        edge.yields.add(methodYield);
+        if (explodedGraph.yieldsByEdge.computeIfAbsent(edge, e -> new LinkedHashSet<>()).add(methodYield)) {
+          explodedGraph.yields++;
+        }
       }
     }
 
+    @Nullable
+    private Edge edgeTo(Node parent) {
+      if (edgesByParent != null) {
+        return edgesByParent.get(parent);
+      }
+      for (int i = 0; i < edgeCount; i++) {
+        if (edges[i].parent == parent) {
+          return edges[i];
+        }
+      }
+      return null;
+    }
+
+    private void indexEdge(Edge edge) {
+      if (edgesByParent != null) {
+        edgesByParent.put(edge.parent, edge);
+        explodedGraph.indexedEdges++;
+      } else if (edgeCount > MAX_SCANNED_EDGES) {
+        edgesByParent = new IdentityHashMap<>();
+        for (int i = 0; i < edgeCount; i++) {
+          edgesByParent.put(edges[i].parent, edges[i]);
+        }
+        explodedGraph.indexedEdges += edgeCount;
+      }
+    }
+
+    ExplodedGraph explodedGraph() {
+      return explodedGraph;
+    }
+
+    /**
+     * @return the other nodes of the program point, by creation order
+     */
     public Collection<Node> siblings() {
-      Collection<Node> collection = explodedGraph.nodesByProgramPoint.get(programPoint);
-      collection.remove(this);
-      return collection;
+      Deque<Node> siblings = new ArrayDeque<>();
+      Node sibling = explodedGraph.lastNodeByProgramPoint.get(programPoint);
+      while (sibling != null) {
+        if (sibling != this) {
+          siblings.addFirst(sibling);
+        }
+        sibling = sibling.previousAtProgramPoint;
+      }
+      return new ArrayList<>(siblings);
     }
 
     @Nullable
     public Node parent() {
-      return parents().stream().findFirst().orElse(null);
+      return edgeCount == 0 ? null : edges[0].parent;
     }
 
     /**
      * @return the ordered (by insertion) sets of parents
      */
     public Set<Node> parents() {
-      return edges.keySet();
+      Set<Node> parents = new LinkedHashSet<>();
+      for (int i = 0; i < edgeCount; i++) {
+        parents.add(edges[i].parent);
+      }
+      return parents;
     }
 
     @Override
@@ -131,7 +326,7 @@ public class ExplodedGraph {
     }
 
     public Collection<Edge> edges() {
-      return edges.values();
+      return Collections.unmodifiableList(Arrays.asList(edges).subList(0, edgeCount));
     }
 
     public boolean isNew() {
@@ -146,7 +341,6 @@ public class ExplodedGraph {
 
     private Set<LearnedConstraint> lc;
     private Set<LearnedAssociation> la;
-    private final Set<MethodYield> yields = new LinkedHashSet<>();
 
     private Edge(Node child, Node parent) {
       Preconditions.checkState(!child.equals(parent));
@@ -178,7 +372,7 @@ public class ExplodedGraph {
     }
 
     public Set<MethodYield> yields() {
-      return yields;
+      return child.explodedGraph.yieldsByEdge.getOrDefault(this, Collections.emptySet());
     }
 
     @Override
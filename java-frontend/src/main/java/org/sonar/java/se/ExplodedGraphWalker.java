@@ -28,15 +28,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.CheckForNull;
@@ -46,6 +46,7 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.java.DebugCheck;
 import org.sonar.java.cfg.CFG;
 import org.sonar.java.cfg.LiveVariables;
+import org.sonar.java.cfg.MethodAnalysis;
 import org.sonar.java.matcher.MethodMatcher;
 import org.sonar.java.matcher.MethodMatcherCollection;
 import org.sonar.java.model.ExpressionUtils;
@@ -107,6 +108,8 @@ public class ExplodedGraphWalker {
    * Arbitrary number to limit symbolic execution.
    */
   private static final int MAX_STEPS = 16_000;
+  @VisibleForTesting
+  static final int OUT_OF_TIME_CHECK_STEPS = 100;
   public static final int MAX_NESTED_BOOLEAN_STATES = 10_000;
   // would correspond to 10 parameters annotated with @Nullable
   private static final int MAX_STARTING_STATES = 1_024;
@@ -130,10 +133,12 @@ public class ExplodedGraphWalker {
   private final AlwaysTrueOrFalseExpressionCollector alwaysTrueOrFalseExpressionCollector;
   private MethodTree methodTree;
 
-  private ExplodedGraph explodedGraph;
+  @VisibleForTesting
+  ExplodedGraph explodedGraph;
 
+  private final ExplorationStrategy explorationStrategy;
   @VisibleForTesting
-  Deque<ExplodedGraph.Node> workList;
+  ExplorationStrategy.WorkList workList;
   ExplodedGraph.Node node;
   ProgramPoint programPosition;
   ProgramState programState;
@@ -146,9 +151,11 @@ public class ExplodedGraphWalker {
   private final BehaviorCache behaviorCache;
   @VisibleForTesting
   int steps;
+  private BooleanSupplier outOfTime = () -> false;
 
   ConstraintManager constraintManager;
   private boolean cleanup = true;
+  private boolean joinStates;
   @Nullable
   MethodBehavior methodBehavior;
   private Set<ExplodedGraph.Node> endOfExecutionPath;
@@ -188,6 +195,7 @@ public class ExplodedGraphWalker {
     this.checkerDispatcher = new CheckerDispatcher(this, checks);
     this.behaviorCache = behaviorCache;
     this.semanticModel = semanticModel;
+    this.explorationStrategy = ExplorationStrategy.DEPTH_FIRST;
   }
 
   @VisibleForTesting
@@ -198,10 +206,35 @@ public class ExplodedGraphWalker {
 
   @VisibleForTesting
   protected ExplodedGraphWalker(List<SECheck> seChecks, BehaviorCache behaviorCache, Sema semanticModel) {
+    this(seChecks, behaviorCache, semanticModel, ExplorationStrategy.DEPTH_FIRST);
+  }
+
+  protected ExplodedGraphWalker(List<SECheck> seChecks, BehaviorCache behaviorCache, Sema semanticModel, ExplorationStrategy explorationStrategy) {
+    this(seChecks, behaviorCache, semanticModel, explorationStrategy, null);
+  }
+
+  protected ExplodedGraphWalker(List<SECheck> seChecks, BehaviorCache behaviorCache, Sema semanticModel, ExplorationStrategy explorationStrategy,
+    @Nullable SECheckProfiler checkProfiler) {
     this.alwaysTrueOrFalseExpressionCollector = new AlwaysTrueOrFalseExpressionCollector();
-    this.checkerDispatcher = new CheckerDispatcher(this, seChecks);
+    this.checkerDispatcher = new CheckerDispatcher(this, seChecks, checkProfiler);
     this.behaviorCache = behaviorCache;
     this.semanticModel = semanticModel;
+    this.explorationStrategy = explorationStrategy;
+  }
+
+  /**
+   * @param outOfTime checked every {@link #OUT_OF_TIME_CHECK_STEPS} steps, the execution of a method being interrupted once it returns true
+   */
+  void setOutOfTime(BooleanSupplier outOfTime) {
+    this.outOfTime = outOfTime;
+  }
+
+  /**
+   * @param joinStates whether states entering a block drop the local variables not live at its entry before being looked up in the
+   * exploded graph, so that paths only differing by such variables share the nodes of the block
+   */
+  void setJoinStates(boolean joinStates) {
+    this.joinStates = joinStates;
   }
 
   public MethodBehavior visitMethod(MethodTree tree) {
@@ -219,14 +252,15 @@ public class ExplodedGraphWalker {
   }
 
   private void execute(MethodTree tree) {
-    CFG cfg = CFG.build(tree);
+    MethodAnalysis analysis = MethodAnalysis.of(tree);
+    CFG cfg = analysis.cfg();
     exitBlock = cfg.exitBlock();
     checkerDispatcher.init(tree, cfg);
-    liveVariables = LiveVariables.analyze(cfg);
+    liveVariables = analysis.liveVariables();
     explodedGraph = new ExplodedGraph();
     methodTree = tree;
     constraintManager = new ConstraintManager();
-    workList = new LinkedList<>();
+    workList = explorationStrategy.newWorkList();
     // Linked hashSet is required to guarantee order of yields to be generated
     endOfExecutionPath = new LinkedHashSet<>();
     if(DEBUG_MODE_ACTIVATED) {
@@ -242,8 +276,10 @@ public class ExplodedGraphWalker {
       if (steps > maxSteps()) {
         throwMaxSteps(tree);
       }
-      // LIFO:
-      setNode(workList.removeFirst());
+      if (steps % OUT_OF_TIME_CHECK_STEPS == 0 && outOfTime.getAsBoolean()) {
+        throwOutOfTime(tree);
+      }
+      setNode(workList.next());
       CFG.Block block = (CFG.Block) programPosition.block;
       if (block.successors().isEmpty()) {
         endOfExecutionPath.add(node);
@@ -273,7 +309,9 @@ public class ExplodedGraphWalker {
       }
     }
 
+    explodedGraph.explored();
     handleEndOfExecutionPath(false);
+    logStats();
     checkerDispatcher.executeCheckEndOfExecution();
     // Cleanup:
     workList = null;
@@ -306,11 +344,29 @@ public class ExplodedGraphWalker {
     throw cause;
   }
 
+  private void throwOutOfTime(MethodTree tree) {
+    String message = String.format("reached time budget after %d steps for method %s#%d in class %s",
+      steps, tree.simpleName().name(), tree.simpleName().firstToken().line(), tree.symbol().owner().name());
+    MaximumStepsReachedException cause = new MaximumStepsReachedException(message);
+    interrupted(cause);
+    throw cause;
+  }
+
   private void interrupted(Exception cause) {
     handleEndOfExecutionPath(true);
+    logStats();
     checkerDispatcher.interruptedExecution(cause);
   }
 
+  private void logStats() {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(String.format(Locale.ROOT,
+        "Exploded graph of method %s at line %d: %d steps, %d nodes, %d edges, %d lookups of nodes, dedup ratio of program states %.2f, peak memory of graph %d KB",
+        methodTree.simpleName().name(), ((JavaTree) methodTree).getLine(), steps, explodedGraph.nodes().size(), explodedGraph.edgeCount(), explodedGraph.lookups(),
+        explodedGraph.dedupRatio(), explodedGraph.estimatedMemory() / 1024));
+    }
+  }
+
   private void setNode(ExplodedGraph.Node node) {
     this.node = node;
     programPosition = this.node.programPoint;
@@ -388,12 +444,28 @@ public class ExplodedGraphWalker {
 
   private void cleanUpProgramState(CFG.Block block) {
     if (cleanup) {
-      Collection<SymbolicValue> protectedSVs = methodBehavior == null ? Collections.emptyList() : methodBehavior.parameters();
-      programState = programState.cleanupDeadSymbols(liveVariables.getOut(block), protectedSVs);
-      programState = programState.cleanupConstraints(protectedSVs);
+      programState = cleanUp(programState, liveVariables.getOut(block));
     }
   }
 
+  private ProgramState cleanUp(ProgramState state, Set<Symbol> liveSymbols) {
+    Collection<SymbolicValue> protectedSVs = methodBehavior == null ? Collections.emptyList() : methodBehavior.parameters();
+    return state.cleanupDeadSymbols(liveSymbols, protectedSVs).cleanupConstraints(protectedSVs);
+  }
+
+  /**
+   * Symbols live at the exit of a block can be dead at the entry of some of its successors. Dropping them before the lookup of the node
+   * joins the paths which only differ by their values. Values with constraints read at the end of the paths, like open resources, are
+   * kept by the cleanup, and the exit block is left untouched as method yields are built from its states.
+   */
+  private ProgramState joinedState(ProgramPoint programPoint, ProgramState state) {
+    if (!joinStates || !cleanup || programPoint.i != 0 || programPoint.block == exitBlock) {
+      return state;
+    }
+    Set<Symbol> liveIn = liveVariables.getIn((CFG.Block) programPoint.block);
+    return liveIn == null ? state : cleanUp(state, liveIn);
+  }
+
   private void handleBlockExit(ProgramPoint programPosition) {
     CFG.Block block = (CFG.Block) programPosition.block;
     Tree terminator = block.terminator();
@@ -1119,7 +1191,7 @@ public class ExplodedGraphWalker {
       }
     }
     checkExplodedGraphTooBig(programState);
-    ProgramState ps = programState.visitedPoint(programPoint, nbOfExecution + 1);
+    ProgramState ps = joinedState(programPoint, programState).visitedPoint(programPoint, nbOfExecution + 1);
     ExplodedGraph.Node cachedNode = explodedGraph.node(programPoint, ps);
     if (!cachedNode.isNew() && exitPath == cachedNode.exitPath) {
       // has been enqueued earlier
@@ -1128,7 +1200,7 @@ public class ExplodedGraphWalker {
     }
     cachedNode.exitPath = exitPath;
     cachedNode.addParent(node, methodYield);
-    workList.addFirst(cachedNode);
+    workList.add(cachedNode);
   }
 
   private static boolean isRestartingForEachLoop(ProgramPoint programPoint) {
@@ -1162,8 +1234,24 @@ public class ExplodedGraphWalker {
 
     @VisibleForTesting
     final List<SECheck> seChecks = new ArrayList<>();
+    private final ExplorationStrategy explorationStrategy;
+    @Nullable
+    private final SECheckProfiler checkProfiler;
 
     public ExplodedGraphWalkerFactory(List<JavaFileScanner> scanners) {
+      this(scanners, ExplorationStrategy.DEPTH_FIRST);
+    }
+
+    public ExplodedGraphWalkerFactory(List<JavaFileScanner> scanners, ExplorationStrategy explorationStrategy) {
+      this(scanners, explorationStrategy, null);
+    }
+
+    /**
+     * @param checkProfiler measures the time spent by each check of the created walkers, when not null
+     */
+    public ExplodedGraphWalkerFactory(List<JavaFileScanner> scanners, ExplorationStrategy explorationStrategy, @Nullable SECheckProfiler checkProfiler) {
+      this.explorationStrategy = explorationStrategy;
+      this.checkProfiler = checkProfiler;
       List<SECheck> debugChecks = new ArrayList<>();
       List<SECheck> checks = new ArrayList<>();
       for (JavaFileScanner scanner : scanners) {
@@ -1194,7 +1282,7 @@ public class ExplodedGraphWalker {
     }
 
     public ExplodedGraphWalker createWalker(BehaviorCache behaviorCache, Sema semanticModel) {
-      return new ExplodedGraphWalker(seChecks, behaviorCache, semanticModel);
+      return new ExplodedGraphWalker(seChecks, behaviorCache, semanticModel, explorationStrategy, checkProfiler);
     }
 
     @SuppressWarnings("unchecked")
@@ -0,0 +1,135 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Order in which the {@link ExplodedGraphWalker} executes the nodes waiting in its work list. The order has no impact on the
+ * result of a complete execution, only on the part of the method covered before reaching the maximum number of steps.
+ */
+public enum ExplorationStrategy {
+
+  /**
+   * Last enqueued node first: each path is followed up to its end before exploring the other ones.
+   */
+  DEPTH_FIRST {
+    @Override
+    WorkList newWorkList() {
+      return new DepthFirstWorkList();
+    }
+  },
+
+  /**
+   * Nodes on program points not executed yet first, then last enqueued node first. All the branches of the method are reached
+   * earlier than with {@link #DEPTH_FIRST}, instead of executing again and again the same program points with different program states.
+   */
+  UNVISITED_PROGRAM_POINTS_FIRST {
+    @Override
+    WorkList newWorkList() {
+      return new UnvisitedProgramPointsFirstWorkList();
+    }
+  };
+
+  abstract WorkList newWorkList();
+
+  /**
+   * @throws IllegalArgumentException if there is no strategy with the given name, case insensitive
+   */
+  public static ExplorationStrategy fromName(String name) {
+    return valueOf(name.trim().toUpperCase(Locale.ROOT));
+  }
+
+  interface WorkList {
+
+    void add(ExplodedGraph.Node node);
+
+    ExplodedGraph.Node next();
+
+    boolean isEmpty();
+
+    int size();
+  }
+
+  private static class DepthFirstWorkList implements WorkList {
+
+    private final Deque<ExplodedGraph.Node> nodes = new ArrayDeque<>();
+
+    @Override
+    public void add(ExplodedGraph.Node node) {
+      nodes.addFirst(node);
+    }
+
+    @Override
+    public ExplodedGraph.Node next() {
+      return nodes.removeFirst();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return nodes.isEmpty();
+    }
+
+    @Override
+    public int size() {
+      return nodes.size();
+    }
+  }
+
+  /**
+   * Priority of a node is decided when it is enqueued: a node may still be executed first after another node executed its program point.
+   */
+  private static class UnvisitedProgramPointsFirstWorkList implements WorkList {
+
+    private final Set<ProgramPoint> visitedProgramPoints = new HashSet<>();
+    private final Deque<ExplodedGraph.Node> unvisited = new ArrayDeque<>();
+    private final Deque<ExplodedGraph.Node> visited = new ArrayDeque<>();
+
+    @Override
+    public void add(ExplodedGraph.Node node) {
+      if (visitedProgramPoints.contains(node.programPoint)) {
+        visited.addFirst(node);
+      } else {
+        unvisited.addFirst(node);
+      }
+    }
+
+    @Override
+    public ExplodedGraph.Node next() {
+      ExplodedGraph.Node node = unvisited.isEmpty() ? visited.removeFirst() : unvisited.removeFirst();
+      visitedProgramPoints.add(node.programPoint);
+      return node;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return unvisited.isEmpty() && visited.isEmpty();
+    }
+
+    @Override
+    public int size() {
+      return unvisited.size() + visited.size();
+    }
+  }
+}
@@ -23,6 +23,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
@@ -111,11 +112,16 @@ public class FlowComputation {
   }
 
   public static Set<Flow> flow(ExplodedGraph.Node currentNode, @Nullable SymbolicValue currentVal, List<Class<? extends Constraint>> domains) {
-    return flow(currentNode, setFromNullable(currentVal), constraint -> true, c -> false, domains, Collections.emptySet(), false);
+    return flow(currentNode, currentVal, domains, null);
   }
 
+  /**
+   * Flows only depending on their arguments are memoized in the exploded graph of the node once it is explored: checks reporting on the
+   * same expression at the end of the execution share the backward traversal of the graph.
+   */
   public static Set<Flow> flow(ExplodedGraph.Node currentNode, @Nullable SymbolicValue currentVal, List<Class<? extends Constraint>> domains, @Nullable Symbol trackSymbol) {
-    return flow(currentNode, setFromNullable(currentVal), c -> true, c -> false, domains, setFromNullable(trackSymbol), false);
+    return currentNode.explodedGraph().flows(Arrays.asList(currentNode, currentVal, domains, trackSymbol),
+      () -> flow(currentNode, setFromNullable(currentVal), c -> true, c -> false, domains, setFromNullable(trackSymbol), false));
   }
 
   public static Set<Flow> flowWithoutExceptions(ExplodedGraph.Node currentNode, @Nullable SymbolicValue currentVal, Predicate<Constraint> addToFlow,
@@ -219,7 +225,8 @@ public class FlowComputation {
     }
 
     private boolean hasAlwaysSameConstraints(Symbol symbol) {
-      return domains.stream().allMatch(domain -> sameConstraintWhenSameProgramPoint(node, symbol, domain));
+      return domains.stream().allMatch(domain -> node.explodedGraph().sameConstraint(node, symbol, domain,
+        () -> sameConstraintWhenSameProgramPoint(node, symbol, domain)));
     }
 
     private static boolean sameConstraintWhenSameProgramPoint(ExplodedGraph.Node currentNode, Symbol symbol, Class<? extends Constraint> domain) {
@@ -0,0 +1,164 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.java.se.checks.SECheck;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.tree.MethodTree;
+
+/**
+ * Threads executing the methods of a file in parallel. Each thread walks the exploded graphs of the methods with its own copies
+ * of the symbolic execution checks, whose issues are reported to the original checks once all the methods are executed.
+ */
+public class ParallelSymbolicExecution {
+
+  private final ExecutorService executor;
+  private final List<ExplodedGraphWalker.ExplodedGraphWalkerFactory> walkerFactories = new ArrayList<>();
+  private final Queue<ExplodedGraphWalker.ExplodedGraphWalkerFactory> availableWalkerFactories = new ConcurrentLinkedQueue<>();
+  private volatile boolean failed;
+
+  /**
+   * @param copyCheck creates a copy of a check, with the same parameters
+   */
+  public ParallelSymbolicExecution(int threads, List<JavaFileScanner> executableScanners, UnaryOperator<JavaFileScanner> copyCheck) {
+    this(threads, executableScanners, copyCheck, ExplorationStrategy.DEPTH_FIRST);
+  }
+
+  /**
+   * @param copyCheck creates a copy of a check, with the same parameters
+   * @param explorationStrategy order in which the exploded graphs of the methods are walked
+   */
+  public ParallelSymbolicExecution(int threads, List<JavaFileScanner> executableScanners, UnaryOperator<JavaFileScanner> copyCheck,
+    ExplorationStrategy explorationStrategy) {
+    this(threads, executableScanners, copyCheck, explorationStrategy, null);
+  }
+
+  /**
+   * @param copyCheck creates a copy of a check, with the same parameters
+   * @param explorationStrategy order in which the exploded graphs of the methods are walked
+   * @param checkProfiler measures the time spent by each check, from all the threads, when not null
+   */
+  public ParallelSymbolicExecution(int threads, List<JavaFileScanner> executableScanners, UnaryOperator<JavaFileScanner> copyCheck,
+    ExplorationStrategy explorationStrategy, @Nullable SECheckProfiler checkProfiler) {
+    for (int i = 0; i < threads; i++) {
+      List<JavaFileScanner> checks = executableScanners.stream()
+        .filter(SECheck.class::isInstance)
+        .map(copyCheck)
+        .collect(Collectors.toList());
+      walkerFactories.add(new ExplodedGraphWalker.ExplodedGraphWalkerFactory(checks, explorationStrategy, checkProfiler));
+    }
+    availableWalkerFactories.addAll(walkerFactories);
+    executor = Executors.newFixedThreadPool(threads,
+      new ThreadFactoryBuilder().setNameFormat("java-symbolic-execution-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Executes the methods in parallel, then reports the issues raised by the copies of the checks to the checks of the given factory.
+   * Once the execution of a method fails, the methods not yet started are not executed.
+   *
+   * @param execution executes a method with the walker factory of the current thread
+   */
+  void execute(List<MethodTree> methods, BiConsumer<ExplodedGraphWalker.ExplodedGraphWalkerFactory, MethodTree> execution,
+    ExplodedGraphWalker.ExplodedGraphWalkerFactory checksFactory) {
+    failed = false;
+    List<Future<?>> results = new ArrayList<>(methods.size());
+    for (MethodTree method : methods) {
+      results.add(executor.submit(() -> executeWithAvailableWalkerFactory(method, execution)));
+    }
+    try {
+      RuntimeException failure = null;
+      for (Future<?> result : results) {
+        RuntimeException resultFailure = waitFor(result);
+        if (failure == null) {
+          failure = resultFailure;
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    } finally {
+      for (ExplodedGraphWalker.ExplodedGraphWalkerFactory walkerFactory : walkerFactories) {
+        for (int i = 0; i < checksFactory.seChecks.size(); i++) {
+          checksFactory.seChecks.get(i).reportIssuesOf(walkerFactory.seChecks.get(i));
+        }
+      }
+    }
+  }
+
+  private void executeWithAvailableWalkerFactory(MethodTree method, BiConsumer<ExplodedGraphWalker.ExplodedGraphWalkerFactory, MethodTree> execution) {
+    if (failed) {
+      return;
+    }
+    // there are as many walker factories as threads
+    ExplodedGraphWalker.ExplodedGraphWalkerFactory walkerFactory = availableWalkerFactories.remove();
+    try {
+      execution.accept(walkerFactory, method);
+    } catch (RuntimeException | Error e) {
+      failed = true;
+      throw e;
+    } finally {
+      availableWalkerFactories.add(walkerFactory);
+    }
+  }
+
+  /**
+   * Waits for the end of the execution of a method, even when another one failed: the executions still running
+   * use the behavior cache of the file.
+   *
+   * @return the failure of the execution, if any
+   */
+  @CheckForNull
+  private static RuntimeException waitFor(Future<?> result) {
+    try {
+      result.get();
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new IllegalStateException("Interrupted while executing methods", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        return (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      return new IllegalStateException(cause);
+    }
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -46,6 +46,7 @@ import org.sonar.java.se.constraint.ConstraintManager;
 import org.sonar.java.se.constraint.ConstraintsByDomain;
 import org.sonar.java.se.constraint.ObjectConstraint;
 import org.sonar.java.se.symbolicvalues.BinarySymbolicValue;
+import org.sonar.java.se.symbolicvalues.RelationIndex;
 import org.sonar.java.se.symbolicvalues.RelationalSymbolicValue;
 import org.sonar.java.se.symbolicvalues.SymbolicValue;
 import org.sonar.plugins.java.api.semantic.Symbol;
@@ -56,6 +57,7 @@ public class ProgramState {
   private static final Set<Class<? extends Constraint>> NON_DISPOSABLE_CONSTRAINTS = ImmutableSet.of(UnclosedResourcesCheck.ResourceConstraint.class,
     CustomUnclosedResourcesCheck.CustomResourceConstraint.class, LocksNotUnlockedCheck.LockConstraint.class, StreamConsumedCheck.StreamPipelineConstraint.class);
   private Set<RelationalSymbolicValue> knownRelations;
+  private RelationIndex relationIndex;
 
   public static class Pop {
 
@@ -256,7 +258,9 @@ public class ProgramState {
       return false;
     }
     ProgramState that = (ProgramState) o;
-    return Objects.equals(values, that.values) &&
+    // hash code is cached: most of the states compared when looking up the nodes of the exploded graph are told apart without comparing their maps
+    return hashCode() == that.hashCode() &&
+      Objects.equals(values, that.values) &&
       Objects.equals(constraints, that.constraints) &&
       Objects.equals(exitSymbolicValue, that.exitSymbolicValue) &&
       Objects.equals(stack, that.stack);
@@ -276,7 +280,7 @@ public class ProgramState {
   }
 
   public ProgramState addConstraintTransitively(SymbolicValue symbolicValue, Constraint constraint) {
-    List<SymbolicValue> transitiveSymbolicValues = knownRelations().stream()
+    List<SymbolicValue> transitiveSymbolicValues = relationIndex().relationsOn(symbolicValue).stream()
       .filter(rsv -> rsv.isEquality() && (rsv.getLeftOp() == symbolicValue || rsv.getRightOp() == symbolicValue))
       .map(rsv -> rsv.getLeftOp() == symbolicValue ? rsv.getRightOp() : rsv.getLeftOp())
       .collect(Collectors.toList());
@@ -298,6 +302,16 @@ public class ProgramState {
     return knownRelations;
   }
 
+  /**
+   * Index of the {@link #knownRelations()}, built once per state as states never change.
+   */
+  public RelationIndex relationIndex() {
+    if (relationIndex == null) {
+      relationIndex = new RelationIndex(knownRelations());
+    }
+    return relationIndex;
+  }
+
   public ProgramState addConstraint(SymbolicValue symbolicValue, Constraint constraint) {
     Preconditions.checkState(!(symbolicValue instanceof RelationalSymbolicValue && constraint == BooleanConstraint.FALSE),
       "Relations stored in PS should always use TRUE constraint. SV: %s", symbolicValue);
@@ -21,7 +21,10 @@ package org.sonar.java.se;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BooleanSupplier;
+import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.java.ast.visitors.SubscriptionVisitor;
@@ -41,16 +44,89 @@ public class SymbolicExecutionVisitor extends SubscriptionVisitor {
   @VisibleForTesting
   public BehaviorCache behaviorCache;
   private final ExplodedGraphWalker.ExplodedGraphWalkerFactory egwFactory;
+  private final BooleanSupplier outOfTime;
+  private final boolean joinStates;
+  @Nullable
+  private final ParallelSymbolicExecution parallelExecution;
+  private final List<MethodTree> methods = new ArrayList<>();
+  /**
+   * Walker factory of the thread executing a method, when methods are executed in parallel.
+   */
+  private final ThreadLocal<ExplodedGraphWalker.ExplodedGraphWalkerFactory> threadWalkerFactory = new ThreadLocal<>();
 
   public SymbolicExecutionVisitor(List<JavaFileScanner> executableScanners, BehaviorCache behaviorCache) {
-    egwFactory = new ExplodedGraphWalker.ExplodedGraphWalkerFactory(executableScanners);
+    this(executableScanners, behaviorCache, new Settings());
+  }
+
+  public SymbolicExecutionVisitor(List<JavaFileScanner> executableScanners, BehaviorCache behaviorCache, Settings settings) {
+    egwFactory = new ExplodedGraphWalker.ExplodedGraphWalkerFactory(executableScanners, settings.explorationStrategy, settings.checkProfiler);
     this.behaviorCache = behaviorCache;
+    this.outOfTime = settings.outOfTime;
+    this.joinStates = settings.joinStates;
+    this.parallelExecution = settings.parallelExecution;
+  }
+
+  /**
+   * Settings of the symbolic execution of a file, the default ones executing all its methods one after the other, depth first,
+   * without time limit.
+   */
+  public static final class Settings {
+    private BooleanSupplier outOfTime = () -> false;
+    @Nullable
+    private ParallelSymbolicExecution parallelExecution;
+    private ExplorationStrategy explorationStrategy = ExplorationStrategy.DEPTH_FIRST;
+    private boolean joinStates;
+    @Nullable
+    private SECheckProfiler checkProfiler;
+
+    /**
+     * @param outOfTime checked before executing each method of the file and between the steps of its execution, the execution being
+     * interrupted and the remaining methods not executed once it returns true
+     */
+    public Settings outOfTime(BooleanSupplier outOfTime) {
+      this.outOfTime = outOfTime;
+      return this;
+    }
+
+    /**
+     * @param parallelExecution threads executing the methods of the file in parallel, methods being executed one after the other when null.
+     * Issues are reported in the same order whatever the order of execution of the methods.
+     */
+    public Settings parallelExecution(@Nullable ParallelSymbolicExecution parallelExecution) {
+      this.parallelExecution = parallelExecution;
+      return this;
+    }
+
+    /**
+     * @param explorationStrategy order in which the exploded graphs of the methods are walked, when methods are not executed in parallel
+     */
+    public Settings explorationStrategy(ExplorationStrategy explorationStrategy) {
+      this.explorationStrategy = explorationStrategy;
+      return this;
+    }
+
+    /**
+     * @param joinStates whether paths of a method reaching a block with the same values of the variables live at its entry share its nodes
+     */
+    public Settings joinStates(boolean joinStates) {
+      this.joinStates = joinStates;
+      return this;
+    }
+
+    /**
+     * @param checkProfiler measures the time spent by each check on the methods executed by the current thread, when not null
+     */
+    public Settings checkProfiler(@Nullable SECheckProfiler checkProfiler) {
+      this.checkProfiler = checkProfiler;
+      return this;
+    }
   }
 
   @Override
   public void scanFile(JavaFileScannerContext context) {
     behaviorCache.setFileContext(this, (Sema) context.getSemanticModel());
     super.scanFile(context);
+    executeInParallel();
   }
 
   @Override
@@ -60,21 +136,74 @@ public class SymbolicExecutionVisitor extends SubscriptionVisitor {
 
   @Override
   public void visitNode(Tree tree) {
+    if (parallelExecution != null) {
+      methods.add((MethodTree) tree);
+      return;
+    }
+    if (outOfTime.getAsBoolean()) {
+      return;
+    }
     execute((MethodTree) tree);
   }
 
+  private void executeInParallel() {
+    if (parallelExecution == null) {
+      return;
+    }
+    try {
+      if (methods.size() > 1) {
+        parallelExecution.execute(methods, this::executeWith, egwFactory);
+      } else {
+        methods.forEach(method -> executeWith(egwFactory, method));
+      }
+    } finally {
+      methods.clear();
+    }
+  }
+
+  private void executeWith(ExplodedGraphWalker.ExplodedGraphWalkerFactory walkerFactory, MethodTree methodTree) {
+    threadWalkerFactory.set(walkerFactory);
+    try {
+      if (!isOutOfTime()) {
+        execute(methodTree);
+      }
+    } finally {
+      threadWalkerFactory.remove();
+    }
+  }
+
+  private boolean isOutOfTime() {
+    synchronized (outOfTime) {
+      return outOfTime.getAsBoolean();
+    }
+  }
+
   public void execute(MethodTree methodTree) {
+    Symbol.MethodSymbol methodSymbol = methodTree.symbol();
+    if (!methodCanNotBeOverriden(methodSymbol)) {
+      walk(methodTree, null);
+      return;
+    }
+    MethodBehavior methodBehavior = behaviorCache.methodBehaviorForSymbol(methodSymbol);
+    // a method is executed by a single thread, the other ones needing its behavior wait for the end of its execution
+    if (behaviorCache.startExecution(methodBehavior)) {
+      try {
+        walk(methodTree, methodBehavior);
+      } finally {
+        behaviorCache.endExecution(methodBehavior);
+      }
+    }
+  }
+
+  private void walk(MethodTree methodTree, @Nullable MethodBehavior methodBehavior) {
     ExplodedGraphWalker walker = getWalker();
+    walker.setOutOfTime(this::isOutOfTime);
+    walker.setJoinStates(joinStates);
     try {
-      Symbol.MethodSymbol methodSymbol = methodTree.symbol();
-      if (methodCanNotBeOverriden(methodSymbol)) {
-        MethodBehavior methodBehavior = behaviorCache.methodBehaviorForSymbol(methodSymbol);
-        if (!methodBehavior.isVisited()) {
-          methodBehavior = walker.visitMethod(methodTree, methodBehavior);
-          methodBehavior.completed();
-        }
-      } else {
+      if (methodBehavior == null) {
         walker.visitMethod(methodTree);
+      } else {
+        walker.visitMethod(methodTree, methodBehavior).completed();
       }
     } catch (ExplodedGraphWalker.MaximumStepsReachedException
       | ExplodedGraphWalker.ExplodedGraphTooBigException
@@ -88,7 +217,8 @@ public class SymbolicExecutionVisitor extends SubscriptionVisitor {
 
   @VisibleForTesting
   protected ExplodedGraphWalker getWalker() {
-    return egwFactory.createWalker(behaviorCache, (Sema) context.getSemanticModel());
+    ExplodedGraphWalker.ExplodedGraphWalkerFactory walkerFactory = threadWalkerFactory.get();
+    return (walkerFactory != null ? walkerFactory : egwFactory).createWalker(behaviorCache, (Sema) context.getSemanticModel());
   }
 
   public static boolean methodCanNotBeOverriden(Symbol.MethodSymbol methodSymbol) {
@@ -23,6 +23,7 @@ import javax.annotation.CheckForNull;
 import org.sonar.check.Rule;
 import org.sonar.java.cfg.CFG;
 import org.sonar.java.cfg.CFGLoop;
+import org.sonar.java.cfg.MethodAnalysis;
 import org.sonar.java.matcher.MethodMatcher;
 import org.sonar.java.matcher.TypeCriteria;
 import org.sonar.java.model.LiteralUtils;
@@ -62,7 +63,7 @@ public class NoWayOutLoopCheck extends SECheck {
 
   @Override
   public void init(MethodTree tree, CFG cfg) {
-    MethodContext context = new MethodContext(tree, cfg);
+    MethodContext context = new MethodContext(tree);
     contexts.push(context);
   }
 
@@ -265,8 +266,8 @@ public class NoWayOutLoopCheck extends SECheck {
     private final Map<Tree, CFGLoop> loopStarts;
     private final boolean threadRunMethod;
 
-    MethodContext(MethodTree tree, CFG cfg) {
-      loopStarts = CFGLoop.getCFGLoops(cfg);
+    MethodContext(MethodTree tree) {
+      loopStarts = MethodAnalysis.of(tree).loops();
       threadRunMethod = THREAD_RUN_MATCHER.matches(tree);
     }
 
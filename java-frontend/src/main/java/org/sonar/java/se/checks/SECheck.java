@@ -27,17 +27,23 @@ import org.sonar.java.se.constraint.ConstraintManager;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
 import org.sonar.plugins.java.api.tree.Tree;
 
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public abstract class SECheck implements JavaFileScanner {
 
-  protected Set<SEIssue> issues = new HashSet<>();
+  private static final Comparator<SEIssue> FILE_ORDER = Comparator.comparingInt((SEIssue seIssue) -> line(seIssue.tree))
+    .thenComparingInt(seIssue -> column(seIssue.tree));
+
+  protected Set<SEIssue> issues = new LinkedHashSet<>();
 
   public void init(MethodTree methodTree, CFG cfg) {
 
@@ -61,12 +67,39 @@ public abstract class SECheck implements JavaFileScanner {
 
   @Override
   public void scanFile(JavaFileScannerContext context) {
-    for (SEIssue seIssue : issues) {
+    for (SEIssue seIssue : issuesInFileOrder()) {
       context.reportIssueWithFlow(this, seIssue.getTree(), seIssue.getMessage(), seIssue.getFlows(), null);
     }
     issues.clear();
   }
 
+  /**
+   * @return issues in the order of their location in the file, which does not depend on the order in which methods were executed
+   */
+  protected List<SEIssue> issuesInFileOrder() {
+    return issues.stream().sorted(FILE_ORDER).collect(Collectors.toList());
+  }
+
+  private static int line(Tree tree) {
+    SyntaxToken firstToken = tree.firstToken();
+    return firstToken == null ? Integer.MAX_VALUE : firstToken.line();
+  }
+
+  private static int column(Tree tree) {
+    SyntaxToken firstToken = tree.firstToken();
+    return firstToken == null ? Integer.MAX_VALUE : firstToken.column();
+  }
+
+  /**
+   * Reports the issues raised by a copy of this check, used by another thread to execute methods of the same file.
+   */
+  public void reportIssuesOf(SECheck copy) {
+    for (SEIssue seIssue : copy.issues) {
+      reportIssue(seIssue.tree, seIssue.message, seIssue.flows);
+    }
+    copy.issues.clear();
+  }
+
   public void reportIssue(Tree tree, String message) {
     reportIssue(tree, message, Collections.emptySet());
   }
@@ -19,6 +19,8 @@
  */
 package org.sonar.java.se.constraint;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -26,14 +28,27 @@ import javax.annotation.Nullable;
 import org.sonar.java.collections.PCollections;
 import org.sonar.java.collections.PMap;
 
+/**
+ * Constraints of a symbolic value, at most one per domain.
+ * Instances are interned: the same few combinations of constraints are set on most of the symbolic values of the program states,
+ * equal constraints usually share one instance, whose comparison with itself is a reference comparison.
+ */
 public class ConstraintsByDomain {
 
+  private static final Interner<ConstraintsByDomain> INTERNER = Interners.newWeakInterner();
+
   private final PMap<Class<? extends Constraint>, Constraint> constraintPMap;
+  private final int hashCode;
 
   private static final ConstraintsByDomain EMPTY = new ConstraintsByDomain(PCollections.emptyMap());
 
   private ConstraintsByDomain(PMap<Class<? extends Constraint>, Constraint> constraintPMap) {
     this.constraintPMap = constraintPMap;
+    this.hashCode = constraintPMap.hashCode();
+  }
+
+  private static ConstraintsByDomain of(PMap<Class<? extends Constraint>, Constraint> constraintPMap) {
+    return constraintPMap.isEmpty() ? EMPTY : INTERNER.intern(new ConstraintsByDomain(constraintPMap));
   }
 
   public static ConstraintsByDomain empty() {
@@ -45,7 +60,7 @@ public class ConstraintsByDomain {
     if (remove == constraintPMap) {
       return this;
     }
-    return remove.isEmpty() ? EMPTY : new ConstraintsByDomain(remove);
+    return of(remove);
   }
 
   @Nullable
@@ -67,7 +82,7 @@ public class ConstraintsByDomain {
 
   public ConstraintsByDomain put(Constraint constraint) {
     PMap<Class<? extends Constraint>, Constraint> newConstraints = constraintPMap.put(constraint.getClass(), constraint);
-    return newConstraints == constraintPMap ? this : new ConstraintsByDomain(newConstraints);
+    return newConstraints == constraintPMap ? this : of(newConstraints);
   }
 
   public Stream<Constraint> stream() {
@@ -91,7 +106,8 @@ public class ConstraintsByDomain {
       return false;
     }
     ConstraintsByDomain that = (ConstraintsByDomain) o;
-    return constraintPMap.equals(that.constraintPMap);
+    // hash code is cached: most of the distinct instances are told apart without comparing their maps
+    return hashCode == that.hashCode && constraintPMap.equals(that.constraintPMap);
   }
 
   @Override
@@ -101,6 +117,6 @@ public class ConstraintsByDomain {
 
   @Override
   public int hashCode() {
-    return constraintPMap.hashCode();
+    return hashCode;
   }
 }
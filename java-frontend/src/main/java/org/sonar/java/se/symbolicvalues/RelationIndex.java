@@ -0,0 +1,105 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se.symbolicvalues;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Relations known to be true, indexed by operand. The index of a program state is built once, as states never change. Relations
+ * deduced while setting a constraint are added to a layer on top of it, whose cost depends on the added relations only.
+ */
+public final class RelationIndex {
+
+  @Nullable
+  private final RelationIndex base;
+  private final Set<RelationalSymbolicValue> relations = new HashSet<>();
+  private final Map<SymbolicValue, List<RelationalSymbolicValue>> relationsByOperand = new HashMap<>();
+
+  public RelationIndex(Set<RelationalSymbolicValue> relations) {
+    this.base = null;
+    relations.forEach(this::index);
+  }
+
+  private RelationIndex(RelationIndex base) {
+    this.base = base;
+  }
+
+  /**
+   * @return an empty layer on top of this index, to which relations can be added without changing this index
+   */
+  RelationIndex withMoreRelations() {
+    return new RelationIndex(this);
+  }
+
+  void add(RelationalSymbolicValue relation) {
+    if (!contains(relation)) {
+      index(relation);
+    }
+  }
+
+  private void index(RelationalSymbolicValue relation) {
+    relations.add(relation);
+    relationsByOperand.computeIfAbsent(relation.leftOp, k -> new ArrayList<>()).add(relation);
+    if (!relation.hasSameOperand()) {
+      relationsByOperand.computeIfAbsent(relation.rightOp, k -> new ArrayList<>()).add(relation);
+    }
+  }
+
+  boolean contains(RelationalSymbolicValue relation) {
+    return relations.contains(relation) || (base != null && base.contains(relation));
+  }
+
+  public List<RelationalSymbolicValue> relationsOn(SymbolicValue operand) {
+    List<RelationalSymbolicValue> added = relationsByOperand.getOrDefault(operand, Collections.emptyList());
+    if (base == null) {
+      return added;
+    }
+    List<RelationalSymbolicValue> inBase = base.relationsOn(operand);
+    if (added.isEmpty()) {
+      return inBase;
+    }
+    if (inBase.isEmpty()) {
+      return added;
+    }
+    List<RelationalSymbolicValue> result = new ArrayList<>(inBase);
+    result.addAll(added);
+    return result;
+  }
+
+  Collection<RelationalSymbolicValue> relationsSharingAnOperandWith(RelationalSymbolicValue relation) {
+    List<RelationalSymbolicValue> onLeftOperand = relationsOn(relation.leftOp);
+    if (relation.hasSameOperand()) {
+      return onLeftOperand;
+    }
+    List<RelationalSymbolicValue> result = new ArrayList<>(onLeftOperand);
+    relationsOn(relation.rightOp).stream()
+      .filter(r -> !r.hasOperand(relation.leftOp))
+      .forEach(result::add);
+    return result;
+  }
+}
@@ -21,6 +21,7 @@ package org.sonar.java.se.symbolicvalues;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 
 import org.sonar.java.se.ProgramState;
@@ -35,10 +36,12 @@ import javax.annotation.Nullable;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -50,7 +53,17 @@ import static org.sonar.java.se.symbolicvalues.RelationalSymbolicValue.Kind.METH
 public class RelationalSymbolicValue extends BinarySymbolicValue {
 
   private static final int MAX_ITERATIONS = 10_000;
-  private static final int MAX_DEDUCED_RELATIONS = 100_000;
+  private static final int MAX_COMBINED_RELATIONS = 100_000;
+  /**
+   * Relations deduced from other relations, by kind and operands in this order: the same relations are deduced again and again
+   * on the paths of a method, they share one instance as long as it is used.
+   * The cache is shared by the threads of a parallel analysis: it is a concurrent map whose entries are computed atomically, and
+   * symbolic values have unique ids, so relations deduced by different threads never share operands and never collide.
+   */
+  private static final Map<List<Object>, RelationalSymbolicValue> DEDUCED_RELATIONS = CacheBuilder.newBuilder()
+    .weakValues()
+    .<List<Object>, RelationalSymbolicValue>build()
+    .asMap();
 
   public enum Kind {
     EQUAL("=="),
@@ -88,6 +101,11 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
   }
 
   final Kind kind;
+  /**
+   * Volatile: a relation interned by {@link #DEDUCED_RELATIONS} is reachable from every thread of a parallel analysis.
+   */
+  @Nullable
+  private volatile RelationalSymbolicValue inverse;
 
   public RelationalSymbolicValue(Kind kind) {
     this.kind = kind;
@@ -102,11 +120,11 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
 
   @Override
   public List<ProgramState> setConstraint(ProgramState initialProgramState, BooleanConstraint booleanConstraint) {
-    return setConstraint(initialProgramState, booleanConstraint, new HashSet<>(initialProgramState.knownRelations()));
+    return setConstraint(initialProgramState, booleanConstraint, initialProgramState.relationIndex().withMoreRelations());
   }
 
   @Override
-  protected List<ProgramState> setConstraint(ProgramState initialProgramState, Constraint constraint, Set<RelationalSymbolicValue> knownRelations) {
+  protected List<ProgramState> setConstraint(ProgramState initialProgramState, Constraint constraint, RelationIndex knownRelations) {
     if (constraint == BooleanConstraint.FALSE) {
       return inverse().setConstraint(initialProgramState, BooleanConstraint.TRUE, knownRelations);
     }
@@ -133,7 +151,7 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
   }
 
   private static List<ProgramState> getNewProgramStates(ProgramState initialProgramState, Set<RelationalSymbolicValue> newRelations,
-                                                        Set<RelationalSymbolicValue> knownRelations) {
+                                                        RelationIndex knownRelations) {
     List<ProgramState> programStates = new ArrayList<>();
     programStates.add(initialProgramState);
     for (RelationalSymbolicValue relationalSymbolicValue : newRelations) {
@@ -147,10 +165,17 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
   }
 
   RelationalSymbolicValue inverse() {
-    return new RelationalSymbolicValue(kind.inverse(), leftOp, rightOp);
+    if (inverse == null) {
+      inverse = deduced(kind.inverse(), leftOp, rightOp);
+    }
+    return inverse;
+  }
+
+  private static RelationalSymbolicValue deduced(Kind kind, SymbolicValue leftOp, SymbolicValue rightOp) {
+    return DEDUCED_RELATIONS.computeIfAbsent(ImmutableList.of(kind, leftOp, rightOp), k -> new RelationalSymbolicValue(kind, leftOp, rightOp));
   }
 
-  private List<ProgramState> copyAllConstraints(ProgramState initialState, Set<RelationalSymbolicValue> knownRelations) {
+  private List<ProgramState> copyAllConstraints(ProgramState initialState, RelationIndex knownRelations) {
     ProgramState programState = initialState;
     if (programState.canReach(leftOp) || programState.canReach(rightOp)) {
       programState = programState.addConstraint(this, BooleanConstraint.TRUE);
@@ -184,7 +209,7 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
     return copiedConstraints;
   }
 
-  private List<ProgramState> copyConstraintFromTo(SymbolicValue from, SymbolicValue to, ProgramState programState, Set<RelationalSymbolicValue> knownRelations) {
+  private List<ProgramState> copyConstraintFromTo(SymbolicValue from, SymbolicValue to, ProgramState programState, RelationIndex knownRelations) {
     List<ProgramState> states = new ArrayList<>();
     states.add(programState);
     ConstraintsByDomain leftConstraints = programState.getConstraints(from);
@@ -202,7 +227,7 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
     return states;
   }
 
-  private static List<ProgramState> applyConstraint(Constraint constraint, SymbolicValue to, List<ProgramState> states, Set<RelationalSymbolicValue> knownRelations) {
+  private static List<ProgramState> applyConstraint(Constraint constraint, SymbolicValue to, List<ProgramState> states, RelationIndex knownRelations) {
     List<ProgramState> newStates = new ArrayList<>();
     states.forEach(state -> newStates.addAll(to.setConstraint(state, constraint, knownRelations)));
     return newStates;
@@ -210,11 +235,15 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
 
   @VisibleForTesting
   RelationState resolveRelationState(Set<RelationalSymbolicValue> knownRelations) {
+    return resolveRelationState(new RelationIndex(knownRelations));
+  }
+
+  private RelationState resolveRelationState(RelationIndex knownRelations) {
     if (hasSameOperand()) {
       return relationStateForSameOperand();
     }
-
-    return knownRelations.stream()
+    // a relation can only be implied by a relation on the same operands
+    return knownRelations.relationsOn(leftOp).stream()
       .map(r -> r.implies(this))
       .filter(RelationState::isDetermined)
       .findAny().orElse(RelationState.UNDETERMINED);
@@ -250,19 +279,29 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
 
   @VisibleForTesting
   Set<RelationalSymbolicValue> transitiveRelations(Set<RelationalSymbolicValue> knownRelations) {
+    return transitiveRelations(new RelationIndex(knownRelations));
+  }
+
+  /**
+   * Only the known relations sharing an operand with a new relation can be combined with it: the cost of a new relation depends
+   * on the relations on its operands, not on all the known relations.
+   */
+  private Set<RelationalSymbolicValue> transitiveRelations(RelationIndex knownRelations) {
     Set<RelationalSymbolicValue> newRelations = new HashSet<>();
     Deque<RelationalSymbolicValue> workList = new ArrayDeque<>();
     int iterations = 0;
+    int combinedRelations = 0;
     workList.add(this);
     while (!workList.isEmpty()) {
-      int relationSize = newRelations.size() * knownRelations.size();
-      if (relationSize > MAX_DEDUCED_RELATIONS || iterations > MAX_ITERATIONS) {
+      if (combinedRelations > MAX_COMBINED_RELATIONS || iterations > MAX_ITERATIONS) {
         // safety mechanism in case of an error in the algorithm
-        throw new RelationalSymbolicValue.TransitiveRelationExceededException("Used relations: " + relationSize + ". Iterations " + iterations);
+        throw new RelationalSymbolicValue.TransitiveRelationExceededException("Combined relations: " + combinedRelations + ". Iterations " + iterations);
       }
       iterations++;
       RelationalSymbolicValue relation = workList.pop();
-      for (RelationalSymbolicValue knownRelation : knownRelations) {
+      Collection<RelationalSymbolicValue> candidates = knownRelations.relationsSharingAnOperandWith(relation);
+      combinedRelations += candidates.size();
+      for (RelationalSymbolicValue knownRelation : candidates) {
         RelationalSymbolicValue r = relation.deduceTransitiveOrSimplified(knownRelation);
         if (r != null && !knownRelations.contains(r) && newRelations.add(r)) {
           workList.add(r);
@@ -286,7 +325,7 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
     // a >= b && b >= a -> a == b
     if (kind == GREATER_THAN_OR_EQUAL && other.kind == GREATER_THAN_OR_EQUAL
       && hasSameOperandsAs(other) && !equals(other)) {
-      return new RelationalSymbolicValue(EQUAL, leftOp, rightOp);
+      return deduced(EQUAL, leftOp, rightOp);
     }
     return null;
   }
@@ -331,7 +370,7 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
       return null;
     }
 
-    return new RelationalSymbolicValue(other.kind,
+    return deduced(other.kind,
       hasOperand(other.leftOp) ? differentOperand(other) : other.leftOp,
       hasOperand(other.leftOp) ? other.rightOp : differentOperand(other));
   }
@@ -344,21 +383,21 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
     if (other.kind == LESS_THAN) {
       // a < x && x < b => a < b
       if (rightOp.equals(other.leftOp)) {
-        return new RelationalSymbolicValue(LESS_THAN, leftOp, other.rightOp);
+        return deduced(LESS_THAN, leftOp, other.rightOp);
       }
       // x < a && b < x => b < a
       if (leftOp.equals(other.rightOp)) {
-        return new RelationalSymbolicValue(LESS_THAN, other.leftOp, rightOp);
+        return deduced(LESS_THAN, other.leftOp, rightOp);
       }
     }
     if (other.kind == GREATER_THAN_OR_EQUAL) {
       // a < x && b >= x => a < b
       if (rightOp.equals(other.rightOp)) {
-        return new RelationalSymbolicValue(LESS_THAN, leftOp, other.leftOp);
+        return deduced(LESS_THAN, leftOp, other.leftOp);
       }
       // x < a && x >= b => b < a
       if (leftOp.equals(other.leftOp)) {
-        return new RelationalSymbolicValue(LESS_THAN, other.rightOp, rightOp);
+        return deduced(LESS_THAN, other.rightOp, rightOp);
       }
     }
     return null;
@@ -368,16 +407,16 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
   private RelationalSymbolicValue greaterThanEqualTransitiveBuilder(RelationalSymbolicValue other) {
     // a >= x && x >= b -> a >= b
     if (kind == GREATER_THAN_OR_EQUAL && other.kind == GREATER_THAN_OR_EQUAL && rightOp.equals(other.leftOp)) {
-      return new RelationalSymbolicValue(GREATER_THAN_OR_EQUAL, leftOp, other.rightOp);
+      return deduced(GREATER_THAN_OR_EQUAL, leftOp, other.rightOp);
     }
     return null;
   }
 
-  private boolean hasSameOperand() {
+  boolean hasSameOperand() {
     return leftOp.equals(rightOp);
   }
 
-  private boolean hasOperand(SymbolicValue operand) {
+  boolean hasOperand(SymbolicValue operand) {
     return leftOp.equals(operand) || rightOp.equals(operand);
   }
 
@@ -441,6 +480,9 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
     return symbol != null ? ("(" + symbol.toString() + ")") : "";
   }
 
+  /**
+   * Known relations indexed by their operands.
+   */
   public static class TransitiveRelationExceededException extends RuntimeException {
     public TransitiveRelationExceededException(String msg) {
       super("Number of transitive relations exceeded!" + msg);
@@ -24,7 +24,7 @@ import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.java.resolve.Symbols;
@@ -40,6 +40,9 @@ import org.sonar.plugins.java.api.semantic.Type;
 
 public class SymbolicValue {
 
+  // symbolic values are created by the threads executing methods of a file in parallel, initialized before the literals below
+  private static final AtomicInteger ID_GENERATOR = new AtomicInteger();
+
   public static final SymbolicValue NULL_LITERAL = new SymbolicValue() {
 
     @Override
@@ -81,12 +84,10 @@ public class SymbolicValue {
     FALSE_LITERAL
   );
 
-  private static int idGenerator;
   private final int id;
 
   public SymbolicValue() {
-    id = idGenerator;
-    idGenerator++;
+    id = ID_GENERATOR.getAndIncrement();
   }
 
   @Override
@@ -181,7 +182,7 @@ public class SymbolicValue {
     return states.get(0);
   }
 
-  protected List<ProgramState> setConstraint(ProgramState state, Constraint constraint, Set<RelationalSymbolicValue> knownRelations) {
+  protected List<ProgramState> setConstraint(ProgramState state, Constraint constraint, RelationIndex knownRelations) {
     return setConstraint(state, constraint);
   }
 
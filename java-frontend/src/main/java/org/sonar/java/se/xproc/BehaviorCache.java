@@ -21,6 +21,9 @@ package org.sonar.java.se.xproc;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
@@ -34,6 +37,11 @@ import org.sonar.java.se.SymbolicExecutionVisitor;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.MethodTree;
 
+/**
+ * Behaviors of the methods invoked by the methods of the analyzed file, computed on demand from their source code or their bytecode.
+ * The cache is shared by the threads executing methods of a file in parallel: a behavior is computed by a single thread,
+ * the other threads needing it wait for the end of its computation (see {@link #startExecution(MethodBehavior)}).
+ */
 public class BehaviorCache {
 
   private final SquidClassLoader classLoader;
@@ -41,8 +49,18 @@ public class BehaviorCache {
   private  SymbolicExecutionVisitor sev;
   private Sema semanticModel;
   @VisibleForTesting
-  public final Map<String, MethodBehavior> behaviors = new LinkedHashMap<>();
-  private final Map<String, MethodBehavior> bytecodeBehaviors = new LinkedHashMap<>();
+  public final Map<String, MethodBehavior> behaviors = Collections.synchronizedMap(new LinkedHashMap<>());
+  private final Map<String, MethodBehavior> bytecodeBehaviors = Collections.synchronizedMap(new LinkedHashMap<>());
+  @Nullable
+  private PersistentBehaviorCache persistentCache;
+  /**
+   * Behaviors being computed, mapped to the thread computing them. Also used as lock for the executions.
+   */
+  private final Map<MethodBehavior, Thread> executions = new IdentityHashMap<>();
+  /**
+   * Threads waiting for the end of the computation of a behavior by another thread.
+   */
+  private final Map<Thread, MethodBehavior> awaitedExecutions = new HashMap<>();
 
   // methods known to be well covered using bytecode-generated behavior
   private static final Set<String> WHITELIST = ImmutableSet.of(
@@ -107,6 +125,13 @@ public class BehaviorCache {
     this.crossFileEnabled = crossFileEnabled;
   }
 
+  /**
+   * @param persistentCache cache of the behaviors computed from bytecode by the previous analyses, where the computed behaviors are stored
+   */
+  public void setPersistentCache(@Nullable PersistentBehaviorCache persistentCache) {
+    this.persistentCache = persistentCache;
+  }
+
   public void setFileContext(@Nullable SymbolicExecutionVisitor sev,@Nullable Sema semanticModel) {
     this.sev = sev;
     this.semanticModel = semanticModel;
@@ -140,13 +165,13 @@ public class BehaviorCache {
   private MethodBehavior get(String signature, @Nullable Symbol.MethodSymbol symbol) {
     MethodBehavior mb = behaviors.get(signature);
     if(mb != null) {
-      return mb;
+      return awaitExecution(mb);
     }
     if (symbol != null) {
       MethodTree declaration = symbol.declaration();
       if (SymbolicExecutionVisitor.methodCanNotBeOverriden(symbol) && declaration != null) {
         sev.execute(declaration);
-        return behaviors.get(signature);
+        return awaitExecution(behaviors.get(signature));
       }
     }
 
@@ -155,10 +180,107 @@ public class BehaviorCache {
       return null;
     }
 
-    if (!bytecodeBehaviors.containsKey(signature)) {
-      new BytecodeEGWalker(this, semanticModel).getMethodBehavior(signature, classLoader);
+    if (!bytecodeBehaviors.containsKey(signature) && !restoreBytecodeBehavior(signature)) {
+      MethodBehavior behavior = new BytecodeEGWalker(this, semanticModel).getMethodBehavior(signature, classLoader);
+      storeBytecodeBehavior(behavior);
     }
-    return bytecodeBehaviors.get(signature);
+    return awaitExecution(bytecodeBehaviors.get(signature));
+  }
+
+  private boolean restoreBytecodeBehavior(String signature) {
+    if (persistentCache == null) {
+      return false;
+    }
+    MethodBehavior behavior = persistentCache.read(signature, classLoader);
+    if (behavior == null) {
+      return false;
+    }
+    bytecodeBehaviors.putIfAbsent(signature, behavior);
+    return true;
+  }
+
+  /**
+   * Behaviors still computed by another thread, or by this thread itself for recursive methods, are stored by the thread computing them.
+   */
+  private void storeBytecodeBehavior(@Nullable MethodBehavior behavior) {
+    if (persistentCache == null || behavior == null) {
+      return;
+    }
+    synchronized (executions) {
+      if (!behavior.isVisited() || executions.containsKey(behavior)) {
+        return;
+      }
+    }
+    persistentCache.write(behavior, classLoader);
+  }
+
+  /**
+   * Marks the behavior as being computed by the current thread, until {@link #endExecution(MethodBehavior)}.
+   * When the behavior is being computed by another thread, waits for the end of its computation first.
+   *
+   * @return true when the current thread has to compute the behavior, false when it is already visited or being computed
+   */
+  public boolean startExecution(MethodBehavior behavior) {
+    synchronized (executions) {
+      awaitExecution(behavior);
+      if (behavior.isVisited() || executions.containsKey(behavior)) {
+        return false;
+      }
+      executions.put(behavior, Thread.currentThread());
+      return true;
+    }
+  }
+
+  public void endExecution(MethodBehavior behavior) {
+    synchronized (executions) {
+      executions.remove(behavior);
+      executions.notifyAll();
+    }
+  }
+
+  /**
+   * Waits for the end of the computation of the behavior by another thread, unless this thread is itself waiting, directly or not,
+   * for a behavior computed by the current thread (mutually recursive methods executed by different threads): the behavior is then
+   * returned incomplete, as it is when a method being executed is reached again by a recursive call.
+   */
+  @Nullable
+  private MethodBehavior awaitExecution(@Nullable MethodBehavior behavior) {
+    if (behavior == null) {
+      return null;
+    }
+    Thread currentThread = Thread.currentThread();
+    synchronized (executions) {
+      Thread executingThread = executions.get(behavior);
+      while (executingThread != null && executingThread != currentThread && !isWaitingFor(executingThread, currentThread)) {
+        awaitedExecutions.put(currentThread, behavior);
+        try {
+          executions.wait();
+        } catch (InterruptedException e) {
+          currentThread.interrupt();
+          throw new IllegalStateException("Interrupted while waiting for the behavior of " + behavior.signature(), e);
+        } finally {
+          awaitedExecutions.remove(currentThread);
+        }
+        executingThread = executions.get(behavior);
+      }
+    }
+    return behavior;
+  }
+
+  private boolean isWaitingFor(Thread thread, Thread executingThread) {
+    Thread waitingThread = thread;
+    MethodBehavior awaitedBehavior = awaitedExecutions.get(waitingThread);
+    while (awaitedBehavior != null) {
+      waitingThread = executions.get(awaitedBehavior);
+      if (waitingThread == null) {
+        return false;
+      }
+      if (waitingThread == executingThread) {
+        return true;
+      }
+      awaitedBehavior = awaitedExecutions.get(waitingThread);
+    }
+    return false;
   }
 
   /**
@@ -61,6 +61,11 @@ public class ExceptionalYield extends MethodYield {
     this.exceptionType = exceptionType;
   }
 
+  @Nullable
+  String exceptionTypeName() {
+    return exceptionType;
+  }
+
   public Type exceptionType(Sema semanticModel) {
     if (exceptionType == null) {
       return Symbols.unknownType;
@@ -279,6 +279,14 @@ public class MethodBehavior {
         || constraints.hasConstraint(DivisionByZeroCheck.ZeroConstraint.ZERO));
   }
 
+  /**
+   * Marks a behavior restored from the {@link PersistentBehaviorCache} as visited, its yields being already reduced.
+   */
+  void restored(boolean complete) {
+    this.complete = complete;
+    this.visited = true;
+  }
+
   public boolean isVisited() {
     return visited;
   }
@@ -0,0 +1,447 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se.xproc;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.resolve.Convert;
+import org.sonar.java.se.constraint.Constraint;
+import org.sonar.java.se.constraint.ConstraintsByDomain;
+import org.sonar.java.se.constraint.TypedConstraint;
+
+/**
+ * Persistent cache of the behaviors of methods computed from their bytecode, reused by the next analyses instead of executing
+ * the bytecode of the methods again.
+ * <p>
+ * Behaviors are stored by jar, in an entry named after the checksum of the jar declaring the class of the method and the version
+ * of the analyzer which computed them: jars are not expected to change without their checksum changing. Classes read from the module image of a JDK are identified by its
+ * release file and by the size and modification time of the image, and classes of directories are never cached.
+ * Entries are read once, the first time a method of their jar is invoked, and written at the end of the analysis when new
+ * behaviors were computed. Only behaviors whose constraints can be restored by the next analyses are cached.
+ * <p>
+ * The cache is enabled by {@code sonar.java.analysis.behaviorCache}, and located in the directory set by
+ * {@code sonar.java.analysis.cacheDirectory} when set, see {@link org.sonar.java.SonarComponents#behaviorCacheDirectory()}.
+ * It is shared by the analysis threads.
+ */
+public class PersistentBehaviorCache {
+
+  private static final Logger LOG = Loggers.get(PersistentBehaviorCache.class);
+
+  static final int FORMAT_VERSION = 1;
+  private static final String ANALYZER_VERSION = String.valueOf(PersistentBehaviorCache.class.getPackage().getImplementationVersion());
+
+  private final File directory;
+  /**
+   * Home of the JDK whose module image is read by the class loaders.
+   */
+  private final File jdkHome;
+  /**
+   * Checksums of the jars, empty when the classes of the jar are not cached.
+   */
+  private final Map<String, Optional<String>> checksums = new HashMap<>();
+  private final Map<String, HashMap<String, StoredBehavior>> entries = new HashMap<>();
+  private final Set<String> modifiedEntries = new HashSet<>();
+  private int restoredBehaviors;
+  private int storedBehaviors;
+
+  public PersistentBehaviorCache(File directory) {
+    this(directory, null);
+  }
+
+  /**
+   * @param jdkHome home of the JDK whose classes are loaded by the class loaders, null for the JDK running the analysis
+   */
+  public PersistentBehaviorCache(File directory, @Nullable File jdkHome) {
+    this.directory = directory;
+    this.jdkHome = jdkHome == null ? new File(System.getProperty("java.home")) : jdkHome;
+  }
+
+  /**
+   * @return behavior computed by a previous analysis, null if the method is unknown or not cached
+   */
+  @CheckForNull
+  public synchronized MethodBehavior read(String signature, SquidClassLoader classLoader) {
+    String checksum = checksum(signature, classLoader);
+    if (checksum == null) {
+      return null;
+    }
+    Map<String, StoredBehavior> entry = entry(checksum);
+    StoredBehavior stored = entry.get(signature);
+    if (stored == null) {
+      return null;
+    }
+    try {
+      MethodBehavior behavior = stored.restore(signature);
+      restoredBehaviors++;
+      return behavior;
+    } catch (ReflectiveOperationException | IllegalArgumentException | ClassCastException e) {
+      LOG.debug("Unable to restore the behavior of {}", signature, e);
+      entry.remove(signature);
+      return null;
+    }
+  }
+
+  /**
+   * Stores the behavior, computed from the bytecode of the method by the current analysis.
+   */
+  public synchronized void write(MethodBehavior behavior, SquidClassLoader classLoader) {
+    String signature = behavior.signature();
+    String checksum = checksum(signature, classLoader);
+    if (checksum == null) {
+      return;
+    }
+    Map<String, StoredBehavior> entry = entry(checksum);
+    if (entry.containsKey(signature)) {
+      return;
+    }
+    StoredBehavior stored = StoredBehavior.of(behavior);
+    if (stored != null) {
+      entry.put(signature, stored);
+      modifiedEntries.add(checksum);
+      storedBehaviors++;
+    }
+  }
+
+  /**
+   * @return name of the entry of the jar declaring the class of the method, null if the behaviors of its methods are not cached
+   */
+  @CheckForNull
+  private String checksum(String signature, SquidClassLoader classLoader) {
+    String jar = jar(signature, classLoader);
+    if (jar == null) {
+      return null;
+    }
+    return checksums.computeIfAbsent(jar, this::checksum).orElse(null);
+  }
+
+  private Map<String, StoredBehavior> entry(String checksum) {
+    return entries.computeIfAbsent(checksum, this::readEntry);
+  }
+
+  /**
+   * @return location of the jar of the class declaring the method, null for a class of a directory or an unknown class
+   */
+  @CheckForNull
+  private static String jar(String signature, SquidClassLoader classLoader) {
+    int classNameEnd = signature.indexOf('#');
+    if (classNameEnd < 0) {
+      return null;
+    }
+    URL url = classLoader.getResource(Convert.bytecodeName(signature.substring(0, classNameEnd)) + ".class");
+    if (url == null) {
+      return null;
+    }
+    String location = url.toString();
+    if ("jrt".equals(url.getProtocol())) {
+      return "jrt:";
+    }
+    int separator = location.indexOf("!/");
+    if (!"jar".equals(url.getProtocol()) || separator < 0) {
+      return null;
+    }
+    return location.substring("jar:".length(), separator);
+  }
+
+  private Optional<String> checksum(String jar) {
+    if ("jrt:".equals(jar)) {
+      return jdkImageChecksum().map(PersistentBehaviorCache::entryName);
+    }
+    try {
+      // jars of the classpath are located by a path, other class loaders locate them by an URL
+      File file = jar.startsWith("file:") ? Paths.get(new URL(jar).toURI()).toFile() : new File(jar);
+      return Optional.of(entryName(com.google.common.io.Files.asByteSource(file).hash(Hashing.sha256()).toString()));
+    } catch (IOException | URISyntaxException | RuntimeException e) {
+      LOG.debug("Unable to compute the checksum of {}, behaviors of its methods will not be cached", jar, e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Behaviors computed by other versions of the analyzer may differ, they are stored in other entries.
+   */
+  private static String entryName(String checksum) {
+    return Hashing.sha256().newHasher()
+      .putInt(FORMAT_VERSION)
+      .putString(ANALYZER_VERSION, StandardCharsets.UTF_8)
+      .putString(checksum, StandardCharsets.UTF_8)
+      .hash().toString();
+  }
+
+  /**
+   * The module image is too large to be hashed at each analysis, it is identified by the release of its JDK, and by its size and
+   * modification time so that images of different builds of a same release do not share their entries.
+   */
+  private Optional<String> jdkImageChecksum() {
+    File modules = new File(jdkHome, "lib/modules");
+    if (!modules.isFile()) {
+      LOG.debug("No module image in {}, behaviors of the methods of the JDK will not be cached", jdkHome);
+      return Optional.empty();
+    }
+    Hasher hasher = Hashing.sha256().newHasher().putString("jrt:", StandardCharsets.UTF_8);
+    File release = new File(jdkHome, "release");
+    try {
+      if (release.isFile()) {
+        hasher.putBytes(Files.readAllBytes(release.toPath()));
+      }
+    } catch (IOException e) {
+      LOG.debug("Unable to read {}, behaviors of the methods of the JDK will not be cached", release, e);
+      return Optional.empty();
+    }
+    return Optional.of(hasher.putLong(modules.length()).putLong(modules.lastModified()).hash().toString());
+  }
+
+  @SuppressWarnings("unchecked")
+  private HashMap<String, StoredBehavior> readEntry(String checksum) {
+    Path entry = directory.toPath().resolve(checksum);
+    if (!Files.isRegularFile(entry)) {
+      return new HashMap<>();
+    }
+    try (ObjectInputStream input = new EntryInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+      if (input.readInt() == FORMAT_VERSION) {
+        return (HashMap<String, StoredBehavior>) input.readObject();
+      }
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      LOG.debug("Unable to read entry {} of the behavior cache", entry, e);
+    }
+    return new HashMap<>();
+  }
+
+  /**
+   * Writes the entries of the jars having new behaviors.
+   */
+  public synchronized void save() {
+    for (String checksum : modifiedEntries) {
+      Path entry = directory.toPath().resolve(checksum);
+      Path temporaryEntry = directory.toPath().resolve(checksum + ".tmp");
+      try {
+        Files.createDirectories(directory.toPath());
+        try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryEntry)))) {
+          output.writeInt(FORMAT_VERSION);
+          output.writeObject(entries.get(checksum));
+        }
+        Files.move(temporaryEntry, entry, StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException e) {
+        LOG.debug("Unable to write entry {} of the behavior cache", entry, e);
+      }
+    }
+    modifiedEntries.clear();
+    LOG.debug("Behaviors of bytecode methods: {} read from the behavior cache, {} added", restoredBehaviors, storedBehaviors);
+  }
+
+  /**
+   * Deserializes only the classes of the stored behaviors, the directory of the cache being possibly shared.
+   */
+  private static class EntryInputStream extends ObjectInputStream {
+    private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(
+      HashMap.class.getName(),
+      ArrayList.class.getName(),
+      String.class.getName(),
+      StoredBehavior.class.getName(),
+      StoredYield.class.getName()));
+
+    EntryInputStream(InputStream input) throws IOException {
+      super(input);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass descriptor) throws IOException, ClassNotFoundException {
+      if (!ALLOWED_CLASSES.contains(descriptor.getName())) {
+        throw new InvalidClassException(descriptor.getName(), "Unexpected class in the behavior cache");
+      }
+      return super.resolveClass(descriptor);
+    }
+
+    @Override
+    protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+      throw new InvalidClassException("Unexpected proxy class in the behavior cache");
+    }
+  }
+
+  private static class StoredBehavior implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean varArgs;
+    private final boolean complete;
+    private final ArrayList<String> declaredExceptions;
+    private final ArrayList<StoredYield> yields;
+
+    private StoredBehavior(MethodBehavior behavior, ArrayList<StoredYield> yields) {
+      this.varArgs = behavior.isMethodVarArgs();
+      this.complete = behavior.isComplete();
+      this.declaredExceptions = new ArrayList<>(behavior.getDeclaredExceptions());
+      this.yields = yields;
+    }
+
+    @CheckForNull
+    static StoredBehavior of(MethodBehavior behavior) {
+      ArrayList<StoredYield> yields = new ArrayList<>();
+      for (MethodYield yield : behavior.yields) {
+        StoredYield stored = StoredYield.of(yield);
+        if (stored == null) {
+          return null;
+        }
+        yields.add(stored);
+      }
+      return new StoredBehavior(behavior, yields);
+    }
+
+    MethodBehavior restore(String signature) throws ReflectiveOperationException {
+      MethodBehavior behavior = new MethodBehavior(signature, varArgs);
+      behavior.setDeclaredExceptions(new ArrayList<>(declaredExceptions));
+      for (StoredYield yield : yields) {
+        behavior.yields.add(yield.restore(behavior));
+      }
+      behavior.restored(complete);
+      return behavior;
+    }
+  }
+
+  private static class StoredYield implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final ArrayList<ArrayList<String>> parametersConstraints;
+    private final boolean exceptional;
+    @Nullable
+    private final String exceptionType;
+    private final int resultIndex;
+    @Nullable
+    private final ArrayList<String> resultConstraint;
+
+    private StoredYield(ArrayList<ArrayList<String>> parametersConstraints, boolean exceptional, @Nullable String exceptionType, int resultIndex,
+      @Nullable ArrayList<String> resultConstraint) {
+      this.parametersConstraints = parametersConstraints;
+      this.exceptional = exceptional;
+      this.exceptionType = exceptionType;
+      this.resultIndex = resultIndex;
+      this.resultConstraint = resultConstraint;
+    }
+
+    @CheckForNull
+    static StoredYield of(MethodYield yield) {
+      if (yield instanceof ExceptionalCheckBasedYield) {
+        return null;
+      }
+      ArrayList<ArrayList<String>> parametersConstraints = new ArrayList<>();
+      for (ConstraintsByDomain constraints : yield.parametersConstraints) {
+        ArrayList<String> stored = store(constraints);
+        if (stored == null) {
+          return null;
+        }
+        parametersConstraints.add(stored);
+      }
+      if (yield instanceof ExceptionalYield) {
+        return new StoredYield(parametersConstraints, true, ((ExceptionalYield) yield).exceptionTypeName(), -1, null);
+      }
+      HappyPathYield happyPathYield = (HappyPathYield) yield;
+      ConstraintsByDomain resultConstraint = happyPathYield.resultConstraint();
+      ArrayList<String> storedResultConstraint = null;
+      if (resultConstraint != null) {
+        storedResultConstraint = store(resultConstraint);
+        if (storedResultConstraint == null) {
+          return null;
+        }
+      }
+      return new StoredYield(parametersConstraints, false, null, happyPathYield.resultIndex(), storedResultConstraint);
+    }
+
+    MethodYield restore(MethodBehavior behavior) throws ReflectiveOperationException {
+      MethodYield yield;
+      if (exceptional) {
+        ExceptionalYield exceptionalYield = new ExceptionalYield(behavior);
+        exceptionalYield.setExceptionType(exceptionType);
+        yield = exceptionalYield;
+      } else {
+        HappyPathYield happyPathYield = new HappyPathYield(behavior);
+        happyPathYield.setResult(resultIndex, resultConstraint == null ? null : restore(resultConstraint));
+        yield = happyPathYield;
+      }
+      for (List<String> constraints : parametersConstraints) {
+        yield.parametersConstraints.add(restore(constraints));
+      }
+      return yield;
+    }
+
+    /**
+     * Constraints are stored as the names of the constants of their enum, or as their type for typed constraints.
+     *
+     * @return null if one of the constraints can not be stored
+     */
+    @CheckForNull
+    private static ArrayList<String> store(ConstraintsByDomain constraints) {
+      ArrayList<String> result = new ArrayList<>();
+      constraints.forEach((domain, constraint) -> {
+        if (constraint instanceof Enum) {
+          Enum<?> constant = (Enum<?>) constraint;
+          result.add(constant.getDeclaringClass().getName() + "#" + constant.name());
+        } else if (constraint.getClass() == TypedConstraint.class) {
+          result.add(":" + ((TypedConstraint) constraint).type);
+        } else {
+          result.add(null);
+        }
+      });
+      return result.contains(null) ? null : result;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ConstraintsByDomain restore(List<String> constraints) throws ReflectiveOperationException {
+      ConstraintsByDomain result = ConstraintsByDomain.empty();
+      for (String constraint : constraints) {
+        if (constraint.startsWith(":")) {
+          result = result.put(new TypedConstraint(constraint.substring(1)));
+        } else {
+          int separator = constraint.indexOf('#');
+          Class enumClass = Class.forName(constraint.substring(0, separator), false, PersistentBehaviorCache.class.getClassLoader());
+          result = result.put((Constraint) Enum.valueOf(enumClass, constraint.substring(separator + 1)));
+        }
+      }
+      return result;
+    }
+  }
+}
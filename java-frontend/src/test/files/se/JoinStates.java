@@ -0,0 +1,37 @@
+abstract class A {
+
+  abstract boolean b();
+
+  abstract void c(Object o);
+
+  void variableDeadInOneBranch(boolean p) {
+    boolean x = b();
+    if (x) {
+      c(1);
+    } else {
+      c(2);
+    }
+    if (p) {
+      c(x);
+    } else {
+      c(3);
+      c(4);
+      c(5);
+    }
+    Object o = null;
+    if (p) {
+      o.toString(); // Noncompliant
+    }
+  }
+
+  void variablesDeadInLoops(int n) {
+    for (int i = 0; i < n; i++) {
+      Object o = b() ? null : "";
+      if (b()) {
+        c(o);
+      } else {
+        c(i);
+      }
+    }
+  }
+}
@@ -0,0 +1,315 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.issue.Issue;
+import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
+import org.sonar.api.issue.NoSonarFilter;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.scan.issue.filter.FilterableIssue;
+import org.sonar.api.scan.issue.filter.IssueFilterChain;
+import org.sonar.check.RuleProperty;
+import org.sonar.java.filters.SonarJavaIssueFilter;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.model.VisitorsBridge;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.JavaResourceLocator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AnalysisCacheTest {
+
+  private static final String FINGERPRINT = "fingerprint";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File directory;
+  private InputFile inputFile;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = temp.newFolder();
+    inputFile = new TestInputFileBuilder("module", "A.java")
+      .setContents("class A {\n  int field;\n}\n")
+      .setCharset(StandardCharsets.UTF_8)
+      .build();
+  }
+
+  @Test
+  public void fingerprint_depends_on_rules_parameters_java_version_and_jars() throws IOException {
+    ParameterizedCheck check = new ParameterizedCheck();
+    File jar = temp.newFile("lib.jar");
+    File classesDirectory = temp.newFolder("classes");
+    List<File> classpath = Arrays.asList(jar, classesDirectory);
+    String fingerprint = AnalysisCache.fingerprint(Collections.singletonList(check), classpath, new JavaVersionImpl(8), false);
+
+    assertThat(AnalysisCache.fingerprint(Collections.singletonList(new ParameterizedCheck()), classpath, new JavaVersionImpl(8), false)).isEqualTo(fingerprint);
+    assertThat(AnalysisCache.fingerprint(Collections.singletonList(check), classpath, new JavaVersionImpl(11), false)).isNotEqualTo(fingerprint);
+    assertThat(AnalysisCache.fingerprint(Collections.singletonList(check), classpath, new JavaVersionImpl(8), true)).isNotEqualTo(fingerprint);
+    assertThat(AnalysisCache.fingerprint(Collections.emptyList(), classpath, new JavaVersionImpl(8), false)).isNotEqualTo(fingerprint);
+
+    // classes directories are identified by their files
+    File classFile = new File(classesDirectory, "org/A.class");
+    assertThat(classFile.getParentFile().mkdirs()).isTrue();
+    Files.write(classFile.toPath(), new byte[] {1});
+    String fingerprintWithNewClass = AnalysisCache.fingerprint(Collections.singletonList(check), classpath, new JavaVersionImpl(8), false);
+    assertThat(fingerprintWithNewClass).isNotEqualTo(fingerprint);
+    Files.write(classFile.toPath(), new byte[] {1, 2});
+    String fingerprintWithChangedClass = AnalysisCache.fingerprint(Collections.singletonList(check), classpath, new JavaVersionImpl(8), false);
+    assertThat(fingerprintWithChangedClass).isNotEqualTo(fingerprintWithNewClass);
+
+    Files.write(jar.toPath(), new byte[] {1, 2, 3});
+    String fingerprintWithNewJar = AnalysisCache.fingerprint(Collections.singletonList(check), classpath, new JavaVersionImpl(8), false);
+    assertThat(fingerprintWithNewJar).isNotEqualTo(fingerprintWithChangedClass);
+
+    check.max = 42;
+    assertThat(AnalysisCache.fingerprint(Collections.singletonList(check), classpath, new JavaVersionImpl(8), false)).isNotEqualTo(fingerprintWithNewJar);
+  }
+
+  @Test
+  public void fingerprint_ignores_visitors_wrapped_in_lambdas() {
+    JavaFileScanner lambda = context -> {
+    };
+    assertThat(AnalysisCache.fingerprint(Collections.singletonList(lambda), Collections.emptyList(), new JavaVersionImpl(), false))
+      .isEqualTo(AnalysisCache.fingerprint(Collections.emptyList(), Collections.emptyList(), new JavaVersionImpl(), false));
+  }
+
+  @Test
+  public void entry_key_depends_on_fingerprint_and_file_content() {
+    AnalysisCache cache = new AnalysisCache(directory, mock(SonarComponents.class), null, mock(JavaResourceLocator.class), null);
+    InputFile changedFile = new TestInputFileBuilder("module", "A.java").setContents("class A {}").setCharset(StandardCharsets.UTF_8).build();
+
+    String entryKey = cache.entryKey(FINGERPRINT, inputFile);
+    assertThat(cache.entryKey(FINGERPRINT, inputFile)).isEqualTo(entryKey);
+    assertThat(cache.entryKey("other", inputFile)).isNotEqualTo(entryKey);
+    assertThat(cache.entryKey(FINGERPRINT, changedFile)).isNotEqualTo(entryKey);
+  }
+
+  @Test
+  public void results_are_replayed_on_sensor_context() {
+    SensorContextTester context = SensorContextTester.create(temp.getRoot());
+    context.fileSystem().add(inputFile);
+    AnalysisCache cache = new AnalysisCache(directory, sonarComponents(context), null, mock(JavaResourceLocator.class), null);
+    String entryKey = cache.entryKey(FINGERPRINT, inputFile);
+    assertThat(cache.read(entryKey)).isNull();
+    cache.write(entryKey, recordedResults(sonarComponents(context)));
+
+    SensorContextTester replayContext = SensorContextTester.create(temp.getRoot());
+    replayContext.fileSystem().add(inputFile);
+    FileLinesContext fileLinesContext = mock(FileLinesContext.class);
+    NoSonarFilter noSonarFilter = mock(NoSonarFilter.class);
+    DefaultJavaResourceLocator javaResourceLocator = new DefaultJavaResourceLocator(mock(JavaClasspath.class));
+    VisitorsBridge bridge = mock(VisitorsBridge.class);
+    AnalysisCache replayCache = new AnalysisCache(directory, sonarComponents(replayContext, fileLinesContext), new Measurer(replayContext, noSonarFilter),
+      javaResourceLocator, null);
+
+    FileResults results = replayCache.read(entryKey);
+    assertThat(results).isNotNull();
+    replayCache.replay(inputFile, results, bridge);
+
+    assertThat(replayContext.allIssues()).hasSize(1);
+    Issue issue = replayContext.allIssues().iterator().next();
+    assertThat(issue.ruleKey()).isEqualTo(RuleKey.of("java", "S1"));
+    assertThat(issue.primaryLocation().message()).isEqualTo("message");
+    assertThat(issue.primaryLocation().textRange().start().line()).isEqualTo(2);
+    assertThat(issue.gap()).isEqualTo(3.0);
+    assertThat(issue.flows()).hasSize(1);
+    assertThat(issue.flows().get(0).locations().get(0).message()).isEqualTo("flow");
+    assertThat(replayContext.allAnalysisErrors()).extracting(e -> e.message()).containsExactly("error");
+    assertThat(replayContext.measure(inputFile.key(), CoreMetrics.NCLOC).value()).isEqualTo(3);
+    assertThat(replayContext.highlightingTypeAt(inputFile.key(), 1, 1)).containsExactly(TypeOfText.KEYWORD);
+    assertThat(replayContext.referencesForSymbolAt(inputFile.key(), 2, 6)).hasSize(1);
+    verify(fileLinesContext).setIntValue(CoreMetrics.NCLOC_DATA_KEY, 1, 1);
+    verify(fileLinesContext).setStringValue("other", 2, "value");
+    verify(fileLinesContext).save();
+    verify(noSonarFilter).noSonarInFile(inputFile, Collections.singleton(2));
+    assertThat(javaResourceLocator.findResourceByClassName("A")).isSameAs(inputFile);
+    verify(bridge).restoreFileSummaries(inputFile, Collections.singletonMap("Check", "summary"));
+  }
+
+  @Test
+  public void issues_are_filtered_before_being_cached() {
+    SensorContextTester context = SensorContextTester.create(temp.getRoot());
+    AnalysisCache cache = new AnalysisCache(directory, sonarComponents(context), null, mock(JavaResourceLocator.class), new RejectingFilter());
+    String entryKey = cache.entryKey(FINGERPRINT, inputFile);
+    FileResults results = new FileResults(inputFile);
+    results.addIssue(RuleKey.of("java", "S1"), new AnalyzerMessage(null, inputFile, 1, "kept", 0));
+    results.addIssue(RuleKey.of("java", "S2"), new AnalyzerMessage(null, inputFile, 1, "rejected", 0));
+    results.addIssue(RuleKey.of("java", "S2"), new AnalyzerMessage(null, inputFile, 2, "kept on other line", 0));
+
+    cache.write(entryKey, results);
+
+    assertThat(cache.read(entryKey).issues).extracting(issue -> issue.location.message).containsExactly("kept", "kept on other line");
+  }
+
+  @Test
+  public void incomplete_results_are_not_cached() {
+    AnalysisCache cache = new AnalysisCache(directory, mock(SonarComponents.class), null, mock(JavaResourceLocator.class), null);
+    String entryKey = cache.entryKey(FINGERPRINT, inputFile);
+    FileResults results = new FileResults(inputFile);
+    FileResults.record(results, () -> FileResults.ifRecording(FileResults::doNotCache));
+
+    cache.write(entryKey, results);
+
+    assertThat(cache.read(entryKey)).isNull();
+  }
+
+  @Test
+  public void issues_on_other_files_are_not_cached() {
+    FileResults results = new FileResults(inputFile);
+    results.addIssue(RuleKey.of("java", "S1"), new AnalyzerMessage(null, mock(InputFile.class), 1, "message", 0));
+    assertThat(results.isCacheable()).isFalse();
+  }
+
+  @Test
+  public void unreadable_entries_are_ignored() throws IOException {
+    AnalysisCache cache = new AnalysisCache(directory, mock(SonarComponents.class), null, mock(JavaResourceLocator.class), null);
+    String entryKey = cache.entryKey(FINGERPRINT, inputFile);
+    Files.write(directory.toPath().resolve(entryKey), new byte[] {1, 2, 3});
+
+    assertThat(cache.read(entryKey)).isNull();
+  }
+
+  @Test
+  public void only_expected_classes_are_deserialized() {
+    AnalysisCache cache = new AnalysisCache(directory, mock(SonarComponents.class), null, mock(JavaResourceLocator.class), null);
+    String entryKey = cache.entryKey(FINGERPRINT, inputFile);
+    FileResults results = recordedResults(sonarComponents(SensorContextTester.create(temp.getRoot())));
+    results.addEndOfAnalysisSummary(SummarizingCheck.class.getName(), new SummarizingCheck.Summary());
+    cache.write(entryKey, results);
+    assertThat(cache.read(entryKey).endOfAnalysisSummaries).containsKeys("Check", SummarizingCheck.class.getName());
+
+    results.addEndOfAnalysisSummary("Unexpected", new Date());
+    cache.write(entryKey, results);
+    assertThat(cache.read(entryKey)).isNull();
+  }
+
+  @Test
+  public void unused_entries_are_deleted() throws IOException {
+    AnalysisCache cache = new AnalysisCache(directory, mock(SonarComponents.class), null, mock(JavaResourceLocator.class), null);
+    String entryKey = cache.entryKey(FINGERPRINT, inputFile);
+    cache.write(entryKey, new FileResults(inputFile));
+    File unusedEntry = new File(directory, "unused");
+    Files.write(unusedEntry.toPath(), new byte[] {1});
+
+    cache.cleanup();
+
+    assertThat(directory.list()).containsExactly(entryKey);
+    new AnalysisCache(temp.getRoot().toPath().resolve("missing").toFile(), mock(SonarComponents.class), null, mock(JavaResourceLocator.class), null).cleanup();
+  }
+
+  private FileResults recordedResults(SonarComponents sonarComponents) {
+    FileResults results = new FileResults(inputFile);
+    FileResults.record(results, () -> {
+      AnalyzerMessage message = new AnalyzerMessage(null, inputFile, new AnalyzerMessage.TextSpan(2, 2, 2, 7), "message", 3);
+      message.flows.add(Collections.singletonList(new AnalyzerMessage(null, inputFile, new AnalyzerMessage.TextSpan(1, 0, 1, 5), "flow", 0)));
+      results.addIssue(RuleKey.of("java", "S1"), message);
+      sonarComponents.reportAnalysisError(inputFile, "error");
+      results.addMeasure(CoreMetrics.NCLOC_KEY, 3);
+      results.setNoSonarLines(Collections.singleton(2));
+      results.addClassNames(Collections.singleton("A"));
+      results.addEndOfAnalysisSummary("Check", "summary");
+      sonarComponents.highlightableFor(inputFile).highlight(1, 0, 1, 5, TypeOfText.KEYWORD).save();
+      NewSymbolTable symbolTable = sonarComponents.symbolizableFor(inputFile);
+      symbolTable.newSymbol(2, 6, 2, 11).newReference(3, 0, 3, 1);
+      symbolTable.save();
+      FileLinesContext fileLinesContext = sonarComponents.fileLinesContextFor(inputFile);
+      fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, 1, 1);
+      fileLinesContext.setStringValue("other", 2, "value");
+      fileLinesContext.save();
+    });
+    return results;
+  }
+
+  private static SonarComponents sonarComponents(SensorContextTester context) {
+    return sonarComponents(context, mock(FileLinesContext.class));
+  }
+
+  private static SonarComponents sonarComponents(SensorContextTester context, FileLinesContext fileLinesContext) {
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(fileLinesContext);
+    SonarComponents sonarComponents = new SonarComponents(fileLinesContextFactory, context.fileSystem(), null, null, null);
+    sonarComponents.setSensorContext(context);
+    return sonarComponents;
+  }
+
+  private static class ParameterizedCheck implements JavaCheck {
+    @RuleProperty(key = "max")
+    int max = 10;
+  }
+
+  private static class SummarizingCheck implements CacheableEndOfAnalysisCheck {
+    @Override
+    public Serializable fileSummary() {
+      return new Summary();
+    }
+
+    @Override
+    public void restoreFileSummary(JavaFileScannerContext context, Serializable summary) {
+      // nothing to restore
+    }
+
+    @Override
+    public void endOfAnalysis() {
+      // nothing to report
+    }
+
+    private static class Summary implements Serializable {
+      private static final long serialVersionUID = 1L;
+
+      private final ArrayList<String> values = new ArrayList<>(Collections.singletonList("value"));
+    }
+  }
+
+  private static class RejectingFilter implements SonarJavaIssueFilter {
+    @Override
+    public boolean accept(FilterableIssue issue, IssueFilterChain chain) {
+      return !("S2".equals(issue.ruleKey().rule()) && issue.line() == 1) && chain.accept(issue);
+    }
+  }
+}
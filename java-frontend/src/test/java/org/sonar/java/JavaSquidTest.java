@@ -22,20 +22,29 @@ package org.sonar.java;
 import com.google.common.io.Files;
 import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.rule.CheckFactory;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.internal.SonarRuntimeImpl;
 import org.sonar.api.issue.NoSonarFilter;
+import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.utils.Version;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -50,6 +59,8 @@ public class JavaSquidTest {
 
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public LogTester logTester = new LogTester();
 
   private FileLinesContext fileLinesContext;
   private JavaClasspath javaClasspath;
@@ -96,6 +107,124 @@ public class JavaSquidTest {
   }
 
 
+  @Test
+  public void parallel_analysis_saves_results_of_every_file() throws Exception {
+    File baseDir = temp.getRoot().getAbsoluteFile();
+    context = SensorContextTester.create(baseDir);
+    context.setSettings(new MapSettings().setProperty(SonarComponents.ANALYSIS_THREADS_KEY, 2));
+    List<InputFile> inputFiles = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      inputFiles.add(addFile("class A" + i + " {\n  void foo() {}\n}\n", "A" + i + ".java", context));
+    }
+    fileLinesContext = mock(FileLinesContext.class);
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(fileLinesContext);
+    sonarComponents = new SonarComponents(fileLinesContextFactory, context.fileSystem(), mock(JavaClasspath.class), mock(JavaTestClasspath.class), mock(CheckFactory.class));
+    sonarComponents.setSensorContext(context);
+    JavaResourceLocator javaResourceLocator = mock(JavaResourceLocator.class);
+
+    JavaSquid javaSquid = new JavaSquid(new JavaVersionImpl(), sonarComponents, new Measurer(context, mock(NoSonarFilter.class)), javaResourceLocator, null);
+    javaSquid.scan(inputFiles, Collections.emptyList(), Collections.emptyList());
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Java files will be analyzed by 2 threads");
+    verify(javaResourceLocator, times(4)).scanFile(any());
+    verify(fileLinesContext, times(4)).save();
+    for (InputFile inputFile : inputFiles) {
+      assertThat(context.measure(inputFile.key(), CoreMetrics.CLASSES).value()).isEqualTo(1);
+      assertThat(context.highlightingTypeAt(inputFile.key(), 1, 0)).isNotEmpty();
+    }
+  }
+
+  @Test
+  public void parallel_analysis_is_disabled_by_checks_which_can_not_be_copied() throws Exception {
+    context = SensorContextTester.create(temp.getRoot().getAbsoluteFile());
+    context.setSettings(new MapSettings().setProperty(SonarComponents.ANALYSIS_THREADS_KEY, 2));
+    sonarComponents = new SonarComponents(mock(FileLinesContextFactory.class), context.fileSystem(), mock(JavaClasspath.class), mock(JavaTestClasspath.class),
+      mock(CheckFactory.class));
+    sonarComponents.setSensorContext(context);
+    EndOfAnalysisCheck check = () -> { };
+
+    new JavaSquid(new JavaVersionImpl(), sonarComponents, null, mock(JavaResourceLocator.class), null, check);
+
+    assertThat(logTester.logs(LoggerLevel.WARN)).hasSize(1);
+    assertThat(logTester.logs(LoggerLevel.WARN).get(0)).startsWith("Java files will be analyzed sequentially: ").endsWith("can not merge results of parallel analysis");
+  }
+
+  @Test
+  public void analysis_cache_replays_results_of_unchanged_files() throws Exception {
+    File cacheDirectory = temp.newFolder();
+    File fileA = temp.newFile("A.java").getAbsoluteFile();
+    File fileB = temp.newFile("B.java").getAbsoluteFile();
+    Files.asCharSink(fileA, StandardCharsets.UTF_8).write("class A {\n  void foo() {}\n}\n");
+    Files.asCharSink(fileB, StandardCharsets.UTF_8).write("class B {\n}\n");
+
+    SummaryCheck check = scanWithCache(cacheDirectory, fileA, fileB);
+    assertThat(check.scannedFiles).containsExactly("A.java", "B.java");
+    assertThat(check.restoredSummaries).isEmpty();
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Results of 0 unchanged Java files replayed from the analysis cache, 2 files to analyze");
+
+    Files.asCharSink(fileB, StandardCharsets.UTF_8).write("class B {\n  void bar() {}\n}\n");
+    logTester.clear();
+    check = scanWithCache(cacheDirectory, fileA, fileB);
+    assertThat(check.scannedFiles).containsExactly("B.java");
+    assertThat(check.restoredSummaries).containsExactly("A.java");
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Results of 1 unchanged Java files replayed from the analysis cache, 1 files to analyze");
+    InputFile inputFileA = context.fileSystem().inputFile(context.fileSystem().predicates().hasFilename("A.java"));
+    assertThat(context.measure(inputFileA.key(), CoreMetrics.FUNCTIONS).value()).isEqualTo(1);
+    assertThat(context.highlightingTypeAt(inputFileA.key(), 1, 0)).isNotEmpty();
+    assertThat(context.referencesForSymbolAt(inputFileA.key(), 1, 6)).isNotNull();
+    verify(fileLinesContext, times(2)).save();
+  }
+
+  private SummaryCheck scanWithCache(File cacheDirectory, File... files) {
+    File baseDir = temp.getRoot().getAbsoluteFile();
+    context = SensorContextTester.create(baseDir);
+    context.setSettings(new MapSettings()
+      .setProperty(SonarComponents.ANALYSIS_CACHE_KEY, true)
+      .setProperty(SonarComponents.ANALYSIS_CACHE_DIRECTORY_KEY, cacheDirectory.getAbsolutePath()));
+    List<InputFile> inputFiles = new ArrayList<>();
+    for (File file : files) {
+      InputFile inputFile = TestUtils.inputFile(baseDir.getAbsolutePath(), file);
+      context.fileSystem().add(inputFile);
+      inputFiles.add(inputFile);
+    }
+    fileLinesContext = mock(FileLinesContext.class);
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(fileLinesContext);
+    sonarComponents = new SonarComponents(fileLinesContextFactory, context.fileSystem(), mock(JavaClasspath.class), mock(JavaTestClasspath.class), mock(CheckFactory.class));
+    sonarComponents.setSensorContext(context);
+    SummaryCheck check = new SummaryCheck();
+
+    JavaSquid javaSquid = new JavaSquid(new JavaVersionImpl(), sonarComponents, new Measurer(context, mock(NoSonarFilter.class)), mock(JavaResourceLocator.class), null, check);
+    javaSquid.scan(inputFiles, Collections.emptyList(), Collections.emptyList());
+    return check;
+  }
+
+  private static class SummaryCheck implements JavaFileScanner, CacheableEndOfAnalysisCheck {
+    private final List<String> scannedFiles = new ArrayList<>();
+    private final List<String> restoredSummaries = new ArrayList<>();
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      scannedFiles.add(context.getInputFile().filename());
+    }
+
+    @Override
+    public Serializable fileSummary() {
+      return scannedFiles.get(scannedFiles.size() - 1);
+    }
+
+    @Override
+    public void restoreFileSummary(JavaFileScannerContext context, Serializable summary) {
+      restoredSummaries.add((String) summary);
+    }
+
+    @Override
+    public void endOfAnalysis() {
+      // nothing to report
+    }
+  }
+
   private InputFile scanForErrors(String code) throws IOException {
     File baseDir = temp.getRoot().getAbsoluteFile();
     context = SensorContextTester.create(baseDir);
@@ -121,7 +250,11 @@ public class JavaSquidTest {
   }
 
   private InputFile addFile(String code, SensorContextTester context) throws IOException {
-    File file = temp.newFile("test.java").getAbsoluteFile();
+    return addFile(code, "test.java", context);
+  }
+
+  private InputFile addFile(String code, String filename, SensorContextTester context) throws IOException {
+    File file = temp.newFile(filename).getAbsoluteFile();
     Files.asCharSink(file, StandardCharsets.UTF_8).write(code);
     InputFile defaultFile = TestUtils.inputFile(context.fileSystem().baseDir().getAbsolutePath(), file);
     context.fileSystem().add(defaultFile);
@@ -30,6 +30,7 @@ import java.util.Collections;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -48,12 +49,17 @@ import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.batch.sensor.issue.Issue;
 import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.internal.SonarRuntimeImpl;
 import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.Version;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.check.Rule;
+import org.sonar.check.RuleProperty;
+import org.sonar.java.se.ExplorationStrategy;
 import org.sonar.plugins.java.api.CheckRegistrar;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.plugins.java.api.JspCodeVisitor;
@@ -79,6 +85,12 @@ public class SonarComponentsTest {
 
   private static final String REPOSITORY_NAME = "custom";
 
+  @org.junit.Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @org.junit.Rule
+  public LogTester logTester = new LogTester();
+
   @Mock
   private FileLinesContextFactory fileLinesContextFactory;
 
@@ -328,6 +340,209 @@ public class SonarComponentsTest {
     assertThat(sonarComponents.analysisCancelled()).isTrue();
   }
 
+  @Test
+  public void analysis_threads() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.analysisThreads()).isEqualTo(1);
+
+    context.setSettings(new MapSettings().setProperty(SonarComponents.ANALYSIS_THREADS_KEY, 4));
+    assertThat(sonarComponents.analysisThreads()).isEqualTo(4);
+
+    context.setSettings(new MapSettings().setProperty(SonarComponents.ANALYSIS_THREADS_KEY, 0));
+    assertThat(sonarComponents.analysisThreads()).isEqualTo(1);
+  }
+
+  @Test
+  public void symbolic_execution_threads() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.symbolicExecutionThreads()).isEqualTo(1);
+
+    context.setSettings(new MapSettings().setProperty(SonarComponents.SYMBOLIC_EXECUTION_THREADS_KEY, 4));
+    assertThat(sonarComponents.symbolicExecutionThreads()).isEqualTo(4);
+
+    context.setSettings(new MapSettings().setProperty(SonarComponents.SYMBOLIC_EXECUTION_THREADS_KEY, -2));
+    assertThat(sonarComponents.symbolicExecutionThreads()).isEqualTo(1);
+  }
+
+  @Test
+  public void symbolic_execution_strategy() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.symbolicExecutionStrategy()).isEqualTo(ExplorationStrategy.DEPTH_FIRST);
+
+    context.setSettings(new MapSettings().setProperty(SonarComponents.SYMBOLIC_EXECUTION_STRATEGY_KEY, "unvisited_program_points_first"));
+    assertThat(sonarComponents.symbolicExecutionStrategy()).isEqualTo(ExplorationStrategy.UNVISITED_PROGRAM_POINTS_FIRST);
+  }
+
+  @Test
+  public void unknown_symbolic_execution_strategy_is_reported_once() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.setSettings(new MapSettings().setProperty(SonarComponents.SYMBOLIC_EXECUTION_STRATEGY_KEY, "breadth_first"));
+    sonarComponents.setSensorContext(context);
+
+    assertThat(sonarComponents.symbolicExecutionStrategy()).isEqualTo(ExplorationStrategy.DEPTH_FIRST);
+    assertThat(sonarComponents.symbolicExecutionStrategy()).isEqualTo(ExplorationStrategy.DEPTH_FIRST);
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly("Invalid value 'breadth_first' of 'sonar.java.analysis.symbolicExecutionStrategy', "
+      + "expected one of: depth_first, unvisited_program_points_first. depth_first is used instead.");
+  }
+
+  @Test
+  public void symbolic_execution_join_states() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.shouldJoinSymbolicExecutionStates()).isFalse();
+
+    context.setSettings(new MapSettings().setProperty(SonarComponents.SYMBOLIC_EXECUTION_JOIN_STATES_KEY, true));
+    assertThat(sonarComponents.shouldJoinSymbolicExecutionStates()).isTrue();
+  }
+
+  @Test
+  public void batch_size() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.batchSize()).isEqualTo(1);
+
+    context.setSettings(new MapSettings().setProperty(SonarComponents.BATCH_SIZE_KEY, 50));
+    assertThat(sonarComponents.batchSize()).isEqualTo(50);
+  }
+
+  @Test
+  public void parser_threads() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.parserThreads()).isZero();
+
+    context.setSettings(new MapSettings().setProperty(SonarComponents.PARSER_THREADS_KEY, 3));
+    assertThat(sonarComponents.parserThreads()).isEqualTo(3);
+  }
+
+  @Test
+  public void profile_rules() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.shouldProfileRules()).isFalse();
+
+    context.setSettings(new MapSettings().setProperty(SonarComponents.PROFILE_RULES_KEY, true));
+    assertThat(sonarComponents.shouldProfileRules()).isTrue();
+  }
+
+  @Test
+  public void time_budgets() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.fileTimeBudget()).isZero();
+    assertThat(sonarComponents.ruleTimeBudget()).isZero();
+
+    context.setSettings(new MapSettings()
+      .setProperty(SonarComponents.FILE_TIME_BUDGET_KEY, 60_000)
+      .setProperty(SonarComponents.RULE_TIME_BUDGET_KEY, 10_000));
+    assertThat(sonarComponents.fileTimeBudget()).isEqualTo(60_000L);
+    assertThat(sonarComponents.ruleTimeBudget()).isEqualTo(10_000L);
+  }
+
+  @Test
+  public void analysis_cache() throws Exception {
+    File baseDir = temp.newFolder();
+    DefaultFileSystem fs = new DefaultFileSystem(baseDir).setWorkDir(temp.newFolder().toPath());
+    SonarComponents sonarComponents = new SonarComponents(null, fs, null, null, null);
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.isAnalysisCacheEnabled()).isFalse();
+    File directory = sonarComponents.analysisCacheDirectory();
+    assertThat(directory.getParentFile()).isEqualTo(new File(fs.workDir(), "java-analysis-cache"));
+
+    context.setSettings(new MapSettings()
+      .setProperty(SonarComponents.ANALYSIS_CACHE_KEY, true)
+      .setProperty(SonarComponents.ANALYSIS_CACHE_DIRECTORY_KEY, "cache"));
+    assertThat(sonarComponents.isAnalysisCacheEnabled()).isTrue();
+    assertThat(sonarComponents.analysisCacheDirectory()).isEqualTo(new File(new File(baseDir, "cache"), directory.getName()));
+
+    context.setRuntime(SonarRuntimeImpl.forSonarLint(V6_7));
+    assertThat(sonarComponents.isAnalysisCacheEnabled()).isFalse();
+  }
+
+  @Test
+  public void jdk_home() throws Exception {
+    File baseDir = temp.newFolder();
+    SonarComponents sonarComponents = new SonarComponents(null, new DefaultFileSystem(baseDir), null, null, null);
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.jdkHome()).isNull();
+
+    context.setSettings(new MapSettings().setProperty(SonarComponents.JDK_HOME_KEY, "jdk"));
+    assertThat(sonarComponents.jdkHome()).isEqualTo(new File(baseDir, "jdk"));
+  }
+
+  @Test
+  public void behavior_cache() throws Exception {
+    File baseDir = temp.newFolder();
+    DefaultFileSystem fs = new DefaultFileSystem(baseDir).setWorkDir(temp.newFolder().toPath());
+    SonarComponents sonarComponents = new SonarComponents(null, fs, null, null, null);
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.isBehaviorCacheEnabled()).isFalse();
+    assertThat(sonarComponents.behaviorCacheDirectory()).isEqualTo(new File(fs.workDir(), "java-behavior-cache"));
+
+    context.setSettings(new MapSettings()
+      .setProperty(SonarComponents.BEHAVIOR_CACHE_KEY, true)
+      .setProperty(SonarComponents.ANALYSIS_CACHE_DIRECTORY_KEY, "cache"));
+    assertThat(sonarComponents.isBehaviorCacheEnabled()).isTrue();
+    assertThat(sonarComponents.behaviorCacheDirectory()).isEqualTo(new File(new File(baseDir, "cache"), "java-behavior-cache"));
+
+    context.setRuntime(SonarRuntimeImpl.forSonarLint(V6_7));
+    assertThat(sonarComponents.isBehaviorCacheEnabled()).isFalse();
+  }
+
+  @Test
+  public void analysis_warnings() {
+    AnalysisWarningsWrapper analysisWarnings = mock(AnalysisWarningsWrapper.class);
+    JavaClasspath javaClasspath = new JavaClasspath(new MapSettings().asConfig(), new DefaultFileSystem(new File("")), analysisWarnings);
+    SonarComponents sonarComponents = new SonarComponents(null, null, javaClasspath, null, null);
+    sonarComponents.addAnalysisWarning("warning");
+    verify(analysisWarnings).addUnique("warning");
+
+    // no warning without classpath, as in tests
+    new SonarComponents(null, null, null, null, null).addAnalysisWarning("other warning");
+    verify(analysisWarnings, never()).addUnique("other warning");
+  }
+
+  @Test
+  public void copied_checks_report_issues_on_rule_of_original_check() {
+    ParameterizedCheck check = new ParameterizedCheck();
+    check.max = 42;
+    RuleKey ruleKey = RuleKey.of(REPOSITORY_NAME, "ParameterizedCheck");
+    when(checks.ruleKey(check)).thenReturn(ruleKey);
+    SonarComponents sonarComponents = new SonarComponents(fileLinesContextFactory, null, null, null, checkFactory, new CheckRegistrar[] {getRegistrar(check)});
+
+    JavaCheck copy = sonarComponents.copyCheck(check);
+    assertThat(copy).isNotSameAs(check).isInstanceOf(ParameterizedCheck.class);
+    assertThat(((ParameterizedCheck) copy).max).isEqualTo(42);
+    assertThat(sonarComponents.getRuleKey(copy)).isEqualTo(ruleKey);
+    assertThat(sonarComponents.getRuleKey(sonarComponents.copyCheck(copy))).isEqualTo(ruleKey);
+  }
+
+  @Test
+  public void checks_which_can_not_be_copied() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    assertThatThrownBy(() -> sonarComponents.copyCheck(new EndOfAnalysisCustomCheck()))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("can not merge results of parallel analysis");
+    assertThatThrownBy(() -> sonarComponents.copyCheck(new JavaCheck() { }))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageStartingWith("Unable to copy");
+  }
+
   @Test
   public void readFileContentFromInputFile() throws Exception {
     // read a file containing kanji set with correct encoding and expecting proper length of read input.
@@ -388,6 +603,17 @@ public class SonarComponentsTest {
   private static class CustomCheck implements JavaCheck { }
   private static class CustomTestCheck implements JavaCheck { }
 
+  private static class ParameterizedCheck implements JavaCheck {
+    @RuleProperty(key = "max")
+    int max = 10;
+  }
+
+  private static class EndOfAnalysisCustomCheck implements JavaCheck, EndOfAnalysisCheck {
+    @Override
+    public void endOfAnalysis() {
+    }
+  }
+
   @Test
   public void should_return_generated_code_visitors() throws Exception {
     ActiveRules activeRules = new ActiveRulesBuilder()
@@ -44,8 +44,11 @@ import org.sonar.api.utils.Version;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.java.AnalysisException;
+import org.sonar.java.EndOfAnalysisCheck;
 import org.sonar.java.ExceptionHandler;
 import org.sonar.java.Measurer;
+import org.sonar.java.MergeableEndOfAnalysisCheck;
+import org.sonar.java.SensorWrites;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.TestUtils;
 import org.sonar.java.cfg.CFG;
@@ -152,6 +155,118 @@ public class JavaAstScannerTest {
     verifyNoMoreInteractions(visitor);
   }
 
+  @Test
+  public void should_analyze_files_in_parallel_and_replay_writes_in_file_order() {
+    SonarComponents sonarComponents = new SonarComponents(null, context.fileSystem(), null, null, null);
+    sonarComponents.setSensorContext(context);
+    List<String> writes = new ArrayList<>();
+    WritingCheck check = new WritingCheck(writes);
+    WritingCheck workerCheck = new WritingCheck(writes);
+    JavaAstScanner scanner = new JavaAstScanner(sonarComponents);
+    scanner.setVisitorBridge(new VisitorsBridge(Collections.singletonList(check), new ArrayList<>(), sonarComponents));
+    scanner.setWorkerVisitorBridges(Collections.singletonList(new VisitorsBridge(Collections.singletonList(workerCheck), new ArrayList<>(), sonarComponents)));
+
+    List<InputFile> inputFiles = new ArrayList<>();
+    for (String file : Arrays.asList("Classes.java", "Methods.java", "Comments.java", "NoSonar.java", "Complexity.java")) {
+      inputFiles.add(TestUtils.inputFile("src/test/files/metrics/" + file));
+    }
+    scanner.scan(inputFiles);
+
+    assertThat(writes).containsExactly("Classes.java", "Methods.java", "Comments.java", "NoSonar.java", "Complexity.java");
+    assertThat(check.merged).containsExactly(workerCheck);
+    assertThat(check.scannedFiles).isEqualTo(5);
+    assertThat(check.endOfAnalysis).isTrue();
+    assertThat(workerCheck.endOfAnalysis).isFalse();
+  }
+
+  @Test
+  public void should_start_parallel_analysis_with_largest_files() {
+    List<List<InputFile>> batches = new ArrayList<>();
+    for (String file : Arrays.asList("Classes.java", "Comments.java", "NoSonar.java", "Methods.java", "CommentsFull.java")) {
+      batches.add(Collections.singletonList(TestUtils.inputFile("src/test/files/metrics/" + file)));
+    }
+    // lines of CommentsFull.java: 354, Methods.java: 39, Classes.java: 32, Comments.java: 19, NoSonar.java: 13
+    assertThat(JavaAstScanner.largestFirst(batches)).containsExactly(4, 3, 0, 1, 2);
+  }
+
+  @Test
+  public void should_replay_writes_in_file_order_when_a_large_file_is_analyzed_first() {
+    SonarComponents sonarComponents = new SonarComponents(null, context.fileSystem(), null, null, null);
+    sonarComponents.setSensorContext(context);
+    List<String> writes = new ArrayList<>();
+    JavaAstScanner scanner = new JavaAstScanner(sonarComponents);
+    scanner.setVisitorBridge(new VisitorsBridge(Collections.singletonList(new WritingCheck(writes)), new ArrayList<>(), sonarComponents));
+    scanner.setWorkerVisitorBridges(Collections.singletonList(new VisitorsBridge(Collections.singletonList(new WritingCheck(writes)), new ArrayList<>(), sonarComponents)));
+
+    List<InputFile> inputFiles = new ArrayList<>();
+    for (String file : Arrays.asList("Classes.java", "Comments.java", "NoSonar.java", "Methods.java", "CommentsFull.java")) {
+      inputFiles.add(TestUtils.inputFile("src/test/files/metrics/" + file));
+    }
+    scanner.scan(inputFiles);
+
+    assertThat(writes).containsExactly("Classes.java", "Comments.java", "NoSonar.java", "Methods.java", "CommentsFull.java");
+  }
+
+  @Test
+  public void should_log_analysis_time_of_each_file() {
+    logTester.setLevel(LoggerLevel.DEBUG);
+    InputFile inputFile = TestUtils.inputFile("src/test/files/metrics/NoSonar.java");
+    JavaAstScanner.scanSingleFileForTests(inputFile, new VisitorsBridge(new Measurer(context, mock(NoSonarFilter.class))));
+
+    assertThat(logTester.logs(LoggerLevel.DEBUG)
+      .stream().anyMatch(log -> log.matches("Analysis of file '.*NoSonar.java' \\(13 lines\\): \\d+ ms"))).isTrue();
+  }
+
+  @Test
+  public void should_scan_files_by_batch() {
+    context.setSettings(new MapSettings().setProperty(SonarComponents.BATCH_SIZE_KEY, 3));
+    SonarComponents sonarComponents = new SonarComponents(null, context.fileSystem(), null, null, null);
+    sonarComponents.setSensorContext(context);
+    List<String> writes = new ArrayList<>();
+    FakeAuditListener listener = spy(new FakeAuditListener());
+    JavaAstScanner scanner = new JavaAstScanner(sonarComponents);
+    scanner.setVisitorBridge(new VisitorsBridge(Arrays.asList(new WritingCheck(writes), listener), new ArrayList<>(), sonarComponents));
+
+    scanner.scan(Arrays.asList(
+      TestUtils.inputFile("src/test/files/metrics/Classes.java"),
+      TestUtils.inputFile("src/test/resources/AstScannerParseError.txt"),
+      TestUtils.inputFile("src/test/files/metrics/Methods.java"),
+      TestUtils.inputFile("src/test/files/metrics/Comments.java"),
+      TestUtils.inputFile("src/test/files/metrics/NoSonar.java")));
+
+    assertThat(writes).containsExactly("Classes.java", "AstScannerParseError.txt", "Methods.java", "Comments.java", "NoSonar.java");
+    verify(listener).processRecognitionException(any(RecognitionException.class));
+  }
+
+  @Test
+  public void should_parse_files_ahead_of_visit() {
+    for (int batchSize : new int[] {1, 2}) {
+      context = SensorContextTester.create(new File(""));
+      context.setSettings(new MapSettings()
+        .setProperty(SonarComponents.PARSER_THREADS_KEY, 2)
+        .setProperty(SonarComponents.BATCH_SIZE_KEY, batchSize));
+      SonarComponents sonarComponents = new SonarComponents(null, context.fileSystem(), null, null, null);
+      sonarComponents.setSensorContext(context);
+      List<String> writes = new ArrayList<>();
+      List<String> threads = new ArrayList<>();
+      FakeAuditListener listener = spy(new FakeAuditListener());
+      JavaFileScanner threadRecorder = c -> threads.add(Thread.currentThread().getName());
+      JavaAstScanner scanner = new JavaAstScanner(sonarComponents);
+      scanner.setVisitorBridge(new VisitorsBridge(Arrays.asList(new WritingCheck(writes), listener, threadRecorder), new ArrayList<>(), sonarComponents));
+
+      scanner.scan(Arrays.asList(
+        TestUtils.inputFile("src/test/files/metrics/Classes.java"),
+        TestUtils.inputFile("src/test/resources/AstScannerParseError.txt"),
+        TestUtils.inputFile("src/test/files/metrics/Methods.java"),
+        TestUtils.inputFile("src/test/files/metrics/Comments.java"),
+        TestUtils.inputFile("src/test/files/metrics/NoSonar.java")));
+
+      assertThat(writes).containsExactly("Classes.java", "AstScannerParseError.txt", "Methods.java", "Comments.java", "NoSonar.java");
+      assertThat(threads).hasSize(5).containsOnly(Thread.currentThread().getName());
+      verify(listener).processRecognitionException(any(RecognitionException.class));
+    }
+  }
+
   @Test
   public void should_interrupt_analysis_when_InterruptedException_is_thrown() {
     InputFile inputFile = TestUtils.inputFile("src/test/files/metrics/NoSonar.java");
@@ -251,6 +366,36 @@ public class JavaAstScannerTest {
     JavaAstScanner.scanSingleFileForTests(file, visitorsBridge, new JavaVersionImpl(), sonarComponents);
   }
 
+  private static class WritingCheck implements JavaFileScanner, MergeableEndOfAnalysisCheck {
+
+    private final List<String> writes;
+    private final List<EndOfAnalysisCheck> merged = new ArrayList<>();
+    private int scannedFiles = 0;
+    private boolean endOfAnalysis = false;
+
+    WritingCheck(List<String> writes) {
+      this.writes = writes;
+    }
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      scannedFiles++;
+      String filename = context.getInputFile().filename();
+      SensorWrites.save(() -> writes.add(filename));
+    }
+
+    @Override
+    public void merge(EndOfAnalysisCheck copy) {
+      merged.add(copy);
+      scannedFiles += ((WritingCheck) copy).scannedFiles;
+    }
+
+    @Override
+    public void endOfAnalysis() {
+      endOfAnalysis = true;
+    }
+  }
+
   private static class CheckThrowingSOError implements JavaFileScanner {
 
     @Override
@@ -0,0 +1,172 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.ast.visitors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.sonar.java.model.JParserTestUtils;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TreeWalkerTest {
+
+  /**
+   * Operands of the string concatenation of the deeply nested test file, one nesting level each.
+   */
+  static final int OPERANDS = 20_000;
+
+  @Test
+  public void trees_are_entered_before_and_left_after_their_children() {
+    CompilationUnitTree tree = JParserTestUtils.parse("class A { int f; }");
+    List<String> events = new ArrayList<>();
+
+    TreeWalker.walk(tree, new TreeWalker.Listener() {
+      @Override
+      public void enter(Tree tree) {
+        events.add("enter " + name(tree));
+      }
+
+      @Override
+      public void leave(Tree tree) {
+        events.add("leave " + name(tree));
+      }
+    });
+
+    assertThat(events).containsExactly(
+      "enter COMPILATION_UNIT",
+      "enter CLASS",
+      "enter MODIFIERS", "leave MODIFIERS",
+      "enter class", "leave class",
+      "enter IDENTIFIER", "enter A", "leave A", "leave IDENTIFIER",
+      "enter TYPE_PARAMETERS", "leave TYPE_PARAMETERS",
+      "enter LIST", "leave LIST",
+      "enter {", "leave {",
+      "enter VARIABLE",
+      "enter MODIFIERS", "leave MODIFIERS",
+      "enter PRIMITIVE_TYPE", "enter int", "leave int", "leave PRIMITIVE_TYPE",
+      "enter IDENTIFIER", "enter f", "leave f", "leave IDENTIFIER",
+      "enter ;", "leave ;",
+      "leave VARIABLE",
+      "enter }", "leave }",
+      "leave CLASS",
+      "enter ", "leave ",
+      "leave COMPILATION_UNIT");
+  }
+
+  @Test
+  public void deeply_nested_trees_are_walked_on_a_small_stack() throws Exception {
+    CompilationUnitTree tree = deeplyNestedTree();
+    AtomicInteger entered = new AtomicInteger();
+    AtomicInteger left = new AtomicInteger();
+
+    runOnSmallStack(() -> TreeWalker.walk(tree, new TreeWalker.Listener() {
+      @Override
+      public void enter(Tree tree) {
+        if (tree.is(Tree.Kind.PLUS)) {
+          entered.incrementAndGet();
+        }
+      }
+
+      @Override
+      public void leave(Tree tree) {
+        if (tree.is(Tree.Kind.PLUS)) {
+          left.incrementAndGet();
+        }
+      }
+    }));
+
+    assertThat(entered.get()).isEqualTo(OPERANDS - 1);
+    assertThat(left.get()).isEqualTo(OPERANDS - 1);
+  }
+
+  @Test
+  public void deeply_nested_trees_are_scanned_by_subscription_visitors_on_a_small_stack() throws Exception {
+    CompilationUnitTree tree = deeplyNestedTree();
+    AtomicInteger visited = new AtomicInteger();
+    AtomicInteger left = new AtomicInteger();
+    SubscriptionVisitor visitor = new SubscriptionVisitor() {
+      @Override
+      public List<Tree.Kind> nodesToVisit() {
+        return Collections.singletonList(Tree.Kind.PLUS);
+      }
+
+      @Override
+      public void visitNode(Tree tree) {
+        visited.incrementAndGet();
+      }
+
+      @Override
+      public void leaveNode(Tree tree) {
+        left.incrementAndGet();
+      }
+    };
+
+    runOnSmallStack(() -> visitor.scanTree(tree));
+
+    assertThat(visited.get()).isEqualTo(OPERANDS - 1);
+    assertThat(left.get()).isEqualTo(OPERANDS - 1);
+  }
+
+  @Test
+  public void statements_of_deeply_nested_trees_are_counted_on_a_small_stack() throws Exception {
+    CompilationUnitTree tree = deeplyNestedTree();
+    AtomicInteger statements = new AtomicInteger();
+
+    runOnSmallStack(() -> statements.set(new StatementVisitor().numberOfStatements(tree)));
+
+    assertThat(statements.get()).isEqualTo(1);
+  }
+
+  static CompilationUnitTree deeplyNestedTree() {
+    StringBuilder source = new StringBuilder("class A { void m() { String s = \"a\"");
+    for (int i = 1; i < OPERANDS; i++) {
+      source.append(" + \"a\"");
+    }
+    return JParserTestUtils.parse(source.append("; } }").toString());
+  }
+
+  /**
+   * Runs the action on a thread whose stack is too small for a recursive walk of the deeply nested test file.
+   */
+  static void runOnSmallStack(Runnable action) throws InterruptedException {
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread thread = new Thread(null, () -> {
+      try {
+        action.run();
+      } catch (Throwable e) {
+        failure.set(e);
+      }
+    }, "small-stack", 256 * 1024);
+    thread.start();
+    thread.join();
+    assertThat(failure.get()).isNull();
+  }
+
+  private static String name(Tree tree) {
+    return tree.is(Tree.Kind.TOKEN) ? ((SyntaxToken) tree).text() : tree.kind().name();
+  }
+}
@@ -61,14 +61,29 @@ public class FileSystemLoaderTest {
     loader.findResource("tags/TagName.class");
   }
 
+  @Test
+  public void testPackages() throws Exception {
+    File dir = new File("src/test/files/bytecode/bin/");
+    FileSystemLoader loader = new FileSystemLoader(dir);
+
+    assertThat(loader.packages()).contains("", "properties", "tags", "tags/impl");
+
+    loader.close();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Loader closed");
+    loader.packages();
+  }
+
   @Test
   public void testLoadBytes() throws Exception {
     File dir = new File("src/test/files/bytecode/bin/");
     FileSystemLoader loader = new FileSystemLoader(dir);
 
     assertThat(loader.loadBytes("notfound")).isEmpty();
+    assertThat(loader.loadBytes("tags")).isEmpty();
 
-    assertThat(loader.loadBytes("tags/TagName.class")).isNotEmpty();
+    assertThat(loader.loadBytes("tags/TagName.class")).hasSize((int) new File(dir, "tags/TagName.class").length());
 
     loader.close();
 
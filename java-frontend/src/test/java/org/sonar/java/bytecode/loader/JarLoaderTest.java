@@ -77,7 +77,7 @@ public class JarLoaderTest {
     assertThat(loader.loadBytes("notfound")).isEmpty();
 
     byte[] bytes = loader.loadBytes("META-INF/MANIFEST.MF");
-    assertThat(bytes).isNotEmpty();
+    assertThat(bytes).hasSize(132);
     ByteArrayInputStream is = new ByteArrayInputStream(bytes);
     assertThat(IOUtils.readLines(is)).contains("Manifest-Version: 1.0");
 
@@ -88,6 +88,24 @@ public class JarLoaderTest {
     loader.loadBytes("META-INF/MANIFEST.MF");
   }
 
+  @Test
+  public void testPackages() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    JarLoader loader = new JarLoader(jar);
+
+    assertThat(loader.packages()).containsOnly(
+      "",
+      "META-INF",
+      "META-INF/maven",
+      "META-INF/maven/org.sonar.tests",
+      "META-INF/maven/org.sonar.tests/no-tests",
+      "org",
+      "org/sonar",
+      "org/sonar/tests");
+
+    loader.close();
+  }
+
   @Test
   public void closeCanBeCalledMultipleTimes() throws Exception {
     File jar = new File("src/test/files/bytecode/lib/hello.jar");
@@ -0,0 +1,77 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.bytecode.loader;
+
+import java.io.File;
+import java.net.URL;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class JrtLoaderTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_load_classes_of_running_jdk() {
+    assumeTrue(!System.getProperty("java.version").startsWith("1.8"));
+    JrtLoader loader = JrtLoader.create(null);
+
+    assertThat(loader.packages()).contains("java/lang", "java/util");
+    assertThat(loader.findResource("java/lang/Unknown.class")).isNull();
+    assertThat(loader.findResource("org/acme/Foo.class")).isNull();
+    URL url = loader.findResource("java/lang/Object.class");
+    assertThat(url.toString()).isEqualTo("jrt:/java.base/java/lang/Object.class");
+    assertThat(loader.loadBytes("java/lang/Object.class")).isNotEmpty();
+    assertThat(loader.loadBytes("java/lang/Unknown.class")).isEmpty();
+
+    loader.close();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Loader closed");
+    loader.loadBytes("java/lang/Object.class");
+  }
+
+  @Test
+  public void should_fail_without_module_image() throws Exception {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("No module image in ");
+    JrtLoader.create(temp.newFolder());
+  }
+
+  @Test
+  public void runtime_jar_of_jdk_8() throws Exception {
+    File jdkHome = temp.newFolder();
+    assertThat(JrtLoader.runtimeJar(jdkHome)).isNull();
+    File runtimeJar = new File(jdkHome, "jre/lib/rt.jar");
+    assertThat(runtimeJar.getParentFile().mkdirs()).isTrue();
+    assertThat(runtimeJar.createNewFile()).isTrue();
+    assertThat(JrtLoader.runtimeJar(jdkHome)).isEqualTo(runtimeJar);
+  }
+
+}
@@ -38,6 +38,7 @@ import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
 
 public class SquidClassLoaderTest {
 
@@ -125,7 +126,9 @@ public class SquidClassLoaderTest {
 
     assertThat(classLoader.getResource("dummy.class")).isNull();
 
-    assertThat(excludeProgressReport(logTester.logs())).isEmpty();
+    assertThat(excludeProgressReport(logTester.logs()))
+      .hasSize(1)
+      .allMatch(log -> log.matches("Indexed 0 packages of 1 classpath entries: \\d+ ms"));
 
     classLoader.close();
   }
@@ -181,6 +184,97 @@ public class SquidClassLoaderTest {
     assertThat(Iterators.forEnumeration(classLoader.findResources("notfound"))).hasSize(0);
   }
 
+  @Test
+  public void resources_are_found_in_the_packages_of_their_names() throws Exception {
+    File dir = new File("src/test/files/bytecode/bin/");
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    classLoader = new SquidClassLoader(Arrays.asList(dir, jar));
+
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).anyMatch(log -> log.matches("Indexed \\d+ packages of 2 classpath entries: \\d+ ms"));
+    assertThat(classLoader.findResource("org/sonar/tests/Hello.class")).isNotNull();
+    assertThat(classLoader.findResource("org/sonar/tests/Unknown.class")).isNull();
+    assertThat(classLoader.findResource("org/sonar/tests/")).isNotNull();
+    assertThat(classLoader.getBytesForClass("tags.TagName")).isNotEmpty();
+    assertThat(classLoader.getBytesForClass("org.sonar.tests.Hello")).isNotEmpty();
+    assertThat(classLoader.getBytesForClass("org.sonar.tests.Unknown")).isNull();
+    assertThat(Iterators.forEnumeration(classLoader.findResources("tags/TagName.class"))).hasSize(1);
+  }
+
+  @Test
+  public void loaders_are_shared_by_class_loaders_of_registry() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    File dir = new File("src/test/files/bytecode/bin/");
+    LoaderRegistry registry = new LoaderRegistry();
+    SquidClassLoader mainClassLoader = new SquidClassLoader(Collections.singletonList(jar), registry);
+    classLoader = new SquidClassLoader(Arrays.asList(dir, jar), registry);
+    assertThat(registry.size()).isEqualTo(2);
+
+    mainClassLoader.close();
+    assertThat(registry.size()).isEqualTo(2);
+    assertThat(classLoader.getResource("org/sonar/tests/Hello.class")).isNotNull();
+
+    classLoader.close();
+    assertThat(registry.size()).isZero();
+    thrown.expect(IllegalStateException.class);
+    classLoader.getResource("org/sonar/tests/Hello.class");
+  }
+
+  @Test
+  public void invalid_files_of_registry_are_reported_once() {
+    File jar = new File("src/test/files/bytecode/lib/emptyFile.jar");
+    LoaderRegistry registry = new LoaderRegistry();
+    IOUtils.closeQuietly(new SquidClassLoader(Collections.singletonList(jar), registry));
+    classLoader = new SquidClassLoader(Collections.singletonList(jar), registry);
+
+    assertThat(logTester.logs(LoggerLevel.WARN)).hasSize(1);
+    assertThat(registry.size()).isZero();
+  }
+
+  @Test
+  public void classes_of_jdk_are_read_after_classpath() {
+    assumeTrue(!System.getProperty("java.version").startsWith("1.8"));
+    LoaderRegistry registry = new LoaderRegistry();
+    classLoader = new SquidClassLoader(Collections.singletonList(new File("src/test/files/bytecode/lib/likeJdkJar.jar")), registry);
+
+    assertThat(classLoader.getResource("java/lang/String.class").getFile()).contains("likeJdkJar.jar!");
+    assertThat(classLoader.getResource("java/lang/Object.class").toString()).isEqualTo("jrt:/java.base/java/lang/Object.class");
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).anyMatch(log -> log.matches("Indexed \\d+ packages of the JDK: \\d+ ms"));
+  }
+
+  @Test
+  public void invalid_jdk_home_is_reported() throws Exception {
+    LoaderRegistry registry = new LoaderRegistry(new File("src/test/files/bytecode/lib"));
+    classLoader = new SquidClassLoader(Collections.emptyList(), registry);
+
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly("Unable to load the classes of the JDK from 'src/test/files/bytecode/lib', "
+      + "the JDK running the analysis is used instead");
+    assertThat(classLoader.getResource("java/lang/Object.class")).isNotNull();
+  }
+
+  @Test
+  public void shared_class_loader_is_closed_by_its_last_user() {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    classLoader = new SquidClassLoader(Collections.singletonList(jar));
+    assertThat(classLoader.retain()).isTrue();
+
+    classLoader.close();
+    assertThat(classLoader.getResource("org/sonar/tests/Hello.class")).isNotNull();
+
+    classLoader.close();
+    assertThat(classLoader.retain()).isFalse();
+    thrown.expect(IllegalStateException.class);
+    classLoader.getResource("org/sonar/tests/Hello.class");
+  }
+
+  @Test
+  public void package_of_resource() {
+    assertThat(SquidClassLoader.packageOf("Foo.class")).isEmpty();
+    assertThat(SquidClassLoader.packageOf("org/acme/Foo.class")).isEqualTo("org/acme");
+    assertThat(SquidClassLoader.packageOf("org/acme/")).isEqualTo("org");
+    assertThat(SquidClassLoader.packageOf("org/")).isEmpty();
+    assertThat(SquidClassLoader.packageOf("")).isEmpty();
+  }
+
   @Test
   public void closeCanBeCalledMultipleTimes() throws Exception {
     File jar = new File("src/test/files/bytecode/lib/hello.jar");
@@ -196,7 +290,7 @@ public class SquidClassLoaderTest {
     classLoader.close();
 
     thrown.expect(IllegalStateException.class);
-    thrown.expectMessage("java.lang.IllegalStateException: zip file closed");
+    thrown.expectMessage("zip file closed");
     classLoader.getResource("org/sonar/tests/Hello.class");
   }
 
@@ -212,6 +306,27 @@ public class SquidClassLoaderTest {
     assertThat(classNode.name).isEqualTo("org/sonar/java/bytecode/loader/SquidClassLoaderTest");
   }
 
+  @Test
+  public void class_metadata_is_read_once() {
+    classLoader = new SquidClassLoader(Collections.singletonList(new File("target/test-classes")));
+    ClassMetadata metadata = classLoader.getClassMetadata(getClass().getCanonicalName());
+    assertThat(metadata).isNotNull();
+    assertThat(classLoader.getClassMetadata("org/sonar/java/bytecode/loader/SquidClassLoaderTest")).isSameAs(metadata);
+    assertThat(classLoader.getClassMetadata("org.sonar.Unknown")).isNull();
+
+    assertThat(metadata.superClassName()).isEqualTo("java/lang/Object");
+    assertThat(metadata.interfaces()).isEmpty();
+    assertThat(metadata.method("unknown()V")).isNull();
+    ClassMetadata.MethodMetadata method = metadata.method("excludeProgressReport(Ljava/util/List;)Ljava/util/List;");
+    assertThat(method.isStatic()).isTrue();
+    assertThat(method.isVarArgs()).isFalse();
+    assertThat(metadata.method("test_loading_class()V").declaredExceptions()).isEmpty();
+    assertThat(metadata.method("createFromJar()V").declaredExceptions()).containsExactly("java.lang.Exception");
+
+    classLoader.close();
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("Metadata of classes: 1 hits, 2 misses");
+  }
+
   @Test
   public void empty_classloader_should_not_find_bytes() {
     SquidClassLoader classLoader = new SquidClassLoader(Collections.emptyList());
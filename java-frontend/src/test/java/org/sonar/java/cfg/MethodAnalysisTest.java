@@ -0,0 +1,59 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.cfg;
+
+import org.junit.Test;
+import org.sonar.java.model.declaration.MethodTreeImpl;
+import org.sonar.plugins.java.api.tree.MethodTree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MethodAnalysisTest {
+
+  private static final CFGTestLoader loader = new CFGTestLoader("src/test/files/cfg/CFGLoopTest.java");
+
+  @Test
+  public void analyses_are_computed_once_per_method() {
+    MethodTree method = loader.getMethod("CFGLoopTest", "simpleWhileLoopWithBreak");
+    MethodAnalysis analysis = MethodAnalysis.of(method);
+    assertThat(MethodAnalysis.of(method)).isSameAs(analysis);
+    assertThat(((MethodTreeImpl) method).analysis()).isSameAs(analysis);
+
+    CFG cfg = analysis.cfg();
+    assertThat(analysis.cfg()).isSameAs(cfg);
+    assertThat(((MethodTreeImpl) method).cfg()).isSameAs(cfg);
+
+    LiveVariables liveVariables = analysis.liveVariables();
+    assertThat(analysis.liveVariables()).isSameAs(liveVariables);
+    LiveVariables liveVariablesWithFields = analysis.liveVariablesWithFields();
+    assertThat(analysis.liveVariablesWithFields()).isSameAs(liveVariablesWithFields).isNotSameAs(liveVariables);
+
+    assertThat(analysis.loops()).hasSize(1).isSameAs(analysis.loops());
+    assertThat(cfg.blocks()).as("loops of the shared CFG").contains(analysis.loops().values().iterator().next().startingBlock());
+  }
+
+  @Test
+  public void analyses_are_not_shared_between_methods() {
+    MethodAnalysis analysis1 = MethodAnalysis.of(loader.getMethod("CFGLoopTest", "simpleWhileLoop"));
+    MethodAnalysis analysis2 = MethodAnalysis.of(loader.getMethod("CFGLoopTest", "simpleWhileLoopWithBreak"));
+    assertThat(analysis1).isNotSameAs(analysis2);
+    assertThat(analysis1.cfg()).isNotSameAs(analysis2.cfg());
+  }
+}
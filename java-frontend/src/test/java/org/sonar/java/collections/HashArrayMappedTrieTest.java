@@ -0,0 +1,190 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.collections;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashArrayMappedTrieTest {
+
+  private static final class Key {
+    private final int hashCode;
+    private final String toString;
+
+    private Key(int hashCode, String toString) {
+      this.hashCode = hashCode;
+      this.toString = toString;
+    }
+
+    @Override
+    public final int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public final String toString() {
+      return toString;
+    }
+  }
+
+  @Test
+  public void test_empty() {
+    HashArrayMappedTrie<String, String> t = HashArrayMappedTrie.create();
+    assertThat(t).as("singleton").isSameAs(HashArrayMappedTrie.create());
+    assertThat(t.isEmpty()).isTrue();
+    assertThat(t.get("anything")).isNull();
+    assertThat(t.remove("anything")).isSameAs(t);
+    assertThat(t.toString()).isEqualTo("");
+    assertThat(t.hashCode()).isEqualTo(0);
+    assertThat(t.put("1", "a").remove("1")).isSameAs(t);
+  }
+
+  @Test
+  public void no_change() {
+    HashArrayMappedTrie<String, String> t0 = HashArrayMappedTrie.create();
+    HashArrayMappedTrie<String, String> t1 = t0.put("1", "1").put("2", "2");
+    assertThat(t1.put("1", "1")).isSameAs(t1);
+    assertThat(t1.remove("3")).isSameAs(t1);
+    HashArrayMappedTrie<String, String> t2 = t1.put("1", "a");
+    assertThat(t2).isNotEqualTo(t1);
+    assertThat(t2.get("1")).isEqualTo("a");
+    assertThat(t1.get("1")).isEqualTo("1");
+  }
+
+  @Test
+  public void entries_are_visited_in_ascending_order_of_hash_codes() {
+    HashArrayMappedTrie<Object, Object> t = HashArrayMappedTrie.create()
+      .put(new Key(Integer.MAX_VALUE, "max"), "v")
+      .put(new Key(0, "zero"), "v")
+      .put(new Key(-1, "minus_one"), "v")
+      .put(new Key(Integer.MIN_VALUE, "min"), "v")
+      .put(new Key(1, "one"), "v")
+      .put(new Key(33, "33"), "v");
+    assertThat(t.toString()).isEqualTo(" min->v minus_one->v zero->v one->v 33->v max->v");
+    List<Object> keys = new ArrayList<>();
+    t.forEach((Consumer<Object>) keys::add);
+    assertThat(keys).extracting(Object::toString).containsExactly("min", "minus_one", "zero", "one", "33", "max");
+  }
+
+  @Test
+  public void collisions() {
+    Object k1 = new Key(42, "k1");
+    Object k2 = new Key(42, "k2");
+    Object k3 = new Key(42, "k3");
+    HashArrayMappedTrie<Object, Object> t1 = HashArrayMappedTrie.create().put(k1, "v1").put(k2, "v2").put(k3, "v3");
+    HashArrayMappedTrie<Object, Object> t2 = HashArrayMappedTrie.create().put(k3, "v3").put(k2, "v2").put(k1, "v1");
+    assertThat(t1.toString()).isEqualTo(" k1->v1 k2->v2 k3->v3");
+    assertThat(t2.toString()).as("toString depends on order of operations").isEqualTo(" k3->v3 k2->v2 k1->v1");
+    assertThat(t1).isEqualTo(t2);
+    assertThat(t2).isEqualTo(t1);
+    assertThat(t1.hashCode()).isEqualTo(t2.hashCode());
+    assertThat(t1.get(k2)).isEqualTo("v2");
+    assertThat(t1.get(new Key(42, "k4"))).isNull();
+    assertThat(t1.put(k2, "v2")).isSameAs(t1);
+    assertThat(t1.put(k2, "other")).isNotEqualTo(t2);
+    assertThat(t1.remove(new Key(42, "k4"))).isSameAs(t1);
+
+    HashArrayMappedTrie<Object, Object> t3 = t1.remove(k1).remove(k3);
+    assertThat(t3).as("single entry is inlined").isEqualTo(HashArrayMappedTrie.create().put(k2, "v2"));
+    assertThat(t3.toString()).isEqualTo(" k2->v2");
+    assertThat(t3.remove(k2)).isSameAs(HashArrayMappedTrie.create());
+  }
+
+  @Test
+  public void hashCode_and_equals_should_not_depend_on_order_of_construction() {
+    List<Integer> keys = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      keys.add(i * 0x01010101);
+    }
+    Random random = new Random(42);
+    Collections.shuffle(keys, random);
+    HashArrayMappedTrie<Object, Object> t1 = HashArrayMappedTrie.create();
+    for (Integer key : keys) {
+      t1 = t1.add(key);
+    }
+    Collections.shuffle(keys, random);
+    HashArrayMappedTrie<Object, Object> t2 = HashArrayMappedTrie.create();
+    for (Integer key : keys) {
+      Key collision = new Key(key, "collision");
+      Key neighbour = new Key(key ^ 1, "neighbour");
+      t2 = t2.add(key).add(collision).add(neighbour).remove(collision).remove(neighbour);
+    }
+    assertThat(t1.hashCode()).isEqualTo(t2.hashCode());
+    assertThat(t1).isEqualTo(t2);
+    assertThat(t1.toString()).isEqualTo(t2.toString());
+
+    AVLTree<Integer, Object> avl = AVLTree.create();
+    for (Integer key : keys) {
+      avl = avl.add(key);
+    }
+    assertThat(t1.hashCode()).as("same hash code as AVL tree").isEqualTo(avl.hashCode());
+    assertThat(t1.toString()).as("same order as AVL tree").isEqualTo(avl.toString());
+
+    assertThat(t1.add(1)).isNotEqualTo(t1);
+    assertThat(t1.remove(0)).isNotEqualTo(t1);
+  }
+
+  @Test
+  public void shared_sub_tries() {
+    HashArrayMappedTrie<Integer, Object> t = HashArrayMappedTrie.create();
+    for (int i = 0; i < 100; i++) {
+      t = t.add(i << 20);
+    }
+    HashArrayMappedTrie<Integer, Object> t1 = t.add(1);
+    HashArrayMappedTrie<Integer, Object> t2 = t.add(1);
+    assertThat(t1).isNotSameAs(t2).isEqualTo(t2);
+    assertThat(t1.remove(1)).isEqualTo(t);
+  }
+
+  @Test
+  public void test() {
+    List<Integer> keys = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      keys.add(i);
+      keys.add(-(i + 1) * 7919);
+    }
+    Collections.shuffle(keys, new Random(1));
+
+    HashArrayMappedTrie<Integer, Object> t = HashArrayMappedTrie.create();
+    for (Integer key : keys) {
+      t = t.add(key);
+      assertThat(t.add(key)).isSameAs(t);
+    }
+    List<Integer> visited = new ArrayList<>();
+    t.forEach((k, v) -> visited.add(k));
+    assertThat(visited).isSorted().hasSize(2000);
+
+    for (Integer key : keys) {
+      assertThat(t.contains(key)).isTrue();
+      t = t.remove(key);
+      assertThat(t.contains(key)).isFalse();
+      assertThat(t.remove(key)).isSameAs(t);
+    }
+    assertThat(t).isSameAs(HashArrayMappedTrie.create());
+  }
+
+}
@@ -19,7 +19,10 @@
  */
 package org.sonar.java.collections;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
@@ -28,6 +31,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 public class PCollectionsTest {
 
+  @Rule
+  public LogTester logTester = new LogTester();
+
   @Test
   public void test() {
     assertThat(PCollections.emptySet()).isSameAs(AVLTree.create());
@@ -35,6 +41,24 @@ public class PCollectionsTest {
     assertThat(PCollections.emptyStack()).isSameAs(SinglyLinkedList.EMPTY);
   }
 
+  @Test
+  public void implementation() {
+    assertThat(PCollections.Implementation.of(null)).isSameAs(PCollections.Implementation.AVL);
+    assertThat(PCollections.Implementation.of("avl")).isSameAs(PCollections.Implementation.AVL);
+    assertThat(PCollections.Implementation.of("hamt")).isSameAs(PCollections.Implementation.HAMT);
+    assertThat(PCollections.Implementation.AVL.emptySet()).isSameAs(AVLTree.create());
+    assertThat(PCollections.Implementation.AVL.emptyMap()).isSameAs(AVLTree.create());
+    assertThat(PCollections.Implementation.HAMT.emptySet()).isSameAs(HashArrayMappedTrie.create());
+    assertThat(PCollections.Implementation.HAMT.emptyMap()).isSameAs(HashArrayMappedTrie.create());
+  }
+
+  @Test
+  public void unknown_implementation_falls_back_to_default() {
+    assertThat(PCollections.Implementation.of("avl-tree")).isSameAs(PCollections.Implementation.AVL);
+    assertThat(logTester.logs(LoggerLevel.WARN))
+      .containsExactly("Unknown value 'avl-tree' of sonar.java.collections.implementation, expected \"avl\" or \"hamt\": AVL trees are used");
+  }
+
   @Test
   public void private_constructor() throws Exception {
     assertThat(Modifier.isFinal(PCollections.class.getModifiers())).isTrue();
@@ -0,0 +1,69 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClasspathRegistryTest {
+
+  private static final List<File> CLASSPATH = Collections.singletonList(new File("src/test/files/bytecode/lib/hello.jar"));
+
+  @Test
+  void class_loaders_are_shared_by_same_classpaths() {
+    ClasspathRegistry registry = new ClasspathRegistry();
+    SquidClassLoader classLoader = registry.classLoader(CLASSPATH);
+    SquidClassLoader testClassLoader = registry.classLoader(Arrays.asList(new File("src/test/files/bytecode/bin/"), CLASSPATH.get(0)));
+    assertThat(registry.classLoader(CLASSPATH)).isSameAs(classLoader);
+    assertThat(testClassLoader).isNotSameAs(classLoader);
+
+    classLoader.close();
+    assertThat(classLoader.getResource("org/sonar/tests/Hello.class")).isNotNull();
+    classLoader.close();
+    assertThat(testClassLoader.getResource("org/sonar/tests/Hello.class")).isNotNull();
+
+    SquidClassLoader newClassLoader = registry.classLoader(CLASSPATH);
+    assertThat(newClassLoader).isNotSameAs(classLoader);
+    assertThat(newClassLoader.getResource("org/sonar/tests/Hello.class")).isNotNull();
+    newClassLoader.close();
+    testClassLoader.close();
+  }
+
+  @Test
+  void name_environments_are_shared_by_same_classpaths() {
+    ClasspathRegistry registry = new ClasspathRegistry();
+    JNameEnvironment environment = registry.nameEnvironment(CLASSPATH);
+    assertThat(registry.nameEnvironment(CLASSPATH)).isSameAs(environment);
+    assertThat(registry.nameEnvironment(Collections.emptyList())).isNotSameAs(environment);
+
+    environment.close();
+    assertThat(registry.nameEnvironment(CLASSPATH)).isSameAs(environment);
+    environment.close();
+    environment.close();
+    assertThat(registry.nameEnvironment(CLASSPATH)).isNotSameAs(environment);
+  }
+
+}
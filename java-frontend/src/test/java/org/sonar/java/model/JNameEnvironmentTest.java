@@ -0,0 +1,75 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import com.sonar.sslr.api.RecognitionException;
+import java.io.File;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.sonar.plugins.java.api.semantic.Type;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JNameEnvironmentTest {
+
+  @Test
+  void should_be_shared_by_several_files() {
+    try (JNameEnvironment environment = new JNameEnvironment(Collections.singletonList(new File("target/classes")))) {
+      Type first = superClass(parse("class A extends org.sonar.java.model.JParser { }", environment));
+      Type second = superClass(parse("class B extends org.sonar.java.model.JParser { }", environment));
+
+      assertThat(first.is("org.sonar.java.model.JParser")).isTrue();
+      assertThat(first.isUnknown()).isFalse();
+      assertThat(second.is("org.sonar.java.model.JParser")).isTrue();
+      assertThat(second.isUnknown()).isFalse();
+      assertThat(environment.nameEnvironment()).isSameAs(environment.nameEnvironment());
+    }
+  }
+
+  @Test
+  void should_be_recreated_after_close() {
+    JNameEnvironment environment = new JNameEnvironment(Collections.singletonList(new File("target/classes")));
+    parse("class A { }", environment);
+    environment.close();
+    Type type = superClass(parse("class B extends org.sonar.java.model.JParser { }", environment));
+    assertThat(type.isUnknown()).isFalse();
+    environment.close();
+  }
+
+  @Test
+  void should_fail_every_parse_with_invalid_classpath() {
+    JNameEnvironment environment = new JNameEnvironment(Collections.singletonList(new File("unknownFile")));
+    assertThrows(RecognitionException.class, () -> parse("class A { }", environment));
+    assertThrows(RecognitionException.class, () -> parse("class B { }", environment));
+    environment.close();
+  }
+
+  private static CompilationUnitTree parse(String source, JNameEnvironment environment) {
+    return JParser.parse(JParser.MAXIMUM_SUPPORTED_JAVA_VERSION, "File.java", source, environment);
+  }
+
+  private static Type superClass(CompilationUnitTree cut) {
+    return ((ClassTree) cut.types().get(0)).symbol().superClass();
+  }
+
+}
@@ -21,8 +21,12 @@ package org.sonar.java.model;
 
 import com.sonar.sslr.api.RecognitionException;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import org.junit.Test;
+import org.sonar.plugins.java.api.semantic.Type;
 import org.sonar.plugins.java.api.tree.BlockTree;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
@@ -31,8 +35,10 @@ import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.VariableTree;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -67,6 +73,56 @@ public class JParserTest {
         Collections.singletonList(new File("unknownFile"))));
   }
 
+  @Test
+  public void should_resolve_types_declared_in_the_same_batch() {
+    List<String> sources = Arrays.asList("class A { B b; }", "class B { }");
+    CompilationUnitTree[] trees = new CompilationUnitTree[2];
+    JNameEnvironment environment = new JNameEnvironment(Collections.emptyList());
+    JParser.parse("12", Arrays.asList("A.java", "B.java"), sources, environment, (index, tree) -> trees[index] = tree.get());
+
+    assertFalse(fieldType(trees[0]).isUnknown());
+    assertEquals("B", fieldType(trees[0]).fullyQualifiedName());
+    // without batch, B is a recovered type
+    assertTrue(fieldType(JParser.parse("12", "A.java", sources.get(0), environment)).isUnknown());
+    environment.close();
+  }
+
+  @Test
+  public void should_report_syntax_errors_of_each_file_of_batch() {
+    List<String> sources = Arrays.asList("class A { B b; }", "class B", "class C { A a; }");
+    List<String> results = new ArrayList<>();
+    JParser.parse("12", Arrays.asList("A.java", "B.java", "C.java"), sources, new JNameEnvironment(Collections.emptyList()), (index, tree) -> {
+      try {
+        results.add(index + ":" + fieldType(tree.get()).isUnknown());
+      } catch (RecognitionException e) {
+        results.add(index + ":" + e.getMessage());
+      }
+    });
+    assertEquals(Arrays.asList(
+      "0:false",
+      "1:Parse error at line 1 column 6: Syntax error, insert \"ClassBody\" to complete CompilationUnit",
+      "2:false"), results);
+  }
+
+  @Test
+  public void should_parse_one_by_one_files_following_an_unparseable_file_of_batch() {
+    List<String> sources = Arrays.asList("class A { String s; }", "class C { char c = ''; \\u0 }", "class B { String s; }");
+    List<String> results = new ArrayList<>();
+    JParser.parse("12", Arrays.asList("A.java", "C.java", "B.java"), sources, new JNameEnvironment(Collections.emptyList()), (index, tree) -> {
+      try {
+        results.add(index + ":" + fieldType(tree.get()).isUnknown());
+      } catch (RuntimeException e) {
+        results.add(index + ":error");
+      }
+    });
+    assertEquals(Arrays.asList("0:false", "1:error", "2:false"), results);
+  }
+
+  private static Type fieldType(CompilationUnitTree tree) {
+    ClassTree classTree = (ClassTree) tree.types().get(0);
+    return ((VariableTree) classTree.members().get(0)).type().symbolType();
+  }
+
   @Test
   public void should_throw_RecognitionException_in_case_of_lexical_error() {
     try { // Note that without check for errors will cause InvalidInputException
@@ -0,0 +1,147 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.java.model.RuleProfiler.Measure;
+import org.sonar.java.model.RuleProfiler.Phase;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RuleProfilerTest {
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void measures_are_accumulated_by_phase_and_rule() {
+    RuleProfiler profiler = new RuleProfiler();
+    profiler.run(Phase.SUBSCRIPTION_VISITOR, ExpensiveRule.class, RuleProfilerTest::allocate);
+    profiler.run(Phase.SUBSCRIPTION_VISITOR, ExpensiveRule.class, RuleProfilerTest::allocate);
+    profiler.run(Phase.FILE_SCANNER, ExpensiveRule.class, () -> {
+    });
+    profiler.run(Phase.FILE_SCANNER, String.class, () -> {
+    });
+
+    List<Measure> measures = profiler.measures();
+    assertThat(measures).extracting(m -> m.rule + " " + m.phase + " " + m.calls)
+      .containsExactlyInAnyOrder("S42 SUBSCRIPTION_VISITOR 2", "S42 FILE_SCANNER 1", "java.lang.String FILE_SCANNER 1");
+    Measure expensive = measures.get(0);
+    assertThat(expensive.phase).isSameAs(Phase.SUBSCRIPTION_VISITOR);
+    assertThat(expensive.wallTimeNanos).isPositive();
+    assertThat(expensive.allocatedBytes).isGreaterThanOrEqualTo(2_000_000L);
+  }
+
+  @Test
+  public void nested_runs_are_excluded_from_enclosing_run() {
+    RuleProfiler profiler = new RuleProfiler();
+    profiler.run(Phase.SYMBOLIC_EXECUTION, String.class, () -> profiler.run(Phase.SYMBOLIC_EXECUTION, ExpensiveRule.class, RuleProfilerTest::allocate));
+
+    Map<String, Measure> measures = profiler.measures().stream().collect(Collectors.toMap(m -> m.rule, m -> m));
+    assertThat(measures).containsOnlyKeys("S42", "java.lang.String");
+    assertThat(measures.get("S42").allocatedBytes).isGreaterThanOrEqualTo(1_000_000L);
+    assertThat(measures.get("java.lang.String").allocatedBytes).isLessThan(1_000_000L);
+  }
+
+  @Test
+  public void failing_rules_are_measured() {
+    RuleProfiler profiler = new RuleProfiler();
+    assertThatThrownBy(() -> profiler.run(Phase.SYMBOLIC_EXECUTION, ExpensiveRule.class, () -> {
+      throw new IllegalStateException("boom");
+    })).isInstanceOf(IllegalStateException.class);
+    assertThat(profiler.measures()).extracting(m -> m.calls).containsExactly(1L);
+  }
+
+  @Test
+  public void merge_measures_of_other_profiler() {
+    RuleProfiler profiler = new RuleProfiler();
+    profiler.run(Phase.FILE_SCANNER, ExpensiveRule.class, RuleProfilerTest::allocate);
+    RuleProfiler other = new RuleProfiler();
+    other.run(Phase.FILE_SCANNER, ExpensiveRule.class, RuleProfilerTest::allocate);
+    other.run(Phase.SUBSCRIPTION_VISITOR, String.class, () -> {
+    });
+
+    profiler.merge(other);
+
+    assertThat(profiler.measures()).extracting(m -> m.rule + " " + m.phase + " " + m.calls)
+      .containsExactly("S42 FILE_SCANNER 2", "java.lang.String SUBSCRIPTION_VISITOR 1");
+  }
+
+  @Test
+  public void report_is_saved_in_work_dir_and_most_expensive_rules_are_logged() throws IOException {
+    RuleProfiler profiler = new RuleProfiler();
+    for (int i = 0; i < RuleProfiler.LOGGED_RULES + 5; i++) {
+      profiler.run(Phase.FILE_SCANNER, ExpensiveRule.class, RuleProfilerTest::allocate);
+    }
+    profiler.run(Phase.SUBSCRIPTION_VISITOR, String.class, () -> {
+    });
+    File workDir = temp.newFolder();
+
+    profiler.report(workDir);
+
+    String report = new String(Files.readAllBytes(new File(workDir, RuleProfiler.REPORT_FILE_NAME).toPath()), StandardCharsets.UTF_8);
+    assertThat(report)
+      .contains("\"rule\": \"S42\"", "\"phase\": \"FILE_SCANNER\"", "\"calls\": 15", "\"cpuTimeNanos\"", "\"allocatedBytes\"")
+      .contains("\"rule\": \"java.lang.String\"");
+    List<String> logs = logTester.logs(LoggerLevel.INFO);
+    assertThat(logs).hasSize(4);
+    assertThat(logs.get(2)).startsWith("  S42 FILE_SCANNER: ").endsWith(", 15");
+    assertThat(logs.get(3)).startsWith("  java.lang.String SUBSCRIPTION_VISITOR: ");
+  }
+
+  @Test
+  public void report_failure_does_not_fail_analysis() throws IOException {
+    RuleProfiler profiler = new RuleProfiler();
+    profiler.run(Phase.FILE_SCANNER, ExpensiveRule.class, () -> {
+    });
+
+    profiler.report(temp.newFile());
+
+    assertThat(logTester.logs(LoggerLevel.WARN)).hasSize(1);
+    assertThat(logTester.logs(LoggerLevel.WARN).get(0)).startsWith("Unable to save profile of Java rules in ");
+  }
+
+  private static void allocate() {
+    byte[][] bytes = new byte[1_000][];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = new byte[1_000];
+    }
+    assertThat(bytes).hasSize(1_000);
+  }
+
+  @org.sonar.check.Rule(key = "S42")
+  private static class ExpensiveRule {
+  }
+}
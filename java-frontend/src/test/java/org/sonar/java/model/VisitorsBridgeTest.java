@@ -20,6 +20,9 @@
 package org.sonar.java.model;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -33,6 +36,7 @@ import org.assertj.core.api.Fail;
 import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.config.internal.MapSettings;
@@ -67,6 +71,9 @@ public class VisitorsBridgeTest {
   @Rule
   public LogTester logTester = new LogTester();
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private SonarComponents sonarComponents = null;
 
   private static final File FILE = new File("src/test/files/model/SimpleClass.java");
@@ -222,9 +229,11 @@ public class VisitorsBridgeTest {
       e.printStackTrace();
       Fail.fail("Exceptions should be swallowed when property is not set");
     }
-    assertThat(logTester.logs(LoggerLevel.ERROR)).hasSize(1);
+    assertThat(logTester.logs(LoggerLevel.ERROR)).hasSize(2);
     assertThat(logTester.logs(LoggerLevel.ERROR).stream().map(VisitorsBridgeTest::ruleKeyFromErrorLog))
-      .containsOnly("IV1_ThrowingNPEVisitingClass - IV1");
+      .containsExactlyInAnyOrder(
+        "IV1_ThrowingNPEVisitingClass - IV1",
+        "IV2_ThrowingNPELeavingClass - IV2");
   }
 
   @Test
@@ -294,6 +303,321 @@ public class VisitorsBridgeTest {
     verify(sonarComponents, never()).symbolizableFor(any());
   }
 
+  @Test
+  public void subscription_visitors_share_a_single_walk_of_the_tree() {
+    List<String> events = new ArrayList<>();
+    VisitorsBridge bridge = new VisitorsBridge(Arrays.asList(
+      new RecordingVisitor("SV", events),
+      new RecordingVisitor("SV2", events),
+      new RecordingVisitor("SF", events) {
+        @Override
+        public void scanFile(JavaFileScannerContext context) {
+          events.add("scanFile SF");
+        }
+      }), new ArrayList<>(), null);
+    bridge.setCurrentFile(INPUT_FILE);
+    bridge.visitFile(parse("class A { }"));
+
+    assertThat(events).containsExactly(
+      "scanFile SF",
+      "setContext SV", "setContext SV2",
+      "visit CLASS SV", "visit CLASS SV2",
+      "token class SV", "token class SV2",
+      "token A SV", "token A SV2",
+      "token { SV", "token { SV2",
+      "token } SV", "token } SV2",
+      "leave CLASS SV", "leave CLASS SV2",
+      "token  SV", "token  SV2",
+      "leaveFile SV", "leaveFile SV2");
+  }
+
+  @Test
+  public void subscription_visitors_overriding_scan_file_are_not_left() {
+    List<String> events = new ArrayList<>();
+    VisitorsBridge bridge = new VisitorsBridge(Collections.singletonList(
+      new RecordingVisitor("SF", events) {
+        @Override
+        public void scanFile(JavaFileScannerContext context) {
+          events.add("scanFile SF");
+          super.scanFile(context);
+        }
+      }), new ArrayList<>(), null);
+    bridge.setCurrentFile(INPUT_FILE);
+    bridge.visitFile(parse("class A { }"));
+
+    assertThat(events).startsWith("scanFile SF", "setContext SF", "visit CLASS SF").contains("leave CLASS SF").doesNotContain("leaveFile SF");
+  }
+
+  @Test
+  public void subscription_visitors_walk_deeply_nested_trees_on_a_small_stack() throws Exception {
+    StringBuilder source = new StringBuilder("class A { String s = \"a\"");
+    for (int i = 1; i < 20_000; i++) {
+      source.append(" + \"a\"");
+    }
+    CompilationUnitTree tree = parse(source.append("; }").toString());
+    List<String> events = new ArrayList<>();
+    VisitorsBridge bridge = new VisitorsBridge(Collections.singletonList(new RecordingVisitor("SV", events) {
+      @Override
+      public List<Tree.Kind> nodesToVisit() {
+        return Collections.singletonList(Tree.Kind.PLUS);
+      }
+    }), new ArrayList<>(), null);
+    bridge.setCurrentFile(INPUT_FILE);
+
+    List<Throwable> failures = new ArrayList<>();
+    Thread thread = new Thread(null, () -> {
+      try {
+        bridge.visitFile(tree);
+      } catch (Throwable e) {
+        failures.add(e);
+      }
+    }, "small-stack", 256 * 1024);
+    thread.start();
+    thread.join();
+
+    assertThat(failures).isEmpty();
+    assertThat(events.stream().filter(e -> e.startsWith("visit PLUS"))).hasSize(19_999);
+    assertThat(events.stream().filter(e -> e.startsWith("leave PLUS"))).hasSize(19_999);
+  }
+
+  private static class RecordingVisitor extends SubscriptionVisitor {
+    private final String name;
+    private final List<String> events;
+
+    RecordingVisitor(String name, List<String> events) {
+      this.name = name;
+      this.events = events;
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return Arrays.asList(Tree.Kind.CLASS, Tree.Kind.TOKEN);
+    }
+
+    @Override
+    public void setContext(JavaFileScannerContext context) {
+      super.setContext(context);
+      events.add("setContext " + name);
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      events.add("visit " + tree.kind() + " " + name);
+    }
+
+    @Override
+    public void visitToken(SyntaxToken syntaxToken) {
+      events.add("token " + syntaxToken.text() + " " + name);
+    }
+
+    @Override
+    public void leaveNode(Tree tree) {
+      events.add("leave " + tree.kind() + " " + name);
+    }
+
+    @Override
+    public void leaveFile(JavaFileScannerContext context) {
+      events.add("leaveFile " + name);
+    }
+  }
+
+  @Test
+  public void rules_are_profiled_when_enabled() throws Exception {
+    File workDir = temp.newFolder();
+    SensorContextTester sensorContextTester = SensorContextTester.create(workDir);
+    sensorContextTester.fileSystem().setWorkDir(workDir.toPath());
+    sensorContextTester.setSettings(new MapSettings().setProperty(SonarComponents.PROFILE_RULES_KEY, true));
+    SonarComponents sonarComponents = new SonarComponents(null, sensorContextTester.fileSystem(), null, null, null);
+    sonarComponents.setSensorContext(sensorContextTester);
+    VisitorsBridge bridge = new VisitorsBridge(Arrays.asList(new RecordingVisitor("SV", new ArrayList<>()), new JFS_ThrowingNPEJavaFileScanner()),
+      new ArrayList<>(), sonarComponents, SymbolicExecutionMode.ENABLED_WITHOUT_X_FILE);
+    bridge.setCurrentFile(INPUT_FILE);
+    bridge.visitFile(COMPILATION_UNIT_TREE);
+    bridge.endOfAnalysis();
+    VisitorsBridge.reportRuleProfiles(Collections.singletonList(bridge));
+
+    String report = new String(Files.readAllBytes(new File(workDir, RuleProfiler.REPORT_FILE_NAME).toPath()), StandardCharsets.UTF_8);
+    assertThat(report).contains("\"phase\": \"SYMBOLIC_EXECUTION\"", "\"rule\": \"JFS\"", "\"phase\": \"SUBSCRIPTION_VISITOR\"", "RecordingVisitor",
+      "\"rule\": \"S2259\"", "SymbolicExecutionVisitor");
+  }
+
+  @Test
+  public void rule_profiles_of_all_bridges_are_reported_once() throws Exception {
+    File workDir = temp.newFolder();
+    SensorContextTester sensorContextTester = SensorContextTester.create(workDir);
+    sensorContextTester.fileSystem().setWorkDir(workDir.toPath());
+    sensorContextTester.setSettings(new MapSettings().setProperty(SonarComponents.PROFILE_RULES_KEY, true));
+    SonarComponents sonarComponents = new SonarComponents(null, sensorContextTester.fileSystem(), null, null, null);
+    sonarComponents.setSensorContext(sensorContextTester);
+    List<VisitorsBridge> bridges = new ArrayList<>();
+    for (String name : Arrays.asList("main", "test")) {
+      VisitorsBridge bridge = new VisitorsBridge(Collections.singletonList(new RecordingVisitor(name, new ArrayList<>())),
+        new ArrayList<>(), sonarComponents, SymbolicExecutionMode.DISABLED);
+      bridge.setCurrentFile(INPUT_FILE);
+      bridge.visitFile(COMPILATION_UNIT_TREE);
+      bridge.endOfAnalysis();
+      bridges.add(bridge);
+    }
+
+    VisitorsBridge.reportRuleProfiles(bridges);
+
+    String report = new String(Files.readAllBytes(new File(workDir, RuleProfiler.REPORT_FILE_NAME).toPath()), StandardCharsets.UTF_8);
+    assertThat(report).contains("RecordingVisitor");
+    assertThat(logTester.logs(LoggerLevel.INFO)).filteredOn(log -> log.startsWith("Profile of Java rules saved in ")).hasSize(1);
+  }
+
+  @Test
+  public void rule_profiles_are_not_reported_when_rules_are_not_profiled() throws Exception {
+    File workDir = temp.newFolder();
+    VisitorsBridge bridge = new VisitorsBridge(Collections.emptyList(), new ArrayList<>(), null);
+    bridge.endOfAnalysis();
+
+    VisitorsBridge.reportRuleProfiles(Collections.singletonList(bridge));
+
+    assertThat(new File(workDir, RuleProfiler.REPORT_FILE_NAME)).doesNotExist();
+    assertThat(logTester.logs(LoggerLevel.INFO)).isEmpty();
+  }
+
+  @Test
+  public void closing_a_bridge_twice_releases_its_classpath_once() {
+    ClasspathRegistry registry = new ClasspathRegistry();
+    List<File> classpath = Collections.singletonList(new File("src/test/files/bytecode/lib/hello.jar"));
+    VisitorsBridge bridge = new VisitorsBridge(Collections.emptyList(), classpath, null, SymbolicExecutionMode.DISABLED, registry);
+    VisitorsBridge otherBridge = new VisitorsBridge(Collections.emptyList(), classpath, null, SymbolicExecutionMode.DISABLED, registry);
+
+    bridge.close();
+    bridge.close();
+
+    assertThat(registry.nameEnvironment(classpath)).isSameAs(otherBridge.getNameEnvironment());
+    otherBridge.close();
+  }
+
+  @Test
+  public void rules_are_skipped_once_file_time_budget_is_exceeded() {
+    List<String> events = new ArrayList<>();
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.setSettings(new MapSettings().setProperty(SonarComponents.FILE_TIME_BUDGET_KEY, 1));
+    VisitorsBridge bridge = visitorsBridge(context, SymbolicExecutionMode.DISABLED,
+      new SlowRule(),
+      new RecordingRule(events),
+      c -> events.add("not a rule"),
+      new RecordingVisitor("SV", events),
+      new RecordingSubscriptionRule(events));
+    bridge.visitFile(parse("class A { }"));
+
+    assertThat(events).contains("not a rule", "visit CLASS SV", "leaveFile SV").doesNotContain("R1", "visit CLASS SR1");
+    assertThat(context.allAnalysisErrors()).hasSize(1);
+    assertThat(context.allAnalysisErrors().iterator().next().message())
+      .startsWith("Analysis of file '" + INPUT_FILE + "' exceeded its time budget (file: 1 ms, rule: 0 ms), rules not fully executed: ")
+      .contains("R1", "SR1");
+    assertThat(logTester.logs(LoggerLevel.WARN)).hasSize(1);
+  }
+
+  @Test
+  public void subscription_rules_are_stopped_once_rule_time_budget_is_exceeded() throws Exception {
+    List<String> events = new ArrayList<>();
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.setSettings(new MapSettings().setProperty(SonarComponents.RULE_TIME_BUDGET_KEY, 1));
+    VisitorsBridge bridge = visitorsBridge(context, SymbolicExecutionMode.DISABLED, new RecordingSubscriptionRule(events) {
+      @Override
+      public void visitNode(Tree tree) {
+        super.visitNode(tree);
+        sleep();
+      }
+    }, new RecordingVisitor("SV", events));
+    String code = "class A { class B { } }";
+    bridge.setCurrentFile(inputFile(code));
+    bridge.visitFile(parse(code));
+
+    assertThat(events).containsOnlyOnce("visit CLASS SR1");
+    assertThat(events).contains("leave CLASS SV", "leaveFile SV").doesNotContain("leave CLASS SR1", "leaveFile SR1");
+    assertThat(context.allAnalysisErrors()).extracting(e -> e.message()).allMatch(message -> message.endsWith("rules not fully executed: SR1"));
+  }
+
+  @Test
+  public void symbolic_execution_is_stopped_once_rule_time_budget_is_exceeded() throws Exception {
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.setSettings(new MapSettings().setProperty(SonarComponents.RULE_TIME_BUDGET_KEY, 1));
+    VisitorsBridge bridge = visitorsBridge(context, SymbolicExecutionMode.ENABLED_WITHOUT_X_FILE, new SlowSECheck());
+    String code = "class A { final void foo() { foo(); } final void bar() { bar(); } }";
+    bridge.setCurrentFile(inputFile(code));
+    bridge.visitFile(parse(code));
+
+    assertThat(context.allAnalysisErrors()).extracting(e -> e.message()).allMatch(message -> message.endsWith("rules not fully executed: symbolic execution"));
+    assertThat(context.allAnalysisErrors()).hasSize(1);
+  }
+
+  @Test
+  public void no_time_budget_by_default() {
+    List<String> events = new ArrayList<>();
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    VisitorsBridge bridge = visitorsBridge(context, SymbolicExecutionMode.DISABLED, new SlowRule(), new RecordingRule(events));
+    bridge.visitFile(parse("class A { }"));
+
+    assertThat(events).containsExactly("R1");
+    assertThat(context.allAnalysisErrors()).isEmpty();
+  }
+
+  private static VisitorsBridge visitorsBridge(SensorContextTester context, SymbolicExecutionMode symbolicExecutionMode, JavaFileScanner... visitors) {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    sonarComponents.setSensorContext(context);
+    VisitorsBridge bridge = new VisitorsBridge(Arrays.asList(visitors), new ArrayList<>(), sonarComponents, symbolicExecutionMode);
+    bridge.setCurrentFile(INPUT_FILE);
+    return bridge;
+  }
+
+  private InputFile inputFile(String code) throws IOException {
+    File file = temp.newFile("A.java");
+    Files.write(file.toPath(), code.getBytes(StandardCharsets.UTF_8));
+    return TestUtils.inputFile(file);
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(20);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @org.sonar.check.Rule(key = "SLOW")
+  private static class SlowRule implements JavaFileScanner {
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      sleep();
+    }
+  }
+
+  @org.sonar.check.Rule(key = "R1")
+  private static class RecordingRule implements JavaFileScanner {
+    private final List<String> events;
+
+    RecordingRule(List<String> events) {
+      this.events = events;
+    }
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      events.add("R1");
+    }
+  }
+
+  @org.sonar.check.Rule(key = "SR1")
+  private static class RecordingSubscriptionRule extends RecordingVisitor {
+    RecordingSubscriptionRule(List<String> events) {
+      super("SR1", events);
+    }
+  }
+
+  @org.sonar.check.Rule(key = "SLOWSE")
+  private static class SlowSECheck extends SECheck {
+    @Override
+    public ProgramState checkPreStatement(CheckerContext context, Tree syntaxNode) {
+      sleep();
+      return context.getState();
+    }
+  }
+
   private static String ruleKeyFromErrorLog(String errorLog) {
     String newString = errorLog.substring("Unable to run check class ".length(), errorLog.indexOf(" on file"));
     if (newString.contains("SymbolicExecutionVisitor")) {
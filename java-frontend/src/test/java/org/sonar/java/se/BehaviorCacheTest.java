@@ -22,6 +22,9 @@ package org.sonar.java.se;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import org.junit.Rule;
 import org.junit.Test;
@@ -30,6 +33,7 @@ import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.java.model.Sema;
 import org.sonar.java.se.checks.NullDereferenceCheck;
 import org.sonar.java.se.checks.SECheck;
+import org.sonar.java.se.xproc.BehaviorCache;
 import org.sonar.java.se.xproc.ExceptionalYield;
 import org.sonar.java.se.xproc.MethodBehavior;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
@@ -238,6 +242,49 @@ public class BehaviorCacheTest {
     assertThat(testedPost).containsOnly("foo", "bar", "isBlank");
   }
 
+  @Test
+  public void behavior_computed_by_another_thread_is_awaited() throws Exception {
+    BehaviorCache behaviorCache = new BehaviorCache(SETestUtils.CLASSLOADER);
+    MethodBehavior mb = new MethodBehavior("A#foo()V");
+    assertThat(behaviorCache.startExecution(mb)).isTrue();
+
+    CompletableFuture<Boolean> otherThreadStart = CompletableFuture.supplyAsync(() -> behaviorCache.startExecution(mb));
+    Thread.sleep(100);
+    assertThat(otherThreadStart).isNotDone();
+
+    mb.visited();
+    behaviorCache.endExecution(mb);
+    assertThat(otherThreadStart.get(10, TimeUnit.SECONDS)).isFalse();
+  }
+
+  @Test
+  public void behaviors_of_mutually_recursive_methods_computed_by_different_threads_do_not_deadlock() throws Exception {
+    BehaviorCache behaviorCache = new BehaviorCache(SETestUtils.CLASSLOADER);
+    MethodBehavior foo = new MethodBehavior("A#foo()V");
+    MethodBehavior bar = new MethodBehavior("A#bar()V");
+    assertThat(behaviorCache.startExecution(bar)).isTrue();
+
+    AtomicBoolean barStartedByFooThread = new AtomicBoolean(true);
+    Thread fooThread = new Thread(() -> {
+      behaviorCache.startExecution(foo);
+      // waits for the current thread computing bar
+      barStartedByFooThread.set(behaviorCache.startExecution(bar));
+      behaviorCache.endExecution(foo);
+    });
+    fooThread.start();
+    while (fooThread.getState() != Thread.State.WAITING) {
+      Thread.sleep(10);
+    }
+
+    // foo is computed by a thread waiting for bar: it is not awaited, as in a recursive call
+    assertThat(behaviorCache.startExecution(foo)).isFalse();
+    bar.visited();
+    behaviorCache.endExecution(bar);
+    fooThread.join(10_000);
+    assertThat(fooThread.isAlive()).isFalse();
+    assertThat(barStartedByFooThread.get()).isFalse();
+  }
+
   private static void verifyNoIssueOnFile(String fileName) {
     createSymbolicExecutionVisitorAndSemantic(fileName, false, nullDereferenceCheck);
     // verify we did not raise any issue, if we did, the context will get them reported.
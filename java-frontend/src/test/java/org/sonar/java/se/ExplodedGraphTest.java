@@ -19,7 +19,17 @@
  */
 package org.sonar.java.se;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 import org.junit.Test;
+import org.sonar.java.se.constraint.ObjectConstraint;
+import org.sonar.java.se.symbolicvalues.SymbolicValue;
+import org.sonar.plugins.java.api.semantic.Symbol;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -54,6 +64,113 @@ public class ExplodedGraphTest {
     assertThat(child.parents()).hasSize(2);
   }
 
+  @Test
+  public void parents_of_merge_points_are_indexed() {
+    ExplodedGraph eg = new ExplodedGraph();
+    ExplodedGraph.Node child = eg.node(mockProgramPoint("child"), null);
+    List<ExplodedGraph.Node> parents = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      ExplodedGraph.Node parent = eg.node(mockProgramPoint("parent" + i), null);
+      parents.add(parent);
+      child.addParent(parent, null);
+      long memory = eg.estimatedMemory();
+      child.addParent(parent, null);
+      assertThat(eg.estimatedMemory()).isEqualTo(memory);
+    }
+    assertThat(child.parents()).containsExactlyElementsOf(parents);
+    assertThat(child.edges()).hasSize(20);
+    assertThat(eg.edgeCount()).isEqualTo(20);
+
+    // adding known parents once indexed does not add edges
+    parents.forEach(parent -> child.addParent(parent, null));
+    assertThat(child.edges()).hasSize(20);
+    assertThat(child.parent()).isSameAs(parents.get(0));
+  }
+
+  @Test
+  public void equal_program_states_share_one_node() {
+    ExplodedGraph eg = new ExplodedGraph();
+    assertThat(eg.dedupRatio()).isZero();
+    ProgramPoint programPoint = mockProgramPoint("pp");
+    ProgramState state = ProgramState.EMPTY_STATE.stackValue(SymbolicValue.NULL_LITERAL);
+    ProgramState equalState = ProgramState.EMPTY_STATE.stackValue(SymbolicValue.NULL_LITERAL);
+    ExplodedGraph.Node node = eg.node(programPoint, state);
+    assertThat(node.isNew()).isTrue();
+
+    ExplodedGraph.Node sameNode = eg.node(programPoint, equalState);
+    assertThat(sameNode).isSameAs(node);
+    assertThat(sameNode.isNew()).isFalse();
+    assertThat(sameNode.programState).isSameAs(state);
+
+    eg.node(programPoint, ProgramState.EMPTY_STATE.stackValue(SymbolicValue.TRUE_LITERAL));
+    eg.node(programPoint, state);
+    assertThat(eg.nodes()).hasSize(2);
+    assertThat(eg.lookups()).isEqualTo(4);
+    assertThat(eg.dedupRatio()).isEqualTo(0.5);
+  }
+
+  @Test
+  public void siblings_and_memory_of_graph() {
+    ExplodedGraph eg = new ExplodedGraph();
+    assertThat(eg.estimatedMemory()).isZero();
+    ProgramPoint programPoint = mockProgramPoint("pp");
+    ExplodedGraph.Node first = eg.node(programPoint, ProgramState.EMPTY_STATE);
+    ExplodedGraph.Node second = eg.node(programPoint, ProgramState.EMPTY_STATE.stackValue(SymbolicValue.NULL_LITERAL));
+    ExplodedGraph.Node third = eg.node(programPoint, ProgramState.EMPTY_STATE.stackValue(SymbolicValue.TRUE_LITERAL));
+    ExplodedGraph.Node other = eg.node(mockProgramPoint("other"), ProgramState.EMPTY_STATE);
+
+    assertThat(second.siblings()).containsExactly(first, third);
+    assertThat(second.siblings()).containsExactly(first, third);
+    assertThat(other.siblings()).isEmpty();
+
+    long nodesMemory = eg.estimatedMemory();
+    assertThat(nodesMemory).isPositive();
+    third.addParent(second, null);
+    third.addParent(first, null);
+    assertThat(eg.edgeCount()).isEqualTo(2);
+    assertThat(third.parents()).containsExactly(second, first);
+    assertThat(third.edges()).allMatch(edge -> edge.yields().isEmpty());
+    assertThat(eg.estimatedMemory()).isGreaterThan(nodesMemory);
+  }
+
+  @Test
+  public void flows_are_computed_once_the_graph_is_explored() {
+    ExplodedGraph eg = new ExplodedGraph();
+    ExplodedGraph.Node child = eg.node(mockProgramPoint("child"), null);
+    child.addParent(eg.node(mockProgramPoint("parent"), null), null);
+    List<Object> key = Collections.singletonList(child);
+    AtomicInteger computations = new AtomicInteger();
+    Supplier<Set<Flow>> computation = () -> {
+      computations.incrementAndGet();
+      return Collections.singleton(Flow.empty());
+    };
+
+    // flows requested during the exploration are not kept
+    assertThat(eg.flows(key, computation)).containsExactly(Flow.empty());
+    assertThat(eg.flows(key, computation)).containsExactly(Flow.empty());
+    assertThat(computations.get()).isEqualTo(2);
+
+    eg.explored();
+    assertThat(eg.flows(key, computation)).containsExactly(Flow.empty());
+    assertThat(eg.flows(key, computation)).containsExactly(Flow.empty());
+    assertThat(computations.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void same_constraints_are_computed_once_the_graph_is_explored() {
+    ExplodedGraph eg = new ExplodedGraph();
+    ExplodedGraph.Node node = eg.node(mockProgramPoint("node"), null);
+    Symbol symbol = mock(Symbol.class);
+    AtomicInteger computations = new AtomicInteger();
+    BooleanSupplier computation = () -> computations.incrementAndGet() > 0;
+
+    assertThat(eg.sameConstraint(node, symbol, ObjectConstraint.class, computation)).isTrue();
+    eg.explored();
+    assertThat(eg.sameConstraint(node, symbol, ObjectConstraint.class, computation)).isTrue();
+    assertThat(eg.sameConstraint(node, symbol, ObjectConstraint.class, computation)).isTrue();
+    assertThat(computations.get()).isEqualTo(2);
+  }
+
   private ProgramPoint mockProgramPoint(String toString) {
     ProgramPoint mock = mock(ProgramPoint.class);
     when(mock.toString()).thenReturn(toString);
@@ -28,10 +28,20 @@ import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.java.TestUtils;
 import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.cfg.CFG;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.model.JParserTestUtils;
 import org.sonar.java.model.JUtils;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.JavaVersionImpl;
 import org.sonar.java.model.Sema;
 import org.sonar.java.se.checks.BooleanGratuitousExpressionsCheck;
 import org.sonar.java.se.checks.ConditionalUnreachableCodeCheck;
@@ -58,6 +68,7 @@ import org.sonar.java.se.xproc.BehaviorCache;
 import org.sonar.java.se.xproc.HappyPathYield;
 import org.sonar.java.se.xproc.MethodBehavior;
 import org.sonar.java.se.xproc.MethodYield;
+import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.semantic.Type;
 import org.sonar.plugins.java.api.tree.AssignmentExpressionTree;
@@ -73,6 +84,9 @@ import static org.sonar.java.se.SETestUtils.createSymbolicExecutionVisitor;
 
 public class ExplodedGraphWalkerTest {
 
+  @Rule
+  public LogTester logTester = new LogTester();
+
   @Test
   public void seEngineTest() {
     JavaCheckVerifier.verify("src/test/files/se/SeEngineTest.java", seChecks());
@@ -102,6 +116,25 @@ public class ExplodedGraphWalkerTest {
     assertThat(steps[0]).isGreaterThan(steps[1]);
   }
 
+  @Test
+  public void joined_states_share_nodes_and_raise_the_same_issues() {
+    String fileName = "src/test/files/se/JoinStates.java";
+    JavaCheckVerifier.verify(fileName, new NullDereferenceCheck());
+
+    List<ExplodedGraphWalker> walkers = new ArrayList<>();
+    List<ExplodedGraphWalker> joiningWalkers = new ArrayList<>();
+    assertThat(nullDereferences(fileName, true, joiningWalkers)).containsExactlyElementsOf(nullDereferences(fileName, false, walkers));
+    assertThat(nodes(joiningWalkers)).isPositive().isLessThan(nodes(walkers));
+
+    fileName = "src/test/files/se/NullDereferenceCheck.java";
+    walkers.clear();
+    joiningWalkers.clear();
+    List<String> expectedIssues = nullDereferences(fileName, false, walkers);
+    assertThat(expectedIssues.size()).isGreaterThan(10);
+    assertThat(nullDereferences(fileName, true, joiningWalkers)).containsExactlyElementsOf(expectedIssues);
+    assertThat(nodes(joiningWalkers)).isLessThanOrEqualTo(nodes(walkers));
+  }
+
   @Test
   public void reproducer() throws Exception {
     JavaCheckVerifier.verify("src/test/files/se/Reproducer.java", seChecks());
@@ -241,6 +274,14 @@ public class ExplodedGraphWalkerTest {
     });
   }
 
+  @Test
+  public void stats_of_exploded_graphs_are_logged_in_debug() {
+    logTester.setLevel(LoggerLevel.DEBUG);
+    createSymbolicExecutionVisitor("src/test/files/se/SeEngineTestCase.java");
+    assertThat(logTester.logs(LoggerLevel.DEBUG).stream()
+      .anyMatch(log -> log.matches("Exploded graph of method \\w+ at line \\d+: \\d+ steps, \\d+ nodes, \\d+ edges, \\d+ lookups of nodes, dedup ratio of program states 0\\.\\d\\d, peak memory of graph \\d+ KB"))).isTrue();
+  }
+
   @Test
   public void test_max_number_starting_states() throws Exception {
     JavaCheckVerifier.verifyNoIssue("src/test/files/se/MaxStartingStates.java",
@@ -290,6 +331,24 @@ public class ExplodedGraphWalkerTest {
     });
   }
 
+  @Test
+  public void execution_is_interrupted_once_out_of_time() throws Exception {
+    JavaCheckVerifier.verifyNoIssue("src/test/files/se/MaxSteps.java", new SymbolicExecutionVisitor(Collections.emptyList(), new BehaviorCache(new SquidClassLoader(new ArrayList<>()))) {
+      @Override
+      public void visitNode(Tree tree) {
+        MethodTree methodTree = (MethodTree) tree;
+        ExplodedGraphWalker walker = new ExplodedGraphWalker(this.behaviorCache, (Sema) context.getSemanticModel());
+        walker.setOutOfTime(() -> walker.steps >= 2 * ExplodedGraphWalker.OUT_OF_TIME_CHECK_STEPS);
+        try {
+          walker.visitMethod(methodTree, methodBehaviorForSymbol(methodTree.symbol()));
+          fail("Execution should have been interrupted");
+        } catch (ExplodedGraphWalker.MaximumStepsReachedException exception) {
+          assertThat(exception.getMessage()).startsWith("reached time budget after 200 steps for method");
+        }
+      }
+    });
+  }
+
   @Test
   public void test_maximum_steps_reached_with_issue() throws Exception {
     JavaCheckVerifier.verify("src/test/files/se/MaxStepsWithIssue.java", new UnclosedResourcesCheck());
@@ -554,6 +613,35 @@ public class ExplodedGraphWalkerTest {
     assertThat(happyPathYields.get(0).resultConstraint()).isNull();
   }
 
+  private static List<String> nullDereferences(String fileName, boolean joinStates, List<ExplodedGraphWalker> walkers) {
+    NullDereferenceCheck check = new NullDereferenceCheck();
+    InputFile inputFile = TestUtils.inputFile(fileName);
+    JavaTree.CompilationUnitTreeImpl cut = (JavaTree.CompilationUnitTreeImpl) JParserTestUtils.parse(inputFile.file(), SETestUtils.CLASS_PATH);
+    SymbolicExecutionVisitor sev = new SymbolicExecutionVisitor(Collections.singletonList(check), new BehaviorCache(SETestUtils.CLASSLOADER),
+      new SymbolicExecutionVisitor.Settings().joinStates(joinStates)) {
+      @Override
+      protected ExplodedGraphWalker getWalker() {
+        ExplodedGraphWalker walker = super.getWalker();
+        walkers.add(walker);
+        return walker;
+      }
+    };
+    sev.scanFile(new DefaultJavaFileScannerContext(cut, inputFile, cut.sema, null, new JavaVersionImpl(8), true));
+    List<String> issues = new ArrayList<>();
+    check.scanFile(new DefaultJavaFileScannerContext(cut, inputFile, cut.sema, null, new JavaVersionImpl(8), true) {
+      @Override
+      public void reportIssueWithFlow(JavaCheck javaCheck, Tree syntaxNode, String message, Iterable<List<Location>> flows, @Nullable Integer cost) {
+        issues.add(syntaxNode.firstToken().line() + ":" + syntaxNode.firstToken().column() + " " + message);
+      }
+    });
+    return issues;
+  }
+
+  private static int nodes(List<ExplodedGraphWalker> walkers) {
+    // walkers of abstract methods have no exploded graph
+    return walkers.stream().filter(walker -> walker.explodedGraph != null).mapToInt(walker -> walker.explodedGraph.nodes().size()).sum();
+  }
+
   private static SECheck[] seChecks() {
     return new SECheck[]{
       new NullDereferenceCheck(),
@@ -0,0 +1,86 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import org.junit.Test;
+import org.sonar.java.cfg.CFG;
+import org.sonar.java.cfg.CFGTest;
+import org.sonar.java.se.symbolicvalues.SymbolicValue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExplorationStrategyTest {
+
+  private final ExplodedGraph explodedGraph = new ExplodedGraph();
+  private final CFG cfg = CFGTest.buildCFG("void foo() { bar(); qix(); }");
+  private final ProgramPoint firstProgramPoint = new ProgramPoint(cfg.entryBlock());
+  private final ProgramPoint secondProgramPoint = firstProgramPoint.next();
+
+  @Test
+  public void depth_first_executes_last_enqueued_node_first() {
+    ExplorationStrategy.WorkList workList = ExplorationStrategy.DEPTH_FIRST.newWorkList();
+    ExplodedGraph.Node first = node(firstProgramPoint, SymbolicValue.NULL_LITERAL);
+    workList.add(first);
+    assertThat(workList.next()).isSameAs(first);
+    assertThat(workList.isEmpty()).isTrue();
+
+    ExplodedGraph.Node unvisited = node(secondProgramPoint, SymbolicValue.NULL_LITERAL);
+    ExplodedGraph.Node visited = node(firstProgramPoint, SymbolicValue.TRUE_LITERAL);
+    workList.add(unvisited);
+    workList.add(visited);
+    assertThat(workList.size()).isEqualTo(2);
+    assertThat(workList.next()).isSameAs(visited);
+    assertThat(workList.next()).isSameAs(unvisited);
+    assertThat(workList.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void unvisited_program_points_first_executes_nodes_on_new_program_points_first() {
+    ExplorationStrategy.WorkList workList = ExplorationStrategy.UNVISITED_PROGRAM_POINTS_FIRST.newWorkList();
+    ExplodedGraph.Node first = node(firstProgramPoint, SymbolicValue.NULL_LITERAL);
+    workList.add(first);
+    assertThat(workList.next()).isSameAs(first);
+    assertThat(workList.isEmpty()).isTrue();
+
+    ExplodedGraph.Node unvisited = node(secondProgramPoint, SymbolicValue.NULL_LITERAL);
+    ExplodedGraph.Node visited = node(firstProgramPoint, SymbolicValue.TRUE_LITERAL);
+    ExplodedGraph.Node otherVisited = node(firstProgramPoint, SymbolicValue.FALSE_LITERAL);
+    workList.add(visited);
+    workList.add(unvisited);
+    workList.add(otherVisited);
+    assertThat(workList.size()).isEqualTo(3);
+    assertThat(workList.next()).isSameAs(unvisited);
+    assertThat(workList.next()).isSameAs(otherVisited);
+    assertThat(workList.next()).isSameAs(visited);
+    assertThat(workList.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void strategies_are_read_from_their_names() {
+    assertThat(ExplorationStrategy.fromName("depth_first")).isEqualTo(ExplorationStrategy.DEPTH_FIRST);
+    assertThat(ExplorationStrategy.fromName(" UNVISITED_PROGRAM_POINTS_FIRST ")).isEqualTo(ExplorationStrategy.UNVISITED_PROGRAM_POINTS_FIRST);
+    assertThatThrownBy(() -> ExplorationStrategy.fromName("breadth_first")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private ExplodedGraph.Node node(ProgramPoint programPoint, SymbolicValue value) {
+    return explodedGraph.node(programPoint, ProgramState.EMPTY_STATE.stackValue(value));
+  }
+}
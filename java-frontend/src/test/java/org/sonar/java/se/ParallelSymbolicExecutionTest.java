@@ -0,0 +1,117 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.TestUtils;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.model.JParserTestUtils;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.se.checks.NullDereferenceCheck;
+import org.sonar.java.se.xproc.BehaviorCache;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ParallelSymbolicExecutionTest {
+
+  private static final String FILE = "src/test/files/se/NullDereferenceCheck.java";
+
+  @Test
+  public void methods_executed_in_parallel_raise_the_same_issues_in_the_same_order() {
+    List<String> expectedIssues = issues(FILE, null);
+    assertThat(expectedIssues.size()).isGreaterThan(10);
+
+    ParallelSymbolicExecution parallelExecution = new ParallelSymbolicExecution(4, Collections.singletonList(new NullDereferenceCheck()), check -> new NullDereferenceCheck());
+    try {
+      for (int i = 0; i < 5; i++) {
+        assertThat(issues(FILE, parallelExecution)).containsExactlyElementsOf(expectedIssues);
+      }
+    } finally {
+      parallelExecution.shutdown();
+    }
+  }
+
+  @Test
+  public void behaviors_of_invoked_methods_are_computed_once() {
+    ParallelSymbolicExecution parallelExecution = new ParallelSymbolicExecution(4, Collections.emptyList(), check -> check);
+    try {
+      SymbolicExecutionVisitor sev = scan("src/test/resources/se/MethodBehavior.java", Collections.emptyList(), parallelExecution);
+      assertThat(sev.behaviorCache.behaviors.keySet()).containsOnly(
+        "MethodBehavior#topMethod(Z)Z",
+        "MethodBehavior#bar(Z)Z",
+        "MethodBehavior#foo(Z)Z",
+        "MethodBehavior#independent()V");
+      assertThat(sev.behaviorCache.behaviors.values()).allMatch(mb -> mb.isVisited() && mb.isComplete());
+    } finally {
+      parallelExecution.shutdown();
+    }
+  }
+
+  @Test
+  public void failure_of_a_method_is_rethrown() {
+    NullDereferenceCheck failingCheck = new NullDereferenceCheck() {
+      @Override
+      public ProgramState checkPreStatement(CheckerContext context, Tree syntaxNode) {
+        throw new IllegalStateException("boom");
+      }
+    };
+    ParallelSymbolicExecution parallelExecution = new ParallelSymbolicExecution(2, Collections.singletonList(failingCheck), check -> failingCheck);
+    try {
+      assertThatThrownBy(() -> scan(FILE, Collections.singletonList(failingCheck), parallelExecution))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("boom");
+    } finally {
+      parallelExecution.shutdown();
+    }
+  }
+
+  private static List<String> issues(String fileName, @Nullable ParallelSymbolicExecution parallelExecution) {
+    NullDereferenceCheck check = new NullDereferenceCheck();
+    scan(fileName, Collections.singletonList(check), parallelExecution);
+    List<String> issues = new ArrayList<>();
+    JavaTree.CompilationUnitTreeImpl cut = (JavaTree.CompilationUnitTreeImpl) JParserTestUtils.parse(TestUtils.inputFile(fileName).file(), SETestUtils.CLASS_PATH);
+    check.scanFile(new DefaultJavaFileScannerContext(cut, TestUtils.inputFile(fileName), cut.sema, null, new JavaVersionImpl(8), true) {
+      @Override
+      public void reportIssueWithFlow(JavaCheck javaCheck, Tree syntaxNode, String message, Iterable<List<Location>> flows, @Nullable Integer cost) {
+        issues.add(syntaxNode.firstToken().line() + ":" + syntaxNode.firstToken().column() + " " + message);
+      }
+    });
+    return issues;
+  }
+
+  private static SymbolicExecutionVisitor scan(String fileName, List<JavaFileScanner> checks, @Nullable ParallelSymbolicExecution parallelExecution) {
+    InputFile inputFile = TestUtils.inputFile(fileName);
+    JavaTree.CompilationUnitTreeImpl cut = (JavaTree.CompilationUnitTreeImpl) JParserTestUtils.parse(inputFile.file(), SETestUtils.CLASS_PATH);
+    SymbolicExecutionVisitor sev = new SymbolicExecutionVisitor(checks, new BehaviorCache(SETestUtils.CLASSLOADER),
+      new SymbolicExecutionVisitor.Settings().parallelExecution(parallelExecution));
+    sev.scanFile(new DefaultJavaFileScannerContext(cut, inputFile, cut.sema, null, new JavaVersionImpl(8), true));
+    return sev;
+  }
+}
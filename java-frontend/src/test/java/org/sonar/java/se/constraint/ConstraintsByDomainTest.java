@@ -70,6 +70,15 @@ public class ConstraintsByDomainTest {
     assertThat(c1).isSameAs(c2);
   }
 
+  @Test
+  public void equal_constraints_are_interned() {
+    ConstraintsByDomain c1 = ConstraintsByDomain.empty().put(ObjectConstraint.NOT_NULL).put(BooleanConstraint.TRUE);
+    ConstraintsByDomain c2 = ConstraintsByDomain.empty().put(BooleanConstraint.FALSE).put(ObjectConstraint.NOT_NULL).put(BooleanConstraint.TRUE);
+    assertThat(c1).isSameAs(c2);
+    assertThat(c1.remove(BooleanConstraint.class)).isSameAs(ConstraintsByDomain.empty().put(ObjectConstraint.NOT_NULL));
+    assertThat(c1).isNotEqualTo(c1.put(BooleanConstraint.FALSE));
+  }
+
   @Test
   public void test_forEach() {
     ConstraintsByDomain constraints = ConstraintsByDomain.empty();
@@ -26,8 +26,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -330,6 +335,45 @@ public class RelationalSymbolicValueTest {
     assertThat(actual).isEqualTo(expected);
   }
 
+  @Test
+  public void deduced_relations_are_interned() {
+    RelationalSymbolicValue ab = new RelationalSymbolicValue(RelationalSymbolicValue.Kind.LESS_THAN, a, b);
+    RelationalSymbolicValue bc = new RelationalSymbolicValue(RelationalSymbolicValue.Kind.LESS_THAN, b, c);
+    RelationalSymbolicValue ac = ab.deduceTransitiveOrSimplified(bc);
+    assertThat(ac).hasToString("SV_1<SV_3");
+    assertThat(new RelationalSymbolicValue(RelationalSymbolicValue.Kind.LESS_THAN, a, b).deduceTransitiveOrSimplified(bc)).isSameAs(ac);
+
+    RelationalSymbolicValue inverse = ab.inverse();
+    assertThat(inverse).hasToString("SV_1>=SV_2");
+    assertThat(ab.inverse()).isSameAs(inverse);
+    assertThat(new RelationalSymbolicValue(RelationalSymbolicValue.Kind.LESS_THAN, a, b).inverse()).isSameAs(inverse);
+  }
+
+  @Test
+  public void deduced_relations_are_interned_across_threads() throws Exception {
+    RelationalSymbolicValue de = new RelationalSymbolicValue(RelationalSymbolicValue.Kind.LESS_THAN, d, e);
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<RelationalSymbolicValue>> inverses = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        RelationalSymbolicValue relation = i % 2 == 0 ? de : new RelationalSymbolicValue(RelationalSymbolicValue.Kind.LESS_THAN, d, e);
+        inverses.add(executor.submit(() -> {
+          start.await();
+          return relation.inverse();
+        }));
+      }
+      start.countDown();
+      RelationalSymbolicValue inverse = de.inverse();
+      for (Future<RelationalSymbolicValue> result : inverses) {
+        assertThat(result.get()).isSameAs(inverse);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private List<String> combineWithAll(RelationalSymbolicValue relation, Supplier<String> relationAsString) {
     List<String> actual = new ArrayList<>();
     for (Tree.Kind r : operators) {
@@ -356,6 +400,48 @@ public class RelationalSymbolicValueTest {
     assertThat(transitive).containsOnly(relationalSV(Tree.Kind.EQUAL_TO, a, c), relationalSV(Tree.Kind.EQUAL_TO, b, d), relationalSV(Tree.Kind.EQUAL_TO, a, d));
   }
 
+  @Test
+  public void transitive_relations_only_combine_relations_sharing_an_operand() {
+    List<SymbolicValue> chain = new ArrayList<>();
+    for (int i = 0; i <= 20; i++) {
+      chain.add(new SymbolicValue());
+    }
+    Set<RelationalSymbolicValue> knownRelations = new HashSet<>();
+    for (int i = 0; i < 20; i++) {
+      knownRelations.add(new RelationalSymbolicValue(RelationalSymbolicValue.Kind.LESS_THAN, chain.get(i), chain.get(i + 1)));
+    }
+    // unrelated relations used to count in the limit of deduced relations
+    for (int i = 0; i < 6_000; i++) {
+      knownRelations.add(new RelationalSymbolicValue(RelationalSymbolicValue.Kind.LESS_THAN, new SymbolicValue(), new SymbolicValue()));
+    }
+    SymbolicValue z = new SymbolicValue();
+    RelationalSymbolicValue zLessThanFirst = new RelationalSymbolicValue(RelationalSymbolicValue.Kind.LESS_THAN, z, chain.get(0));
+
+    Set<RelationalSymbolicValue> transitive = zLessThanFirst.transitiveRelations(knownRelations);
+    assertThat(transitive).hasSize(20)
+      .contains(new RelationalSymbolicValue(RelationalSymbolicValue.Kind.LESS_THAN, z, chain.get(20)));
+  }
+
+  @Test
+  public void relation_index_is_built_once_per_state_and_extended_by_layers() {
+    RelationalSymbolicValue ab = relationalSV(Tree.Kind.LESS_THAN, a, b);
+    RelationalSymbolicValue bc = relationalSV(Tree.Kind.LESS_THAN, b, c);
+    ProgramState ps = setTrue(ProgramState.EMPTY_STATE, ab);
+    RelationIndex index = ps.relationIndex();
+    assertThat(ps.relationIndex()).isSameAs(index);
+    assertThat(index.relationsOn(b)).containsExactly(ab);
+
+    RelationIndex layer = index.withMoreRelations();
+    layer.add(bc);
+    layer.add(ab);
+    assertThat(layer.contains(ab)).isTrue();
+    assertThat(layer.contains(bc)).isTrue();
+    assertThat(layer.relationsOn(b)).containsExactly(ab, bc);
+    assertThat(layer.relationsOn(c)).containsExactly(bc);
+    assertThat(index.contains(bc)).isFalse();
+    assertThat(index.relationsOn(b)).containsExactly(ab);
+  }
+
   @Test
   public void test_constraints_are_copied_over_transitive_relations() throws Exception {
     ProgramState ps = ProgramState.EMPTY_STATE;
@@ -0,0 +1,155 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se.xproc;
+
+import java.io.File;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.java.se.SETestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class PersistentBehaviorCacheTest {
+
+  private static final String IS_BLANK = "org.apache.commons.lang.StringUtils#isBlank(Ljava/lang/String;)Z";
+  private static final String MAX = "java.lang.Math#max(II)I";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void behaviors_are_reused_by_the_next_analyses() throws Exception {
+    File directory = temporaryFolder.newFolder();
+    PersistentBehaviorCache persistentCache = new PersistentBehaviorCache(directory);
+    BehaviorCache behaviorCache = behaviorCache(persistentCache);
+    MethodBehavior isBlank = behaviorCache.get(IS_BLANK);
+    MethodBehavior max = behaviorCache.get(MAX);
+    assertThat(isBlank.isComplete()).isTrue();
+    assertThat(directory.list()).isEmpty();
+    persistentCache.save();
+    assertThat(directory.list()).as("one entry for the jar, one for the JDK").hasSize(2);
+
+    PersistentBehaviorCache nextPersistentCache = new PersistentBehaviorCache(directory);
+    MethodBehavior restored = nextPersistentCache.read(IS_BLANK, SETestUtils.CLASSLOADER);
+    assertThat(restored).isNotNull();
+    assertThat(restored.isComplete()).isTrue();
+    assertThat(restored.isVisited()).isTrue();
+    assertThat(restored.isMethodVarArgs()).isEqualTo(isBlank.isMethodVarArgs());
+    assertThat(restored.getDeclaredExceptions()).isEqualTo(isBlank.getDeclaredExceptions());
+    assertThat(restored.yields()).isEqualTo(isBlank.yields());
+    assertThat(toString(restored)).isEqualTo(toString(isBlank));
+
+    BehaviorCache nextBehaviorCache = behaviorCache(nextPersistentCache);
+    MethodBehavior restoredMax = nextBehaviorCache.get(MAX);
+    assertThat(restoredMax).isNotSameAs(max);
+    assertThat(toString(restoredMax)).isEqualTo(toString(max));
+    assertThat(nextBehaviorCache.get(MAX)).isSameAs(restoredMax);
+  }
+
+  @Test
+  public void behaviors_of_classes_of_directories_are_not_cached() throws Exception {
+    File directory = temporaryFolder.newFolder();
+    PersistentBehaviorCache persistentCache = new PersistentBehaviorCache(directory);
+    MethodBehavior behavior = new MethodBehavior("org.sonar.java.se.xproc.PersistentBehaviorCacheTest#toString(Lorg/sonar/java/se/xproc/MethodBehavior;)Ljava/lang/String;");
+    behavior.completed();
+    persistentCache.write(behavior, SETestUtils.CLASSLOADER);
+    persistentCache.write(new MethodBehavior("org.foo.Unknown#foo()V"), SETestUtils.CLASSLOADER);
+    persistentCache.save();
+    assertThat(directory.list()).isEmpty();
+    assertThat(persistentCache.read(behavior.signature(), SETestUtils.CLASSLOADER)).isNull();
+  }
+
+  @Test
+  public void behaviors_of_the_jdk_are_identified_by_its_module_image() throws Exception {
+    assumeTrue("jrt".equals(SETestUtils.CLASSLOADER.getResource("java/lang/Math.class").getProtocol()));
+    File directory = temporaryFolder.newFolder();
+    File jdkHome = temporaryFolder.newFolder();
+    PersistentBehaviorCache persistentCache = new PersistentBehaviorCache(directory, jdkHome);
+    behaviorCache(persistentCache).get(MAX);
+    persistentCache.save();
+    assertThat(directory.list()).as("no module image").isEmpty();
+
+    File modules = new File(jdkHome, "lib/modules");
+    assertThat(modules.getParentFile().mkdirs()).isTrue();
+    Files.write(modules.toPath(), new byte[] {1, 2, 3});
+    Files.write(new File(jdkHome, "release").toPath(), "JAVA_VERSION=\"11.0.8\"".getBytes(StandardCharsets.UTF_8));
+    persistentCache = new PersistentBehaviorCache(directory, jdkHome);
+    behaviorCache(persistentCache).get(MAX);
+    persistentCache.save();
+    assertThat(directory.list()).hasSize(1);
+    assertThat(new PersistentBehaviorCache(directory, jdkHome).read(MAX, SETestUtils.CLASSLOADER)).isNotNull();
+
+    Files.write(modules.toPath(), new byte[] {1, 2, 3, 4});
+    assertThat(new PersistentBehaviorCache(directory, jdkHome).read(MAX, SETestUtils.CLASSLOADER)).as("other build of the JDK").isNull();
+    assertThat(new PersistentBehaviorCache(directory).read(MAX, SETestUtils.CLASSLOADER)).as("JDK running the analysis").isNull();
+  }
+
+  @Test
+  public void unreadable_entries_are_ignored() throws Exception {
+    File directory = temporaryFolder.newFolder();
+    PersistentBehaviorCache persistentCache = new PersistentBehaviorCache(directory);
+    behaviorCache(persistentCache).get(IS_BLANK);
+    persistentCache.save();
+    File entry = directory.listFiles()[0];
+    Files.write(entry.toPath(), new byte[] {1, 2, 3});
+
+    PersistentBehaviorCache nextPersistentCache = new PersistentBehaviorCache(directory);
+    assertThat(nextPersistentCache.read(IS_BLANK, SETestUtils.CLASSLOADER)).isNull();
+    behaviorCache(nextPersistentCache).get(IS_BLANK);
+    nextPersistentCache.save();
+    assertThat(new PersistentBehaviorCache(directory).read(IS_BLANK, SETestUtils.CLASSLOADER)).isNotNull();
+  }
+
+  @Test
+  public void unexpected_classes_are_not_deserialized() throws Exception {
+    File directory = temporaryFolder.newFolder();
+    PersistentBehaviorCache persistentCache = new PersistentBehaviorCache(directory);
+    behaviorCache(persistentCache).get(IS_BLANK);
+    persistentCache.save();
+    HashMap<String, Object> unexpected = new HashMap<>();
+    unexpected.put(IS_BLANK, new Date());
+    for (File entry : directory.listFiles()) {
+      try (ObjectOutputStream output = new ObjectOutputStream(Files.newOutputStream(entry.toPath()))) {
+        output.writeInt(PersistentBehaviorCache.FORMAT_VERSION);
+        output.writeObject(unexpected);
+      }
+    }
+
+    assertThat(new PersistentBehaviorCache(directory).read(IS_BLANK, SETestUtils.CLASSLOADER)).isNull();
+  }
+
+  private static BehaviorCache behaviorCache(PersistentBehaviorCache persistentCache) {
+    BehaviorCache behaviorCache = new BehaviorCache(SETestUtils.CLASSLOADER);
+    behaviorCache.setPersistentCache(persistentCache);
+    return behaviorCache;
+  }
+
+  private static String toString(MethodBehavior behavior) {
+    return behavior.yields().stream().map(MethodYield::toString).collect(Collectors.joining(","));
+  }
+}